@@ -0,0 +1,238 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+// Ασύγχρονος handler: τα threads που κάνουν log απλώς βάζουν το record σε ring buffer,
+// ενώ ένα daemon thread το προωθεί στους πραγματικούς handlers (αρχείο, κονσόλα, GUI).
+// Κάθε "πηγή" (π.χ. FFPLAY, FFMPEG Streaming) έχει δικό της όριο ρυθμού με δειγματοληψία.
+public class AsyncLogHandler extends Handler {
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_BATCH = 256;
+    private static final long SUMMARY_INTERVAL_MS = 5000;
+
+    private final BlockingQueue<LogRecord> ringBuffer;
+    private final List<Handler> delegates = new CopyOnWriteArrayList<>();
+    private final Map<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<String, double[]> sourceLimits = new ConcurrentHashMap<>();
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private final Thread drainer;
+
+    private volatile boolean running = true;
+    private volatile double defaultRatePerSecond = 20.0;
+    private volatile int defaultBurst = 50;
+    private volatile int sampleEvery = 100;
+
+    public AsyncLogHandler(Handler... handlers) {
+        this(DEFAULT_CAPACITY, handlers);
+    }
+
+    public AsyncLogHandler(int capacity, Handler... handlers) {
+        ringBuffer = new ArrayBlockingQueue<>(capacity);
+        for (Handler handler : handlers) {
+            delegates.add(handler);
+        }
+
+        drainer = new Thread(this::drainLoop, "async-log-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+        // Το close() (άδειασμα του buffer) το καλεί ο κάτοχος, μετά τα τελευταία του logs
+    }
+
+    public void addDelegate(Handler handler) {
+        delegates.add(handler);
+    }
+
+    public void removeDelegate(Handler handler) {
+        delegates.remove(handler);
+    }
+
+    // Προεπιλεγμένο όριο για όλες τις πηγές χωρίς ειδική ρύθμιση
+    public void setDefaultRateLimit(double perSecond, int burst) {
+        this.defaultRatePerSecond = perSecond;
+        this.defaultBurst = burst;
+        limiters.clear();
+    }
+
+    public void setRateLimit(String source, double perSecond, int burst) {
+        sourceLimits.put(source, new double[]{perSecond, burst});
+        limiters.remove(source);
+    }
+
+    // Όταν μια πηγή ξεπεράσει το όριο, περνάει μόνο 1 στα N μηνύματα
+    public void setSampleEvery(int n) {
+        this.sampleEvery = Math.max(1, n);
+    }
+
+    public long getDroppedCount() {
+        return droppedRecords.get();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!running || !isLoggable(record)) {
+            return;
+        }
+
+        // Τα warnings/errors δεν υπόκεινται σε περιορισμό ρυθμού
+        if (record.getLevel().intValue() < Level.WARNING.intValue()) {
+            RateLimiter limiter = limiters.computeIfAbsent(sourceOf(record), this::newLimiter);
+            if (!limiter.tryAcquire(sampleEvery)) {
+                return;
+            }
+        }
+
+        // Ποτέ δεν μπλοκάρουμε τον καλούντα: αν ο buffer είναι γεμάτος, το record χάνεται
+        if (!ringBuffer.offer(record)) {
+            droppedRecords.incrementAndGet();
+        }
+    }
+
+    private RateLimiter newLimiter(String source) {
+        double[] limit = sourceLimits.get(source);
+        if (limit != null) {
+            return new RateLimiter(limit[0], (int) limit[1]);
+        }
+        return new RateLimiter(defaultRatePerSecond, defaultBurst);
+    }
+
+    // Η πηγή είναι το πρόθεμα του μηνύματος πριν το πρώτο ':' (π.χ. "FFPLAY: ...")
+    static String sourceOf(LogRecord record) {
+        String message = record.getMessage();
+        if (message != null) {
+            int colon = message.indexOf(':');
+            if (colon > 0 && colon <= 32) {
+                return message.substring(0, colon);
+            }
+        }
+        return record.getLoggerName() != null ? record.getLoggerName() : "";
+    }
+
+    private void drainLoop() {
+        List<LogRecord> batch = new ArrayList<>(MAX_BATCH);
+        long lastSummary = System.currentTimeMillis();
+
+        while (running || !ringBuffer.isEmpty()) {
+            try {
+                LogRecord first = ringBuffer.poll(200, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    ringBuffer.drainTo(batch, MAX_BATCH - 1);
+                    publishBatch(batch);
+                    batch.clear();
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastSummary >= SUMMARY_INTERVAL_MS) {
+                    publishSuppressedSummary();
+                    lastSummary = now;
+                }
+            } catch (InterruptedException e) {
+                // Συνεχίζουμε μέχρι να αδειάσει ο buffer
+            }
+        }
+    }
+
+    private void publishBatch(List<LogRecord> batch) {
+        for (Handler handler : delegates) {
+            for (LogRecord record : batch) {
+                try {
+                    handler.publish(record);
+                } catch (RuntimeException e) {
+                    reportError("Σφάλμα handler", e, java.util.logging.ErrorManager.WRITE_FAILURE);
+                }
+            }
+            handler.flush();
+        }
+    }
+
+    private void publishSuppressedSummary() {
+        List<LogRecord> summary = new ArrayList<>();
+        for (Map.Entry<String, RateLimiter> entry : limiters.entrySet()) {
+            long suppressed = entry.getValue().takeSuppressed();
+            if (suppressed > 0) {
+                summary.add(new LogRecord(Level.INFO, "Περιορισμός log: παραλείφθηκαν " + suppressed +
+                                          " μηνύματα από '" + entry.getKey() + "'"));
+            }
+        }
+        long dropped = droppedRecords.getAndSet(0);
+        if (dropped > 0) {
+            summary.add(new LogRecord(Level.WARNING, "Γέμισε ο log buffer: χάθηκαν " + dropped + " μηνύματα"));
+        }
+        if (!summary.isEmpty()) {
+            publishBatch(summary);
+        }
+    }
+
+    @Override
+    public void flush() {
+        for (Handler handler : delegates) {
+            handler.flush();
+        }
+    }
+
+    @Override
+    public void close() throws SecurityException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        drainer.interrupt();
+        try {
+            drainer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Handler handler : delegates) {
+            handler.close();
+        }
+    }
+
+    // Token bucket ανά πηγή, με δειγματοληψία 1/N όταν αδειάσει
+    private static class RateLimiter {
+        private final double ratePerMs;
+        private final int burst;
+        private double tokens;
+        private long lastRefill;
+        private long overLimitCount;
+        private long suppressed;
+
+        RateLimiter(double perSecond, int burst) {
+            this.ratePerMs = perSecond / 1000.0;
+            this.burst = burst;
+            this.tokens = burst;
+            this.lastRefill = System.currentTimeMillis();
+        }
+
+        synchronized boolean tryAcquire(int sampleEvery) {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerMs);
+            lastRefill = now;
+
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return true;
+            }
+
+            if (overLimitCount++ % sampleEvery == 0) {
+                return true;
+            }
+            suppressed++;
+            return false;
+        }
+
+        synchronized long takeSuppressed() {
+            long value = suppressed;
+            suppressed = 0;
+            return value;
+        }
+    }
+}
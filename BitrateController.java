@@ -0,0 +1,91 @@
+import java.util.logging.*;
+
+// Έλεγχος συμφόρησης για ζωντανό stream (στο πνεύμα του GCC).
+// Σε κάθε αναφορά του client (RTCP RR + APP "RATE") αποφασίζει νέο ρυθμό-στόχο:
+//   - αύξηση καθυστέρησης (delay gradient) ή απώλειες > 10%: μείωση κάτω από τον ρυθμό λήψης
+//   - απώλειες < 2% χωρίς αύξηση καθυστέρησης: πολλαπλασιαστική αύξηση ~8%
+//   - ενδιάμεσα: διατήρηση
+public class BitrateController {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    private static final double OVERUSE_GRADIENT_MS_PER_S = 4.0;
+    private static final double HIGH_LOSS = 0.10;
+    private static final double LOW_LOSS = 0.02;
+    private static final double INCREASE_FACTOR = 1.08;
+    private static final double BACKOFF_FACTOR = 0.85;
+
+    // Μία αναφορά του client
+    public static class Feedback {
+        final double lossFraction;
+        final double receivedKbps;
+        final double delayGradientMs;
+        final double rttMs;
+
+        public Feedback(double lossFraction, double receivedKbps, double delayGradientMs, double rttMs) {
+            this.lossFraction = lossFraction;
+            this.receivedKbps = receivedKbps;
+            this.delayGradientMs = delayGradientMs;
+            this.rttMs = rttMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("απώλειες %.1f%%, λήψη %.0f kbps, μεταβολή καθυστέρησης %.1f ms/s, RTT %.0f ms",
+                                 lossFraction * 100, receivedKbps, delayGradientMs, rttMs);
+        }
+    }
+
+    private final int minKbps;
+    private final int maxKbps;
+    private double targetKbps;
+
+    public BitrateController(int initialKbps, int minKbps, int maxKbps) {
+        this.minKbps = minKbps;
+        this.maxKbps = Math.max(minKbps, maxKbps);
+        this.targetKbps = clamp(initialKbps);
+    }
+
+    public int getTargetKbps() {
+        return (int) targetKbps;
+    }
+
+    // Αν η αναφορά επιβεβαιώνει ότι ο τρέχων ρυθμός φτάνει καθαρά: χωρίς ουσιαστικές απώλειες
+    // και χωρίς αύξηση καθυστέρησης (βλ. άμεση έναρξη στο VideoStreamer)
+    public boolean confirms(Feedback feedback) {
+        return feedback.lossFraction < LOW_LOSS && feedback.delayGradientMs <= OVERUSE_GRADIENT_MS_PER_S;
+    }
+
+    // Άλμα στο ανώτατο όριο, χωρίς τα σταδιακά βήματα της αύξησης
+    public int raiseToMax() {
+        double previous = targetKbps;
+        targetKbps = maxKbps;
+        logger.fine(String.format("Ρυθμός-στόχος %.0f -> %.0f kbps (άλμα στο όριο)", previous, targetKbps));
+        return (int) targetKbps;
+    }
+
+    public int update(Feedback feedback) {
+        double previous = targetKbps;
+        boolean overuse = feedback.delayGradientMs > OVERUSE_GRADIENT_MS_PER_S;
+
+        if (overuse || feedback.lossFraction > HIGH_LOSS) {
+            // Μείωση με βάση αυτό που πραγματικά φτάνει στον client
+            double base = feedback.receivedKbps > 0 ? Math.min(targetKbps, feedback.receivedKbps) : targetKbps;
+            double next = base * BACKOFF_FACTOR;
+            if (feedback.lossFraction > HIGH_LOSS) {
+                next = Math.min(next, targetKbps * (1 - 0.5 * feedback.lossFraction));
+            }
+            targetKbps = clamp(next);
+        } else if (feedback.lossFraction < LOW_LOSS) {
+            targetKbps = clamp(targetKbps * INCREASE_FACTOR);
+        }
+
+        if ((int) previous != (int) targetKbps) {
+            logger.fine(String.format("Ρυθμός-στόχος %.0f -> %.0f kbps (%s)", previous, targetKbps, feedback));
+        }
+        return (int) targetKbps;
+    }
+
+    private double clamp(double kbps) {
+        return Math.max(minKbps, Math.min(maxKbps, kbps));
+    }
+}
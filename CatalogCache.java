@@ -0,0 +1,84 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.logging.*;
+
+// Τοπική cache του καταλόγου στον client, ανά server και format.
+// Κρατά το ETag της τελευταίας απάντησης ώστε το GET_VIDEOS να είναι υπό συνθήκη
+// και αποθηκεύεται σε αρχείο για να χρησιμοποιείται και μετά από επανασύνδεση.
+public class CatalogCache {
+    private static final Logger logger = Logger.getLogger(StreamingClient.class.getName());
+    public static final String NO_ETAG = "*";
+
+    private final Path file;
+    private final Properties entries = new Properties();
+
+    public CatalogCache(Path file) {
+        this.file = file;
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                entries.load(in);
+            } catch (IOException e) {
+                logger.warning("Σφάλμα ανάγνωσης catalog cache: " + e.getMessage());
+            }
+        }
+    }
+
+    private static String key(String server, String format) {
+        return server + "/" + format;
+    }
+
+    public synchronized String getETag(String server, String format) {
+        return entries.getProperty(key(server, format) + ".etag", NO_ETAG);
+    }
+
+    public synchronized List<String> getVideos(String server, String format) {
+        String videos = entries.getProperty(key(server, format) + ".videos");
+        if (videos == null || videos.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(Arrays.asList(videos.split("\n")));
+    }
+
+    // Ολόκληρη λίστα (VIDEO_SNAPSHOT)
+    public synchronized void putSnapshot(String server, String format, String etag, List<String> videos) {
+        entries.setProperty(key(server, format) + ".etag", etag);
+        entries.setProperty(key(server, format) + ".videos", String.join("\n", new TreeSet<>(videos)));
+        save();
+    }
+
+    // Εφαρμογή delta ("+όνομα" / "-όνομα"). Επιστρέφει τη νέα ταξινομημένη λίστα.
+    public synchronized List<String> applyDelta(String server, String format, String etag, List<String> changes) {
+        TreeSet<String> videos = new TreeSet<>(getVideos(server, format));
+        for (String change : changes) {
+            if (change.startsWith("+")) {
+                videos.add(change.substring(1));
+            } else if (change.startsWith("-")) {
+                videos.remove(change.substring(1));
+            }
+        }
+        entries.setProperty(key(server, format) + ".etag", etag);
+        entries.setProperty(key(server, format) + ".videos", String.join("\n", videos));
+        save();
+        return new ArrayList<>(videos);
+    }
+
+    public synchronized void invalidate(String server, String format) {
+        entries.remove(key(server, format) + ".etag");
+        entries.remove(key(server, format) + ".videos");
+        save();
+    }
+
+    private void save() {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            entries.store(out, "Streaming client catalog cache");
+        } catch (IOException e) {
+            logger.warning("Σφάλμα αποθήκευσης catalog cache: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.*;
+
+// Μία σύνδεση ελέγχου client. Τα αιτήματα με request id (v2) εκτελούνται παράλληλα
+// και οι απαντήσεις στέλνονται μόλις είναι έτοιμες. Τα αιτήματα v1 εξυπηρετούνται
+// με τη σειρά, όπως πριν.
+public class ClientSession implements Closeable {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    public interface RequestHandler {
+        ControlProtocol.Message handle(ClientSession session, ControlProtocol.Message request) throws Exception;
+    }
+
+    // Ό,τι μεταδίδεται για αυτή τη σύνδεση: τοπικό stream ή stream που δρομολογήθηκε σε κόμβο
+    public interface ActiveStream {
+        boolean isAlive();
+        void stop();
+    }
+
+    private final Socket socket;
+    private final ControlProtocol.Channel channel;
+    private final RequestHandler handler;
+    private final ExecutorService workers;
+    private volatile boolean open = true;
+    private ActiveStream activeStream;
+
+    public ClientSession(Socket socket, RequestHandler handler, ExecutorService workers) throws IOException {
+        this.socket = socket;
+        this.channel = new ControlProtocol.Channel(socket.getInputStream(), socket.getOutputStream());
+        this.handler = handler;
+        this.workers = workers;
+    }
+
+    public InetAddress getClientAddress() {
+        return socket.getInetAddress();
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    // Βρόχος ανάγνωσης αιτημάτων μέχρι να κλείσει η σύνδεση
+    public void run() throws IOException {
+        while (open) {
+            ControlProtocol.Message request;
+            try {
+                request = channel.read();
+            } catch (ControlProtocol.MalformedMessage e) {
+                channel.write(e.errorReply());
+                continue;
+            } catch (IllegalArgumentException e) {
+                channel.writeLine("ERROR:" + e.getMessage());
+                continue;
+            }
+            if (request == null) {
+                break;
+            }
+
+            logger.info("Λήφθηκε αίτημα: " + request);
+
+            if (request.command.equals(ControlProtocol.HELLO)) {
+                handleHello(request);
+            } else if (request.isTagged()) {
+                workers.execute(() -> dispatch(request));
+            } else {
+                dispatch(request);
+            }
+        }
+    }
+
+    private void handleHello(ControlProtocol.Message request) throws IOException {
+        boolean wantsBinary = ControlProtocol.BINARY.equals(request.arg(1));
+        String encoding = wantsBinary ? ControlProtocol.BINARY : ControlProtocol.TEXT;
+        channel.write(request.reply(ControlProtocol.HELLO, String.valueOf(ControlProtocol.VERSION), encoding));
+        if (wantsBinary) {
+            channel.switchToBinary();
+            logger.info("Ο client " + getClientAddress() + " πέρασε σε binary πρωτόκολλο");
+        }
+    }
+
+    private void dispatch(ControlProtocol.Message request) {
+        ControlProtocol.Message response;
+        try {
+            response = handler.handle(this, request);
+        } catch (Exception e) {
+            logger.warning("Σφάλμα εκτέλεσης " + request.command + ": " + e.getMessage());
+            response = request.reply("ERROR", "Σφάλμα: " + e.getMessage());
+        }
+
+        if (response == null) {
+            return;
+        }
+        try {
+            send(response);
+        } catch (IOException e) {
+            if (open) {
+                logger.warning("Σφάλμα αποστολής απάντησης: " + e.getMessage());
+            }
+        }
+    }
+
+    public void send(ControlProtocol.Message message) throws IOException {
+        channel.write(message);
+    }
+
+    // Νέο stream αντικαθιστά το προηγούμενο της ίδιας σύνδεσης
+    public synchronized void setActiveStream(ActiveStream stream) {
+        stopActiveStream();
+        activeStream = stream;
+    }
+
+    public synchronized boolean stopActiveStream() {
+        boolean alive = activeStream != null && activeStream.isAlive();
+        if (activeStream != null) {
+            activeStream.stop();
+        }
+        activeStream = null;
+        return alive;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        stopActiveStream();
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.warning("Σφάλμα κλεισίματος client socket: " + e.getMessage());
+        }
+    }
+}
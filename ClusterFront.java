@@ -0,0 +1,283 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.*;
+import java.util.zip.CRC32;
+
+// Ο front ενός cluster: οι ταινίες είναι μοιρασμένες στους κόμβους (ConsistentHashRing).
+// Ο κατάλογος συντίθεται από όλους τους κόμβους (scatter/gather) και κάθε START_STREAM
+// δρομολογείται σε έναν κόμβο που έχει την ταινία, με δική του σύνδεση ανά θεατή.
+// Ο κόμβος στέλνει το stream κατευθείαν στον θεατή (client=), όχι μέσω του front.
+public class ClusterFront {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final long NODE_TIMEOUT_MS = 10_000;
+    // Ο κόμβος περιμένει την εκκίνηση του FFMPEG πριν απαντήσει
+    private static final long START_TIMEOUT_MS = 30_000;
+
+    private final ServerConfig config;
+    private final ConsistentHashRing ring;
+    private final int pageSize;
+    // Μία κοινή σύνδεση ανά κόμβο για τα αιτήματα καταλόγου (pipelined, v2)
+    private final Map<String, ControlClient> catalogClients = new HashMap<>();
+    // Streams που δρομολόγησε αυτός ο front ανά κόμβο, για την επιλογή αντιγράφου
+    private final Map<String, AtomicInteger> activeStreams = new ConcurrentHashMap<>();
+
+    public ClusterFront(ServerConfig config, int pageSize) {
+        this.config = config;
+        this.ring = new ConsistentHashRing(config.getClusterNodes());
+        this.pageSize = pageSize;
+        for (String node : ring.getNodes()) {
+            activeStreams.put(node, new AtomicInteger());
+        }
+    }
+
+    public List<String> getNodes() {
+        return ring.getNodes();
+    }
+
+    // GET_VIDEOS: η ένωση των λιστών όλων των κόμβων. Το ETag του front είναι checksum της
+    // ενωμένης λίστας, οπότε ο client κερδίζει το NOT_MODIFIED (όχι όμως τα delta των κόμβων).
+    public ControlProtocol.Message getVideos(ControlProtocol.Message request) {
+        if (request.args.size() < 2) {
+            return request.reply("ERROR", "Λανθασμένη μορφή αιτήματος");
+        }
+        Map<String, ControlProtocol.Message> replies = scatter("GET_VIDEOS", request.args.subList(0, 2));
+        if (replies.isEmpty()) {
+            return request.reply("ERROR", "Κανένας κόμβος του cluster δεν είναι διαθέσιμος");
+        }
+
+        TreeSet<String> merged = new TreeSet<>();
+        for (Map.Entry<String, ControlProtocol.Message> entry : replies.entrySet()) {
+            ControlProtocol.Message reply = entry.getValue();
+            if (!reply.command.equals("VIDEO_LIST")) {
+                logger.warning("Cluster: ο κόμβος " + entry.getKey() + " απάντησε " + reply);
+                continue;
+            }
+            for (String video : reply.args) {
+                if (!video.trim().isEmpty()) {
+                    merged.add(video.trim());
+                }
+            }
+        }
+        logger.info("Cluster: κατάλογος " + merged.size() + " βίντεο από " + replies.size() + "/" + ring.getNodes().size() + " κόμβους");
+
+        if (request.args.size() < 3) {
+            return request.reply("VIDEO_LIST", new ArrayList<>(merged));
+        }
+        String etag = checksum(merged, request.arg(0), request.arg(1));
+        if (etag.equals(request.arg(2))) {
+            return request.reply("NOT_MODIFIED", etag);
+        }
+        if (merged.size() > pageSize) {
+            // Όπως ο απλός server: μεγάλος κατάλογος σε σελίδες
+            List<String> page = new ArrayList<>(merged).subList(0, pageSize);
+            List<String> reply = new ArrayList<>(page.size() + 1);
+            reply.add(page.get(page.size() - 1));
+            reply.addAll(page);
+            return request.reply("VIDEO_PAGE", reply);
+        }
+        List<String> snapshot = new ArrayList<>(merged.size() + 1);
+        snapshot.add(etag);
+        snapshot.addAll(merged);
+        return request.reply("VIDEO_SNAPSHOT", snapshot);
+    }
+
+    // GET_VIDEOS_PAGE: ίδιο cursor/limit σε όλους, συγχώνευση και τα πρώτα limit.
+    // Ό,τι δεν επέστρεψε κάποιος κόμβος είναι μετά τη δική του σελίδα, άρα και μετά το νέο cursor.
+    public ControlProtocol.Message getVideosPage(ControlProtocol.Message request) {
+        if (request.args.size() < 4) {
+            return request.reply("ERROR", "Λανθασμένη μορφή αιτήματος");
+        }
+        int limit;
+        try {
+            limit = Math.max(1, Math.min(Integer.parseInt(request.arg(3)), VideoCatalog.MAX_PAGE_SIZE));
+        } catch (NumberFormatException e) {
+            return request.reply("ERROR", "Λανθασμένες παράμετροι σελίδας");
+        }
+        Map<String, ControlProtocol.Message> replies = scatter("GET_VIDEOS_PAGE", request.args);
+        if (replies.isEmpty()) {
+            return request.reply("ERROR", "Κανένας κόμβος του cluster δεν είναι διαθέσιμος");
+        }
+
+        TreeSet<String> merged = new TreeSet<>();
+        boolean more = false;
+        for (Map.Entry<String, ControlProtocol.Message> entry : replies.entrySet()) {
+            ControlProtocol.Message reply = entry.getValue();
+            if (!reply.command.equals("VIDEO_PAGE") || reply.args.isEmpty()) {
+                logger.warning("Cluster: ο κόμβος " + entry.getKey() + " απάντησε " + reply);
+                continue;
+            }
+            more |= !reply.arg(0).isEmpty();
+            merged.addAll(reply.args.subList(1, reply.args.size()));
+        }
+
+        List<String> items = new ArrayList<>(merged);
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            more = true;
+        }
+        List<String> reply = new ArrayList<>(items.size() + 1);
+        reply.add(more && !items.isEmpty() ? items.get(items.size() - 1) : "");
+        reply.addAll(items);
+        return request.reply("VIDEO_PAGE", reply);
+    }
+
+    // START_STREAM: στον λιγότερο φορτωμένο κόμβο που έχει την ταινία, με τους υπόλοιπους ως εφεδρεία
+    public ControlProtocol.Message startStream(ClientSession session, ControlProtocol.Message request) {
+        if (request.args.size() < 2) {
+            return request.reply("ERROR", "Λανθασμένη μορφή αιτήματος");
+        }
+        VideoFile video = VideoCatalog.parseVideoFile(request.arg(0));
+        if (video == null) {
+            return request.reply("ERROR", "Μη έγκυρο όνομα αρχείου: " + request.arg(0));
+        }
+
+        List<String> owners = ring.nodesFor(video.movieName, config.getReplicas(video.movieName));
+        List<String> args = new ArrayList<>(request.args);
+        args.add("client=" + session.getClientAddress().getHostAddress());
+
+        String lastError = "Κανένας κόμβος δεν έχει την ταινία";
+        String node;
+        while ((node = reserve(owners)) != null) {
+            ControlClient client = new ControlClient(host(node), port(node));
+            try {
+                client.connect(CONNECT_TIMEOUT_MS, true);
+                ControlProtocol.Message reply = client.request(START_TIMEOUT_MS, "START_STREAM", args).get();
+                if (reply.command.equals("STREAM_STARTED")) {
+                    session.setActiveStream(new RoutedStream(node, client));
+                    logger.info("Cluster: " + request.arg(0) + " από τον κόμβο " + node + " προς " + session.getClientAddress());
+                    return request.reply(reply.command, reply.args);
+                }
+                lastError = reply.args.isEmpty() ? reply.command : reply.arg(0);
+                logger.warning("Cluster: ο κόμβος " + node + " δεν ξεκίνησε το " + request.arg(0) + ": " + lastError);
+            } catch (Exception e) {
+                lastError = "Ο κόμβος " + node + " δεν είναι διαθέσιμος";
+                logger.warning("Cluster: αποτυχία σύνδεσης με τον κόμβο " + node + ": " + ControlClient.unwrap(e).getMessage());
+            }
+            client.close();
+            activeStreams.get(node).decrementAndGet();
+        }
+        return request.reply("ERROR", "Σφάλμα εκκίνησης streaming: " + lastError);
+    }
+
+    // Ο λιγότερο φορτωμένος από τους υποψήφιους (σε ισοβαθμία ο κύριος), δεσμευμένος αμέσως ώστε
+    // ταυτόχρονα αιτήματα να μοιράζονται στα αντίγραφα. Αφαιρείται από τη λίστα για την εφεδρεία.
+    private synchronized String reserve(List<String> candidates) {
+        String best = null;
+        for (String node : candidates) {
+            if (best == null || activeStreams.get(node).get() < activeStreams.get(best).get()) {
+                best = node;
+            }
+        }
+        if (best != null) {
+            candidates.remove(best);
+            activeStreams.get(best).incrementAndGet();
+        }
+        return best;
+    }
+
+    // Το stream ζει όσο και η σύνδεση προς τον κόμβο: με το κλείσιμό της ο κόμβος το σταματά
+    private class RoutedStream implements ClientSession.ActiveStream {
+        private final String node;
+        private final ControlClient client;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        RoutedStream(String node, ControlClient client) {
+            this.node = node;
+            this.client = client;
+            client.setDisconnectListener(cause -> {
+                logger.warning("Cluster: χάθηκε η σύνδεση με τον κόμβο " + node + ": " + cause.getMessage());
+                release();
+            });
+        }
+
+        @Override
+        public boolean isAlive() {
+            return client.isConnected();
+        }
+
+        @Override
+        public void stop() {
+            client.close();
+            release();
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                activeStreams.get(node).decrementAndGet();
+            }
+        }
+    }
+
+    // Το ίδιο αίτημα σε όλους τους κόμβους παράλληλα· επιστρέφει όσους απάντησαν
+    private Map<String, ControlProtocol.Message> scatter(String command, List<String> args) {
+        Map<String, CompletableFuture<ControlProtocol.Message>> pending = new LinkedHashMap<>();
+        for (String node : ring.getNodes()) {
+            try {
+                pending.put(node, catalogClient(node).request(NODE_TIMEOUT_MS, command, args));
+            } catch (IOException e) {
+                logger.warning("Cluster: ο κόμβος " + node + " δεν είναι διαθέσιμος: " + e.getMessage());
+            }
+        }
+        Map<String, ControlProtocol.Message> replies = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<ControlProtocol.Message>> entry : pending.entrySet()) {
+            try {
+                replies.put(entry.getKey(), entry.getValue().get());
+            } catch (Exception e) {
+                logger.warning("Cluster: χωρίς απάντηση από τον κόμβο " + entry.getKey() + ": " +
+                               ControlClient.unwrap(e).getMessage());
+            }
+        }
+        return replies;
+    }
+
+    private synchronized ControlClient catalogClient(String node) throws IOException {
+        ControlClient client = catalogClients.get(node);
+        if (client == null || !client.isConnected()) {
+            if (client != null) {
+                client.close();
+            }
+            client = new ControlClient(host(node), port(node));
+            catalogClients.put(node, client);
+            client.connect(CONNECT_TIMEOUT_MS, true);
+        }
+        return client;
+    }
+
+    private static String checksum(TreeSet<String> videos, String speed, String format) {
+        CRC32 crc = new CRC32();
+        for (String video : videos) {
+            crc.update(video.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        return "c" + Long.toHexString(crc.getValue()) + "." + format + "." + speed;
+    }
+
+    private static String host(String node) {
+        int colon = node.lastIndexOf(':');
+        return colon > 0 ? node.substring(0, colon) : node;
+    }
+
+    private static int port(String node) {
+        int colon = node.lastIndexOf(':');
+        return colon > 0 ? Integer.parseInt(node.substring(colon + 1)) : 8888;
+    }
+
+    public synchronized void close() {
+        for (ControlClient client : catalogClients.values()) {
+            client.close();
+        }
+        catalogClients.clear();
+    }
+}
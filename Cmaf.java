@@ -0,0 +1,219 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// Τα κουτιά (boxes) του fragmented MP4 / CMAF που χρειάζονται στη λειτουργία χαμηλής καθυστέρησης:
+//   init:   ftyp + moov (timescale ανά track στο mdhd)
+//   chunk:  moof + mdat (ο χρόνος του πρώτου sample στο tfdt)
+//   prft:   Producer Reference Time (ISO/IEC 14496-12): ο χρόνος NTP στον οποίο το sample με
+//           media_time μπήκε στον encoder. Ο server το προσθέτει πριν από κάθε moof και ο client
+//           το συγκρίνει με την ώρα λήψης για να μετρήσει την καθυστέρηση.
+public class Cmaf {
+    private static final long NTP_EPOCH_OFFSET_SECONDS = 2_208_988_800L;
+    // Ανώτατο μέγεθος κουτιού που δεχόμαστε στη μνήμη (ένα chunk μερικών εκατοντάδων ms)
+    private static final int MAX_BOX_BYTES = 64 * 1024 * 1024;
+
+    public static class Box {
+        final String type;
+        // Ολόκληρο το κουτί, μαζί με την κεφαλίδα
+        final byte[] data;
+
+        Box(String type, byte[] data) {
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+    // Το επόμενο κουτί πρώτου επιπέδου, ή null στο τέλος της ροής
+    public static Box read(InputStream in) throws IOException {
+        byte[] header = new byte[8];
+        int read = in.readNBytes(header, 0, 8);
+        if (read == 0) {
+            return null;
+        }
+        if (read < 8) {
+            throw new EOFException("Ατελής κεφαλίδα κουτιού");
+        }
+        long size = ByteBuffer.wrap(header).getInt() & 0xFFFFFFFFL;
+        String type = new String(header, 4, 4, StandardCharsets.ISO_8859_1);
+        int headerSize = 8;
+        byte[] largeSize = null;
+        if (size == 1) {
+            largeSize = in.readNBytes(8);
+            if (largeSize.length < 8) {
+                throw new EOFException("Ατελής κεφαλίδα κουτιού " + type);
+            }
+            size = ByteBuffer.wrap(largeSize).getLong();
+            headerSize = 16;
+        }
+        if (size < headerSize || size > MAX_BOX_BYTES) {
+            throw new IOException("Μη υποστηριζόμενο μέγεθος κουτιού " + type + ": " + size);
+        }
+        byte[] data = new byte[(int) size];
+        System.arraycopy(header, 0, data, 0, 8);
+        if (largeSize != null) {
+            System.arraycopy(largeSize, 0, data, 8, 8);
+        }
+        if (in.readNBytes(data, headerSize, data.length - headerSize) < data.length - headerSize) {
+            throw new EOFException("Ατελές κουτί " + type);
+        }
+        return new Box(type, data);
+    }
+
+    // Θέση του πρώτου παιδιού τύπου type μέσα στο [start, end), ή -1
+    private static int find(byte[] data, int start, int end, String type) {
+        int offset = start;
+        while (offset + 8 <= end) {
+            int size = ByteBuffer.wrap(data, offset, 4).getInt();
+            if (size < 8 || offset + size > end) {
+                return -1;
+            }
+            if (new String(data, offset + 4, 4, StandardCharsets.ISO_8859_1).equals(type)) {
+                return offset;
+            }
+            offset += size;
+        }
+        return -1;
+    }
+
+    private static int end(byte[] data, int box) {
+        return box + ByteBuffer.wrap(data, box, 4).getInt();
+    }
+
+    // Ένα track του init segment
+    public static class Track {
+        final long trackId;
+        final long timescale;
+        final boolean video;
+        // default_sample_flags του trex, ή -1 αν δεν υπάρχει
+        final long defaultSampleFlags;
+
+        Track(long trackId, long timescale, boolean video, long defaultSampleFlags) {
+            this.trackId = trackId;
+            this.timescale = timescale;
+            this.video = video;
+            this.defaultSampleFlags = defaultSampleFlags;
+        }
+    }
+
+    // Τα tracks του moov: trak/tkhd (track_ID), trak/mdia/mdhd (timescale), trak/mdia/hdlr (τύπος)
+    // και mvex/trex (προεπιλεγμένες σημαίες samples)
+    public static Map<Long, Track> tracks(byte[] moov) {
+        ByteBuffer buffer = ByteBuffer.wrap(moov);
+        Map<Long, Long> trexFlags = new HashMap<>();
+        int mvex = find(moov, 8, moov.length, "mvex");
+        int trex = mvex < 0 ? -1 : find(moov, mvex + 8, end(moov, mvex), "trex");
+        while (trex >= 0) {
+            trexFlags.put(buffer.getInt(trex + 12) & 0xFFFFFFFFL, buffer.getInt(trex + 28) & 0xFFFFFFFFL);
+            trex = find(moov, end(moov, trex), end(moov, mvex), "trex");
+        }
+
+        Map<Long, Track> tracks = new HashMap<>();
+        int offset = 8;
+        while (true) {
+            int trak = find(moov, offset, moov.length, "trak");
+            if (trak < 0) {
+                return tracks;
+            }
+            int trakEnd = end(moov, trak);
+            int tkhd = find(moov, trak + 8, trakEnd, "tkhd");
+            int mdia = find(moov, trak + 8, trakEnd, "mdia");
+            int mdhd = mdia < 0 ? -1 : find(moov, mdia + 8, end(moov, mdia), "mdhd");
+            int hdlr = mdia < 0 ? -1 : find(moov, mdia + 8, end(moov, mdia), "hdlr");
+            if (tkhd >= 0 && mdhd >= 0) {
+                // Έκδοση 1: χρόνοι δημιουργίας/τροποποίησης 64 bit
+                long trackId = buffer.getInt(tkhd + 12 + (moov[tkhd + 8] == 1 ? 16 : 8)) & 0xFFFFFFFFL;
+                long timescale = buffer.getInt(mdhd + 12 + (moov[mdhd + 8] == 1 ? 16 : 8)) & 0xFFFFFFFFL;
+                boolean video = hdlr >= 0 && new String(moov, hdlr + 16, 4, StandardCharsets.ISO_8859_1).equals("vide");
+                tracks.put(trackId, new Track(trackId, timescale, video, trexFlags.getOrDefault(trackId, -1L)));
+            }
+            offset = trakEnd;
+        }
+    }
+
+    // Το traf του track μέσα στο moof, ή -1
+    private static int traf(byte[] moof, long trackId) {
+        int offset = 8;
+        while (true) {
+            int traf = find(moof, offset, moof.length, "traf");
+            if (traf < 0) {
+                return -1;
+            }
+            int tfhd = find(moof, traf + 8, end(moof, traf), "tfhd");
+            if (tfhd >= 0 && (ByteBuffer.wrap(moof).getInt(tfhd + 12) & 0xFFFFFFFFL) == trackId) {
+                return traf;
+            }
+            offset = end(moof, traf);
+        }
+    }
+
+    // baseMediaDecodeTime (tfdt) του track στο chunk, ή -1
+    public static long decodeTime(byte[] moof, long trackId) {
+        int traf = traf(moof, trackId);
+        int tfdt = traf < 0 ? -1 : find(moof, traf + 8, end(moof, traf), "tfdt");
+        if (tfdt < 0) {
+            return -1;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(moof);
+        return moof[tfdt + 8] == 1 ? buffer.getLong(tfdt + 12) : buffer.getInt(tfdt + 12) & 0xFFFFFFFFL;
+    }
+
+    // Αν το πρώτο sample του track στο chunk είναι sync (keyframe), δηλαδή αν από εδώ ξεκινά segment.
+    // Οι σημαίες του πρώτου sample: trun first_sample_flags, αλλιώς sample_flags του trun,
+    // αλλιώς default_sample_flags του tfhd ή του trex. null αν δεν δίνονται πουθενά.
+    public static Boolean startsWithSync(byte[] moof, Track track) {
+        int traf = traf(moof, track.trackId);
+        if (traf < 0) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(moof);
+        long flags = track.defaultSampleFlags;
+        int tfhd = find(moof, traf + 8, end(moof, traf), "tfhd");
+        int tfhdFlags = buffer.getInt(tfhd + 8) & 0xFFFFFF;
+        if ((tfhdFlags & 0x20) != 0) {
+            int position = tfhd + 16;
+            position += (tfhdFlags & 0x01) != 0 ? 8 : 0;
+            position += (tfhdFlags & 0x02) != 0 ? 4 : 0;
+            position += (tfhdFlags & 0x08) != 0 ? 4 : 0;
+            position += (tfhdFlags & 0x10) != 0 ? 4 : 0;
+            flags = buffer.getInt(position) & 0xFFFFFFFFL;
+        }
+        int trun = find(moof, traf + 8, end(moof, traf), "trun");
+        if (trun >= 0) {
+            int trunFlags = buffer.getInt(trun + 8) & 0xFFFFFF;
+            int position = trun + 16 + ((trunFlags & 0x01) != 0 ? 4 : 0);
+            if ((trunFlags & 0x04) != 0) {
+                flags = buffer.getInt(position) & 0xFFFFFFFFL;
+            } else if ((trunFlags & 0x400) != 0 && buffer.getInt(trun + 12) > 0) {
+                position += (trunFlags & 0x100) != 0 ? 4 : 0;
+                position += (trunFlags & 0x200) != 0 ? 4 : 0;
+                flags = buffer.getInt(position) & 0xFFFFFFFFL;
+            }
+        }
+        // sample_is_non_sync_sample
+        return flags < 0 ? null : (flags & 0x00010000) == 0;
+    }
+
+    // prft έκδοσης 1 (media_time 64 bit), flags 0: χρόνος εισόδου στον encoder
+    public static byte[] prft(long trackId, long wallMillis, long mediaTime) {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        buffer.putInt(32).put("prft".getBytes(StandardCharsets.ISO_8859_1));
+        buffer.putInt(0x01000000);
+        buffer.putInt((int) trackId);
+        long seconds = wallMillis / 1000 + NTP_EPOCH_OFFSET_SECONDS;
+        long fraction = (wallMillis % 1000) * (1L << 32) / 1000;
+        buffer.putLong((seconds << 32) | fraction);
+        buffer.putLong(mediaTime);
+        return buffer.array();
+    }
+
+    // Ο χρόνος (ms από το 1970) του prft
+    public static long prftWallMillis(byte[] prft) {
+        long ntp = ByteBuffer.wrap(prft).getLong(16);
+        long seconds = (ntp >>> 32) - NTP_EPOCH_OFFSET_SECONDS;
+        long fraction = ntp & 0xFFFFFFFFL;
+        return seconds * 1000 + fraction * 1000 / (1L << 32);
+    }
+}
@@ -0,0 +1,224 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.*;
+
+// Λειτουργία χαμηλής καθυστέρησης (CMAF): το FFMPEG γράφει fragmented MP4 στο stdout σε chunks
+// των 200 ms (moof + mdat) και ο publisher τα στέλνει με HTTP chunked transfer (GET /live) μόλις
+// ολοκληρωθεί το καθένα, χωρίς να περιμένει ολόκληρο segment. Κάθε viewer παίρνει το init
+// segment (ftyp + moov) και ξεκινά από το τρέχον segment (το τελευταίο chunk που αρχίζει με
+// keyframe), ώστε να αρχίσει αμέσως να αποκωδικοποιεί.
+// Πριν από κάθε chunk προστίθεται ένα prft με τον χρόνο λήψης του πρώτου του sample: με -re το
+// sample με media time t διαβάζεται t δευτερόλεπτα μετά την αρχή, οπότε ο χρόνος λήψης είναι η
+// άφιξη του init segment συν t. Ο client το συγκρίνει με την ώρα λήψης για να μετρήσει την καθυστέρηση.
+public class CmafPublisher implements Closeable {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    public static final String PATH = "/live";
+
+    // Chunks σε αναμονή ανά viewer (~12 s): ένας viewer που μένει τόσο πίσω αποσυνδέεται
+    private static final int VIEWER_QUEUE_CHUNKS = 64;
+    // Ανώτατο μέγεθος του τρέχοντος segment όταν δεν βρίσκονται keyframes
+    private static final long MAX_SEGMENT_BYTES = 16 * 1024 * 1024;
+    private static final int STOP_DELAY_SECONDS = 2;
+    private static final byte[] END = new byte[0];
+
+    private final HttpServer server;
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "cmaf-viewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<BlockingQueue<byte[]>> viewers = new CopyOnWriteArrayList<>();
+
+    // Κατάσταση του stream, υπό το lock του publisher
+    private byte[] init;
+    private final List<byte[]> segment = new ArrayList<>();
+    private long segmentBytes;
+    private boolean ended = false;
+
+    private Cmaf.Track reference;
+    private long firstDecodeTime = -1;
+    private long startMillis;
+    private long chunks;
+    // Αν το chunk που διαβάζεται αρχίζει segment (keyframe), null αν δεν είναι γνωστό
+    private Boolean pendingSync;
+
+    public CmafPublisher(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(workers);
+        server.start();
+        logger.info("CMAF χαμηλής καθυστέρησης στο http://<server>:" + port + PATH);
+    }
+
+    // Ανάγνωση της εξόδου του FFMPEG σε ξεχωριστό thread έως το τέλος της
+    public void publish(InputStream ffmpegOutput) {
+        new Thread(() -> {
+            try (InputStream in = new BufferedInputStream(ffmpegOutput)) {
+                ByteArrayOutputStream pending = new ByteArrayOutputStream();
+                Cmaf.Box box;
+                while ((box = Cmaf.read(in)) != null) {
+                    switch (box.type) {
+                        case "ftyp":
+                            pending.write(box.data);
+                            break;
+                        case "moov":
+                            pending.write(box.data);
+                            onInit(pending.toByteArray(), box.data);
+                            pending.reset();
+                            break;
+                        case "moof":
+                            pending.write(prftFor(box.data));
+                            pending.write(box.data);
+                            break;
+                        case "mdat":
+                            pending.write(box.data);
+                            onChunk(pending.toByteArray(), pendingSync);
+                            pending.reset();
+                            break;
+                        default:
+                            // styp, sidx, emsg κ.λπ. μένουν μπροστά από το επόμενο chunk
+                            pending.write(box.data);
+                            break;
+                    }
+                }
+            } catch (IOException e) {
+                logger.warning("Σφάλμα ανάγνωσης CMAF από το FFMPEG: " + e.getMessage());
+            } finally {
+                finish();
+            }
+        }, "cmaf-publisher").start();
+    }
+
+    private synchronized void onInit(byte[] initSegment, byte[] moov) {
+        startMillis = System.currentTimeMillis();
+        Map<Long, Cmaf.Track> tracks = Cmaf.tracks(moov);
+        // Αναφορά το track εικόνας (τα segments ξεκινούν από τα keyframes του), αλλιώς όποιο υπάρχει
+        reference = tracks.values().stream().filter(track -> track.video).findFirst()
+                          .orElse(tracks.values().stream().findFirst().orElse(null));
+        init = initSegment;
+        for (BlockingQueue<byte[]> viewer : viewers) {
+            deliver(viewer, init);
+        }
+    }
+
+    private byte[] prftFor(byte[] moof) {
+        Cmaf.Track track = reference;
+        long decodeTime = track != null ? Cmaf.decodeTime(moof, track.trackId) : -1;
+        pendingSync = decodeTime >= 0 ? Cmaf.startsWithSync(moof, track) : null;
+        if (decodeTime < 0 || track.timescale == 0) {
+            return new byte[0];
+        }
+        if (firstDecodeTime < 0) {
+            firstDecodeTime = decodeTime;
+        }
+        long captureMillis = startMillis + (decodeTime - firstDecodeTime) * 1000 / track.timescale;
+        return Cmaf.prft(track.trackId, captureMillis, decodeTime);
+    }
+
+    private synchronized void onChunk(byte[] chunk, Boolean sync) {
+        chunks++;
+        // Χωρίς πληροφορία keyframe κάθε chunk θεωρείται αρχή segment
+        if (!Boolean.FALSE.equals(sync) || segmentBytes + chunk.length > MAX_SEGMENT_BYTES) {
+            segment.clear();
+            segmentBytes = 0;
+        }
+        if (!Boolean.FALSE.equals(sync) || !segment.isEmpty()) {
+            segment.add(chunk);
+            segmentBytes += chunk.length;
+        }
+        for (BlockingQueue<byte[]> viewer : viewers) {
+            deliver(viewer, chunk);
+        }
+    }
+
+    // Ένας viewer που δεν προλαβαίνει αποσυνδέεται: η καθυστέρησή του θα μεγάλωνε συνεχώς
+    private void deliver(BlockingQueue<byte[]> viewer, byte[] data) {
+        if (!viewer.offer(data)) {
+            viewers.remove(viewer);
+            viewer.clear();
+            viewer.offer(END);
+            logger.warning("Αποσύνδεση viewer CMAF που δεν προλαβαίνει τη ροή");
+        }
+    }
+
+    private synchronized void finish() {
+        if (ended) {
+            // Έκλεισε ήδη με STOP
+            return;
+        }
+        ended = true;
+        for (BlockingQueue<byte[]> viewer : viewers) {
+            deliver(viewer, END);
+        }
+        logger.info("Τέλος ροής CMAF μετά από " + chunks + " chunks");
+        // Χρόνος στους viewers να πάρουν τα τελευταία chunks
+        workers.execute(() -> server.stop(STOP_DELAY_SECONDS));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET") || !exchange.getRequestURI().getPath().equals(PATH)) {
+                exchange.sendResponseHeaders(exchange.getRequestMethod().equals("GET") ? 404 : 405, -1);
+                return;
+            }
+            BlockingQueue<byte[]> viewer = new ArrayBlockingQueue<>(VIEWER_QUEUE_CHUNKS + 1);
+            int backlog = 0;
+            synchronized (this) {
+                if (ended) {
+                    exchange.sendResponseHeaders(410, -1);
+                    return;
+                }
+                if (init != null) {
+                    viewer.offer(init);
+                    // Ένα segment που δεν χωρά στην ουρά παραλείπεται: ο player περιμένει το επόμενο keyframe
+                    if (segment.size() < VIEWER_QUEUE_CHUNKS) {
+                        viewer.addAll(segment);
+                        backlog = segment.size();
+                    }
+                }
+                viewers.add(viewer);
+            }
+            logger.info("Viewer CMAF " + exchange.getRemoteAddress() + " (segment σε εξέλιξη: " + backlog + " chunks)");
+
+            exchange.getResponseHeaders().set("Content-Type", "video/mp4");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            // Μήκος 0: chunked transfer, κάθε flush στέλνει αμέσως ό,τι γράφτηκε
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                byte[] data;
+                while ((data = viewer.take()) != END) {
+                    out.write(data);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                logger.info("Ο viewer CMAF " + exchange.getRemoteAddress() + " αποσυνδέθηκε: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                viewers.remove(viewer);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            ended = true;
+        }
+        server.stop(0);
+        workers.shutdownNow();
+    }
+}
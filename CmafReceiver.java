@@ -0,0 +1,194 @@
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.util.function.Consumer;
+import java.util.logging.*;
+
+// Λήψη του CMAF χαμηλής καθυστέρησης (βλ. CmafPublisher) με HTTP chunked transfer. Κάθε κουτί
+// προωθείται στον player μόλις φτάσει, οπότε η αναπαραγωγή ξεκινά από τα chunks του τρέχοντος
+// segment χωρίς να περιμένει ολόκληρο segment. Από τα prft μετριέται η καθυστέρηση από τη λήψη
+// στον server (είσοδος στον encoder) έως την άφιξη στον client· η προσωρινή αποθήκευση του ίδιου
+// του player για την εμφάνιση δεν περιλαμβάνεται. Server και client στο ίδιο ρολόι (localhost).
+public class CmafReceiver implements Closeable {
+    private static final Logger logger = Logger.getLogger(StreamingClient.class.getName());
+
+    // Στόχος καθυστέρησης από τη λήψη έως τον client
+    public static final long TARGET_LATENCY_MS = 2000;
+    private static final long STATS_INTERVAL_MS = 1000;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    // Καθυστέρηση ενός διαστήματος (ή συνολικά)
+    public static class Stats {
+        long chunks;
+        long bytes;
+        long lastMs = -1;
+        long sumMs;
+        long minMs = Long.MAX_VALUE;
+        long maxMs;
+        long overTarget;
+
+        public long getChunks() {
+            return chunks;
+        }
+
+        public double getAverageMs() {
+            return chunks == 0 ? 0 : (double) sumMs / chunks;
+        }
+
+        public long getMaxMs() {
+            return maxMs;
+        }
+
+        void add(long latencyMs, int size) {
+            chunks++;
+            bytes += size;
+            lastMs = latencyMs;
+            sumMs += latencyMs;
+            minMs = Math.min(minMs, latencyMs);
+            maxMs = Math.max(maxMs, latencyMs);
+            if (latencyMs > TARGET_LATENCY_MS) {
+                overTarget++;
+            }
+        }
+
+        @Override
+        public String toString() {
+            if (chunks == 0) {
+                return "chunks 0";
+            }
+            return String.format("chunks %d, καθυστέρηση τρέχουσα %d ms, μέση %.0f ms, ελάχιστη %d ms, μέγιστη %d ms, " +
+                                 "πάνω από τον στόχο %d ms: %d, δεδομένα %d KB",
+                                 chunks, lastMs, getAverageMs(), minMs, maxMs, TARGET_LATENCY_MS, overTarget, bytes / 1024);
+        }
+    }
+
+    private final URL url;
+    private volatile HttpURLConnection connection;
+    private volatile boolean running = false;
+    private volatile Consumer<Stats> statsListener = stats -> {};
+    private final Stats totals = new Stats();
+    private Stats interval = new Stats();
+    private long intervalStartMillis;
+    // Αν ο player κλείσει, η λήψη συνεχίζει για τη μέτρηση της καθυστέρησης
+    private OutputStream sink;
+
+    public CmafReceiver(String host, int port) throws IOException {
+        this.url = URI.create("http://" + host + ":" + port + CmafPublisher.PATH).toURL();
+    }
+
+    public void setStatsListener(Consumer<Stats> listener) {
+        this.statsListener = listener;
+    }
+
+    public synchronized Stats getTotals() {
+        Stats copy = new Stats();
+        copy.chunks = totals.chunks;
+        copy.bytes = totals.bytes;
+        copy.lastMs = totals.lastMs;
+        copy.sumMs = totals.sumMs;
+        copy.minMs = totals.minMs;
+        copy.maxMs = totals.maxMs;
+        copy.overTarget = totals.overTarget;
+        return copy;
+    }
+
+    // Λήψη σε ξεχωριστό thread και προώθηση στον player
+    public void start(OutputStream player) {
+        running = true;
+        new Thread(() -> {
+            try {
+                HttpURLConnection http = (HttpURLConnection) url.openConnection();
+                connection = http;
+                http.setConnectTimeout(CONNECT_TIMEOUT_MS);
+                http.setUseCaches(false);
+                if (http.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("Απάντηση HTTP " + http.getResponseCode());
+                }
+                logger.info("Λήψη CMAF από " + url + ", στόχος καθυστέρησης " + TARGET_LATENCY_MS + " ms");
+                intervalStartMillis = System.currentTimeMillis();
+                try (InputStream in = new BufferedInputStream(http.getInputStream())) {
+                    Cmaf.Box box;
+                    long captureMillis = -1;
+                    int chunkBytes = 0;
+                    while (running && (box = Cmaf.read(in)) != null) {
+                        if (box.type.equals("prft")) {
+                            captureMillis = Cmaf.prftWallMillis(box.data);
+                        } else {
+                            writeToPlayer(player, box.data);
+                            chunkBytes += box.data.length;
+                        }
+                        // Το chunk έχει φτάσει ολόκληρο με το mdat του
+                        if (box.type.equals("mdat")) {
+                            if (captureMillis >= 0) {
+                                record(System.currentTimeMillis() - captureMillis, chunkBytes);
+                            }
+                            captureMillis = -1;
+                            chunkBytes = 0;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    logger.warning("Διακοπή λήψης CMAF: " + e.getMessage());
+                }
+            } finally {
+                running = false;
+                logger.info("Συνολικά στατιστικά CMAF: " + getTotals());
+                try {
+                    player.close();
+                } catch (IOException e) {
+                    // Ο player έχει ήδη τερματίσει
+                }
+            }
+        }, "cmaf-receiver").start();
+    }
+
+    private void writeToPlayer(OutputStream player, byte[] data) {
+        if (sink == null) {
+            sink = player;
+        }
+        try {
+            sink.write(data);
+            sink.flush();
+        } catch (IOException e) {
+            logger.fine("Ο player δεν δέχεται δεδομένα: " + e.getMessage());
+            sink = OutputStream.nullOutputStream();
+        }
+    }
+
+    private void record(long latencyMs, int size) {
+        Stats report = null;
+        synchronized (this) {
+            totals.add(latencyMs, size);
+            interval.add(latencyMs, size);
+            long now = System.currentTimeMillis();
+            if (now - intervalStartMillis >= STATS_INTERVAL_MS) {
+                report = interval;
+                interval = new Stats();
+                intervalStartMillis = now;
+            }
+        }
+        if (report != null) {
+            if (report.maxMs > TARGET_LATENCY_MS) {
+                logger.warning("Λήψη CMAF πάνω από τον στόχο: " + report);
+            } else {
+                logger.info("Λήψη CMAF: " + report);
+            }
+            statsListener.accept(report);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        HttpURLConnection http = connection;
+        if (http != null) {
+            http.disconnect();
+        }
+    }
+}
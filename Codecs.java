@@ -0,0 +1,193 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.*;
+
+// Οι codecs εικόνας των εκδόσεων. Το H.264 είναι η βάση που παίζει παντού· οι εκδόσεις HEVC και AV1
+// έχουν το codec στο όνομα (π.χ. Forrest_Gump-720p.hevc.mp4) και χρειάζονται 30-50% μικρότερο ρυθμό
+// για την ίδια ποιότητα. Ποιοι encoders/decoders υπάρχουν ελέγχεται μία φορά ανά διεργασία.
+public class Codecs {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    public static final String H264 = "h264";
+    // Από τον λιγότερο στον περισσότερο αποδοτικό
+    public static final String[] ALL = {H264, "hevc", "av1"};
+
+    // Ρυθμός σε σχέση με το H.264 για την ίδια ποιότητα
+    private static final Map<String, Double> BITRATE_FACTORS = Map.of(
+        "h264", 1.0,
+        "hevc", 0.6,
+        "av1", 0.5
+    );
+
+    private static final Map<String, String> ENCODERS = Map.of(
+        "h264", "libx264",
+        "hevc", "libx265",
+        "av1", "libsvtav1"
+    );
+
+    // Διάρκεια GOP όλων των εκδόσεων: keyframes στα ίδια χρονικά σημεία (0, 2, 4, ... s) σε κάθε
+    // ανάλυση και codec, με κλειστά GOP, ώστε η αλλαγή έκδοσης σε όριο GOP να μη χρειάζεται reset
+    public static final double GOP_SECONDS = 2;
+
+    private static Set<String> encoders;
+    private static Set<String> decoders;
+    private static boolean ffmpegAvailable;
+
+    private Codecs() {
+    }
+
+    public static boolean isKnown(String codec) {
+        return BITRATE_FACTORS.containsKey(codec);
+    }
+
+    public static double bitrateFactor(String codec) {
+        return BITRATE_FACTORS.getOrDefault(codec, 1.0);
+    }
+
+    // Το τμήμα του ονόματος αρχείου για το codec: κενό για H.264, π.χ. ".hevc" για τα υπόλοιπα
+    public static String suffix(String codec) {
+        return codec.equals(H264) ? "" : "." + codec;
+    }
+
+    // Τα AVI δεν μεταφέρουν σωστά HEVC/AV1: εκεί μόνο H.264
+    public static boolean fitsContainer(String codec, String format) {
+        return codec.equals(H264) || !format.equals(".avi");
+    }
+
+    public static synchronized boolean isFFMPEGAvailable() {
+        detect();
+        return ffmpegAvailable;
+    }
+
+    // Codecs που μπορεί να παράγει το τοπικό FFMPEG (το H.264 πάντα, ως βάση)
+    public static synchronized Set<String> encoders() {
+        detect();
+        return encoders;
+    }
+
+    // Codecs που μπορεί να αναπαράγει το τοπικό ffplay
+    public static synchronized Set<String> decoders() {
+        detect();
+        return decoders;
+    }
+
+    private static void detect() {
+        if (encoders != null) {
+            return;
+        }
+        Set<String> encoding = new LinkedHashSet<>(List.of(H264));
+        Set<String> decoding = new LinkedHashSet<>(List.of(H264));
+        List<String> encoderLines = list("-encoders");
+        List<String> decoderLines = list("-decoders");
+        ffmpegAvailable = encoderLines != null;
+        for (String codec : ALL) {
+            if (encoderLines != null && containsWord(encoderLines, ENCODERS.get(codec))) {
+                encoding.add(codec);
+            }
+            // Για AV1 ο decoder μπορεί να λέγεται av1, libdav1d ή libaom-av1: αρκεί το "av1" στη γραμμή
+            if (decoderLines != null && decoderLines.stream().anyMatch(line -> line.contains(codec))) {
+                decoding.add(codec);
+            }
+        }
+        encoders = Collections.unmodifiableSet(encoding);
+        decoders = Collections.unmodifiableSet(decoding);
+        logger.info("FFMPEG " + (ffmpegAvailable ? "διαθέσιμο" : "μη διαθέσιμο") +
+                    ", encoders: " + encoders + ", decoders: " + decoders);
+    }
+
+    private static boolean containsWord(List<String> lines, String word) {
+        for (String line : lines) {
+            if (Arrays.asList(line.trim().split("\\s+")).contains(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Η έξοδος του "ffmpeg -encoders/-decoders", ή null αν το FFMPEG δεν εκτελείται
+    private static List<String> list(String option) {
+        try {
+            Process process = new ProcessBuilder("ffmpeg", "-hide_banner", option).redirectErrorStream(true).start();
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                }
+            }
+            return process.waitFor() == 0 ? lines : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // Κωδικοποίηση εκδόσεων στον δίσκο (ποιότητα σταθερή, ρυθμός όσος χρειαστεί)
+    public static List<String> fileArgs(String codec) {
+        List<String> args = new ArrayList<>();
+        switch (codec) {
+            case "hevc":
+                // hvc1: για αναπαραγωγή HEVC από MP4 σε players της Apple
+                args.addAll(Arrays.asList("-c:v", "libx265", "-preset", "fast", "-crf", "28", "-tag:v", "hvc1"));
+                break;
+            case "av1":
+                args.addAll(Arrays.asList("-c:v", "libsvtav1", "-preset", "8", "-crf", "35"));
+                break;
+            default:
+                args.addAll(Arrays.asList("-c:v", "libx264", "-preset", "fast", "-crf", "23"));
+                break;
+        }
+        args.addAll(gopArgs(codec, GOP_SECONDS));
+        return args;
+    }
+
+    // Keyframe κάθε intervalSeconds με βάση τον χρόνο (όχι τα frames), χωρίς επιπλέον keyframes σε
+    // αλλαγές σκηνής και με κλειστά GOP. Διάστημα που διαιρεί το GOP_SECONDS διατηρεί την ευθυγράμμιση.
+    public static List<String> gopArgs(String codec, double intervalSeconds) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+            "-force_key_frames", "expr:gte(t,n_forced*" + intervalSeconds + ")"));
+        switch (codec) {
+            case "hevc":
+                args.addAll(Arrays.asList("-x265-params", "scenecut=0:open-gop=0"));
+                break;
+            case "av1":
+                // Το SVT-AV1 κάνει κλειστά GOP από προεπιλογή· χωρίς ανίχνευση σκηνών
+                args.addAll(Arrays.asList("-svtav1-params", "scd=0"));
+                break;
+            default:
+                args.addAll(Arrays.asList("-sc_threshold", "0", "-flags", "+cgop"));
+                break;
+        }
+        return args;
+    }
+
+    // Το codec της μετάδοσης για μια έκδοση. Το MPEG-TS δεν έχει τυποποιημένη αντιστοίχιση για AV1,
+    // οπότε μια έκδοση AV1 μεταδίδεται ως HEVC (που έχει κάθε ffplay με AV1), ή ως H.264 χωρίς libx265.
+    public static String liveCodec(String codec) {
+        String live = codec.equals("av1") ? "hevc" : codec;
+        return encoders().contains(live) ? live : H264;
+    }
+
+    // Κωδικοποίηση σε πραγματικό χρόνο για streaming, με ρυθμό-στόχο
+    public static List<String> liveArgs(String codec, int kbps) {
+        List<String> args = new ArrayList<>();
+        switch (codec) {
+            case "hevc":
+                args.addAll(Arrays.asList("-c:v", "libx265", "-preset", "ultrafast", "-tune", "zerolatency"));
+                break;
+            default:
+                args.addAll(Arrays.asList("-c:v", "libx264", "-preset", "ultrafast", "-tune", "zerolatency"));
+                break;
+        }
+        args.addAll(Arrays.asList("-b:v", kbps + "k", "-maxrate", kbps + "k", "-bufsize", (2 * kbps) + "k"));
+        return args;
+    }
+}
@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Ανάθεση ταινιών σε κόμβους με consistent hashing πάνω στο όνομα της ταινίας.
+// Κάθε κόμβος έχει πολλά εικονικά σημεία στον δακτύλιο ώστε το φορτίο να μοιράζεται ομοιόμορφα·
+// με την προσθήκη κόμβου μετακινείται μόνο ~1/N των ταινιών. Τα αντίγραφα μιας ταινίας είναι
+// οι επόμενοι διαφορετικοί κόμβοι δεξιόστροφα.
+public class ConsistentHashRing {
+    private static final int VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final List<String> nodes;
+
+    public ConsistentHashRing(List<String> nodes) {
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(nodes)));
+        for (String node : this.nodes) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    // Οι κόμβοι που κρατούν την ταινία, με σειρά προτίμησης (ο πρώτος είναι ο κύριος)
+    public List<String> nodesFor(String movieName, int replicas) {
+        int wanted = Math.min(Math.max(1, replicas), nodes.size());
+        Set<String> owners = new LinkedHashSet<>();
+        if (ring.isEmpty()) {
+            return new ArrayList<>(owners);
+        }
+        long point = hash(movieName);
+        for (String node : ring.tailMap(point).values()) {
+            if (owners.size() == wanted) {
+                break;
+            }
+            owners.add(node);
+        }
+        for (String node : ring.headMap(point).values()) {
+            if (owners.size() == wanted) {
+                break;
+            }
+            owners.add(node);
+        }
+        return new ArrayList<>(owners);
+    }
+
+    // Τα πρώτα 8 bytes του MD5: ομοιόμορφη κατανομή, ίδια σε κάθε JVM
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Εμφανίζει σε ποιους κόμβους ανήκει κάθε ταινία, π.χ. για το μοίρασμα των αρχείων:
+    //   java ConsistentHashRing --cluster.nodes a:8888,b:8888 [--cluster.replicas 1] [--videos φάκελος | ταινίες...]
+    public static void main(String[] args) throws IOException {
+        List<String> titles = new ArrayList<>();
+        List<String> options = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                options.add(args[i]);
+                if (!args[i].contains("=") && i + 1 < args.length) {
+                    options.add(args[++i]);
+                }
+            } else {
+                titles.add(args[i]);
+            }
+        }
+
+        ServerConfig config;
+        try {
+            config = ServerConfig.fromArgs(options.toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Σφάλμα ρυθμίσεων: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (!config.isCluster()) {
+            System.err.println("Χρήση: java ConsistentHashRing --cluster.nodes host:port,... [--videos φάκελος | ταινίες...]");
+            System.exit(2);
+        }
+
+        if (titles.isEmpty()) {
+            try (Stream<Path> files = Files.list(Paths.get(config.getVideosFolder()))) {
+                titles = files.map(file -> VideoCatalog.parseVideoFile(file.getFileName().toString()))
+                              .filter(video -> video != null)
+                              .map(video -> video.movieName)
+                              .distinct()
+                              .sorted()
+                              .collect(Collectors.toList());
+            }
+        }
+
+        ConsistentHashRing ring = new ConsistentHashRing(config.getClusterNodes());
+        Map<String, Integer> perNode = new TreeMap<>();
+        for (String title : new TreeSet<>(titles)) {
+            List<String> owners = ring.nodesFor(title, config.getReplicas(title));
+            System.out.println(title + " -> " + String.join(", ", owners));
+            for (String owner : owners) {
+                perNode.merge(owner, 1, Integer::sum);
+            }
+        }
+        System.out.println();
+        for (String node : ring.getNodes()) {
+            System.out.println(node + ": " + perNode.getOrDefault(node, 0) + " ταινίες");
+        }
+    }
+}
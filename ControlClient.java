@@ -0,0 +1,222 @@
+import java.io.*;
+import java.net.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.*;
+
+// Ασύγχρονο επίπεδο δικτύου του client για το πρωτόκολλο ελέγχου (v2).
+// Όλο το I/O γίνεται σε δικά του threads: ένα για αποστολή και ένα για λήψη.
+// Κάθε αίτημα επιστρέφει CompletableFuture που ολοκληρώνεται με την απάντηση
+// του ίδιου request id, ή αποτυγχάνει με timeout / ακύρωση / αποσύνδεση.
+// Δεν εξαρτάται από Swing, οπότε χρησιμοποιείται και headless (π.χ. load generation).
+public class ControlClient implements Closeable {
+    private static final Logger logger = Logger.getLogger(StreamingClient.class.getName());
+    public static final long DEFAULT_TIMEOUT_MS = 10_000;
+
+    private final String host;
+    private final int port;
+    private final AtomicInteger nextRequestId = new AtomicInteger(1);
+    private final Map<Integer, CompletableFuture<ControlProtocol.Message>> pending = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+
+    private volatile Socket socket;
+    private volatile ControlProtocol.Channel channel;
+    private volatile boolean connected = false;
+    private volatile Consumer<Throwable> disconnectListener = error -> {};
+    private long defaultTimeoutMs = DEFAULT_TIMEOUT_MS;
+
+    public ControlClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+        this.sender = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "control-io-send");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void setDisconnectListener(Consumer<Throwable> listener) {
+        this.disconnectListener = listener;
+    }
+
+    public void setDefaultTimeout(long timeoutMs) {
+        this.defaultTimeoutMs = timeoutMs;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public CompletableFuture<Void> connectAsync(int connectTimeoutMs, boolean binary) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                connect(connectTimeoutMs, binary);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, sender);
+    }
+
+    // Σύγχρονη σύνδεση (για headless χρήση από δικό του thread)
+    public void connect(int connectTimeoutMs, boolean binary) throws IOException {
+        Socket newSocket = new Socket();
+        newSocket.setTcpNoDelay(true);
+        newSocket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+        ControlProtocol.Channel newChannel = new ControlProtocol.Channel(newSocket.getInputStream(), newSocket.getOutputStream());
+
+        // Διαπραγμάτευση έκδοσης/κωδικοποίησης
+        newSocket.setSoTimeout(connectTimeoutMs);
+        newChannel.writeLine("HELLO:" + ControlProtocol.VERSION + ":" + (binary ? ControlProtocol.BINARY : ControlProtocol.TEXT));
+        String hello = newChannel.readLine();
+        if (hello == null || !hello.startsWith(ControlProtocol.HELLO + ":")) {
+            newSocket.close();
+            throw new IOException("Ο server δεν υποστηρίζει το πρωτόκολλο v" + ControlProtocol.VERSION);
+        }
+        if (binary && hello.endsWith(ControlProtocol.BINARY)) {
+            newChannel.switchToBinary();
+        }
+        newSocket.setSoTimeout(0);
+
+        socket = newSocket;
+        channel = newChannel;
+        connected = true;
+
+        Thread reader = new Thread(this::readLoop, "control-io-receive");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public CompletableFuture<ControlProtocol.Message> request(String command, String... args) {
+        return request(defaultTimeoutMs, command, args);
+    }
+
+    public CompletableFuture<ControlProtocol.Message> request(long timeoutMs, String command, String... args) {
+        return request(timeoutMs, command, Arrays.asList(args));
+    }
+
+    public CompletableFuture<ControlProtocol.Message> request(long timeoutMs, String command, List<String> args) {
+        CompletableFuture<ControlProtocol.Message> future = new CompletableFuture<>();
+        if (!connected) {
+            future.completeExceptionally(new IOException("Δεν υπάρχει σύνδεση με τον server"));
+            return future;
+        }
+
+        int requestId = nextRequestId.getAndIncrement();
+        pending.put(requestId, future);
+
+        // Timeout ή cancel() αφαιρούν το αίτημα από τα εκκρεμή
+        future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+              .whenComplete((response, error) -> pending.remove(requestId));
+
+        ControlProtocol.Message message = new ControlProtocol.Message(requestId, command, args);
+        sender.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                channel.write(message);
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+                connectionLost(e);
+            }
+        });
+        return future;
+    }
+
+    // Ακύρωση όλων των εκκρεμών αιτημάτων (π.χ. από κουμπί του GUI)
+    public int cancelAll() {
+        int cancelled = 0;
+        for (CompletableFuture<ControlProtocol.Message> future : pending.values()) {
+            if (future.cancel(false)) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private void readLoop() {
+        try {
+            ControlProtocol.Message response;
+            while ((response = channel.read()) != null) {
+                CompletableFuture<ControlProtocol.Message> future = pending.remove(response.requestId);
+                if (future != null) {
+                    future.complete(response);
+                } else {
+                    logger.fine("Απάντηση για άγνωστο/ληγμένο αίτημα: " + response);
+                }
+            }
+            connectionLost(new EOFException("Ο server έκλεισε τη σύνδεση"));
+        } catch (IOException | IllegalArgumentException e) {
+            connectionLost(e);
+        }
+    }
+
+    private void connectionLost(Throwable cause) {
+        if (!connected) {
+            return;
+        }
+        connected = false;
+        for (CompletableFuture<ControlProtocol.Message> future : pending.values()) {
+            future.completeExceptionally(cause);
+        }
+        pending.clear();
+        closeSocket();
+        disconnectListener.accept(cause);
+    }
+
+    private void closeSocket() {
+        Socket current = socket;
+        if (current != null && !current.isClosed()) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                logger.warning("Σφάλμα κλεισίματος socket: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        boolean wasConnected = connected;
+        connected = false;
+        for (CompletableFuture<ControlProtocol.Message> future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+        closeSocket();
+        sender.shutdown();
+        if (wasConnected) {
+            logger.fine("Έκλεισε η σύνδεση ελέγχου");
+        }
+    }
+
+    // Το πραγματικό σφάλμα πίσω από CompletionException κ.λπ.
+    public static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,328 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Πρωτόκολλο ελέγχου client/server.
+//
+// v1 (παλιό):   COMMAND:arg:arg                       - αυστηρά αίτημα/απάντηση
+// v2 (κείμενο): @id:COMMAND:arg:arg                   - τα ':' '%' και αλλαγές γραμμής
+//                                                       στα ορίσματα κωδικοποιούνται ως %XX
+// v2 (binary):  [int μήκος][int id][short πλήθος πεδίων]([int μήκος][UTF-8 bytes])*
+//
+// Με request id ο client μπορεί να στείλει πολλά αιτήματα χωρίς να περιμένει
+// και οι απαντήσεις επιστρέφουν με το ίδιο id, πιθανώς με άλλη σειρά.
+// Η μετάβαση σε binary γίνεται με "HELLO:2:BINARY" (απάντηση σε κείμενο, μετά binary).
+public class ControlProtocol {
+    public static final int VERSION = 2;
+    public static final int NO_ID = -1;
+    public static final String HELLO = "HELLO";
+    public static final String BINARY = "BINARY";
+    public static final String TEXT = "TEXT";
+
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    public static class Message {
+        final int requestId;
+        final String command;
+        final List<String> args;
+
+        public Message(int requestId, String command, List<String> args) {
+            this.requestId = requestId;
+            this.command = command;
+            this.args = args;
+        }
+
+        public Message(int requestId, String command, String... args) {
+            this(requestId, command, Arrays.asList(args));
+        }
+
+        public boolean isTagged() {
+            return requestId != NO_ID;
+        }
+
+        public String arg(int index) {
+            return index < args.size() ? args.get(index) : null;
+        }
+
+        public Message reply(String command, List<String> args) {
+            return new Message(requestId, command, args);
+        }
+
+        public Message reply(String command, String... args) {
+            return new Message(requestId, command, Arrays.asList(args));
+        }
+
+        @Override
+        public String toString() {
+            return isTagged() ? formatText(this) : formatLegacy(this);
+        }
+    }
+
+    // Λανθασμένο αίτημα v2 με έγκυρο request id: η απάντηση ERROR επιστρέφει με το ίδιο id,
+    // ώστε ο client να την αντιστοιχίσει στο αίτημά του
+    public static class MalformedMessage extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+        final int requestId;
+
+        MalformedMessage(int requestId, String message) {
+            super(message);
+            this.requestId = requestId;
+        }
+
+        public Message errorReply() {
+            return new Message(requestId, "ERROR", getMessage());
+        }
+    }
+
+    // Ανάλυση γραμμής κειμένου v1 ή v2
+    public static Message parseText(String line) {
+        if (line.startsWith("@")) {
+            int firstColon = line.indexOf(':');
+            if (firstColon < 0) {
+                throw new IllegalArgumentException("Λανθασμένη μορφή αιτήματος");
+            }
+            int requestId;
+            try {
+                requestId = Integer.parseInt(line.substring(1, firstColon));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Λανθασμένο request id");
+            }
+            try {
+                List<String> fields = splitEncoded(line.substring(firstColon + 1));
+                return new Message(requestId, fields.get(0), fields.subList(1, fields.size()));
+            } catch (IllegalArgumentException e) {
+                throw new MalformedMessage(requestId, e.getMessage());
+            }
+        }
+
+        // v1: ο παλιός τρόπος με split(":")
+        String[] parts = line.split(":");
+        return new Message(NO_ID, parts[0], Arrays.asList(parts).subList(1, parts.length));
+    }
+
+    public static String formatText(Message message) {
+        StringBuilder line = new StringBuilder();
+        line.append('@').append(message.requestId).append(':').append(encode(message.command));
+        for (String arg : message.args) {
+            line.append(':').append(encode(arg));
+        }
+        return line.toString();
+    }
+
+    // Μορφή v1 για παλιούς clients: η λίστα βίντεο χωρίζεται με ';'
+    public static String formatLegacy(Message message) {
+        StringBuilder line = new StringBuilder(message.command).append(':');
+        if (message.command.equals("VIDEO_LIST")) {
+            for (String arg : message.args) {
+                line.append(arg).append(';');
+            }
+        } else {
+            line.append(String.join(":", message.args));
+        }
+        return line.toString();
+    }
+
+    private static List<String> splitEncoded(String text) {
+        List<String> fields = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i == text.length() || text.charAt(i) == ':') {
+                fields.add(decode(text.substring(start, i)));
+                start = i + 1;
+            }
+        }
+        return fields;
+    }
+
+    static String encode(String value) {
+        StringBuilder out = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ':' || c == '%' || c == '\n' || c == '\r') {
+                if (out == null) {
+                    out = new StringBuilder(value.length() + 8).append(value, 0, i);
+                }
+                out.append('%').append(String.format("%02X", (int) c));
+            } else if (out != null) {
+                out.append(c);
+            }
+        }
+        return out == null ? value : out.toString();
+    }
+
+    static String decode(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%') {
+                int code = i + 2 < value.length() ? hexValue(value, i + 1) : -1;
+                if (code < 0) {
+                    throw new IllegalArgumentException("Μη έγκυρη κωδικοποίηση %XX: " + value);
+                }
+                out.append((char) code);
+                i += 2;
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    // Οι δύο χαρακτήρες hex στη θέση offset, ή -1
+    private static int hexValue(String value, int offset) {
+        int high = Character.digit(value.charAt(offset), 16);
+        int low = Character.digit(value.charAt(offset + 1), 16);
+        return high < 0 || low < 0 ? -1 : high * 16 + low;
+    }
+
+    // Τα πεδία πρέπει να καλύπτουν ακριβώς το μήκος του frame: ένα πεδίο δεν δεσμεύει
+    // περισσότερη μνήμη από όση δηλώνει το frame και η ροή δεν χάνει τον συγχρονισμό της
+    public static Message readBinary(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 6 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Μη έγκυρο μήκος frame: " + length);
+        }
+        int requestId = in.readInt();
+        int fieldCount = in.readUnsignedShort();
+        int remaining = length - 6;
+        if (fieldCount == 0) {
+            throw new IOException("Frame χωρίς εντολή");
+        }
+        if ((long) fieldCount * 4 > remaining) {
+            throw new IOException("Τα " + fieldCount + " πεδία δεν χωρούν στο frame των " + length + " bytes");
+        }
+
+        List<String> fields = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            byte[] field = readField(in, remaining);
+            remaining -= 4 + field.length;
+            fields.add(new String(field, StandardCharsets.UTF_8));
+        }
+        if (remaining != 0) {
+            throw new IOException("Frame με " + remaining + " bytes μετά το τελευταίο πεδίο");
+        }
+        return new Message(requestId, fields.get(0), Collections.unmodifiableList(fields.subList(1, fieldCount)));
+    }
+
+    private static byte[] readField(DataInputStream in, int remaining) throws IOException {
+        if (remaining < 4) {
+            throw new IOException("Ατελές πεδίο στο frame");
+        }
+        int length = in.readInt();
+        if (length < 0 || length > remaining - 4) {
+            throw new IOException("Μη έγκυρο μήκος πεδίου: " + length + " (απομένουν " + (remaining - 4) + " bytes)");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    public static void writeBinary(DataOutputStream out, Message message) throws IOException {
+        List<byte[]> fields = new ArrayList<>(message.args.size() + 1);
+        fields.add(message.command.getBytes(StandardCharsets.UTF_8));
+        int length = 4 + 2 + 4;
+        length += fields.get(0).length;
+        for (String arg : message.args) {
+            byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+            fields.add(bytes);
+            length += 4 + bytes.length;
+        }
+
+        out.writeInt(length);
+        out.writeInt(message.requestId);
+        out.writeShort(fields.size());
+        for (byte[] field : fields) {
+            out.writeInt(field.length);
+            out.write(field);
+        }
+        out.flush();
+    }
+
+    // Κανάλι ελέγχου πάνω από ένα socket: ξεκινά σε κείμενο και μπορεί να περάσει σε binary.
+    // Οι εγγραφές είναι synchronized ώστε πολλά threads να στέλνουν απαντήσεις ταυτόχρονα.
+    public static class Channel implements Closeable {
+        private final InputStream rawIn;
+        private final OutputStream rawOut;
+        private final PrintWriter textOut;
+        private DataInputStream binaryIn;
+        private DataOutputStream binaryOut;
+        private volatile boolean binary = false;
+
+        public Channel(InputStream in, OutputStream out) {
+            this.rawIn = new BufferedInputStream(in);
+            this.rawOut = new BufferedOutputStream(out);
+            this.textOut = new PrintWriter(new OutputStreamWriter(rawOut, StandardCharsets.UTF_8), true);
+        }
+
+        public boolean isBinary() {
+            return binary;
+        }
+
+        // Μετά το HELLO όλα τα επόμενα frames είναι binary
+        public synchronized void switchToBinary() {
+            textOut.flush();
+            binaryIn = new DataInputStream(rawIn);
+            binaryOut = new DataOutputStream(rawOut);
+            binary = true;
+        }
+
+        // Επιστρέφει null στο τέλος της σύνδεσης
+        public Message read() throws IOException {
+            if (binary) {
+                try {
+                    return readBinary(binaryIn);
+                } catch (EOFException e) {
+                    return null;
+                }
+            }
+            String line = readLine();
+            return line == null ? null : parseText(line);
+        }
+
+        public String readLine() throws IOException {
+            // Ανάγνωση byte-byte για να μη "καταναλωθούν" bytes ενός επόμενου binary frame
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            int b;
+            while ((b = rawIn.read()) != -1) {
+                if (b == '\n') {
+                    break;
+                }
+                line.write(b);
+            }
+            if (b == -1 && line.size() == 0) {
+                return null;
+            }
+            String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+            return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+        }
+
+        public synchronized void write(Message message) throws IOException {
+            if (binary) {
+                writeBinary(binaryOut, message);
+            } else {
+                writeLine(message.isTagged() ? formatText(message) : formatLegacy(message));
+            }
+        }
+
+        public synchronized void writeLine(String line) throws IOException {
+            textOut.print(line);
+            textOut.print('\n');
+            textOut.flush();
+            if (textOut.checkError()) {
+                throw new IOException("Αποτυχία αποστολής");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            rawIn.close();
+            rawOut.close();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Τοπική cache εκδόσεων στον edge server. Οι εκδόσεις θεωρούνται αμετάβλητες (το όνομα
+// ορίζει ταινία, ανάλυση και format), οπότε μια έκδοση που υπάρχει τοπικά σερβίρεται χωρίς
+// έλεγχο στον origin. Ταυτόχρονες αστοχίες για την ίδια έκδοση κάνουν ένα μόνο fetch.
+// Όταν ξεπεραστεί το όριο μεγέθους διαγράφονται οι λιγότερο πρόσφατα χρησιμοποιημένες
+// εκδόσεις που δεν μεταδίδονται αυτή τη στιγμή.
+public class EdgeCache {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    private static final Duration FETCH_TIMEOUT = Duration.ofMinutes(10);
+
+    private final Path folder;
+    private final long maxBytes;
+    private final String originBase;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final ExecutorService fetchers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "edge-fetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Σε σειρά πρόσβασης: η πρώτη είναι η λιγότερο πρόσφατα χρησιμοποιημένη (όνομα -> bytes)
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> pins = new HashMap<>();
+    private final Map<String, CompletableFuture<Path>> inflight = new ConcurrentHashMap<>();
+    private long usedBytes = 0;
+
+    private long hits;
+    private long misses;
+    private long coalesced;
+    private long evictions;
+    private long fetchedBytes;
+
+    public EdgeCache(String folder, long maxBytes, String originHost, int originFilePort) throws IOException {
+        this.folder = Paths.get(folder);
+        this.maxBytes = maxBytes;
+        this.originBase = "http://" + originHost + ":" + originFilePort + OriginFileServer.PATH;
+        Files.createDirectories(this.folder);
+        loadExisting();
+    }
+
+    // Όσα έμειναν από προηγούμενη εκτέλεση, από το παλαιότερο στο νεότερο (οι μισές λήψεις διαγράφονται)
+    private void loadExisting() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(folder)) {
+            for (Path partial : listing.filter(path -> path.toString().endsWith(".part")).collect(Collectors.toList())) {
+                Files.deleteIfExists(partial);
+            }
+        }
+        try (Stream<Path> listing = Files.list(folder)) {
+            files = listing.filter(Files::isRegularFile)
+                           .filter(path -> VideoCatalog.parseVideoFile(path.getFileName().toString()) != null)
+                           .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+                           .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            long size = Files.size(file);
+            entries.put(file.getFileName().toString(), size);
+            usedBytes += size;
+        }
+        if (!files.isEmpty()) {
+            logger.info("Edge cache: " + files.size() + " εκδόσεις (" + usedBytes / (1024 * 1024) + " MB) από προηγούμενη εκτέλεση");
+        }
+    }
+
+    // Η τοπική διαδρομή της έκδοσης, αφού φτάσει από τον origin αν χρειάζεται.
+    // Η έκδοση δεν διαγράφεται μέχρι το αντίστοιχο release().
+    public CompletableFuture<Path> acquire(String name) {
+        if (name.contains("/") || name.contains("\\") || VideoCatalog.parseVideoFile(name) == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Μη έγκυρο όνομα αρχείου: " + name));
+        }
+        synchronized (this) {
+            if (entries.get(name) != null) {
+                hits++;
+                pins.merge(name, 1, Integer::sum);
+                return CompletableFuture.completedFuture(folder.resolve(name));
+            }
+        }
+
+        boolean[] started = {false};
+        CompletableFuture<Path> fetch = inflight.computeIfAbsent(name, key -> {
+            started[0] = true;
+            CompletableFuture<Path> future = CompletableFuture.supplyAsync(() -> download(key), fetchers);
+            future.whenComplete((path, error) -> inflight.remove(key));
+            return future;
+        });
+        synchronized (this) {
+            if (started[0]) {
+                misses++;
+            } else {
+                coalesced++;
+            }
+        }
+        // Μετά το fetch: pin, εκτός αν στο μεταξύ διαγράφηκε για να χωρέσει άλλη έκδοση
+        return fetch.thenCompose(path -> {
+            synchronized (this) {
+                if (entries.containsKey(name)) {
+                    pins.merge(name, 1, Integer::sum);
+                    return CompletableFuture.completedFuture(path);
+                }
+            }
+            return acquire(name);
+        });
+    }
+
+    public synchronized void release(String name) {
+        pins.computeIfPresent(name, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private Path download(String name) {
+        Path target = folder.resolve(name);
+        Path partial = folder.resolve(name + ".part");
+        long start = System.nanoTime();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(originBase + URLEncoder.encode(name, StandardCharsets.UTF_8)
+                                                                                  .replace("+", "%20")))
+                                             .timeout(FETCH_TIMEOUT).GET().build();
+            HttpResponse<Path> response = http.send(request, HttpResponse.BodyHandlers.ofFile(partial));
+            if (response.statusCode() != 200) {
+                Files.deleteIfExists(partial);
+                throw new IOException(response.statusCode() == 404 ? "Το αρχείο δεν υπάρχει στον origin: " + name
+                                                                   : "Ο origin απάντησε " + response.statusCode());
+            }
+            long size = Files.size(partial);
+            long expected = response.headers().firstValueAsLong("Content-Length").orElse(size);
+            if (size != expected) {
+                Files.deleteIfExists(partial);
+                throw new IOException("Ελλιπής λήψη του " + name + ": " + size + "/" + expected + " bytes");
+            }
+
+            synchronized (this) {
+                makeRoom(size);
+                Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Long previous = entries.put(name, size);
+                usedBytes += size - (previous != null ? previous : 0);
+                fetchedBytes += size;
+            }
+            logger.info(String.format("Edge cache: λήψη %s από origin (%d KB σε %.1f s)",
+                                      name, size / 1024, (System.nanoTime() - start) / 1e9));
+            return target;
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    // Διαγραφή LRU εκδόσεων που δεν μεταδίδονται, ώστε να χωρέσουν bytes ακόμα
+    private void makeRoom(long bytes) {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (usedBytes + bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (pins.containsKey(entry.getKey())) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(folder.resolve(entry.getKey()));
+            } catch (IOException e) {
+                logger.warning("Edge cache: αποτυχία διαγραφής " + entry.getKey() + ": " + e.getMessage());
+                continue;
+            }
+            usedBytes -= entry.getValue();
+            evictions++;
+            iterator.remove();
+            logger.info("Edge cache: διαγραφή " + entry.getKey() + " (LRU)");
+        }
+        if (usedBytes + bytes > maxBytes) {
+            logger.warning("Edge cache: ξεπερνιέται το όριο των " + maxBytes + " bytes (εκδόσεις σε χρήση)");
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Edge cache: %d εκδόσεις, %d/%d MB, hits %d, misses %d, συγχωνευμένα %d, διαγραφές %d, λήψεις %d MB",
+                             entries.size(), usedBytes / (1024 * 1024), maxBytes / (1024 * 1024),
+                             hits, misses, coalesced, evictions, fetchedBytes / (1024 * 1024));
+    }
+}
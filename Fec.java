@@ -0,0 +1,333 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+
+// Forward error correction με XOR ανά γραμμή και στήλη (τύπου SMPTE 2022-1).
+//
+// Τα πακέτα media τοποθετούνται νοητά σε πίνακα L στηλών x D γραμμών.
+// Για κάθε στήλη στέλνεται ένα πακέτο FEC (θύρα media + 2) και για κάθε γραμμή
+// ένα ακόμα (θύρα media + 4). Ένα πακέτο που λείπει από μια γραμμή ή στήλη
+// ανακτάται με XOR των υπολοίπων, χωρίς αναμετάδοση. Επιβάρυνση: 1/D + 1/L.
+//
+// Πακέτο FEC: RTP header (PT 96) + 16 bytes FEC header + XOR των payloads
+//   [SNBase 16][length recovery 16][E|PT recovery 8][mask 24][TS recovery 32]
+//   [N|D|type|index 8][offset 8][NA 8][SNBase ext 8]
+public class Fec {
+    public static final int COLUMN_PORT_OFFSET = 2;
+    public static final int ROW_PORT_OFFSET = 4;
+    public static final int PAYLOAD_TYPE = 96;
+
+    private static final int RTP_HEADER = 12;
+    private static final int FEC_HEADER = 16;
+
+    // Ρυθμίσεις από την επιλογή START_STREAM "fec=LxD" (D=0: μόνο γραμμές)
+    public static class Config {
+        final int columns;
+        final int rows;
+        final boolean columnFec;
+        final boolean rowFec;
+
+        public Config(int columns, int rows, boolean columnFec, boolean rowFec) {
+            if (columns < 1 || columns > 255 || rows < 0 || rows > 255 || (columnFec && rows < 1)) {
+                throw new IllegalArgumentException("Μη έγκυρες διαστάσεις FEC: " + columns + "x" + rows);
+            }
+            this.columns = columns;
+            this.rows = rows;
+            this.columnFec = columnFec;
+            this.rowFec = rowFec;
+        }
+
+        // "10x10", "10x10/col", "10x10/row", "10x0" (μόνο γραμμές)
+        public static Config parse(String value) {
+            String mode = "both";
+            int slash = value.indexOf('/');
+            if (slash >= 0) {
+                mode = value.substring(slash + 1);
+                value = value.substring(0, slash);
+            }
+            String[] parts = value.toLowerCase().split("x");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Μη έγκυρη ρύθμιση FEC: " + value);
+            }
+            int columns = Integer.parseInt(parts[0]);
+            int rows = Integer.parseInt(parts[1]);
+            boolean columnFec = rows > 0 && !mode.equals("row");
+            boolean rowFec = rows == 0 || !mode.equals("col");
+            return new Config(columns, Math.max(rows, 1), columnFec, rowFec);
+        }
+
+        public double getOverheadPercent() {
+            return 100.0 * ((columnFec ? 1.0 / rows : 0) + (rowFec ? 1.0 / columns : 0));
+        }
+
+        @Override
+        public String toString() {
+            return columns + "x" + rows + (columnFec && rowFec ? "" : columnFec ? "/col" : "/row");
+        }
+    }
+
+    // XOR συσσωρευτής για ένα πακέτο FEC
+    private static class Accumulator {
+        byte[] payload = new byte[0];
+        int length;
+        int payloadType;
+        long timestamp;
+        int snBase = -1;
+        int count;
+
+        void add(int seq, int pt, long ts, byte[] data, int offset, int len) {
+            if (snBase < 0) {
+                snBase = seq;
+            }
+            if (len > payload.length) {
+                payload = java.util.Arrays.copyOf(payload, len);
+            }
+            for (int i = 0; i < len; i++) {
+                payload[i] ^= data[offset + i];
+            }
+            length ^= len;
+            payloadType ^= pt;
+            timestamp ^= ts;
+            count++;
+        }
+
+        void reset() {
+            payload = new byte[0];
+            length = 0;
+            payloadType = 0;
+            timestamp = 0;
+            snBase = -1;
+            count = 0;
+        }
+    }
+
+    // Πλευρά αποστολής: παράγει πακέτα FEC καθώς περνούν τα πακέτα RTP
+    public static class Encoder {
+        private final Config config;
+        private final Accumulator row = new Accumulator();
+        private final Accumulator[] columns;
+        private int index = 0;
+        private int columnSeq = 0;
+        private int rowSeq = 0;
+
+        public Encoder(Config config) {
+            this.config = config;
+            this.columns = new Accumulator[config.columns];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new Accumulator();
+            }
+        }
+
+        public interface Output {
+            void send(byte[] packet, boolean column);
+        }
+
+        // Ένα πλήρες πακέτο RTP media. Τα πακέτα FEC που ολοκληρώθηκαν πάνε στο output.
+        public void add(byte[] rtp, int length, Output output) {
+            int seq = ((rtp[2] & 0xFF) << 8) | (rtp[3] & 0xFF);
+            int pt = rtp[1] & 0x7F;
+            long ts = ((rtp[4] & 0xFFL) << 24) | ((rtp[5] & 0xFFL) << 16) | ((rtp[6] & 0xFFL) << 8) | (rtp[7] & 0xFFL);
+            int column = index % config.columns;
+            int rowIndex = index / config.columns;
+
+            if (config.rowFec) {
+                row.add(seq, pt, ts, rtp, RTP_HEADER, length - RTP_HEADER);
+                if (column == config.columns - 1) {
+                    output.send(build(row, rowSeq++, true, 1, config.columns, ts), false);
+                    row.reset();
+                }
+            }
+            if (config.columnFec) {
+                Accumulator accumulator = columns[column];
+                accumulator.add(seq, pt, ts, rtp, RTP_HEADER, length - RTP_HEADER);
+                if (rowIndex == config.rows - 1) {
+                    output.send(build(accumulator, columnSeq++, false, config.columns, config.rows, ts), true);
+                    accumulator.reset();
+                }
+            }
+            index = (index + 1) % (config.columns * config.rows);
+        }
+
+        private static byte[] build(Accumulator acc, int fecSeq, boolean isRow, int offset, int count, long ts) {
+            byte[] packet = new byte[RTP_HEADER + FEC_HEADER + acc.payload.length];
+            packet[0] = (byte) 0x80;
+            packet[1] = (byte) PAYLOAD_TYPE;
+            packet[2] = (byte) (fecSeq >> 8);
+            packet[3] = (byte) fecSeq;
+            packet[4] = (byte) (ts >> 24);
+            packet[5] = (byte) (ts >> 16);
+            packet[6] = (byte) (ts >> 8);
+            packet[7] = (byte) ts;
+
+            int h = RTP_HEADER;
+            packet[h] = (byte) (acc.snBase >> 8);
+            packet[h + 1] = (byte) acc.snBase;
+            packet[h + 2] = (byte) (acc.length >> 8);
+            packet[h + 3] = (byte) acc.length;
+            packet[h + 4] = (byte) (0x80 | (acc.payloadType & 0x7F));
+            packet[h + 8] = (byte) (acc.timestamp >> 24);
+            packet[h + 9] = (byte) (acc.timestamp >> 16);
+            packet[h + 10] = (byte) (acc.timestamp >> 8);
+            packet[h + 11] = (byte) acc.timestamp;
+            packet[h + 12] = (byte) (isRow ? 0x40 : 0x00);
+            packet[h + 13] = (byte) offset;
+            packet[h + 14] = (byte) count;
+            System.arraycopy(acc.payload, 0, packet, RTP_HEADER + FEC_HEADER, acc.payload.length);
+            return packet;
+        }
+    }
+
+    // Ένα πακέτο media όπως το χρειάζεται ο decoder (και ως αποτέλεσμα ανάκτησης)
+    public static class Media {
+        final long seq;
+        final int payloadType;
+        final long timestamp;
+        final byte[] payload;
+
+        public Media(long seq, int payloadType, long timestamp, byte[] payload) {
+            this.seq = seq;
+            this.payloadType = payloadType;
+            this.timestamp = timestamp;
+            this.payload = payload;
+        }
+    }
+
+    private static class Parity {
+        final long snBase;
+        final int offset;
+        final int count;
+        final int lengthRecovery;
+        final int ptRecovery;
+        final long tsRecovery;
+        final byte[] payload;
+
+        Parity(long snBase, int offset, int count, int lengthRecovery, int ptRecovery, long tsRecovery, byte[] payload) {
+            this.snBase = snBase;
+            this.offset = offset;
+            this.count = count;
+            this.lengthRecovery = lengthRecovery;
+            this.ptRecovery = ptRecovery;
+            this.tsRecovery = tsRecovery;
+            this.payload = payload;
+        }
+
+        long last() {
+            return snBase + (long) offset * (count - 1);
+        }
+    }
+
+    // Πλευρά λήψης: κρατά τα πρόσφατα πακέτα media και τα πακέτα FEC και ανακτά
+    // ό,τι λείπει όταν σε μια γραμμή/στήλη λείπει ακριβώς ένα πακέτο.
+    // Δεν είναι thread-safe: καλείται από το thread του StreamReceiver.
+    public static class Decoder {
+        private static final int MIN_WINDOW = 1024;
+
+        private final TreeMap<Long, Media> media = new TreeMap<>();
+        private final List<Parity> parities = new ArrayList<>();
+        private int window = MIN_WINDOW;
+        private long highest = -1;
+
+        public void addMedia(Media packet) {
+            media.put(packet.seq, packet);
+            highest = Math.max(highest, packet.seq);
+            while (!media.isEmpty() && media.firstKey() < highest - window) {
+                media.pollFirstEntry();
+            }
+        }
+
+        // extendedBase: το SNBase σε αύξουσα αρίθμηση (όπως τα sequence numbers του receiver)
+        public boolean addFec(byte[] data, int length, long extendedBase) {
+            if (length < RTP_HEADER + FEC_HEADER) {
+                return false;
+            }
+            int h = RTP_HEADER;
+            int lengthRecovery = ((data[h + 2] & 0xFF) << 8) | (data[h + 3] & 0xFF);
+            int ptRecovery = data[h + 4] & 0x7F;
+            long tsRecovery = ((data[h + 8] & 0xFFL) << 24) | ((data[h + 9] & 0xFFL) << 16) |
+                              ((data[h + 10] & 0xFFL) << 8) | (data[h + 11] & 0xFFL);
+            int offset = data[h + 13] & 0xFF;
+            int count = data[h + 14] & 0xFF;
+            if (offset == 0 || count == 0) {
+                return false;
+            }
+            byte[] payload = new byte[length - RTP_HEADER - FEC_HEADER];
+            System.arraycopy(data, RTP_HEADER + FEC_HEADER, payload, 0, payload.length);
+
+            // Το παράθυρο πρέπει να χωρά τουλάχιστον δύο πίνακες FEC
+            window = Math.max(window, 2 * offset * count);
+            parities.add(new Parity(extendedBase, offset, count, lengthRecovery, ptRecovery, tsRecovery, payload));
+            return true;
+        }
+
+        public static int snBase(byte[] data) {
+            return ((data[RTP_HEADER] & 0xFF) << 8) | (data[RTP_HEADER + 1] & 0xFF);
+        }
+
+        // Επαναληπτική ανάκτηση: ένα ανακτημένο πακέτο γραμμής μπορεί να ξεκλειδώσει μια στήλη
+        public List<Media> recover() {
+            List<Media> recovered = new ArrayList<>();
+            boolean progress = true;
+            while (progress) {
+                progress = false;
+                Iterator<Parity> it = parities.iterator();
+                while (it.hasNext()) {
+                    Parity parity = it.next();
+                    if (parity.snBase < highest - window) {
+                        it.remove();
+                        continue;
+                    }
+                    long missing = -1;
+                    int missingCount = 0;
+                    for (int i = 0; i < parity.count && missingCount < 2; i++) {
+                        long seq = parity.snBase + (long) i * parity.offset;
+                        if (!media.containsKey(seq)) {
+                            missing = seq;
+                            missingCount++;
+                        }
+                    }
+                    if (missingCount == 0) {
+                        it.remove();
+                    } else if (missingCount == 1 && parity.last() <= highest) {
+                        Media packet = rebuild(parity, missing);
+                        it.remove();
+                        if (packet != null) {
+                            addMedia(packet);
+                            recovered.add(packet);
+                            progress = true;
+                        }
+                    }
+                }
+            }
+            return recovered;
+        }
+
+        private Media rebuild(Parity parity, long missing) {
+            byte[] payload = parity.payload.clone();
+            int length = parity.lengthRecovery;
+            int pt = parity.ptRecovery;
+            long ts = parity.tsRecovery;
+            for (int i = 0; i < parity.count; i++) {
+                long seq = parity.snBase + (long) i * parity.offset;
+                if (seq == missing) {
+                    continue;
+                }
+                Media packet = media.get(seq);
+                for (int j = 0; j < packet.payload.length && j < payload.length; j++) {
+                    payload[j] ^= packet.payload[j];
+                }
+                length ^= packet.payload.length;
+                pt ^= packet.payloadType;
+                ts ^= packet.timestamp;
+            }
+            if (length > payload.length) {
+                return null;
+            }
+            return new Media(missing, pt, ts, java.util.Arrays.copyOf(payload, length));
+        }
+
+        public int getPendingParities() {
+            return parities.size();
+        }
+    }
+}
@@ -0,0 +1,468 @@
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.*;
+
+// Τοπικός proxy που προσομοιώνει συνθήκες WAN ανάμεσα σε server και client:
+// καθυστέρηση, jitter, απώλειες (τυχαίες και ριπές κατά Gilbert-Elliott), αναδιάταξη
+// και όριο εύρους ζώνης, για TCP και UDP. Τα στατιστικά γράφονται σε αρχείο properties
+// ώστε να τα διαβάζουν αυτοματοποιημένες μετρήσεις.
+//
+//   java ImpairmentProxy --udp 9999-10003:19999 --tcp 19999:9999 --delay 40 --jitter 10 \
+//        --loss 0.01 --burst 0.005:0.3 --reorder 0.01 --rate 2000 --stats.file proxy.properties
+//
+// --udp / --tcp: λίστα "listen[-listenEnd]:targetPort" χωρισμένη με κόμματα (--target: host προορισμού)
+// Η κατεύθυνση server -> client (forward: στο UDP listen -> target, στο TCP target -> listen,
+// αφού εκεί συνδέεται ο client) δέχεται όλες τις αλλοιώσεις· η αντίστροφη (π.χ. RTCP)
+// μόνο την καθυστέρηση και το jitter, εκτός αν δοθεί --symmetric.
+public class ImpairmentProxy {
+    private static final Logger logger = Logger.getLogger(ImpairmentProxy.class.getName());
+
+    private static final int MAX_DATAGRAM = 65536;
+    private static final int TCP_SEGMENT = 1460;
+    // Ένα χαμένο TCP segment φτάνει μετά από αναμετάδοση: τουλάχιστον το ελάχιστο RTO του Linux
+    private static final long MIN_RTO_NANOS = 200_000_000L;
+
+    // Παράμετροι αλλοίωσης μιας κατεύθυνσης
+    public static class Impairment {
+        double delayMs;
+        double jitterMs;
+        double lossFraction;
+        // Gilbert-Elliott: πιθανότητα μετάβασης σε ριπή / εξόδου από αυτήν, ανά πακέτο
+        double burstEnter;
+        double burstExit = 1;
+        double reorderFraction;
+        // 0 = χωρίς όριο
+        double rateKbps;
+        double queueMs = 200;
+
+        static Impairment fromConfig(ServerConfig config, boolean full) {
+            Impairment impairment = new Impairment();
+            impairment.delayMs = config.getDouble("delay", 0);
+            impairment.jitterMs = config.getDouble("jitter", 0);
+            if (full) {
+                impairment.lossFraction = config.getDouble("loss", 0);
+                impairment.reorderFraction = config.getDouble("reorder", 0);
+                impairment.rateKbps = config.getDouble("rate", 0);
+                impairment.queueMs = config.getDouble("queue", 200);
+                String burst = config.getString("burst");
+                if (burst != null) {
+                    String[] parts = burst.split(":");
+                    impairment.burstEnter = Double.parseDouble(parts[0]);
+                    impairment.burstExit = parts.length > 1 ? Double.parseDouble(parts[1]) : 0.3;
+                }
+            }
+            return impairment;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("καθυστέρηση %.0f±%.0f ms, απώλειες %.2f%%, ριπές %.3f/%.2f, αναδιάταξη %.2f%%, ρυθμός %s",
+                                 delayMs, jitterMs, lossFraction * 100, burstEnter, burstExit, reorderFraction * 100,
+                                 rateKbps > 0 ? (int) rateKbps + " kbps (ουρά " + (int) queueMs + " ms)" : "χωρίς όριο");
+        }
+    }
+
+    // Μία κατεύθυνση μιας αντιστοίχισης: κατάσταση του μοντέλου και στατιστικά
+    static class Link {
+        final String name;
+        final Impairment impairment;
+        final Random random;
+        boolean inBurst = false;
+        long nextDepartureNanos = 0;
+        long lastDeliveryNanos = 0;
+
+        long packets;
+        long bytes;
+        long delivered;
+        long randomLosses;
+        long burstLosses;
+        long queueDrops;
+        long retransmissions;
+        long reordered;
+        long totalDelayNanos;
+        long maxDelayNanos;
+
+        Link(String name, Impairment impairment, long seed) {
+            this.name = name;
+            this.impairment = impairment;
+            this.random = new Random(seed);
+        }
+
+        // Χρόνος παράδοσης (System.nanoTime) ή -1 για απόρριψη.
+        // Στο TCP (reliable) δεν υπάρχουν απώλειες: ένα "χαμένο" segment καθυστερεί κατά ένα RTO
+        // και, επειδή η σειρά διατηρείται, καθυστερούν και όσα ακολουθούν (head-of-line blocking).
+        synchronized long admit(int length, long now, boolean reliable) {
+            packets++;
+            bytes += length;
+
+            if (impairment.burstEnter > 0) {
+                inBurst = inBurst ? random.nextDouble() >= impairment.burstExit
+                                  : random.nextDouble() < impairment.burstEnter;
+            }
+            boolean burstLoss = inBurst;
+            boolean randomLoss = !burstLoss && random.nextDouble() < impairment.lossFraction;
+            long penalty = 0;
+            if (burstLoss || randomLoss) {
+                if (!reliable) {
+                    if (burstLoss) {
+                        burstLosses++;
+                    } else {
+                        randomLosses++;
+                    }
+                    return -1;
+                }
+                retransmissions++;
+                penalty = Math.max(MIN_RTO_NANOS, (long) (2 * impairment.delayMs * 1e6));
+            }
+
+            long departure = now;
+            if (impairment.rateKbps > 0) {
+                long start = Math.max(now, nextDepartureNanos);
+                if (!reliable && start - now > impairment.queueMs * 1e6) {
+                    queueDrops++;
+                    return -1;
+                }
+                departure = start + (long) (length * 8 / (impairment.rateKbps * 1000) * 1e9);
+                nextDepartureNanos = departure;
+            }
+
+            double jitter = impairment.jitterMs > 0 ? (random.nextDouble() * 2 - 1) * impairment.jitterMs : 0;
+            long delivery;
+            if (!reliable && random.nextDouble() < impairment.reorderFraction) {
+                // Όπως στο netem: το πακέτο δεν περιμένει την καθυστέρηση και προσπερνά τα προηγούμενα
+                delivery = departure;
+            } else {
+                delivery = departure + penalty + (long) (Math.max(0, impairment.delayMs + jitter) * 1e6);
+                // Το jitter από μόνο του δεν αλλάζει τη σειρά
+                delivery = Math.max(delivery, lastDeliveryNanos);
+                lastDeliveryNanos = delivery;
+            }
+            if (delivery < lastDeliveryNanos) {
+                reordered++;
+            }
+
+            delivered++;
+            long delay = delivery - now;
+            totalDelayNanos += delay;
+            maxDelayNanos = Math.max(maxDelayNanos, delay);
+            return delivery;
+        }
+
+        // Για TCP: πόσο πρέπει να περιμένει ο αναγνώστης ώστε η ουρά να μην ξεπερνά το όριο
+        synchronized long backpressureNanos(long now) {
+            if (impairment.rateKbps <= 0) {
+                return 0;
+            }
+            return Math.max(0, nextDepartureNanos - now - (long) (impairment.queueMs * 1e6));
+        }
+
+        synchronized void store(Properties stats) {
+            String prefix = name + ".";
+            stats.setProperty(prefix + "packets", String.valueOf(packets));
+            stats.setProperty(prefix + "bytes", String.valueOf(bytes));
+            stats.setProperty(prefix + "delivered", String.valueOf(delivered));
+            stats.setProperty(prefix + "lost.random", String.valueOf(randomLosses));
+            stats.setProperty(prefix + "lost.burst", String.valueOf(burstLosses));
+            stats.setProperty(prefix + "lost.queue", String.valueOf(queueDrops));
+            stats.setProperty(prefix + "retransmissions", String.valueOf(retransmissions));
+            stats.setProperty(prefix + "reordered", String.valueOf(reordered));
+            stats.setProperty(prefix + "delay.avg.ms", String.format("%.1f", delivered > 0 ? totalDelayNanos / 1e6 / delivered : 0.0));
+            stats.setProperty(prefix + "delay.max.ms", String.format("%.1f", maxDelayNanos / 1e6));
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s: πακέτα %d, παραδόθηκαν %d, απώλειες %d+%d ριπές+%d ουρά, αναμεταδόσεις %d, αναδιάταξη %d, καθυστέρηση %.1f ms (μέγ. %.1f)",
+                                 name, packets, delivered, randomLosses, burstLosses, queueDrops, retransmissions, reordered,
+                                 delivered > 0 ? totalDelayNanos / 1e6 / delivered : 0.0, maxDelayNanos / 1e6);
+        }
+    }
+
+    private final InetAddress target;
+    private final Impairment forward;
+    private final Impairment reverse;
+    private final long seed;
+    private final List<Link> links = new ArrayList<>();
+    private final List<Closeable> resources = new ArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "impairment-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = true;
+
+    public ImpairmentProxy(InetAddress target, Impairment forward, Impairment reverse, long seed) {
+        this.target = target;
+        this.forward = forward;
+        this.reverse = reverse;
+        this.seed = seed;
+    }
+
+    private synchronized Link newLink(String name, Impairment impairment) {
+        Link link = new Link(name, impairment, seed + links.size());
+        links.add(link);
+        return link;
+    }
+
+    // ---------- UDP ----------
+
+    public void addUdp(int listenPort, int targetPort) throws SocketException {
+        DatagramSocket listen = new DatagramSocket(listenPort);
+        resources.add(listen);
+        Link down = newLink("udp." + listenPort + ".forward", forward);
+        Link up = newLink("udp." + listenPort + ".reverse", reverse);
+        // Ένα socket προς τον προορισμό για κάθε αποστολέα, ώστε οι απαντήσεις να επιστρέφουν σε αυτόν
+        Map<SocketAddress, DatagramSocket> outbound = new ConcurrentHashMap<>();
+
+        startThread("udp-proxy-" + listenPort, () -> {
+            byte[] buffer = new byte[MAX_DATAGRAM];
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            while (running) {
+                packet.setLength(buffer.length);
+                listen.receive(packet);
+                SocketAddress source = packet.getSocketAddress();
+                DatagramSocket out = outbound.get(source);
+                if (out == null) {
+                    out = new DatagramSocket();
+                    resources.add(out);
+                    outbound.put(source, out);
+                    DatagramSocket socket = out;
+                    startThread("udp-proxy-" + listenPort + "-reverse", () -> relayBack(socket, listen, source, up));
+                }
+                forwardDatagram(down, out, packet, new InetSocketAddress(target, targetPort));
+            }
+        });
+        logger.info("UDP " + listenPort + " -> " + target.getHostAddress() + ":" + targetPort);
+    }
+
+    private void relayBack(DatagramSocket from, DatagramSocket via, SocketAddress destination, Link link) throws IOException {
+        byte[] buffer = new byte[MAX_DATAGRAM];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (running) {
+            packet.setLength(buffer.length);
+            from.receive(packet);
+            forwardDatagram(link, via, packet, destination);
+        }
+    }
+
+    private void forwardDatagram(Link link, DatagramSocket socket, DatagramPacket packet, SocketAddress destination) {
+        long now = System.nanoTime();
+        long delivery = link.admit(packet.getLength(), now, false);
+        if (delivery < 0) {
+            return;
+        }
+        byte[] copy = Arrays.copyOf(packet.getData(), packet.getLength());
+        scheduler.schedule(() -> {
+            try {
+                socket.send(new DatagramPacket(copy, copy.length, destination));
+            } catch (IOException e) {
+                // Ο προορισμός δεν ακούει (π.χ. ο client δεν έχει ξεκινήσει ακόμα)
+            }
+        }, delivery - now, TimeUnit.NANOSECONDS);
+    }
+
+    // ---------- TCP ----------
+
+    public void addTcp(int listenPort, int targetPort) throws IOException {
+        ServerSocket server = new ServerSocket(listenPort);
+        resources.add(server);
+        Link down = newLink("tcp." + listenPort + ".forward", forward);
+        Link up = newLink("tcp." + listenPort + ".reverse", reverse);
+
+        startThread("tcp-proxy-" + listenPort, () -> {
+            while (running) {
+                Socket client = server.accept();
+                Socket upstream;
+                try {
+                    upstream = new Socket(target, targetPort);
+                } catch (IOException e) {
+                    logger.warning("TCP " + listenPort + ": αποτυχία σύνδεσης στο " + targetPort + ": " + e.getMessage());
+                    client.close();
+                    continue;
+                }
+                client.setTcpNoDelay(true);
+                upstream.setTcpNoDelay(true);
+                pumpTcp(client, upstream, up, "tcp-proxy-" + listenPort + "-up");
+                pumpTcp(upstream, client, down, "tcp-proxy-" + listenPort + "-down");
+            }
+        });
+        logger.info("TCP " + listenPort + " -> " + target.getHostAddress() + ":" + targetPort);
+    }
+
+    private void pumpTcp(Socket from, Socket to, Link link, String name) {
+        // Ξεχωριστός scheduler ανά κατεύθυνση: τα segments γράφονται με τη σειρά τους
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+        startThread(name, () -> {
+            try (InputStream in = from.getInputStream()) {
+                OutputStream out = to.getOutputStream();
+                byte[] buffer = new byte[TCP_SEGMENT];
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    long wait = link.backpressureNanos(System.nanoTime());
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    long now = System.nanoTime();
+                    long delivery = link.admit(read, now, true);
+                    byte[] copy = Arrays.copyOf(buffer, read);
+                    writer.schedule(() -> {
+                        try {
+                            out.write(copy);
+                        } catch (IOException e) {
+                            closeQuietly(from);
+                        }
+                    }, delivery - now, TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // Κλείσιμο μετά την παράδοση όσων είναι ήδη στην ουρά
+                writer.shutdown();
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+                closeQuietly(to);
+            }
+        });
+    }
+
+    // ---------- Στατιστικά ----------
+
+    public synchronized Properties getStats() {
+        Properties stats = new Properties();
+        for (Link link : links) {
+            link.store(stats);
+        }
+        return stats;
+    }
+
+    public synchronized void logStats() {
+        for (Link link : links) {
+            if (link.packets > 0) {
+                logger.info(link.toString());
+            }
+        }
+    }
+
+    public void writeStats(Path file) {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            getStats().store(out, "ImpairmentProxy");
+        } catch (IOException e) {
+            logger.warning("Σφάλμα εγγραφής στατιστικών: " + e.getMessage());
+        }
+    }
+
+    public void close() {
+        running = false;
+        for (Closeable resource : resources) {
+            closeQuietly(resource);
+        }
+        scheduler.shutdownNow();
+    }
+
+    private interface IoTask {
+        void run() throws Exception;
+    }
+
+    private void startThread(String name, IoTask task) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                if (running) {
+                    logger.fine(name + ": " + e.getMessage());
+                }
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Ήδη κλειστό
+        }
+    }
+
+    // "9999-10003:19999" -> {9999, 10003, 19999}
+    private static List<int[]> parseMappings(String value) {
+        List<int[]> mappings = new ArrayList<>();
+        if (value == null || value.isBlank()) {
+            return mappings;
+        }
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Μη έγκυρη αντιστοίχιση θυρών: " + entry);
+            }
+            String[] range = parts[0].split("-");
+            int first = Integer.parseInt(range[0]);
+            int last = range.length > 1 ? Integer.parseInt(range[1]) : first;
+            mappings.add(new int[] {first, last, Integer.parseInt(parts[1])});
+        }
+        return mappings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ServerConfig config = ServerConfig.fromArgs(args);
+        List<int[]> udp = parseMappings(config.getString("udp"));
+        List<int[]> tcp = parseMappings(config.getString("tcp"));
+        if (udp.isEmpty() && tcp.isEmpty()) {
+            System.err.println("Χρήση: java ImpairmentProxy --udp listen[-end]:target[,...] --tcp listen:target[,...]");
+            System.err.println("       [--target host] [--delay ms] [--jitter ms] [--loss 0..1] [--burst enter:exit]");
+            System.err.println("       [--reorder 0..1] [--rate kbps] [--queue ms] [--symmetric] [--seed n]");
+            System.err.println("       [--stats.file path] [--stats.interval s] [--duration s]");
+            System.exit(2);
+        }
+
+        Impairment forward = Impairment.fromConfig(config, true);
+        Impairment reverse = Impairment.fromConfig(config, config.getBoolean("symmetric", false));
+        ImpairmentProxy proxy = new ImpairmentProxy(InetAddress.getByName(config.getString("target", "localhost")),
+                                                    forward, reverse, config.getLong("seed", 1));
+        logger.info("Αλλοιώσεις: " + forward + " | αντίστροφα: " + reverse);
+
+        for (int[] mapping : udp) {
+            for (int port = mapping[0]; port <= mapping[1]; port++) {
+                proxy.addUdp(port, mapping[2] + port - mapping[0]);
+            }
+        }
+        for (int[] mapping : tcp) {
+            for (int port = mapping[0]; port <= mapping[1]; port++) {
+                proxy.addTcp(port, mapping[2] + port - mapping[0]);
+            }
+        }
+
+        String statsFile = config.getString("stats.file");
+        Runnable report = () -> {
+            proxy.logStats();
+            if (statsFile != null) {
+                proxy.writeStats(Paths.get(statsFile));
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            report.run();
+            proxy.close();
+        }, "impairment-shutdown"));
+
+        int interval = config.getInt("stats.interval", 5);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getLong("duration", 0));
+        boolean bounded = config.getLong("duration", 0) > 0;
+        while (!bounded || System.nanoTime() < deadline) {
+            long sleep = bounded ? Math.min(interval * 1000L, Math.max(1, (deadline - System.nanoTime()) / 1_000_000)) : interval * 1000L;
+            Thread.sleep(sleep);
+            report.run();
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.IOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.*;
+
+// Σύντομη μέτρηση της σύνδεσης με τον server (UDP echo στον ProbeResponder):
+// RTT, απώλειες και jitter. Με βάση αυτά η αυτόματη επιλογή διαλέγει πρωτόκολλο
+// και έκδοση με τη μεγαλύτερη αναμενόμενη ποιότητα, αντί για σταθερό πίνακα ανά ανάλυση.
+public class LinkProbe {
+    private static final Logger logger = Logger.getLogger(StreamingClient.class.getName());
+
+    public static final int MAX_PACKET = 1400;
+    private static final int MAGIC = 0x50524231; // "PRB1"
+    // Μέγεθος κοντά σε πακέτο media, ώστε οι απώλειες να μοιάζουν με αυτές του stream
+    private static final int PACKET_SIZE = 1200;
+
+    private static final int TCP_MSS = 1460;
+    private static final double MATHIS_CONSTANT = 1.22;
+    // Το TCP χρειάζεται περιθώριο πάνω από τον ρυθμό του βίντεο για να μη σταματά η αναπαραγωγή
+    private static final double TCP_HEADROOM = 1.2;
+    // 1% απώλειες που φτάνουν στον player ≈ 20% χαμηλότερη ποιότητα (artifacts στο MPEG-TS)
+    private static final double LOSS_PENALTY = 20;
+    private static final int MAX_NACK_ATTEMPTS = 3;
+
+    public static boolean isProbe(byte[] data, int length) {
+        return length >= 16 && length <= MAX_PACKET && ByteBuffer.wrap(data, 0, 4).getInt() == MAGIC;
+    }
+
+    // Αποτέλεσμα μέτρησης
+    public static class Result {
+        final int sent;
+        final int received;
+        final double lossFraction;
+        final double rttMs;
+        final double minRttMs;
+        final double jitterMs;
+        // Καθυστέρηση κάθε πακέτου πάνω από την ελάχιστη (μονής διαδρομής ≈ RTT/2)
+        final double[] queueDelaysMs;
+
+        Result(int sent, List<Double> rtts, double jitterMs) {
+            this.sent = sent;
+            this.received = rtts.size();
+            this.lossFraction = sent > 0 ? 1 - (double) received / sent : 1;
+            double[] sorted = rtts.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+            this.minRttMs = sorted.length > 0 ? sorted[0] : 0;
+            this.rttMs = sorted.length > 0 ? sorted[sorted.length / 2] : 0;
+            this.jitterMs = jitterMs;
+            this.queueDelaysMs = Arrays.stream(sorted).map(rtt -> (rtt - minRttMs) / 2).toArray();
+        }
+
+        // Ποσοστό πακέτων που θα έφταναν μετά την προθεσμία του jitter buffer
+        double lateFraction(int bufferMs) {
+            if (queueDelaysMs.length == 0) {
+                return 0;
+            }
+            long late = Arrays.stream(queueDelaysMs).filter(delay -> delay > bufferMs).count();
+            return (double) late / queueDelaysMs.length;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("RTT %.1f ms (ελάχ. %.1f), απώλειες %.1f%% (%d/%d), jitter %.1f ms",
+                                 rttMs, minRttMs, lossFraction * 100, sent - received, sent, jitterMs);
+        }
+    }
+
+    // Απόφαση της αυτόματης επιλογής
+    public static class Choice {
+        final String protocol;
+        final String video;
+        final double score;
+        final String reason;
+
+        Choice(String protocol, String video, double score, String reason) {
+            this.protocol = protocol;
+            this.video = video;
+            this.score = score;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s με %s (βαθμός %.2f: %s)", video, protocol, score, reason);
+        }
+    }
+
+    // count πακέτα ανά intervalMs, αναμονή έως timeoutMs για τις τελευταίες απαντήσεις
+    public static Result measure(InetAddress host, int port, int count, int intervalMs, int timeoutMs) throws IOException {
+        List<Double> rtts = new ArrayList<>();
+        boolean[] seen = new boolean[count];
+        double jitter = 0;
+        double previousRtt = -1;
+
+        try (DatagramSocket socket = new DatagramSocket()) {
+            byte[] out = new byte[PACKET_SIZE];
+            byte[] in = new byte[MAX_PACKET];
+            DatagramPacket reply = new DatagramPacket(in, in.length);
+            long nextSend = System.nanoTime();
+            int sent = 0;
+            long deadline = Long.MAX_VALUE;
+
+            while (true) {
+                long now = System.nanoTime();
+                if (sent < count && now >= nextSend) {
+                    ByteBuffer.wrap(out).putInt(MAGIC).putInt(sent).putLong(now);
+                    socket.send(new DatagramPacket(out, out.length, host, port));
+                    sent++;
+                    nextSend += intervalMs * 1_000_000L;
+                    if (sent == count) {
+                        deadline = now + timeoutMs * 1_000_000L;
+                    }
+                    continue;
+                }
+                long waitUntil = sent < count ? nextSend : deadline;
+                long waitMs = (waitUntil - now) / 1_000_000;
+                if (sent == count && waitMs <= 0) {
+                    break;
+                }
+                socket.setSoTimeout((int) Math.max(1, waitMs));
+                try {
+                    reply.setLength(in.length);
+                    socket.receive(reply);
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+                if (!isProbe(in, reply.getLength())) {
+                    continue;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(in, 4, 12);
+                int seq = buffer.getInt();
+                long sentNanos = buffer.getLong();
+                if (seq < 0 || seq >= count || seen[seq]) {
+                    continue;
+                }
+                seen[seq] = true;
+                double rtt = (System.nanoTime() - sentNanos) / 1e6;
+                // Jitter όπως στο RFC 3550, πάνω στις διαδοχικές διαφορές RTT
+                if (previousRtt >= 0) {
+                    jitter += (Math.abs(rtt - previousRtt) - jitter) / 16;
+                }
+                previousRtt = rtt;
+                rtts.add(rtt);
+            }
+            return new Result(sent, rtts, jitter);
+        }
+    }
+
+    // Για κάθε πρωτόκολλο και κάθε διαθέσιμη έκδοση του ίδιου βίντεο (έως την ανάλυση που ζητήθηκε)
+    // εκτιμά την ποιότητα που θα φτάσει στον χρήστη και επιστρέφει την καλύτερη.
+    //   TCP:     χωρίς απώλειες, αλλά ρυθμός κατά Mathis (MSS/RTT · 1.22/√p) — αν δεν φτάνει, παύσεις
+    //   UDP:     οι απώλειες και τα καθυστερημένα πακέτα φτάνουν στον player (λιγότερες με FEC)
+    //   RTP/UDP: όπως το UDP, αλλά με NACK όσες αναμεταδόσεις χωρούν στο jitter buffer
+    public static Choice choose(Result link, String requested, List<String> available, double speedMbps,
+                                int bufferMs, boolean fec, boolean nack, String fecMatrix) {
+        VideoFile requestedFile = VideoCatalog.parseVideoFile(requested);
+        List<VideoFile> renditions = new ArrayList<>();
+        for (String name : available) {
+            VideoFile candidate = VideoCatalog.parseVideoFile(name);
+            if (candidate != null && requestedFile != null &&
+                candidate.movieName.equals(requestedFile.movieName) &&
+                candidate.format.equals(requestedFile.format) &&
+                candidate.codec.equals(requestedFile.codec) &&
+                candidate.getResolutionValue() <= requestedFile.getResolutionValue()) {
+                renditions.add(candidate);
+            }
+        }
+        if (renditions.isEmpty()) {
+            renditions.add(requestedFile != null ? requestedFile : new VideoFile(requested, "", "480p", requested));
+        }
+
+        double p = Math.min(1, link.lossFraction);
+        double capacityKbps = speedMbps > 0 ? speedMbps * 1000 : Double.MAX_VALUE;
+        int fecColumns = fec ? Fec.Config.parse(fecMatrix).columns : 0;
+
+        Choice best = null;
+        // Σε ισοβαθμία προτιμάται το RTP/UDP (χαμηλή καθυστέρηση, RTCP), μετά UDP, μετά TCP
+        for (String protocol : new String[] {"RTP/UDP", "UDP", "TCP"}) {
+            for (VideoFile rendition : renditions) {
+                // Η ποιότητα εξαρτάται από την ανάλυση· ο ρυθμός και από το codec (HEVC/AV1 λιγότερος)
+                int qualityKbps = VideoCatalog.MIN_BITRATES.getOrDefault(rendition.resolution, 500);
+                int needKbps = VideoCatalog.MIN_BITRATES.containsKey(rendition.resolution) ? VideoCatalog.nominalKbps(rendition) : 500;
+                double utility = Math.log(qualityKbps / 100.0);
+                double score;
+                String reason;
+
+                if (protocol.equals("TCP")) {
+                    double throughput = capacityKbps;
+                    if (p > 0 && link.rttMs > 0) {
+                        throughput = Math.min(throughput,
+                            TCP_MSS * 8 * MATHIS_CONSTANT / (link.rttMs / 1000 * Math.sqrt(p)) / 1000);
+                    }
+                    double supply = Math.min(1, throughput / (needKbps * TCP_HEADROOM));
+                    score = utility * supply * supply;
+                    reason = String.format("TCP ρυθμός ~%.0f kbps για %d kbps", Math.min(throughput, 1e6), needKbps);
+                } else {
+                    double residual = p;
+                    if (protocol.equals("RTP/UDP") && nack && link.rttMs > 0) {
+                        int attempts = (int) Math.min(MAX_NACK_ATTEMPTS, Math.max(0, (bufferMs - 2 * link.jitterMs) / link.rttMs));
+                        residual = Math.pow(p, attempts + 1);
+                    }
+                    if (fecColumns > 0) {
+                        // Ένα χαμένο πακέτο ανακτάται αν δεν χάθηκε άλλο στην ίδια γραμμή
+                        residual *= 1 - Math.pow(1 - p, fecColumns);
+                    }
+                    residual += link.lateFraction(bufferMs);
+                    double throughput = capacityKbps * (1 - p);
+                    if (needKbps > throughput) {
+                        residual += 1 - throughput / needKbps;
+                    }
+                    score = utility * Math.max(0, 1 - LOSS_PENALTY * residual);
+                    reason = String.format("υπολειπόμενες απώλειες %.2f%%", residual * 100);
+                }
+
+                if (best == null || score > best.score + 1e-9) {
+                    best = new Choice(protocol, rendition.toString(), score, reason);
+                }
+            }
+        }
+        return best;
+    }
+}
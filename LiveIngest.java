@@ -0,0 +1,448 @@
+import java.io.*;
+import java.net.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.*;
+
+// Ζωντανό κανάλι: ένα τοπικό FFMPEG στέλνει MPEG-TS (push) σε TCP ή UDP θύρα του server, π.χ.
+//   ffmpeg -re -i cam.mp4 -c copy -f mpegts tcp://server:5000
+// Η ροή κωδικοποιείται μία φορά σε όλη τη σκάλα αναλύσεων (ένα FFMPEG, μία έξοδος ανά ανάλυση, με
+// keyframes στα ίδια χρονικά σημεία) και κάθε ανάλυση μοιράζεται σε όσους θεατές την επιλέξουν:
+// ανά θεατή μόνο αντιγραφή πακέτων, χωρίς κωδικοποίηση. Όσο το κανάλι εκπέμπει, οι εκδόσεις του
+// (π.χ. Cam-480p.mp4) εμφανίζονται στο GET_VIDEOS όπως κάθε άλλη έκδοση.
+// Ένας θεατής ξεκινά από το επόμενο keyframe, με τους τελευταίους PAT/PMT μπροστά του, ώστε ο
+// player να αρχίσει αμέσως την αποκωδικοποίηση.
+public class LiveIngest implements Closeable {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    public static final List<String> DEFAULT_LADDER = Arrays.asList("240p", "360p", "480p", "720p");
+
+    // 7 πακέτα TS ανά datagram, όπως το pkt_size=1316 του UDP streaming
+    private static final int CHUNK_PACKETS = 7;
+    private static final int CHUNK_SIZE = CHUNK_PACKETS * MpegTs.PACKET_SIZE;
+    // Chunks σε αναμονή ανά θεατή (~2.7 MB, αρκετά δευτερόλεπτα σε κάθε ανάλυση)
+    private static final int VIEWER_QUEUE_CHUNKS = 2048;
+    // Χωρίς δεδομένα UDP για τόσο η εκπομπή θεωρείται ότι τελείωσε
+    private static final int UDP_IDLE_TIMEOUT_MS = 5000;
+    private static final int TCP_ACCEPT_TIMEOUT_MS = 30_000;
+    private static final long RESTART_DELAY_MS = 1000;
+    private static final byte[] END = new byte[0];
+
+    private final String name;
+    private final String transport;
+    private final int port;
+    private final List<String> ladder;
+    private final VideoCatalog catalog;
+
+    // Οι αναλύσεις της τρέχουσας εκπομπής (κενό εκτός εκπομπής)
+    private volatile Map<String, Rung> onAir = Collections.emptyMap();
+    private volatile boolean running = false;
+    private volatile Process process;
+
+    // Μία ανάλυση της σκάλας: διαβάζει το MPEG-TS της εξόδου του FFMPEG και το μοιράζει στους θεατές
+    private class Rung {
+        final String resolution;
+        final ServerSocket input;
+        final List<Viewer> viewers = new CopyOnWriteArrayList<>();
+        // Οι τελευταίοι PAT/PMT, για τους θεατές που ξεκινούν
+        private byte[] pat;
+        private byte[] pmt;
+        private Set<Integer> pmtPids = Collections.emptySet();
+        private int videoPid = -1;
+        // Μετά το end() δεν προστίθενται θεατές (φρουρείται από το lock της ανάλυσης)
+        private boolean ended = false;
+
+        Rung(String resolution) throws IOException {
+            this.resolution = resolution;
+            this.input = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        }
+
+        void pump(AtomicBoolean published) {
+            try (Socket socket = input.accept(); InputStream in = new BufferedInputStream(socket.getInputStream())) {
+                byte[] chunk;
+                while ((chunk = in.readNBytes(CHUNK_SIZE)).length > 0) {
+                    if (chunk.length % MpegTs.PACKET_SIZE != 0 || !MpegTs.isValid(chunk, 0)) {
+                        throw new IOException("Μη έγκυρο MPEG-TS (" + chunk.length + " bytes)");
+                    }
+                    if (published.compareAndSet(false, true)) {
+                        catalog.publishLive(name, ladder);
+                        logger.info("Το κανάλι " + name + " εκπέμπει: " + ladder);
+                    }
+                    deliver(chunk, inspect(chunk));
+                }
+            } catch (IOException e) {
+                if (running) {
+                    logger.fine("Τέλος εξόδου " + name + "-" + resolution + ": " + e.getMessage());
+                }
+            }
+        }
+
+        // Ενημερώνει τους PAT/PMT· επιστρέφει τη θέση του πακέτου όπου ξεκινά keyframe της εικόνας, ή -1
+        private synchronized int inspect(byte[] chunk) {
+            int keyframe = -1;
+            for (int offset = 0; offset < chunk.length; offset += MpegTs.PACKET_SIZE) {
+                int pid = MpegTs.pid(chunk, offset);
+                if (pid == MpegTs.PAT_PID && MpegTs.payloadUnitStart(chunk, offset)) {
+                    pat = Arrays.copyOfRange(chunk, offset, offset + MpegTs.PACKET_SIZE);
+                    pmtPids = MpegTs.pmtPids(chunk, offset);
+                } else if (pmtPids.contains(pid) && MpegTs.payloadUnitStart(chunk, offset)) {
+                    pmt = Arrays.copyOfRange(chunk, offset, offset + MpegTs.PACKET_SIZE);
+                    videoPid = MpegTs.videoPid(chunk, offset);
+                } else if (keyframe < 0 && pid == videoPid && MpegTs.payloadUnitStart(chunk, offset) &&
+                           MpegTs.randomAccess(chunk, offset)) {
+                    keyframe = offset;
+                }
+            }
+            return keyframe;
+        }
+
+        private synchronized byte[] tables() {
+            if (pat == null || pmt == null) {
+                return null;
+            }
+            byte[] tables = Arrays.copyOf(pat, 2 * MpegTs.PACKET_SIZE);
+            System.arraycopy(pmt, 0, tables, MpegTs.PACKET_SIZE, MpegTs.PACKET_SIZE);
+            return tables;
+        }
+
+        private void deliver(byte[] chunk, int keyframe) {
+            for (Viewer viewer : viewers) {
+                if (viewer.waiting) {
+                    byte[] tables = keyframe >= 0 ? tables() : null;
+                    if (tables == null) {
+                        continue;
+                    }
+                    // Ο θεατής ξεκινά ακριβώς από το πακέτο του keyframe
+                    viewer.waiting = false;
+                    viewer.offer(tables);
+                    viewer.offer(keyframe == 0 ? chunk : Arrays.copyOfRange(chunk, keyframe, chunk.length));
+                    continue;
+                }
+                viewer.offer(chunk);
+            }
+        }
+
+        // Προσθέτει θεατή· false αν η εκπομπή έχει ήδη τελειώσει και δεν θα έρθει END γι' αυτόν
+        synchronized boolean add(Viewer viewer) {
+            if (ended) {
+                return false;
+            }
+            viewers.add(viewer);
+            return true;
+        }
+
+        void end() {
+            synchronized (this) {
+                ended = true;
+                for (Viewer viewer : viewers) {
+                    viewer.queue.offer(END);
+                }
+            }
+            try {
+                input.close();
+            } catch (IOException e) {
+                // Κλείνει μαζί με την εκπομπή
+            }
+        }
+    }
+
+    // Ένας θεατής μιας ανάλυσης (TCP, UDP ή RTP/UDP μέσω StreamRelay)
+    public class Viewer implements ClientSession.ActiveStream {
+        private final Rung rung;
+        private final String protocol;
+        private final InetAddress client;
+        private final int port;
+        private final StreamRelay relay;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(VIEWER_QUEUE_CHUNKS);
+        private volatile boolean waiting = true;
+        private volatile boolean stopped = false;
+        private volatile Closeable connection;
+        private Thread thread;
+
+        private Viewer(Rung rung, String protocol, InetAddress client, int port, StreamRelay relay) {
+            this.rung = rung;
+            this.protocol = protocol;
+            this.client = client;
+            this.port = port;
+            this.relay = relay;
+        }
+
+        private void start() {
+            thread = new Thread(this::run, "live-viewer-" + name + "-" + rung.resolution);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void run() {
+            try {
+                if (protocol.equalsIgnoreCase("TCP")) {
+                    // Όπως το tcp://...?listen=1 του FFMPEG: ο player συνδέεται στη θύρα του stream
+                    Socket socket;
+                    try (ServerSocket listener = new ServerSocket(port)) {
+                        connection = listener;
+                        listener.setSoTimeout(TCP_ACCEPT_TIMEOUT_MS);
+                        socket = listener.accept();
+                    }
+                    connection = socket;
+                    if (join()) {
+                        sendAll(socket.getOutputStream()::write);
+                    }
+                } else {
+                    try (DatagramSocket socket = new DatagramSocket()) {
+                        connection = socket;
+                        InetAddress target = relay != null ? InetAddress.getLoopbackAddress() : client;
+                        int targetPort = relay != null ? relay.getInputPort() : port;
+                        if (join()) {
+                            sendAll(data -> socket.send(new DatagramPacket(data, data.length, target, targetPort)));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (!stopped) {
+                    logger.warning("Διακοπή θεατή " + name + "-" + rung.resolution + " (" + client.getHostAddress() + "): " +
+                                   e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stop();
+            }
+        }
+
+        private boolean join() {
+            if (rung.add(this)) {
+                return true;
+            }
+            logger.info("Η εκπομπή " + name + " τελείωσε πριν ξεκινήσει ο θεατής " + client.getHostAddress());
+            return false;
+        }
+
+        private void sendAll(Sender sender) throws IOException, InterruptedException {
+            logger.info("Θεατής " + name + "-" + rung.resolution + ": " + client.getHostAddress() + ":" + port + " (" +
+                        protocol + "), σύνολο θεατών της ανάλυσης " + rung.viewers.size());
+            byte[] data;
+            while ((data = queue.take()) != END) {
+                // Με TCP ένα write ανά chunk· με UDP ένα datagram (οι PAT/PMT σε δικό τους)
+                sender.send(data);
+            }
+        }
+
+        // Ένας θεατής που δεν προλαβαίνει αποσυνδέεται, χωρίς να καθυστερεί τους υπόλοιπους
+        private void offer(byte[] data) {
+            if (!queue.offer(data)) {
+                logger.warning("Αποσύνδεση θεατή " + name + "-" + rung.resolution + " που δεν προλαβαίνει τη ροή");
+                rung.viewers.remove(this);
+                queue.clear();
+                queue.offer(END);
+            }
+        }
+
+        @Override
+        public boolean isAlive() {
+            return !stopped;
+        }
+
+        @Override
+        public void stop() {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            rung.viewers.remove(this);
+            queue.offer(END);
+            Closeable current = connection;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    // Ήδη κλειστό
+                }
+            }
+            if (relay != null) {
+                relay.close();
+            }
+        }
+    }
+
+    private interface Sender {
+        void send(byte[] data) throws IOException;
+    }
+
+    public LiveIngest(String name, String transport, int port, List<String> ladder, VideoCatalog catalog) {
+        if (!transport.equals("tcp") && !transport.equals("udp")) {
+            throw new IllegalArgumentException("Μη υποστηριζόμενη μεταφορά ingest: " + transport);
+        }
+        for (String resolution : ladder) {
+            if (!Arrays.asList(VideoCatalog.RESOLUTIONS).contains(resolution)) {
+                throw new IllegalArgumentException("Άγνωστη ανάλυση στη σκάλα ingest: " + resolution);
+            }
+        }
+        this.name = name;
+        this.transport = transport;
+        this.port = port;
+        this.ladder = ladder;
+        this.catalog = catalog;
+    }
+
+    // Όνομα=tcp:θύρα ή Όνομα=udp:θύρα, π.χ. Cam=tcp:5000
+    public static LiveIngest fromSpec(String spec, List<String> ladder, VideoCatalog catalog) {
+        String[] parts = spec.split("[=:]");
+        if (parts.length != 3 || parts[0].isEmpty()) {
+            throw new IllegalArgumentException("Μη έγκυρο ingest (Όνομα=tcp|udp:θύρα): " + spec);
+        }
+        try {
+            return new LiveIngest(parts[0], parts[1].toLowerCase(Locale.ROOT), Integer.parseInt(parts[2]), ladder, catalog);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Μη έγκυρη θύρα ingest: " + spec);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Αν το αρχείο είναι έκδοση αυτού του καναλιού
+    public boolean serves(String fileName) {
+        VideoFile video = VideoCatalog.parseVideoFile(fileName);
+        return video != null && video.movieName.equals(name) && video.codec.equals(Codecs.H264) &&
+               ladder.contains(video.resolution);
+    }
+
+    public void start() {
+        running = true;
+        Thread supervisor = new Thread(() -> {
+            while (running) {
+                try {
+                    broadcast();
+                } catch (IOException e) {
+                    logger.warning("Σφάλμα ingest " + name + ": " + e.getMessage());
+                    if (e.getMessage() != null && e.getMessage().contains("Cannot run program")) {
+                        // Χωρίς FFMPEG δεν έχει νόημα να ξαναδοκιμάσουμε
+                        running = false;
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    Thread.sleep(RESTART_DELAY_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "live-ingest-" + name);
+        supervisor.setDaemon(true);
+        supervisor.start();
+    }
+
+    // Μία εκπομπή: από την αναμονή της ροής έως το τέλος της
+    private void broadcast() throws IOException, InterruptedException {
+        Map<String, Rung> rungs = new LinkedHashMap<>();
+        AtomicBoolean published = new AtomicBoolean();
+        try {
+            for (String resolution : ladder) {
+                rungs.put(resolution, new Rung(resolution));
+            }
+            List<String> command = buildCommand(rungs);
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            logger.info("Αναμονή ροής για το κανάλι " + name + " στο " + transport + "://0.0.0.0:" + port +
+                        " (εντολή: " + String.join(" ", command) + ")");
+            Process started = pb.start();
+            process = started;
+            onAir = rungs;
+            for (Rung rung : rungs.values()) {
+                Thread pump = new Thread(() -> rung.pump(published), "live-rung-" + name + "-" + rung.resolution);
+                pump.setDaemon(true);
+                pump.start();
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(started.getErrorStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    logger.info("FFMPEG ingest " + name + ": " + line);
+                }
+            }
+            int exitCode = started.waitFor();
+            if (published.get() || exitCode != 0) {
+                logger.info("Τέλος εκπομπής " + name + " (FFMPEG κωδικός " + exitCode + ")");
+            }
+        } finally {
+            onAir = Collections.emptyMap();
+            if (published.get()) {
+                catalog.withdrawLive(name);
+            }
+            for (Rung rung : rungs.values()) {
+                rung.end();
+            }
+        }
+    }
+
+    private List<String> buildCommand(Map<String, Rung> rungs) {
+        String input = transport.equals("tcp")
+            ? "tcp://0.0.0.0:" + port + "?listen=1"
+            : "udp://0.0.0.0:" + port + "?timeout=" + (UDP_IDLE_TIMEOUT_MS * 1000L) + "&overrun_nonfatal=1&fifo_size=1000000";
+        List<String> command = new ArrayList<>(Arrays.asList(
+            "ffmpeg", "-hide_banner", "-nostats", "-loglevel", "warning", "-fflags", "nobuffer", "-i", input));
+        for (Rung rung : rungs.values()) {
+            VideoFile video = VideoCatalog.parseVideoFile(name + "-" + rung.resolution + ".mp4");
+            command.addAll(Arrays.asList("-map", "0:v:0", "-map", "0:a:0?",
+                                         "-vf", "scale=" + VideoCatalog.getScaleForResolution(rung.resolution)));
+            command.addAll(Codecs.liveArgs(Codecs.H264, VideoCatalog.nominalKbps(video)));
+            // Keyframes ανά δευτερόλεπτο σε όλες τις αναλύσεις, όπως στο TCP/RTP streaming αρχείων
+            command.addAll(Codecs.gopArgs(Codecs.H264, 1));
+            command.addAll(Arrays.asList("-c:a", "aac", "-b:a", "128k",
+                                         "-f", "mpegts", "tcp://127.0.0.1:" + rung.input.getLocalPort()));
+        }
+        return command;
+    }
+
+    // Νέος θεατής της ανάλυσης που ζητήθηκε, με τις επιλογές του START_STREAM (port, fec, nack).
+    // Με RTP/UDP ή επιλογές FEC/NACK/adapt η ροή περνά από StreamRelay, όπως στα αρχεία· η ανάλυση
+    // όμως μένει σταθερή (η προσαρμογή ρυθμού ισχύει μόνο για αρχεία).
+    public Viewer watch(String fileName, String protocol, Map<String, String> options, InetAddress client)
+            throws IOException {
+        if (!Arrays.asList("TCP", "UDP", "RTP/UDP").contains(protocol.toUpperCase())) {
+            throw new IllegalArgumentException("Μη υποστηριζόμενο πρωτόκολλο για ζωντανό κανάλι: " + protocol);
+        }
+        VideoFile video = VideoCatalog.parseVideoFile(fileName);
+        Rung rung = video != null ? onAir.get(video.resolution) : null;
+        if (rung == null) {
+            throw new IOException("Το κανάλι " + name + " δεν εκπέμπει");
+        }
+        int viewerPort = Integer.parseInt(options.getOrDefault("port", String.valueOf(VideoStreamer.STREAM_PORT)));
+        if (viewerPort < 1 || viewerPort > 65535 - Fec.ROW_PORT_OFFSET) {
+            throw new IllegalArgumentException("Μη έγκυρη θύρα: " + viewerPort);
+        }
+
+        boolean rtp = protocol.equalsIgnoreCase("RTP/UDP");
+        String fec = options.get("fec");
+        int nackPlayoutMs = rtp ? Integer.parseInt(options.getOrDefault("nack", "0")) : 0;
+        StreamRelay relay = null;
+        if (!protocol.equalsIgnoreCase("TCP") && (rtp || fec != null || nackPlayoutMs > 0 || options.containsKey("adapt"))) {
+            relay = new StreamRelay(client, viewerPort, false, fec != null ? Fec.Config.parse(fec) : null, nackPlayoutMs);
+            relay.start();
+        }
+        Viewer viewer = new Viewer(rung, protocol, client, viewerPort, relay);
+        viewer.start();
+        return viewer;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Process current = process;
+        if (current != null) {
+            current.destroy();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Μετρημένα χαρακτηριστικά ενός αρχείου (ffprobe): διάρκεια, πραγματικός μέσος και μέγιστος
+// ρυθμός, codec και διαστάσεις εικόνας. Ο μέγιστος ρυθμός είναι ο μεγαλύτερος μέσος όρος σε
+// παράθυρα των 2 δευτερολέπτων, ώστε ένα μεμονωμένο keyframe να μη μετρά ως αιχμή.
+// gopAligned: η εικόνα έχει keyframe σε κάθε όριο Codecs.GOP_SECONDS (έλεγχος κατά την εισαγωγή).
+public class MediaInfo {
+    private static final double PEAK_WINDOW_SECONDS = 2;
+    // Απόκλιση keyframe από το όριο GOP που θεωρείται ευθυγραμμισμένη (λιγότερο από ένα frame στα 24 fps)
+    private static final double GOP_TOLERANCE_SECONDS = 0.04;
+
+    final long size;
+    final long modifiedMillis;
+    final double durationSeconds;
+    final int averageKbps;
+    final int peakKbps;
+    final String codec;
+    final int width;
+    final int height;
+    final boolean gopAligned;
+
+    MediaInfo(long size, long modifiedMillis, double durationSeconds, int averageKbps, int peakKbps,
+              String codec, int width, int height, boolean gopAligned) {
+        this.size = size;
+        this.modifiedMillis = modifiedMillis;
+        this.durationSeconds = durationSeconds;
+        this.averageKbps = averageKbps;
+        this.peakKbps = peakKbps;
+        this.codec = codec;
+        this.width = width;
+        this.height = height;
+        this.gopAligned = gopAligned;
+    }
+
+    // Ισχύει μόνο για το ίδιο αρχείο (ίδιο μέγεθος και χρόνος τροποποίησης)
+    boolean matches(Path file) throws IOException {
+        return Files.size(file) == size && Files.getLastModifiedTime(file).toMillis() == modifiedMillis;
+    }
+
+    // Μορφή αποθήκευσης: size,mtime,duration,avg,peak,codec,width,height,gopAligned
+    String format() {
+        return size + "," + modifiedMillis + "," + durationSeconds + "," + averageKbps + "," + peakKbps + "," +
+               codec + "," + width + "," + height + "," + gopAligned;
+    }
+
+    // Εγγραφές χωρίς gopAligned (παλαιότερη μορφή) απορρίπτονται ώστε να ξαναμετρηθούν
+    static MediaInfo parse(String value) {
+        String[] fields = value.split(",");
+        if (fields.length < 9) {
+            throw new IllegalArgumentException("Λάθος πλήθος πεδίων: " + value);
+        }
+        return new MediaInfo(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Double.parseDouble(fields[2]),
+                             Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), fields[5],
+                             Integer.parseInt(fields[6]), Integer.parseInt(fields[7]), Boolean.parseBoolean(fields[8]));
+    }
+
+    static MediaInfo probe(Path file) throws IOException, InterruptedException {
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        // Μορφή και streams: μία γραμμή ανά ενότητα, π.χ. stream|index=0|codec_name=h264|codec_type=video|width=1920|height=1080
+        Map<String, String> format = new HashMap<>();
+        Map<String, String> video = new HashMap<>();
+        List<String> sections = new ArrayList<>();
+        run(Arrays.asList("ffprobe", "-v", "error",
+                          "-show_entries", "format=duration,bit_rate:stream=index,codec_type,codec_name,width,height",
+                          "-of", "compact", file.toString()), sections::add);
+        for (String line : sections) {
+            Map<String, String> fields = new HashMap<>();
+            for (String field : line.split("\\|")) {
+                int eq = field.indexOf('=');
+                if (eq > 0) {
+                    fields.put(field.substring(0, eq), field.substring(eq + 1));
+                }
+            }
+            if (line.startsWith("format|")) {
+                format = fields;
+            } else if (line.startsWith("stream|") && "video".equals(fields.get("codec_type")) && video.isEmpty()) {
+                video = fields;
+            }
+        }
+        double duration = parseDouble(format.get("duration"));
+        if (duration <= 0) {
+            throw new IOException("Το ffprobe δεν έδωσε διάρκεια");
+        }
+
+        // Αιχμή από τα μεγέθη όλων των πακέτων (εικόνα και ήχος) ανά παράθυρο, χωρίς να κρατάμε τις γραμμές.
+        // Στο ίδιο πέρασμα τα keyframes της εικόνας (σημαία K) για τον έλεγχο ευθυγράμμισης των GOP.
+        String videoIndex = video.getOrDefault("index", "0");
+        Map<Long, Long> windows = new HashMap<>();
+        List<Double> keyframes = new ArrayList<>();
+        run(Arrays.asList("ffprobe", "-v", "error", "-show_entries", "packet=stream_index,pts_time,size,flags",
+                          "-of", "csv=p=0", file.toString()), line -> {
+            String[] fields = line.split(",");
+            if (fields.length < 4) {
+                return;
+            }
+            double pts = parseDouble(fields[1]);
+            long bytes = (long) parseDouble(fields[2]);
+            if (pts >= 0 && bytes > 0) {
+                windows.merge((long) (pts / PEAK_WINDOW_SECONDS), bytes, Long::sum);
+            }
+            if (pts >= 0 && fields[0].equals(videoIndex) && fields[3].startsWith("K")) {
+                keyframes.add(pts);
+            }
+        });
+        long peakBytes = windows.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        double bitRate = parseDouble(format.get("bit_rate"));
+        int average = (int) Math.round((bitRate > 0 ? bitRate : size * 8 / duration) / 1000);
+        int peak = Math.max(average, (int) Math.round(peakBytes * 8 / PEAK_WINDOW_SECONDS / 1000));
+
+        return new MediaInfo(size, modified, duration, average, peak,
+                             video.getOrDefault("codec_name", "unknown"),
+                             (int) parseDouble(video.get("width")), (int) parseDouble(video.get("height")),
+                             !video.isEmpty() && isGopAligned(keyframes, duration));
+    }
+
+    // Keyframe σε κάθε όριο GOP (από την αρχή της εικόνας) έως το τελευταίο πλήρες GOP
+    static boolean isGopAligned(List<Double> keyframes, double durationSeconds) {
+        if (keyframes.isEmpty()) {
+            return false;
+        }
+        Collections.sort(keyframes);
+        double start = keyframes.get(0);
+        int next = 0;
+        for (double boundary = 0; boundary + Codecs.GOP_SECONDS <= durationSeconds; boundary += Codecs.GOP_SECONDS) {
+            double expected = start + boundary;
+            while (next < keyframes.size() && keyframes.get(next) < expected - GOP_TOLERANCE_SECONDS) {
+                next++;
+            }
+            if (next == keyframes.size() || keyframes.get(next) > expected + GOP_TOLERANCE_SECONDS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void run(List<String> command, Consumer<String> lines) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.accept(line.trim());
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("Το ffprobe απέτυχε με κωδικό " + exitCode);
+        }
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return value == null ? -1 : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            // "N/A" για πεδία που δεν υπάρχουν
+            return -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %dx%d, %.0f s, μέσος %d kbps, αιχμή %d kbps, GOP %s", codec, width, height,
+                             durationSeconds, averageKbps, peakKbps, gopAligned ? "ευθυγραμμισμένα" : "μη ευθυγραμμισμένα");
+    }
+}
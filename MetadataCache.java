@@ -0,0 +1,137 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.*;
+
+// Μετρήσεις ffprobe για κάθε έκδοση, αποθηκευμένες στο .metadata του φακέλου ώστε κάθε
+// αρχείο να μετριέται μία φορά (ξανά μόνο αν αλλάξει μέγεθος ή χρόνος τροποποίησης).
+// Οι μετρήσεις γίνονται σε ένα thread στο background· μέχρι να ολοκληρωθεί η μέτρηση
+// ο κατάλογος χρησιμοποιεί τον πίνακα MIN_BITRATES.
+public class MetadataCache {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    static final String STATE_FILE = ".metadata";
+    // Αποθήκευση όταν αδειάσει η ουρά ή κάθε τόσες μετρήσεις
+    private static final int SAVE_EVERY = 50;
+
+    private final Path folder;
+    private final Map<String, MediaInfo> entries = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> queued = new ConcurrentHashMap<>();
+    private final ExecutorService prober = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "media-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger sinceSave = new AtomicInteger();
+    // Αυξάνεται σε κάθε νέα μέτρηση: αλλάζει το αποτέλεσμα του φιλτραρίσματος, άρα και τα ETag
+    private final AtomicLong epoch = new AtomicLong();
+    private volatile boolean available = true;
+
+    public MetadataCache(Path folder) {
+        this.folder = folder;
+        load();
+    }
+
+    private void load() {
+        Path state = folder.resolve(STATE_FILE);
+        if (!Files.exists(state)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(state)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warning("Σφάλμα ανάγνωσης " + STATE_FILE + ": " + e.getMessage());
+            return;
+        }
+        for (String name : properties.stringPropertyNames()) {
+            try {
+                entries.put(name, MediaInfo.parse(properties.getProperty(name)));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Αγνοείται η εγγραφή " + name + " του " + STATE_FILE + ": " + e.getMessage());
+            }
+        }
+        logger.info("Μετρήσεις ffprobe για " + entries.size() + " αρχεία από " + STATE_FILE);
+    }
+
+    public MediaInfo get(String filename) {
+        return entries.get(filename);
+    }
+
+    public long getEpoch() {
+        return epoch.get();
+    }
+
+    // Μέτρηση του αρχείου αν δεν υπάρχει ήδη έγκυρη
+    public void probe(String filename) {
+        Path file = folder.resolve(filename);
+        MediaInfo known = entries.get(filename);
+        try {
+            if (!available || !Files.isRegularFile(file) || (known != null && known.matches(file))) {
+                return;
+            }
+        } catch (IOException e) {
+            return;
+        }
+        if (queued.putIfAbsent(filename, Boolean.TRUE) != null) {
+            return;
+        }
+        prober.execute(() -> {
+            try {
+                MediaInfo info = MediaInfo.probe(file);
+                entries.put(filename, info);
+                epoch.incrementAndGet();
+                logger.info("Μέτρηση " + filename + ": " + info);
+                if (!info.gopAligned) {
+                    // Μια τέτοια έκδοση δεν μπορεί να αλλάξει με άλλη σε όριο GOP χωρίς reset του decoder
+                    logger.warning("Τα GOP του " + filename + " δεν είναι ευθυγραμμισμένα ανά " +
+                                   Codecs.GOP_SECONDS + " s");
+                }
+            } catch (IOException e) {
+                if (e.getMessage() != null && e.getMessage().contains("Cannot run program")) {
+                    // Χωρίς ffprobe δεν έχει νόημα να δοκιμάσουμε τα υπόλοιπα
+                    available = false;
+                    logger.warning("Το ffprobe δεν είναι διαθέσιμο, φιλτράρισμα με τον πίνακα ρυθμών");
+                } else {
+                    logger.fine("Αποτυχία μέτρησης " + filename + ": " + e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                queued.remove(filename);
+                if (sinceSave.incrementAndGet() >= SAVE_EVERY || queued.isEmpty()) {
+                    save();
+                }
+            }
+        });
+    }
+
+    // Κρατά μόνο τις εκδόσεις του καταλόγου. Μια έκδοση JIT που διαγράφηκε μένει στον κατάλογο,
+    // άρα και η μέτρησή της, που ισχύει και όταν ξαναδημιουργηθεί με τις ίδιες ρυθμίσεις.
+    public void retain(Collection<String> filenames) {
+        if (entries.keySet().retainAll(new HashSet<>(filenames))) {
+            epoch.incrementAndGet();
+        }
+    }
+
+    public synchronized void save() {
+        sinceSave.set(0);
+        Properties properties = new Properties();
+        for (Map.Entry<String, MediaInfo> entry : entries.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().format());
+        }
+        try (OutputStream out = Files.newOutputStream(folder.resolve(STATE_FILE))) {
+            properties.store(out, "ffprobe: size,mtime,duration,avgKbps,peakKbps,codec,width,height,gopAligned");
+        } catch (IOException e) {
+            logger.warning("Σφάλμα αποθήκευσης " + STATE_FILE + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.HashSet;
+import java.util.Set;
+
+// Τα πεδία του MPEG-TS που χρειάζεται η αναμετάδοση ζωντανών καναλιών (βλ. LiveIngest):
+// PID, αρχή payload (PUSI), random access indicator του adaptation field (keyframe)
+// και οι πίνακες PAT/PMT, από τους οποίους βρίσκεται το PID της εικόνας.
+public class MpegTs {
+    public static final int PACKET_SIZE = 188;
+    public static final int PAT_PID = 0;
+    private static final int SYNC_BYTE = 0x47;
+
+    // stream_type εικόνας στο PMT: MPEG-1/2, MPEG-4 Part 2, H.264, HEVC
+    private static final Set<Integer> VIDEO_STREAM_TYPES = Set.of(0x01, 0x02, 0x10, 0x1B, 0x24);
+
+    private MpegTs() {
+    }
+
+    public static boolean isValid(byte[] data, int offset) {
+        return data[offset] == SYNC_BYTE;
+    }
+
+    public static int pid(byte[] data, int offset) {
+        return ((data[offset + 1] & 0x1F) << 8) | (data[offset + 2] & 0xFF);
+    }
+
+    public static boolean payloadUnitStart(byte[] data, int offset) {
+        return (data[offset + 1] & 0x40) != 0;
+    }
+
+    // Σημαία random access (αρχή keyframe) στο adaptation field του πακέτου
+    public static boolean randomAccess(byte[] data, int offset) {
+        boolean hasAdaptation = (data[offset + 3] & 0x20) != 0;
+        return hasAdaptation && (data[offset + 4] & 0xFF) > 0 && (data[offset + 5] & 0x40) != 0;
+    }
+
+    // Αρχή της ενότητας (μετά το pointer field) σε πακέτο PSI με PUSI, ή -1
+    private static int section(byte[] data, int offset) {
+        if (!payloadUnitStart(data, offset)) {
+            return -1;
+        }
+        int position = offset + 4;
+        if ((data[offset + 3] & 0x20) != 0) {
+            position += 1 + (data[offset + 4] & 0xFF);
+        }
+        if (position >= offset + PACKET_SIZE) {
+            return -1;
+        }
+        position += 1 + (data[position] & 0xFF);
+        return position + 8 <= offset + PACKET_SIZE ? position : -1;
+    }
+
+    private static int sectionEnd(byte[] data, int offset, int section) {
+        int length = ((data[section + 1] & 0x0F) << 8) | (data[section + 2] & 0xFF);
+        // Χωρίς το CRC_32 στο τέλος
+        return Math.min(section + 3 + length - 4, offset + PACKET_SIZE);
+    }
+
+    // Τα PID των PMT από ένα πακέτο PAT (όλα τα προγράμματα, εκτός του network PID)
+    public static Set<Integer> pmtPids(byte[] data, int offset) {
+        Set<Integer> pids = new HashSet<>();
+        int section = section(data, offset);
+        if (section < 0 || data[section] != 0x00) {
+            return pids;
+        }
+        int end = sectionEnd(data, offset, section);
+        for (int position = section + 8; position + 4 <= end; position += 4) {
+            int program = ((data[position] & 0xFF) << 8) | (data[position + 1] & 0xFF);
+            if (program != 0) {
+                pids.add(((data[position + 2] & 0x1F) << 8) | (data[position + 3] & 0xFF));
+            }
+        }
+        return pids;
+    }
+
+    // Το PID της εικόνας από ένα πακέτο PMT, ή -1
+    public static int videoPid(byte[] data, int offset) {
+        int section = section(data, offset);
+        if (section < 0 || data[section] != 0x02 || section + 12 > offset + PACKET_SIZE) {
+            return -1;
+        }
+        int end = sectionEnd(data, offset, section);
+        int programInfoLength = ((data[section + 10] & 0x0F) << 8) | (data[section + 11] & 0xFF);
+        for (int position = section + 12 + programInfoLength; position + 5 <= end; ) {
+            int streamType = data[position] & 0xFF;
+            int pid = ((data[position + 1] & 0x1F) << 8) | (data[position + 2] & 0xFF);
+            if (VIDEO_STREAM_TYPES.contains(streamType)) {
+                return pid;
+            }
+            position += 5 + (((data[position + 3] & 0x0F) << 8) | (data[position + 4] & 0xFF));
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,87 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.file.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.*;
+
+// Διάθεση των αρχείων του καταλόγου μέσω HTTP (GET /videos/<αρχείο>), ώστε οι edge servers
+// να φέρνουν τις εκδόσεις που τους ζητούνται. Σερβίρονται μόνο ονόματα του καταλόγου
+// (Ταινία-ανάλυση.format) από τον φάκελο βίντεο, χωρίς υποφακέλους. Στο JIT μια έκδοση
+// που δεν υπάρχει ακόμα δημιουργείται πριν σταλεί.
+public class OriginFileServer {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    public static final String PATH = "/videos/";
+
+    private final HttpServer server;
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "origin-file-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final long MATERIALIZE_TIMEOUT_MINUTES = 10;
+
+    private final Path folder;
+    private final VideoCatalog catalog;
+
+    public OriginFileServer(int port, VideoCatalog catalog) throws IOException {
+        this.folder = Paths.get(catalog.getVideosFolder());
+        this.catalog = catalog;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(workers);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Διάθεση αρχείων σε edge servers (HTTP) στο port " + server.getAddress().getPort());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String name = exchange.getRequestURI().getPath().substring(PATH.length());
+            Path file = folder.resolve(name);
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (name.contains("/") || name.contains("\\") || VideoCatalog.parseVideoFile(name) == null ||
+                !catalog.has(name)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            try {
+                catalog.materialize(name).get(MATERIALIZE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            } catch (Exception e) {
+                logger.warning("Αποτυχία δημιουργίας " + name + " για edge: " + ControlClient.unwrap(e).getMessage());
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            long size = Files.size(file);
+            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+            if (method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(size));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, size);
+            try (OutputStream out = exchange.getResponseBody()) {
+                Files.copy(file, out);
+            }
+            logger.info("Αποστολή " + name + " (" + size + " bytes) σε edge " + exchange.getRemoteAddress());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    public void close() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+}
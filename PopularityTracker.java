@@ -0,0 +1,166 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.*;
+import java.util.stream.Collectors;
+
+// Μετρητές δημοτικότητας με εκθετική απόσβεση (ένας μετρητής χάνει το μισό της αξίας του
+// ανά half-life), ώστε να ξεχωρίζουν οι ταινίες που ζητούνται τώρα από τις παλιές επιτυχίες.
+//   τίτλοι:      START_STREAM ανά ταινία
+//   εκδόσεις:    START_STREAM ανά αρχείο
+//   σκάλα:       ποια ανάλυση+format ταιριάζει στους clients (από τα GET_VIDEOS), π.χ. "720p.mp4"
+public class PopularityTracker {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    static final String STATE_FILE = ".popularity";
+
+    private static class Counter {
+        double score;
+        long lastMillis;
+
+        double at(long now, double halfLifeMillis) {
+            return score * Math.pow(0.5, (now - lastMillis) / halfLifeMillis);
+        }
+
+        void add(long now, double halfLifeMillis, double weight) {
+            score = at(now, halfLifeMillis) + weight;
+            lastMillis = now;
+        }
+    }
+
+    private final double halfLifeMillis;
+    private final Map<String, Counter> titles = new HashMap<>();
+    private final Map<String, Counter> renditions = new HashMap<>();
+    private final Map<String, Counter> ladder = new HashMap<>();
+
+    public PopularityTracker(double halfLifeHours) {
+        this.halfLifeMillis = Math.max(1, halfLifeHours * 3_600_000);
+    }
+
+    public synchronized void recordStream(String fileName) {
+        VideoFile video = VideoCatalog.parseVideoFile(fileName);
+        if (video == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        titles.computeIfAbsent(video.movieName, key -> new Counter()).add(now, halfLifeMillis, 1);
+        renditions.computeIfAbsent(video.toString(), key -> new Counter()).add(now, halfLifeMillis, 1);
+        ladder.computeIfAbsent(video.getRendition(), key -> new Counter()).add(now, halfLifeMillis, 1);
+    }
+
+    // Μια λίστα για speed/format δείχνει ποια έκδοση θα διαλέξει πιθανότατα ο client: τη μεγαλύτερη που χωρά
+    public synchronized void recordListing(double connectionSpeedMbps, String formatFilter) {
+        String format = VideoCatalog.baseFormat(formatFilter);
+        int connectionSpeedKbps = (int) (connectionSpeedMbps * 1000);
+        String best = null;
+        for (String resolution : VideoCatalog.RESOLUTIONS) {
+            if (VideoCatalog.MIN_BITRATES.get(resolution) <= connectionSpeedKbps) {
+                best = resolution;
+            }
+        }
+        if (best == null || !format.startsWith(".")) {
+            return;
+        }
+        // Μισό βάρος: η λίστα είναι ένδειξη, όχι αίτημα
+        ladder.computeIfAbsent(best + format, key -> new Counter()).add(System.currentTimeMillis(), halfLifeMillis, 0.5);
+    }
+
+    public synchronized List<String> topTitles(int count, double minScore) {
+        return top(titles, count, minScore);
+    }
+
+    public synchronized List<String> topRenditions(int count, double minScore) {
+        return top(renditions, count, minScore);
+    }
+
+    // Οι πιο ζητούμενες αναλύσεις+formats (π.χ. "480p.mp4"), ανεξαρτήτως ταινίας
+    public synchronized List<String> topLadder(int count) {
+        return top(ladder, count, 0);
+    }
+
+    private List<String> top(Map<String, Counter> counters, int count, double minScore) {
+        long now = System.currentTimeMillis();
+        return counters.entrySet().stream()
+                       .filter(entry -> entry.getValue().at(now, halfLifeMillis) >= minScore)
+                       .sorted(Comparator.comparingDouble((Map.Entry<String, Counter> entry) ->
+                                   entry.getValue().at(now, halfLifeMillis)).reversed())
+                       .limit(count)
+                       .map(Map.Entry::getKey)
+                       .collect(Collectors.toList());
+    }
+
+    // Μετρητές που έπεσαν κάτω από 0.01 διαγράφονται ώστε ο χάρτης να μη μεγαλώνει απεριόριστα
+    public synchronized void prune() {
+        long now = System.currentTimeMillis();
+        for (Map<String, Counter> counters : List.of(titles, renditions, ladder)) {
+            counters.values().removeIf(counter -> counter.at(now, halfLifeMillis) < 0.01);
+        }
+    }
+
+    public synchronized void load(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warning("Σφάλμα ανάγνωσης " + file + ": " + e.getMessage());
+            return;
+        }
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.indexOf('.');
+            String[] fields = properties.getProperty(key).split(",");
+            Map<String, Counter> counters = dot < 0 ? null : mapFor(key.substring(0, dot));
+            if (counters == null || fields.length < 2) {
+                continue;
+            }
+            try {
+                Counter counter = new Counter();
+                counter.score = Double.parseDouble(fields[0]);
+                counter.lastMillis = Long.parseLong(fields[1]);
+                counters.put(key.substring(dot + 1), counter);
+            } catch (NumberFormatException e) {
+                logger.warning("Αγνοείται η εγγραφή " + key + " του " + file);
+            }
+        }
+    }
+
+    public synchronized void save(Path file) {
+        Properties properties = new Properties();
+        for (String kind : new String[] {"title", "rendition", "ladder"}) {
+            for (Map.Entry<String, Counter> entry : mapFor(kind).entrySet()) {
+                properties.setProperty(kind + "." + entry.getKey(), entry.getValue().score + "," + entry.getValue().lastMillis);
+            }
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "Popularity counters: score,lastMillis");
+        } catch (IOException e) {
+            logger.warning("Σφάλμα αποθήκευσης " + file + ": " + e.getMessage());
+        }
+    }
+
+    private Map<String, Counter> mapFor(String kind) {
+        switch (kind) {
+            case "title": return titles;
+            case "rendition": return renditions;
+            case "ladder": return ladder;
+            default: return null;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        long now = System.currentTimeMillis();
+        List<String> top = new ArrayList<>();
+        for (String title : top(titles, 5, 0)) {
+            top.add(String.format("%s %.1f", title, titles.get(title).at(now, halfLifeMillis)));
+        }
+        return "Δημοφιλείς τίτλοι: " + top + ", σκάλα: " + top(ladder, 3, 0);
+    }
+}
@@ -0,0 +1,112 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.*;
+
+// Περιοδική προετοιμασία των εκδόσεων που πιθανότατα θα ζητηθούν σύντομα, με βάση τον
+// PopularityTracker: οι δημοφιλείς εκδόσεις, και για τους δημοφιλείς τίτλους οι αναλύσεις/formats
+// που ζητούν συνήθως οι clients. Για καθεμία:
+//   JIT:  δημιουργία στο background αν λείπει από τον δίσκο
+//   edge: λήψη από τον origin αν λείπει από την cache
+//   όλα:  ανάγνωση της αρχής του αρχείου ώστε να βρίσκεται στην page cache του λειτουργικού
+//         και το FFMPEG να ξεκινά χωρίς αναμονή δίσκου
+public class Prewarmer implements Runnable {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    // Μια έκδοση δεν ξαναπροετοιμάζεται (ούτε ξαναδοκιμάζεται μετά από αποτυχία) πριν περάσει αυτό το διάστημα
+    private static final long REWARM_INTERVAL_MILLIS = 10 * 60_000;
+    private static final int LADDER_ENTRIES = 2;
+
+    private final PopularityTracker tracker;
+    private final Path folder;
+    private final VideoCatalog catalog;
+    private final EdgeCache edgeCache;
+    private final int titles;
+    private final double minScore;
+    private final long headBytes;
+    private final Map<String, Long> warmedAt = new ConcurrentHashMap<>();
+
+    // catalog για origin/κόμβο, edgeCache για edge (το άλλο null)
+    public Prewarmer(PopularityTracker tracker, Path folder, VideoCatalog catalog, EdgeCache edgeCache,
+                     int titles, double minScore, long headBytes) {
+        this.tracker = tracker;
+        this.folder = folder;
+        this.catalog = catalog;
+        this.edgeCache = edgeCache;
+        this.titles = titles;
+        this.minScore = minScore;
+        this.headBytes = headBytes;
+    }
+
+    @Override
+    public void run() {
+        try {
+            Set<String> wanted = new LinkedHashSet<>(tracker.topRenditions(titles, minScore));
+            for (String title : tracker.topTitles(titles, minScore)) {
+                for (String entry : tracker.topLadder(LADDER_ENTRIES)) {
+                    wanted.add(title + "-" + entry);
+                }
+            }
+            for (String name : wanted) {
+                prepare(name);
+            }
+            long now = System.currentTimeMillis();
+            warmedAt.values().removeIf(time -> now - time > REWARM_INTERVAL_MILLIS);
+            tracker.prune();
+            tracker.save(folder.resolve(PopularityTracker.STATE_FILE));
+        } catch (RuntimeException e) {
+            // Ένα σφάλμα δεν πρέπει να σταματήσει τις επόμενες εκτελέσεις
+            logger.warning("Σφάλμα προετοιμασίας εκδόσεων: " + e.getMessage());
+        }
+    }
+
+    private void prepare(String name) {
+        long now = System.currentTimeMillis();
+        Long previous = warmedAt.get(name);
+        if (previous != null && now - previous < REWARM_INTERVAL_MILLIS) {
+            return;
+        }
+        warmedAt.put(name, now);
+
+        Path file = folder.resolve(name);
+        if (Files.exists(file)) {
+            warmHead(name, file);
+        } else if (edgeCache != null) {
+            edgeCache.acquire(name).whenComplete((path, error) -> {
+                if (path != null) {
+                    edgeCache.release(name);
+                    logger.info("Προετοιμασία: λήψη του δημοφιλούς " + name + " στην edge cache");
+                    warmHead(name, path);
+                }
+            });
+        } else if (catalog != null && catalog.has(name) && catalog.getRenditionCache() != null) {
+            catalog.materialize(name).whenComplete((result, error) -> {
+                if (error == null) {
+                    logger.info("Προετοιμασία: δημιουργήθηκε η δημοφιλής έκδοση " + name);
+                    warmHead(name, file);
+                }
+            });
+        }
+    }
+
+    private void warmHead(String name, Path file) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long read = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int n;
+            while (read < headBytes && (n = channel.read(buffer)) > 0) {
+                read += n;
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            logger.fine("Αποτυχία ανάγνωσης " + file + ": " + e.getMessage());
+            return;
+        }
+        logger.fine("Προετοιμασία: " + read / 1024 + " KB του " + name + " στη μνήμη");
+    }
+}
@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.net.*;
+import java.util.logging.*;
+
+// UDP echo για τη μέτρηση της σύνδεσης από τον client (LinkProbe) πριν την αυτόματη
+// επιλογή πρωτοκόλλου. Απαντά μόνο σε πακέτα που ξεκινούν με το LinkProbe.MAGIC
+// και μόνο με το ίδιο μέγεθος, ώστε να μη χρησιμεύει για ενίσχυση κίνησης.
+public class ProbeResponder {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    private final DatagramSocket socket;
+    private volatile boolean running = true;
+
+    public ProbeResponder(int port) throws SocketException {
+        this.socket = new DatagramSocket(port);
+    }
+
+    public void start() {
+        Thread thread = new Thread(this::run, "probe-responder");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Probe responder (UDP) στο port " + socket.getLocalPort());
+    }
+
+    private void run() {
+        byte[] buffer = new byte[LinkProbe.MAX_PACKET];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (running) {
+            try {
+                packet.setLength(buffer.length);
+                socket.receive(packet);
+                if (LinkProbe.isProbe(buffer, packet.getLength())) {
+                    socket.send(packet);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    logger.warning("Σφάλμα probe responder: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    public void close() {
+        running = false;
+        socket.close();
+    }
+}
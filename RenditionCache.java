@@ -0,0 +1,167 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.*;
+
+// Λογιστική των εκδόσεων που δημιουργήθηκαν κατά παραγγελία (JIT). Κάθε πρόσβαση ανεβάζει
+// τον βαθμό της έκδοσης, ο οποίος μειώνεται εκθετικά με τον χρόνο (LRFU: ανάμεσα σε LRU και LFU).
+// Όταν ξεπεραστεί το όριο χώρου διαγράφονται οι εκδόσεις με τον μικρότερο βαθμό· οι πηγές και
+// η βασική σκάλα δεν καταγράφονται εδώ, άρα δεν διαγράφονται ποτέ.
+// Η κατάσταση αποθηκεύεται στο .renditions του φακέλου ώστε να επιβιώνει από επανεκκινήσεις.
+public class RenditionCache {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    static final String STATE_FILE = ".renditions";
+
+    private static class Entry {
+        long bytes;
+        double score;
+        long lastAccessMillis;
+
+        Entry(long bytes, double score, long lastAccessMillis) {
+            this.bytes = bytes;
+            this.score = score;
+            this.lastAccessMillis = lastAccessMillis;
+        }
+    }
+
+    private final Path folder;
+    private final long quotaBytes;
+    private final double halfLifeMillis;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long usedBytes = 0;
+    private long lastSaveMillis;
+
+    private long hits;
+    private long generated;
+    private long evictions;
+
+    public RenditionCache(Path folder, long quotaBytes, double halfLifeHours) {
+        this.folder = folder;
+        this.quotaBytes = quotaBytes;
+        this.halfLifeMillis = Math.max(1, halfLifeHours * 3_600_000);
+        load();
+    }
+
+    private void load() {
+        Path state = folder.resolve(STATE_FILE);
+        if (!Files.exists(state)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(state)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warning("Σφάλμα ανάγνωσης " + STATE_FILE + ": " + e.getMessage());
+            return;
+        }
+        for (String name : properties.stringPropertyNames()) {
+            // Όσες διαγράφηκαν με το χέρι ξεχνιούνται
+            Path file = folder.resolve(name);
+            String[] fields = properties.getProperty(name).split(",");
+            if (!Files.isRegularFile(file) || fields.length < 2) {
+                continue;
+            }
+            try {
+                long size = Files.size(file);
+                entries.put(name, new Entry(size, Double.parseDouble(fields[0]), Long.parseLong(fields[1])));
+                usedBytes += size;
+            } catch (IOException | NumberFormatException e) {
+                logger.warning("Αγνοείται η εγγραφή " + name + " του " + STATE_FILE + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Εκδόσεις που δημιουργήθηκαν εδώ (οι υπόλοιπες θεωρούνται πηγές)
+    public synchronized boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    // Νέα έκδοση στον δίσκο· μετρά ως πρώτη πρόσβαση. Επιστρέφει όσες διαγράφηκαν για να χωρέσει.
+    public synchronized List<String> add(String name, long bytes) {
+        Entry previous = entries.put(name, new Entry(bytes, 1, System.currentTimeMillis()));
+        usedBytes += bytes - (previous != null ? previous.bytes : 0);
+        generated++;
+        List<String> evicted = evict(name);
+        save();
+        return evicted;
+    }
+
+    public synchronized void touch(String name) {
+        Entry entry = entries.get(name);
+        if (entry != null) {
+            long now = System.currentTimeMillis();
+            entry.score = decayed(entry, now) + 1;
+            entry.lastAccessMillis = now;
+            hits++;
+            // Οι βαθμοί αποθηκεύονται το πολύ μία φορά το λεπτό
+            if (now - lastSaveMillis > 60_000) {
+                save();
+            }
+        }
+    }
+
+    private double decayed(Entry entry, long now) {
+        return entry.score * Math.pow(0.5, (now - entry.lastAccessMillis) / halfLifeMillis);
+    }
+
+    // Διαγραφή των εκδόσεων με τον μικρότερο βαθμό μέχρι να χωρά στο όριο (εκτός από την keep)
+    private List<String> evict(String keep) {
+        List<String> evicted = new ArrayList<>();
+        if (quotaBytes <= 0) {
+            return evicted;
+        }
+        long now = System.currentTimeMillis();
+        while (usedBytes > quotaBytes) {
+            String coldest = null;
+            double coldestScore = Double.MAX_VALUE;
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                double score = decayed(candidate.getValue(), now);
+                if (!candidate.getKey().equals(keep) && score < coldestScore) {
+                    coldest = candidate.getKey();
+                    coldestScore = score;
+                }
+            }
+            if (coldest == null) {
+                logger.warning("Οι εκδόσεις JIT ξεπερνούν το όριο των " + quotaBytes / (1024 * 1024) + " MB");
+                break;
+            }
+            Entry entry = entries.remove(coldest);
+            usedBytes -= entry.bytes;
+            try {
+                // Σε Linux ένα stream που διαβάζει ήδη το αρχείο συνεχίζει κανονικά
+                Files.deleteIfExists(folder.resolve(coldest));
+            } catch (IOException e) {
+                logger.warning("Αποτυχία διαγραφής " + coldest + ": " + e.getMessage());
+            }
+            evictions++;
+            evicted.add(coldest);
+            logger.info(String.format("Διαγραφή έκδοσης %s (βαθμός %.2f) για το όριο χώρου", coldest, coldestScore));
+        }
+        return evicted;
+    }
+
+    public synchronized void save() {
+        lastSaveMillis = System.currentTimeMillis();
+        Properties properties = new Properties();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().score + "," + entry.getValue().lastAccessMillis);
+        }
+        try (OutputStream out = Files.newOutputStream(folder.resolve(STATE_FILE))) {
+            properties.store(out, "Just-in-time renditions: score,lastAccessMillis");
+        } catch (IOException e) {
+            logger.warning("Σφάλμα αποθήκευσης " + STATE_FILE + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Εκδόσεις JIT: %d, %d/%d MB, προσβάσεις %d, δημιουργίες %d, διαγραφές %d",
+                             entries.size(), usedBytes / (1024 * 1024), quotaBytes / (1024 * 1024),
+                             hits, generated, evictions);
+    }
+}
@@ -0,0 +1,178 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Πακέτα RTCP που χρησιμοποιούνται στο RTP/UDP:
+//   SR  (PT 200, RFC 3550) από τον server κάθε δευτερόλεπτο, για τη μέτρηση RTT
+//   RR  (PT 201, RFC 3550) από τον client: απώλειες, jitter, LSR/DLSR
+//   NACK (PT 205 FMT 1, RFC 4585) από τον client: ποια sequence numbers λείπουν
+//   APP "RATE" (PT 204) από τον client: ρυθμός λήψης και μεταβολή καθυστέρησης,
+//        για τον έλεγχο συμφόρησης του server (BitrateController)
+// Το RTCP χρησιμοποιεί τη θύρα media + 1.
+public class Rtcp {
+    public static final int PORT_OFFSET = 1;
+    public static final int SR = 200;
+    public static final int RR = 201;
+    public static final int APP = 204;
+    public static final int RTPFB = 205;
+    public static final int FMT_NACK = 1;
+
+    private static final int APP_RATE_NAME = 0x52415445; // "RATE"
+
+    private static final long NTP_EPOCH_OFFSET_SECONDS = 2_208_988_800L;
+
+    // Τα μεσαία 32 bits του NTP timestamp (μονάδες 1/65536 s), όπως τα LSR/DLSR
+    public static long ntpMiddle32(long wallMillis) {
+        long seconds = wallMillis / 1000 + NTP_EPOCH_OFFSET_SECONDS;
+        long fraction = (wallMillis % 1000) * 65536 / 1000;
+        return ((seconds & 0xFFFF) << 16) | fraction;
+    }
+
+    public static class ReceiverReport {
+        long reporterSsrc;
+        long sourceSsrc;
+        int fractionLost;
+        int cumulativeLost;
+        long highestSeq;
+        long jitter;
+        long lastSr;
+        long delaySinceLastSr;
+
+        public double getFractionLost() {
+            return fractionLost / 256.0;
+        }
+
+        // RTT σε ms από LSR/DLSR (0 αν ο client δεν έχει λάβει ακόμα SR)
+        public double getRoundTripMs(long nowWallMillis) {
+            if (lastSr == 0) {
+                return 0;
+            }
+            long rtt = (ntpMiddle32(nowWallMillis) - lastSr - delaySinceLastSr) & 0xFFFFFFFFL;
+            return rtt > 0x7FFFFFFFL ? 0 : rtt * 1000.0 / 65536;
+        }
+    }
+
+    public static byte[] senderReport(int ssrc, long wallMillis, long rtpTimestamp, long packets, long octets) {
+        long seconds = wallMillis / 1000 + NTP_EPOCH_OFFSET_SECONDS;
+        long fraction = ((wallMillis % 1000) << 32) / 1000;
+        ByteBuffer buffer = ByteBuffer.allocate(28);
+        buffer.put((byte) 0x80).put((byte) SR).putShort((short) 6);
+        buffer.putInt(ssrc);
+        buffer.putInt((int) seconds).putInt((int) fraction);
+        buffer.putInt((int) rtpTimestamp);
+        buffer.putInt((int) packets).putInt((int) octets);
+        return buffer.array();
+    }
+
+    public static byte[] receiverReport(ReceiverReport report) {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        buffer.put((byte) 0x81).put((byte) RR).putShort((short) 7);
+        buffer.putInt((int) report.reporterSsrc);
+        buffer.putInt((int) report.sourceSsrc);
+        int lost = Math.max(-0x800000, Math.min(0x7FFFFF, report.cumulativeLost));
+        buffer.putInt((report.fractionLost & 0xFF) << 24 | (lost & 0xFFFFFF));
+        buffer.putInt((int) report.highestSeq);
+        buffer.putInt((int) report.jitter);
+        buffer.putInt((int) report.lastSr);
+        buffer.putInt((int) report.delaySinceLastSr);
+        return buffer.array();
+    }
+
+    // Generic NACK: κάθε FCI = PID (πρώτο χαμένο) + BLP (bitmask των 16 επόμενων)
+    public static byte[] nack(long senderSsrc, long mediaSsrc, List<Integer> lostSeqs) {
+        List<int[]> fci = new ArrayList<>();
+        for (int seq : lostSeqs) {
+            int[] last = fci.isEmpty() ? null : fci.get(fci.size() - 1);
+            int distance = last == null ? -1 : (seq - last[0]) & 0xFFFF;
+            if (last != null && distance >= 1 && distance <= 16) {
+                last[1] |= 1 << (distance - 1);
+            } else {
+                fci.add(new int[] {seq & 0xFFFF, 0});
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(12 + 4 * fci.size());
+        buffer.put((byte) (0x80 | FMT_NACK)).put((byte) RTPFB).putShort((short) (2 + fci.size()));
+        buffer.putInt((int) senderSsrc);
+        buffer.putInt((int) mediaSsrc);
+        for (int[] entry : fci) {
+            buffer.putShort((short) entry[0]).putShort((short) entry[1]);
+        }
+        return buffer.array();
+    }
+
+    // APP "RATE": [ssrc][name][ρυθμός λήψης kbps][μεταβολή καθυστέρησης σε μs ανά δευτερόλεπτο]
+    public static byte[] rateReport(long senderSsrc, int receivedKbps, int delayGradientMicros) {
+        ByteBuffer buffer = ByteBuffer.allocate(20);
+        buffer.put((byte) 0x80).put((byte) APP).putShort((short) 4);
+        buffer.putInt((int) senderSsrc);
+        buffer.putInt(APP_RATE_NAME);
+        buffer.putInt(receivedKbps);
+        buffer.putInt(delayGradientMicros);
+        return buffer.array();
+    }
+
+    // {kbps, μs/s} ή null αν δεν είναι APP "RATE"
+    public static int[] parseRateReport(byte[] data, int length) {
+        if (packetType(data, length) != APP || length < 20) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, 8, 12);
+        if (buffer.getInt() != APP_RATE_NAME) {
+            return null;
+        }
+        return new int[] {buffer.getInt(), buffer.getInt()};
+    }
+
+    public static int packetType(byte[] data, int length) {
+        return length >= 8 && (data[0] & 0xC0) == 0x80 ? data[1] & 0xFF : -1;
+    }
+
+    public static ReceiverReport parseReceiverReport(byte[] data, int length) {
+        if (packetType(data, length) != RR || (data[0] & 0x1F) < 1 || length < 32) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, 4, length - 4);
+        ReceiverReport report = new ReceiverReport();
+        report.reporterSsrc = buffer.getInt() & 0xFFFFFFFFL;
+        report.sourceSsrc = buffer.getInt() & 0xFFFFFFFFL;
+        int lossWord = buffer.getInt();
+        report.fractionLost = (lossWord >>> 24) & 0xFF;
+        report.cumulativeLost = (lossWord << 8) >> 8;
+        report.highestSeq = buffer.getInt() & 0xFFFFFFFFL;
+        report.jitter = buffer.getInt() & 0xFFFFFFFFL;
+        report.lastSr = buffer.getInt() & 0xFFFFFFFFL;
+        report.delaySinceLastSr = buffer.getInt() & 0xFFFFFFFFL;
+        return report;
+    }
+
+    // Τα sequence numbers ενός NACK (κενή λίστα αν δεν είναι NACK)
+    public static List<Integer> parseNack(byte[] data, int length) {
+        List<Integer> seqs = new ArrayList<>();
+        if (packetType(data, length) != RTPFB || (data[0] & 0x1F) != FMT_NACK || length < 12) {
+            return seqs;
+        }
+        for (int offset = 12; offset + 4 <= length; offset += 4) {
+            int pid = ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+            int blp = ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+            seqs.add(pid);
+            for (int bit = 0; bit < 16; bit++) {
+                if ((blp & (1 << bit)) != 0) {
+                    seqs.add((pid + bit + 1) & 0xFFFF);
+                }
+            }
+        }
+        return seqs;
+    }
+
+    // Από ένα SR: τα μεσαία 32 bits του NTP timestamp (γίνεται LSR στο επόμενο RR)
+    public static long senderReportNtpMiddle(byte[] data, int length) {
+        if (packetType(data, length) != SR || length < 28) {
+            return -1;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, 8, 8);
+        long seconds = buffer.getInt() & 0xFFFFFFFFL;
+        long fraction = buffer.getInt() & 0xFFFFFFFFL;
+        return ((seconds & 0xFFFF) << 16) | (fraction >>> 16);
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+// Ρυθμίσεις του server από αρχείο properties και/ή παραμέτρους γραμμής εντολών.
+// Οι παράμετροι CLI (--key=value ή --key value) υπερισχύουν του αρχείου.
+public class ServerConfig {
+    public static final String PORT = "port";
+    public static final String VIDEOS_FOLDER = "videos.folder";
+    public static final String HEADLESS = "headless";
+    public static final String LOG_FILE = "log.file";
+    public static final String TRANSCODE_WORKERS = "transcode.workers";
+    public static final String CATALOG_PAGE_SIZE = "catalog.page.size";
+    public static final String PROBE_PORT = "probe.port";
+    public static final String MAX_CLIENTS = "max.clients";
+    public static final String FILE_PORT = "file.port";
+    public static final String ORIGIN = "origin";
+    public static final String ORIGIN_FILE_PORT = "origin.file.port";
+    public static final String EDGE_CACHE_MB = "edge.cache.mb";
+    public static final String CLUSTER_NODES = "cluster.nodes";
+    public static final String CLUSTER_NODE = "cluster.node";
+    public static final String CLUSTER_REPLICAS = "cluster.replicas";
+    public static final String CLUSTER_HOT = "cluster.hot";
+    public static final String CLUSTER_HOT_REPLICAS = "cluster.hot.replicas";
+    public static final String CLUSTER_FRONT = "cluster.front";
+    public static final String RENDITIONS_MODE = "renditions.mode";
+    public static final String RENDITIONS_BASE = "renditions.base";
+    public static final String RENDITIONS_QUOTA_MB = "renditions.quota.mb";
+    public static final String RENDITIONS_HALF_LIFE_HOURS = "renditions.half.life.hours";
+    public static final String CODECS = "codecs";
+    public static final String POPULARITY_HALF_LIFE_HOURS = "popularity.half.life.hours";
+    public static final String PREWARM_INTERVAL_S = "prewarm.interval.s";
+    public static final String PREWARM_TITLES = "prewarm.titles";
+    public static final String PREWARM_MIN_SCORE = "prewarm.min.score";
+    public static final String PREWARM_HEAD_MB = "prewarm.head.mb";
+    public static final String INGEST = "ingest";
+    public static final String INGEST_LADDER = "ingest.ladder";
+
+    private final Properties properties = new Properties();
+
+    public ServerConfig() {
+        properties.setProperty(PORT, "8888");
+        properties.setProperty(VIDEOS_FOLDER, "videos");
+        properties.setProperty(HEADLESS, "false");
+        properties.setProperty(LOG_FILE, "streaming_server.log");
+    }
+
+    public static ServerConfig fromArgs(String[] args) throws IOException {
+        ServerConfig config = new ServerConfig();
+        Properties cli = new Properties();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Άγνωστη παράμετρος: " + arg);
+            }
+
+            String key = arg.substring(2);
+            String value;
+            int eq = key.indexOf('=');
+            if (eq >= 0) {
+                value = key.substring(eq + 1);
+                key = key.substring(0, eq);
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                value = args[++i];
+            } else {
+                // Σκέτη σημαία, π.χ. --headless
+                value = "true";
+            }
+            if (key.equals("videos")) {
+                key = VIDEOS_FOLDER;
+            }
+            cli.setProperty(key, value);
+        }
+
+        // Πρώτα το αρχείο ρυθμίσεων, μετά οι παράμετροι CLI από πάνω
+        String configFile = cli.getProperty("config");
+        if (configFile != null) {
+            config.load(configFile);
+        }
+        config.properties.putAll(cli);
+        return config;
+    }
+
+    public void load(String configFile) throws IOException {
+        try (InputStream in = Files.newInputStream(Paths.get(configFile))) {
+            properties.load(in);
+        }
+    }
+
+    public String getString(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    public String getString(String key) {
+        return properties.getProperty(key);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Μη έγκυρη ακέραια τιμή για " + key + ": " + value);
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Μη έγκυρη ακέραια τιμή για " + key + ": " + value);
+        }
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Μη έγκυρη αριθμητική τιμή για " + key + ": " + value);
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    public void set(String key, String value) {
+        properties.setProperty(key, value);
+    }
+
+    public int getPort() {
+        return getInt(PORT, 8888);
+    }
+
+    // UDP echo για τη μέτρηση της σύνδεσης από τον client (0 = απενεργοποιημένο)
+    public int getProbePort() {
+        return getInt(PROBE_PORT, getPort() + 1);
+    }
+
+    // Ταυτόχρονες συνδέσεις· στο όριο, νέα σύνδεση αποσυνδέει την παλαιότερη.
+    // Ο κόμβος cluster δέχεται μία σύνδεση ανά θεατή από τον front, άρα χρειάζεται περισσότερες.
+    public int getMaxClients() {
+        return Math.max(1, getInt(MAX_CLIENTS, isCluster() && !isClusterFront() ? 64 : 1));
+    }
+
+    // HTTP διάθεση αρχείων σε edge servers (0 = απενεργοποιημένη)
+    public int getFilePort() {
+        return getInt(FILE_PORT, getPort() + 2);
+    }
+
+    // Με origin=host:port ο server λειτουργεί ως edge: κατάλογος από τον origin, εκδόσεις σε τοπική cache
+    public boolean isEdge() {
+        return getString(ORIGIN) != null;
+    }
+
+    public String getOriginHost() {
+        String origin = getString(ORIGIN);
+        int colon = origin.lastIndexOf(':');
+        return colon > 0 ? origin.substring(0, colon) : origin;
+    }
+
+    public int getOriginPort() {
+        String origin = getString(ORIGIN);
+        int colon = origin.lastIndexOf(':');
+        return colon > 0 ? Integer.parseInt(origin.substring(colon + 1)) : 8888;
+    }
+
+    public int getOriginFilePort() {
+        return getInt(ORIGIN_FILE_PORT, getOriginPort() + 2);
+    }
+
+    // Με cluster.nodes=host:port,... οι ταινίες μοιράζονται στους κόμβους με consistent hashing
+    public boolean isCluster() {
+        return !getClusterNodes().isEmpty();
+    }
+
+    public List<String> getClusterNodes() {
+        return getList(CLUSTER_NODES);
+    }
+
+    // Ο κόμβος αποθήκευσης δηλώνει ποιος είναι (cluster.node)· χωρίς αυτό ο server είναι ο front
+    public String getClusterNode() {
+        return getString(CLUSTER_NODE);
+    }
+
+    public boolean isClusterFront() {
+        return isCluster() && getClusterNode() == null;
+    }
+
+    // Αντίγραφα ανά ταινία· οι δημοφιλείς (cluster.hot) έχουν περισσότερα
+    public int getReplicas(String movieName) {
+        if (getList(CLUSTER_HOT).contains(movieName)) {
+            return Math.max(1, getInt(CLUSTER_HOT_REPLICAS, 2));
+        }
+        return Math.max(1, getInt(CLUSTER_REPLICAS, 1));
+    }
+
+    // Διευθύνσεις front που επιτρέπεται να ζητούν stream για λογαριασμό άλλου (client=)
+    public List<String> getTrustedFronts() {
+        return getList(CLUSTER_FRONT);
+    }
+
+    // renditions.mode=jit: εκ των προτέρων μόνο η βασική σκάλα, οι άλλες εκδόσεις με το πρώτο αίτημα
+    public boolean isJustInTime() {
+        return "jit".equalsIgnoreCase(getString(RENDITIONS_MODE, "eager"));
+    }
+
+    // Εκδόσεις της βασικής σκάλας ως ανάλυση+format, π.χ. 240p.mp4,480p.mp4
+    public List<String> getBaseLadder() {
+        if (getString(RENDITIONS_BASE) == null) {
+            return Arrays.asList("240p.mp4", "480p.mp4");
+        }
+        return getList(RENDITIONS_BASE);
+    }
+
+    // Codecs των εκδόσεων, π.χ. h264,hevc,av1 (όσα δεν υποστηρίζει το FFMPEG παραλείπονται)
+    public List<String> getCodecs() {
+        if (getString(CODECS) == null) {
+            return Arrays.asList(Codecs.ALL);
+        }
+        return getList(CODECS);
+    }
+
+    // Ζωντανά κανάλια ως Όνομα=tcp|udp:θύρα, π.χ. Cam=tcp:5000,Lobby=udp:5002
+    public List<String> getIngests() {
+        return getList(INGEST);
+    }
+
+    // Αναλύσεις στις οποίες κωδικοποιείται κάθε ζωντανό κανάλι
+    public List<String> getIngestLadder() {
+        if (getString(INGEST_LADDER) == null) {
+            return LiveIngest.DEFAULT_LADDER;
+        }
+        return getList(INGEST_LADDER);
+    }
+
+    private List<String> getList(String key) {
+        List<String> values = new ArrayList<>();
+        String value = getString(key);
+        if (value != null) {
+            for (String item : Arrays.asList(value.split(","))) {
+                if (!item.trim().isEmpty()) {
+                    values.add(item.trim());
+                }
+            }
+        }
+        return values;
+    }
+
+    public String getVideosFolder() {
+        return getString(VIDEOS_FOLDER, "videos");
+    }
+
+    public boolean isHeadless() {
+        return getBoolean(HEADLESS, false);
+    }
+}
@@ -0,0 +1,104 @@
+import javax.swing.*;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.Color;
+import java.util.logging.Logger;
+
+// Swing παράθυρο του StreamingServer. Ο server λειτουργεί και χωρίς αυτό (headless).
+public class ServerGUI implements StreamingServer.StatusListener {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    private final StreamingServer server;
+    private JFrame gui;
+    private JTextArea logArea;
+    private JLabel statusLabel;
+
+    public ServerGUI(StreamingServer server) {
+        this.server = server;
+        createGUI();
+        server.setStatusListener(this);
+    }
+
+    private void createGUI() {
+        gui = new JFrame("Streaming Server");
+        gui.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        gui.setLayout(new BorderLayout());
+
+        // Status panel
+        JPanel statusPanel = new JPanel(new FlowLayout());
+        statusLabel = new JLabel("Σταματημένος");
+        statusLabel.setForeground(Color.RED);
+        statusPanel.add(new JLabel("Κατάσταση: "));
+        statusPanel.add(statusLabel);
+
+        // Control panel
+        JPanel controlPanel = new JPanel(new FlowLayout());
+        JButton startButton = new JButton("Εκκίνηση Server");
+        JButton stopButton = new JButton("Διακοπή Server");
+        JButton refreshButton = new JButton("Ανανέωση Βίντεο");
+
+        startButton.addActionListener(e -> server.startServer());
+        stopButton.addActionListener(e -> server.stopServer());
+        refreshButton.addActionListener(e -> server.refreshVideos());
+
+        JButton disconnectClientButton = new JButton("Αποσύνδεση Client");
+        disconnectClientButton.addActionListener(e -> {
+            if (server.isClientConnected()) {
+                server.disconnectCurrentClient();
+                logger.info("Χειροκίνητη αποσύνδεση client");
+            } else {
+                JOptionPane.showMessageDialog(gui,
+                    "Δεν υπάρχει συνδεδεμένος client.",
+                    "Πληροφορία",
+                    JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+
+        controlPanel.add(startButton);
+        controlPanel.add(stopButton);
+        controlPanel.add(refreshButton);
+        controlPanel.add(disconnectClientButton);
+
+        // Log area
+        logArea = new JTextArea(20, 60);
+        logArea.setEditable(false);
+        JScrollPane scrollPane = new JScrollPane(logArea);
+        scrollPane.setBorder(BorderFactory.createTitledBorder("Logs"));
+
+        gui.add(statusPanel, BorderLayout.NORTH);
+        gui.add(controlPanel, BorderLayout.CENTER);
+        gui.add(scrollPane, BorderLayout.SOUTH);
+
+        gui.pack();
+        gui.setLocationRelativeTo(null);
+        gui.setVisible(true);
+
+        // Log handler για GUI (ενημέρωση σε παρτίδες μέσω του async pipeline)
+        server.getAsyncLogHandler().addDelegate(new TextAreaLogHandler(logArea));
+    }
+
+    @Override
+    public void statusChanged(StreamingServer.Status status, String detail) {
+        SwingUtilities.invokeLater(() -> {
+            switch (status) {
+                case CLIENT_CONNECTED:
+                    statusLabel.setText("Συνδεδεμένος client: " + detail);
+                    statusLabel.setForeground(Color.BLUE);
+                    break;
+                case RUNNING:
+                    statusLabel.setText("Σε λειτουργία - Αναμονή client");
+                    statusLabel.setForeground(Color.GREEN);
+                    break;
+                case ERROR:
+                    statusLabel.setText("Σφάλμα εκκίνησης");
+                    statusLabel.setForeground(Color.RED);
+                    break;
+                case STOPPED:
+                default:
+                    statusLabel.setText("Σταματημένος");
+                    statusLabel.setForeground(Color.RED);
+                    break;
+            }
+        });
+    }
+}
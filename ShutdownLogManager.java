@@ -0,0 +1,27 @@
+import java.util.logging.LogManager;
+
+// LogManager που δεν κλείνει τους handlers στο shutdown hook του JDK. Οι shutdown hooks τρέχουν
+// παράλληλα, οπότε το reset() του JDK αφαιρούσε τους handlers ενώ ο server έγραφε ακόμη τα
+// μηνύματα του stopServer. Κατά τον τερματισμό τους handlers τους κλείνει ο κάτοχός τους.
+// Ο StreamingServer την ορίζει ως java.util.logging.manager πριν από τον πρώτο Logger.
+public class ShutdownLogManager extends LogManager {
+
+    @Override
+    public void reset() throws SecurityException {
+        if (!isShuttingDown()) {
+            super.reset();
+        }
+    }
+
+    // Η JVM δεν δέχεται νέους shutdown hooks αφού ξεκινήσει ο τερματισμός
+    private static boolean isShuttingDown() {
+        Thread probe = new Thread(() -> { });
+        try {
+            Runtime.getRuntime().addShutdownHook(probe);
+            Runtime.getRuntime().removeShutdownHook(probe);
+            return false;
+        } catch (IllegalStateException e) {
+            return true;
+        }
+    }
+}
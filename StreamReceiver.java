@@ -0,0 +1,685 @@
+import java.io.*;
+import java.net.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.logging.*;
+
+// Λήψη του stream (UDP ή RTP/UDP) από τον ίδιο τον client αντί για το ffplay.
+// Για RTP: jitter buffer με αναδιάταξη βάσει sequence number, μέτρηση απωλειών
+// και jitter (RFC 3550). Για σκέτο UDP: μέτρηση ρυθμού και ασυνεχειών MPEG-TS.
+// Με FEC ενεργό, πακέτα που λείπουν ανακτώνται από τα πακέτα ισοτιμίας (βλ. Fec)
+// πριν λήξει η προθεσμία τους στο jitter buffer. Με NACK (μόνο RTP) ζητά από τον
+// server αναμετάδοση των χαμένων και στέλνει RTCP RR κάθε δευτερόλεπτο.
+// Το "επισκευασμένο" MPEG-TS προωθείται στον player μέσω pipe.
+public class StreamReceiver implements Closeable {
+    private static final Logger logger = Logger.getLogger(StreamingClient.class.getName());
+
+    private static final int MAX_DATAGRAM = 65536;
+    private static final int RTP_HEADER = 12;
+    private static final int RTP_CLOCK_RATE = 90000;
+    private static final int TS_PACKET = 188;
+    private static final int MAX_BUFFERED_PACKETS = 4096;
+    private static final int RELEASED_HISTORY = 1024;
+    private static final long STATS_INTERVAL_NANOS = 1_000_000_000L;
+    private static final int MAX_NACK_ATTEMPTS = 3;
+    private static final int MAX_NACK_GAP = 256;
+
+    // Στατιστικά ενός διαστήματος (ή συνολικά)
+    public static class Stats {
+        long packets;
+        long bytes;
+        long lost;
+        long late;
+        long duplicates;
+        long reordered;
+        long discontinuities;
+        long recovered;
+        long retransmitted;
+        long nacks;
+        boolean fec;
+        boolean nack;
+        double jitterMs;
+        int buffered;
+        double seconds;
+
+        public long getPackets() {
+            return packets;
+        }
+
+        public long getLost() {
+            return lost;
+        }
+
+        public double getLossPercent() {
+            long expected = packets + recovered + lost;
+            return expected == 0 ? 0 : 100.0 * lost / expected;
+        }
+
+        public long getRecovered() {
+            return recovered;
+        }
+
+        public double getJitterMs() {
+            return jitterMs;
+        }
+
+        public double getKbps() {
+            return seconds <= 0 ? 0 : bytes * 8 / 1000.0 / seconds;
+        }
+
+        public long getRetransmitted() {
+            return retransmitted;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder("πακέτα ").append(packets);
+            if (fec) {
+                text.append(", ανακτήθηκαν με FEC ").append(recovered);
+            }
+            if (nack) {
+                text.append(", ανακτήθηκαν με NACK ").append(retransmitted).append(" (αιτήματα ").append(nacks).append(')');
+            }
+            text.append(String.format(fec || nack ? ", μη ανακτήσιμα %d (%.2f%%)" : ", απώλειες %d (%.2f%%)",
+                                      lost, getLossPercent()));
+            text.append(String.format(", εκτός σειράς %d, καθυστερημένα %d, διπλά %d, ασυνέχειες TS %d, " +
+                                      "jitter %.1f ms, ρυθμός %.0f kbps, buffer %d",
+                                      reordered, late, duplicates, discontinuities, jitterMs, getKbps(), buffered));
+            return text.toString();
+        }
+    }
+
+    private static class Packet {
+        final byte[] payload;
+        final long arrivalNanos;
+
+        Packet(byte[] payload, long arrivalNanos) {
+            this.payload = payload;
+            this.arrivalNanos = arrivalNanos;
+        }
+    }
+
+    private final DatagramSocket socket;
+    private final DatagramSocket[] fecSockets;
+    private final Fec.Decoder fecDecoder;
+    private final ConcurrentLinkedQueue<byte[]> fecQueue = new ConcurrentLinkedQueue<>();
+    private final DatagramSocket rtcpSocket;
+    private final boolean nack;
+    // Εκκρεμή NACK: sequence number -> {χρόνος τελευταίου αιτήματος, πλήθος αιτημάτων}
+    private final TreeMap<Long, long[]> nackPending = new TreeMap<>();
+    private final int receiverSsrc = java.util.concurrent.ThreadLocalRandom.current().nextInt();
+    private volatile SocketAddress sender;
+    private volatile long mediaSsrc;
+    private volatile long lastSrMiddle = 0;
+    private volatile long lastSrNanos;
+    private long lastReportExpected;
+    private long lastReportReceived;
+    // Μέση καθυστέρηση μεταφοράς ανά διάστημα, για τη μεταβολή καθυστέρησης (APP "RATE")
+    private double transitSum;
+    private long transitCount;
+    private double previousMeanTransitMs = Double.NaN;
+    private final boolean rtp;
+    private final long jitterBufferNanos;
+    private final TreeMap<Long, Packet> jitterBuffer = new TreeMap<>();
+    private final int[] continuityCounters = new int[8192];
+    // Πρόσφατα αποδεσμευμένα sequence numbers, για διάκριση διπλών από καθυστερημένα
+    private final long[] released = new long[RELEASED_HISTORY];
+
+    private volatile boolean running = false;
+    private volatile Consumer<Stats> statsListener = stats -> {};
+    private Thread thread;
+    private OutputStream sink;
+
+    // Κατάσταση RTP
+    private long highestSeq = -1;
+    private long nextSeq = -1;
+    private long lastTransit;
+    private boolean haveTransit = false;
+    private double jitter;
+
+    private Stats interval = new Stats();
+    private final Stats totals = new Stats();
+    private long intervalStart;
+    private final long startNanos;
+    // Από τη δέσμευση της θύρας (λίγο πριν το START_STREAM) έως τα πρώτα δεδομένα προς τον player
+    private volatile long firstDataMs = -1;
+
+    // Το socket δεσμεύεται αμέσως, πριν ζητηθεί το stream, ώστε να μη χαθούν τα πρώτα πακέτα
+    public StreamReceiver(int port, boolean rtp, int jitterBufferMs) throws SocketException {
+        this(port, rtp, jitterBufferMs, false, false);
+    }
+
+    // fec: λήψη πακέτων FEC στις θύρες port+2 (στήλες) και port+4 (γραμμές). Απαιτεί RTP.
+    // nack: αιτήματα αναμετάδοσης μέσω RTCP (θύρα port+1).
+    public StreamReceiver(int port, boolean rtp, int jitterBufferMs, boolean fec, boolean nack) throws SocketException {
+        this.socket = bind(port);
+        this.socket.setSoTimeout(20);
+        this.rtp = rtp || fec;
+        this.nack = nack && this.rtp;
+        if (this.rtp) {
+            try {
+                rtcpSocket = bind(port + Rtcp.PORT_OFFSET);
+            } catch (SocketException e) {
+                socket.close();
+                throw e;
+            }
+        } else {
+            rtcpSocket = null;
+        }
+        interval.nack = this.nack;
+        totals.nack = this.nack;
+        if (fec) {
+            fecDecoder = new Fec.Decoder();
+            fecSockets = new DatagramSocket[2];
+            try {
+                fecSockets[0] = bind(port + Fec.COLUMN_PORT_OFFSET);
+                fecSockets[1] = bind(port + Fec.ROW_PORT_OFFSET);
+            } catch (SocketException e) {
+                socket.close();
+                rtcpSocket.close();
+                if (fecSockets[0] != null) {
+                    fecSockets[0].close();
+                }
+                throw e;
+            }
+            interval.fec = true;
+            totals.fec = true;
+        } else {
+            fecDecoder = null;
+            fecSockets = new DatagramSocket[0];
+        }
+        this.jitterBufferNanos = jitterBufferMs * 1_000_000L;
+        this.startNanos = System.nanoTime();
+        java.util.Arrays.fill(continuityCounters, -1);
+        java.util.Arrays.fill(released, -1);
+    }
+
+    private static DatagramSocket bind(int port) throws SocketException {
+        DatagramSocket socket = new DatagramSocket(null);
+        socket.setReuseAddress(true);
+        socket.setReceiveBufferSize(4 * 1024 * 1024);
+        socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        return socket;
+    }
+
+    public void setStatsListener(Consumer<Stats> listener) {
+        this.statsListener = listener;
+    }
+
+    public synchronized Stats getTotals() {
+        Stats copy = copyOf(totals);
+        copy.seconds = (System.nanoTime() - startNanos) / 1e9;
+        return copy;
+    }
+
+    // ms έως τα πρώτα δεδομένα προς τον player, ή -1 αν δεν έχουν φτάσει ακόμα
+    public long getFirstDataMs() {
+        return firstDataMs;
+    }
+
+    public void start(OutputStream player) {
+        this.sink = new BufferedOutputStream(player, 64 * 1024);
+        running = true;
+        intervalStart = System.nanoTime();
+        thread = new Thread(this::receiveLoop, "stream-receiver");
+        thread.setDaemon(true);
+        thread.start();
+        for (DatagramSocket fecSocket : fecSockets) {
+            Thread fecThread = new Thread(() -> receiveFec(fecSocket), "fec-receiver-" + fecSocket.getLocalPort());
+            fecThread.setDaemon(true);
+            fecThread.start();
+        }
+        if (rtcpSocket != null) {
+            Thread rtcpThread = new Thread(this::receiveRtcp, "rtcp-receiver");
+            rtcpThread.setDaemon(true);
+            rtcpThread.start();
+        }
+        logger.info("Λήψη " + (rtp ? "RTP" : "UDP") + " στη θύρα " + socket.getLocalPort() +
+                    " (jitter buffer " + jitterBufferNanos / 1_000_000 + " ms" +
+                    (fecDecoder != null ? ", FEC" : "") + (nack ? ", NACK" : "") + ")");
+    }
+
+    private void receiveLoop() {
+        byte[] buffer = new byte[MAX_DATAGRAM];
+        DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+        try {
+            while (running) {
+                try {
+                    datagram.setLength(buffer.length);
+                    socket.receive(datagram);
+                    long now = System.nanoTime();
+                    if (rtp) {
+                        sender = datagram.getSocketAddress();
+                        onRtpPacket(buffer, datagram.getLength(), now);
+                    } else {
+                        onUdpPacket(buffer, datagram.getLength());
+                    }
+                } catch (SocketTimeoutException e) {
+                    // Χρησιμοποιείται για να τηρούνται οι προθεσμίες του jitter buffer
+                }
+
+                long now = System.nanoTime();
+                if (fecDecoder != null) {
+                    applyFec(now);
+                }
+                if (nack) {
+                    retryNacks(now);
+                }
+                if (rtp) {
+                    releaseReady(now);
+                }
+                sink.flush();
+                if (now - intervalStart >= STATS_INTERVAL_NANOS) {
+                    reportInterval(now);
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                logger.warning("Διακοπή λήψης stream: " + e.getMessage());
+            }
+        } finally {
+            running = false;
+            logger.info("Συνολικά στατιστικά λήψης: " + getTotals());
+        }
+    }
+
+    private void onUdpPacket(byte[] data, int length) throws IOException {
+        synchronized (this) {
+            count(length);
+            checkContinuity(data, 0, length);
+        }
+        toPlayer(data, 0, length);
+    }
+
+    private void onRtpPacket(byte[] data, int length, long arrivalNanos) throws IOException {
+        if (length < RTP_HEADER || (data[0] & 0xC0) != 0x80) {
+            logger.fine("Μη έγκυρο πακέτο RTP (" + length + " bytes)");
+            return;
+        }
+
+        int csrcCount = data[0] & 0x0F;
+        boolean hasExtension = (data[0] & 0x10) != 0;
+        boolean hasPadding = (data[0] & 0x20) != 0;
+        int seq = ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+        long timestamp = ((data[4] & 0xFFL) << 24) | ((data[5] & 0xFFL) << 16) |
+                         ((data[6] & 0xFFL) << 8) | (data[7] & 0xFFL);
+
+        int offset = RTP_HEADER + 4 * csrcCount;
+        if (hasExtension && offset + 4 <= length) {
+            int extensionWords = ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+            offset += 4 + 4 * extensionWords;
+        }
+        int end = hasPadding ? length - (data[length - 1] & 0xFF) : length;
+        if (offset > end) {
+            return;
+        }
+
+        synchronized (this) {
+            count(end - offset);
+            long extended = extendSequence(seq);
+            if (extended < 0) {
+                // Πριν από το πρώτο πακέτο της λήψης (π.χ. καθυστερημένο datagram προηγούμενου relay)
+                interval.late++;
+                totals.late++;
+                return;
+            }
+            // Οι αναμεταδόσεις έχουν παλιό timestamp και θα αλλοίωναν jitter/καθυστέρηση
+            if (!nackPending.containsKey(extended)) {
+                updateJitter(timestamp, arrivalNanos);
+            }
+
+            if (nextSeq < 0) {
+                nextSeq = extended;
+            }
+            if (extended < nextSeq && released[releasedSlot(extended)] != extended) {
+                // Έφτασε μετά την προθεσμία του: ήδη δηλώθηκε χαμένο
+                interval.late++;
+                totals.late++;
+                return;
+            }
+            if (extended < nextSeq || jitterBuffer.containsKey(extended)) {
+                interval.duplicates++;
+                totals.duplicates++;
+                return;
+            }
+            if (nackPending.remove(extended) != null) {
+                interval.retransmitted++;
+                totals.retransmitted++;
+            } else if (extended < highestSeq) {
+                interval.reordered++;
+                totals.reordered++;
+            }
+            if (nack && highestSeq >= 0 && extended > highestSeq + 1) {
+                requestRetransmission(highestSeq + 1, extended, arrivalNanos);
+            }
+            highestSeq = Math.max(highestSeq, extended);
+            mediaSsrc = ((data[8] & 0xFFL) << 24) | ((data[9] & 0xFFL) << 16) | ((data[10] & 0xFFL) << 8) | (data[11] & 0xFFL);
+
+            byte[] payload = new byte[end - offset];
+            System.arraycopy(data, offset, payload, 0, payload.length);
+            jitterBuffer.put(extended, new Packet(payload, arrivalNanos));
+            if (fecDecoder != null) {
+                fecDecoder.addMedia(new Fec.Media(extended, data[1] & 0x7F, timestamp, payload));
+            }
+        }
+    }
+
+    // Κενό [from, to): NACK για όλα τα sequence numbers που λείπουν
+    private void requestRetransmission(long from, long to, long now) {
+        List<Integer> missing = new ArrayList<>();
+        for (long seq = Math.max(from, to - MAX_NACK_GAP); seq < to; seq++) {
+            if (!jitterBuffer.containsKey(seq)) {
+                nackPending.put(seq, new long[] {now, 1});
+                missing.add((int) (seq & 0xFFFF));
+            }
+        }
+        sendNack(missing);
+    }
+
+    // Επανάληψη NACK για όσα δεν ήρθαν, όσο υπάρχει ακόμα χρόνος πριν την προθεσμία τους
+    private synchronized void retryNacks(long now) {
+        if (nackPending.isEmpty()) {
+            return;
+        }
+        long retryNanos = Math.max(20_000_000L, jitterBufferNanos / 4);
+        List<Integer> missing = new ArrayList<>();
+        Iterator<Map.Entry<Long, long[]>> it = nackPending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, long[]> entry = it.next();
+            long[] state = entry.getValue();
+            if (entry.getKey() < nextSeq || jitterBuffer.containsKey(entry.getKey())) {
+                // Πέρασε η προθεσμία ή ανακτήθηκε με FEC
+                it.remove();
+            } else if (now - state[0] >= retryNanos && state[1] < MAX_NACK_ATTEMPTS) {
+                state[0] = now;
+                state[1]++;
+                missing.add((int) (entry.getKey() & 0xFFFF));
+            }
+        }
+        sendNack(missing);
+    }
+
+    private void sendNack(List<Integer> missing) {
+        SocketAddress target = sender;
+        if (missing.isEmpty() || target == null) {
+            return;
+        }
+        byte[] packet = Rtcp.nack(receiverSsrc & 0xFFFFFFFFL, mediaSsrc, missing);
+        try {
+            rtcpSocket.send(new DatagramPacket(packet, packet.length, target));
+            interval.nacks++;
+            totals.nacks++;
+        } catch (IOException e) {
+            logger.fine("Αποτυχία αποστολής NACK: " + e.getMessage());
+        }
+    }
+
+    // RTCP SR από τον server: κρατάμε το NTP timestamp για τα LSR/DLSR του επόμενου RR
+    private void receiveRtcp() {
+        byte[] buffer = new byte[1500];
+        DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+        while (running) {
+            try {
+                datagram.setLength(buffer.length);
+                rtcpSocket.receive(datagram);
+                long middle = Rtcp.senderReportNtpMiddle(buffer, datagram.getLength());
+                if (middle >= 0) {
+                    lastSrNanos = System.nanoTime();
+                    lastSrMiddle = middle;
+                }
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    // RTCP APP "RATE" + RR προς τον server (στη διεύθυνση από την οποία έρχεται το media)
+    private void sendReceiverReport(long now, Stats interval) {
+        SocketAddress target = sender;
+        if (rtcpSocket == null || target == null || highestSeq < 0) {
+            return;
+        }
+        Rtcp.ReceiverReport report = new Rtcp.ReceiverReport();
+        report.reporterSsrc = receiverSsrc & 0xFFFFFFFFL;
+        report.sourceSsrc = mediaSsrc;
+        synchronized (this) {
+            long expected = totals.packets - totals.duplicates + totals.recovered + totals.lost;
+            long received = totals.packets - totals.duplicates + totals.recovered;
+            long expectedInterval = expected - lastReportExpected;
+            long lostInterval = expectedInterval - (received - lastReportReceived);
+            lastReportExpected = expected;
+            lastReportReceived = received;
+            report.fractionLost = expectedInterval <= 0 || lostInterval <= 0 ? 0 : (int) Math.min(255, (lostInterval << 8) / expectedInterval);
+            report.cumulativeLost = (int) totals.lost;
+            report.highestSeq = highestSeq & 0xFFFFFFFFL;
+            report.jitter = (long) jitter;
+        }
+        if (lastSrMiddle != 0) {
+            report.lastSr = lastSrMiddle;
+            report.delaySinceLastSr = (now - lastSrNanos) * 65536 / 1_000_000_000L;
+        }
+        // Μεταβολή της μέσης καθυστέρησης μεταφοράς (ms ανά δευτερόλεπτο): θετική = γεμίζουν ουρές
+        double gradientMs = 0;
+        if (transitCount > 0) {
+            double meanTransitMs = transitSum / transitCount * 1000.0 / RTP_CLOCK_RATE;
+            if (!Double.isNaN(previousMeanTransitMs) && interval.seconds > 0) {
+                gradientMs = (meanTransitMs - previousMeanTransitMs) / interval.seconds;
+            }
+            previousMeanTransitMs = meanTransitMs;
+            transitSum = 0;
+            transitCount = 0;
+        }
+
+        byte[] rate = Rtcp.rateReport(receiverSsrc & 0xFFFFFFFFL, (int) interval.getKbps(), (int) (gradientMs * 1000));
+        byte[] packet = Rtcp.receiverReport(report);
+        try {
+            rtcpSocket.send(new DatagramPacket(rate, rate.length, target));
+            rtcpSocket.send(new DatagramPacket(packet, packet.length, target));
+        } catch (IOException e) {
+            logger.fine("Αποτυχία αποστολής RTCP RR: " + e.getMessage());
+        }
+    }
+
+    // Τα πακέτα FEC έρχονται σε δικά τους threads και επεξεργάζονται στο κύριο thread λήψης
+    private void receiveFec(DatagramSocket fecSocket) {
+        byte[] buffer = new byte[MAX_DATAGRAM];
+        DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+        while (running) {
+            try {
+                datagram.setLength(buffer.length);
+                fecSocket.receive(datagram);
+                fecQueue.add(java.util.Arrays.copyOf(buffer, datagram.getLength()));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    // Ανάκτηση όσων πακέτων γίνεται και τοποθέτησή τους στο jitter buffer
+    private synchronized void applyFec(long now) {
+        byte[] fecPacket;
+        boolean added = false;
+        while ((fecPacket = fecQueue.poll()) != null) {
+            if (highestSeq >= 0) {
+                added |= fecDecoder.addFec(fecPacket, fecPacket.length, extendSequence(Fec.Decoder.snBase(fecPacket)));
+            }
+        }
+        if (!added && fecDecoder.getPendingParities() == 0) {
+            return;
+        }
+        for (Fec.Media packet : fecDecoder.recover()) {
+            if (packet.seq >= nextSeq && !jitterBuffer.containsKey(packet.seq)) {
+                nackPending.remove(packet.seq);
+                jitterBuffer.put(packet.seq, new Packet(packet.payload, now));
+                highestSeq = Math.max(highestSeq, packet.seq);
+                interval.recovered++;
+                totals.recovered++;
+            }
+        }
+    }
+
+    // 16-bit sequence number -> αύξων αριθμός χωρίς αναδίπλωση
+    private long extendSequence(int seq) {
+        if (highestSeq < 0) {
+            return seq;
+        }
+        int delta = (short) (seq - (int) (highestSeq & 0xFFFF));
+        return highestSeq + delta;
+    }
+
+    private static int releasedSlot(long seq) {
+        return (int) Math.floorMod(seq, (long) RELEASED_HISTORY);
+    }
+
+    // Interarrival jitter κατά RFC 3550 (σε μονάδες ρολογιού 90 kHz)
+    private void updateJitter(long timestamp, long arrivalNanos) {
+        long arrival = (arrivalNanos - startNanos) * RTP_CLOCK_RATE / 1_000_000_000L;
+        long transit = arrival - timestamp;
+        transitSum += transit;
+        transitCount++;
+        if (haveTransit) {
+            long d = Math.abs(transit - lastTransit);
+            jitter += (d - jitter) / 16.0;
+        }
+        lastTransit = transit;
+        haveTransit = true;
+    }
+
+    // Αποδέσμευση πακέτων με τη σειρά. Ένα κενό θεωρείται απώλεια όταν το επόμενο
+    // διαθέσιμο πακέτο έχει περιμένει όσο το jitter buffer (ή ο buffer γέμισε).
+    private void releaseReady(long now) throws IOException {
+        while (true) {
+            Packet packet;
+            synchronized (this) {
+                Map.Entry<Long, Packet> head = jitterBuffer.firstEntry();
+                if (head == null) {
+                    return;
+                }
+                long seq = head.getKey();
+                if (seq != nextSeq) {
+                    boolean expired = now - head.getValue().arrivalNanos >= jitterBufferNanos;
+                    if (!expired && jitterBuffer.size() < MAX_BUFFERED_PACKETS) {
+                        return;
+                    }
+                    long missing = seq - nextSeq;
+                    interval.lost += missing;
+                    totals.lost += missing;
+                }
+                jitterBuffer.pollFirstEntry();
+                released[releasedSlot(seq)] = seq;
+                nextSeq = seq + 1;
+                packet = head.getValue();
+                checkContinuity(packet.payload, 0, packet.payload.length);
+            }
+            toPlayer(packet.payload, 0, packet.payload.length);
+        }
+    }
+
+    private void toPlayer(byte[] data, int offset, int length) throws IOException {
+        if (firstDataMs < 0) {
+            firstDataMs = (System.nanoTime() - startNanos) / 1_000_000;
+            logger.info("Πρώτα δεδομένα προς τον player " + firstDataMs + " ms μετά το αίτημα");
+        }
+        sink.write(data, offset, length);
+    }
+
+    // Έλεγχος continuity counter ανά PID (4 bit, αυξάνεται όταν υπάρχει payload)
+    private void checkContinuity(byte[] data, int offset, int length) {
+        for (int i = offset; i + TS_PACKET <= offset + length; i += TS_PACKET) {
+            if (data[i] != 0x47) {
+                return;
+            }
+            int pid = ((data[i + 1] & 0x1F) << 8) | (data[i + 2] & 0xFF);
+            boolean hasPayload = (data[i + 3] & 0x10) != 0;
+            int counter = data[i + 3] & 0x0F;
+            if (pid == 0x1FFF || !hasPayload) {
+                continue;
+            }
+            int previous = continuityCounters[pid];
+            if (previous >= 0 && counter != ((previous + 1) & 0x0F) && counter != previous) {
+                interval.discontinuities++;
+                totals.discontinuities++;
+            }
+            continuityCounters[pid] = counter;
+        }
+    }
+
+    private void count(int payloadBytes) {
+        interval.packets++;
+        interval.bytes += payloadBytes;
+        totals.packets++;
+        totals.bytes += payloadBytes;
+    }
+
+    private void reportInterval(long now) {
+        Stats report;
+        synchronized (this) {
+            report = interval;
+            report.seconds = (now - intervalStart) / 1e9;
+            report.jitterMs = jitter * 1000.0 / RTP_CLOCK_RATE;
+            report.buffered = jitterBuffer.size();
+            totals.jitterMs = report.jitterMs;
+            interval = new Stats();
+            interval.fec = fecDecoder != null;
+            interval.nack = nack;
+            intervalStart = now;
+        }
+        sendReceiverReport(now, report);
+        logger.info("Λήψη " + (rtp ? "RTP" : "UDP") + ": " + report);
+        statsListener.accept(report);
+    }
+
+    private static Stats copyOf(Stats source) {
+        Stats copy = new Stats();
+        copy.packets = source.packets;
+        copy.bytes = source.bytes;
+        copy.lost = source.lost;
+        copy.late = source.late;
+        copy.duplicates = source.duplicates;
+        copy.reordered = source.reordered;
+        copy.discontinuities = source.discontinuities;
+        copy.recovered = source.recovered;
+        copy.fec = source.fec;
+        copy.retransmitted = source.retransmitted;
+        copy.nacks = source.nacks;
+        copy.nack = source.nack;
+        copy.jitterMs = source.jitterMs;
+        copy.buffered = source.buffered;
+        return copy;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        socket.close();
+        if (rtcpSocket != null) {
+            rtcpSocket.close();
+        }
+        for (DatagramSocket fecSocket : fecSockets) {
+            fecSocket.close();
+        }
+        if (thread != null) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (sink != null) {
+                sink.close();
+            }
+        } catch (IOException e) {
+            // Ο player μπορεί να έχει ήδη κλείσει
+        }
+    }
+}
@@ -0,0 +1,303 @@
+import java.io.*;
+import java.net.*;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.logging.*;
+
+// Ενδιάμεσος αποστολέας μεταξύ FFMPEG και client για UDP και RTP/UDP.
+// Το FFMPEG στέλνει σε τοπική θύρα και ο relay προωθεί κάθε πακέτο στον client
+// με δικό του RTP header (συνεχή sequence numbers ακόμα κι αν το FFMPEG ξεκινήσει
+// ξανά σε άλλη έκδοση) και πακέτα FEC όταν ζητηθούν.
+// Με NACK κρατά τα πρόσφατα πακέτα και τα ξαναστέλνει όταν ο client τα ζητήσει,
+// εφόσον προλαβαίνουν την προθεσμία αναπαραγωγής. Στέλνει RTCP SR και δέχεται RR,
+// τα οποία μαζί με το APP "RATE" του client τροφοδοτούν τον έλεγχο ρυθμού.
+public class StreamRelay implements Closeable {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    private static final int MAX_DATAGRAM = 65536;
+    private static final int RTP_HEADER = 12;
+    private static final int MP2T_PAYLOAD_TYPE = 33;
+    private static final int RTP_CLOCK_RATE = 90000;
+    private static final long SR_INTERVAL_NANOS = 1_000_000_000L;
+    private static final double DEFAULT_RTT_MS = 100;
+
+    // Πακέτο στο buffer αναμετάδοσης
+    private static class Sent {
+        final int seq;
+        final byte[] packet;
+        final long sentNanos;
+
+        Sent(int seq, byte[] packet, long sentNanos) {
+            this.seq = seq;
+            this.packet = packet;
+            this.sentNanos = sentNanos;
+        }
+    }
+
+    private final DatagramSocket input;
+    private final DatagramSocket output;
+    private final InetAddress client;
+    private final int port;
+    private final boolean inputIsRtp;
+    private final Fec.Encoder fecEncoder;
+    private final Fec.Config fecConfig;
+    private final long startNanos = System.nanoTime();
+    private final int ssrc = ThreadLocalRandom.current().nextInt();
+
+    private final int playoutDelayMs;
+    private final Map<Integer, Sent> retransmitIndex = new HashMap<>();
+    private final ArrayDeque<Sent> retransmitOrder = new ArrayDeque<>();
+
+    private volatile boolean running = false;
+    private volatile double rttMs = DEFAULT_RTT_MS;
+    private volatile Rtcp.ReceiverReport lastReport;
+    private volatile int[] lastRateReport;
+    private volatile Consumer<BitrateController.Feedback> feedbackListener = feedback -> {};
+    private volatile long lastRtpTimestamp;
+    private Thread thread;
+    private int nextSeq = ThreadLocalRandom.current().nextInt(0x10000);
+    private volatile long mediaPackets;
+    private volatile long mediaOctets;
+    private long fecPackets;
+    private long retransmitted;
+    private long retransmitTooLate;
+    private long retransmitUnavailable;
+
+    // inputIsRtp: το FFMPEG στέλνει RTP (RTP/UDP), αλλιώς σκέτο MPEG-TS (UDP)
+    public StreamRelay(InetAddress client, int port, boolean inputIsRtp, Fec.Config fecConfig) throws SocketException {
+        this(client, port, inputIsRtp, fecConfig, 0);
+    }
+
+    // playoutDelayMs > 0: ενεργό NACK, με την καθυστέρηση αναπαραγωγής (jitter buffer) του client
+    public StreamRelay(InetAddress client, int port, boolean inputIsRtp, Fec.Config fecConfig,
+                       int playoutDelayMs) throws SocketException {
+        this.input = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        this.input.setReceiveBufferSize(4 * 1024 * 1024);
+        this.output = new DatagramSocket();
+        this.client = client;
+        this.port = port;
+        this.inputIsRtp = inputIsRtp;
+        this.fecConfig = fecConfig;
+        this.fecEncoder = fecConfig == null ? null : new Fec.Encoder(fecConfig);
+        this.playoutDelayMs = playoutDelayMs;
+        this.output.setSoTimeout(200);
+    }
+
+    public double getRoundTripMs() {
+        return rttMs;
+    }
+
+    public void setFeedbackListener(Consumer<BitrateController.Feedback> listener) {
+        this.feedbackListener = listener;
+    }
+
+    // Η τελευταία αναφορά RR του client (null πριν την πρώτη)
+    public Rtcp.ReceiverReport getLastReport() {
+        return lastReport;
+    }
+
+    // Η θύρα στην οποία πρέπει να στέλνει το FFMPEG
+    public int getInputPort() {
+        return input.getLocalPort();
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::relayLoop, "stream-relay");
+        thread.setDaemon(true);
+        thread.start();
+        Thread rtcpThread = new Thread(this::rtcpLoop, "stream-relay-rtcp");
+        rtcpThread.setDaemon(true);
+        rtcpThread.start();
+        logger.info("Relay προς " + client.getHostAddress() + ":" + port +
+                    (fecConfig != null ? String.format(" με FEC %s (επιβάρυνση %.0f%%)", fecConfig, fecConfig.getOverheadPercent()) : "") +
+                    (playoutDelayMs > 0 ? " με NACK (προθεσμία " + playoutDelayMs + " ms)" : ""));
+    }
+
+    private void relayLoop() {
+        byte[] buffer = new byte[MAX_DATAGRAM];
+        DatagramPacket received = new DatagramPacket(buffer, buffer.length);
+        try {
+            while (running) {
+                received.setLength(buffer.length);
+                input.receive(received);
+
+                int payloadOffset = 0;
+                if (inputIsRtp) {
+                    // Αφαίρεση του RTP header του FFMPEG (και των CSRC)
+                    if (received.getLength() < RTP_HEADER || (buffer[1] & 0x7F) != MP2T_PAYLOAD_TYPE) {
+                        continue;
+                    }
+                    payloadOffset = RTP_HEADER + 4 * (buffer[0] & 0x0F);
+                }
+                int payloadLength = received.getLength() - payloadOffset;
+                int length = RTP_HEADER + payloadLength;
+                byte[] packet = new byte[length];
+                writeRtpHeader(packet);
+                System.arraycopy(buffer, payloadOffset, packet, RTP_HEADER, payloadLength);
+
+                output.send(new DatagramPacket(packet, length, client, port));
+                mediaPackets++;
+                mediaOctets += payloadLength;
+                if (playoutDelayMs > 0) {
+                    remember(packet, length);
+                }
+
+                if (fecEncoder != null) {
+                    fecEncoder.add(packet, length, this::sendFec);
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                logger.warning("Σφάλμα relay: " + e.getMessage());
+            }
+        }
+    }
+
+    // Buffer αναμετάδοσης: κρατά όσο χρειάζεται για μια αναμετάδοση πριν την προθεσμία
+    // αναπαραγωγής (καθυστέρηση αναπαραγωγής + 2 RTT), άρα το μέγεθός του ακολουθεί το RTT
+    private synchronized void remember(byte[] packet, int length) {
+        long now = System.nanoTime();
+        int seq = ((packet[2] & 0xFF) << 8) | (packet[3] & 0xFF);
+        Sent sent = new Sent(seq, length == packet.length ? packet : java.util.Arrays.copyOf(packet, length), now);
+        retransmitIndex.put(seq, sent);
+        retransmitOrder.addLast(sent);
+
+        long retentionNanos = (long) ((playoutDelayMs + 2 * rttMs) * 1_000_000L);
+        while (!retransmitOrder.isEmpty() && now - retransmitOrder.peekFirst().sentNanos > retentionNanos) {
+            Sent oldest = retransmitOrder.pollFirst();
+            retransmitIndex.remove(oldest.seq, oldest);
+        }
+    }
+
+    // Αναμετάδοση μόνο αν το πακέτο μπορεί να φτάσει πριν την προθεσμία αναπαραγωγής του:
+    // ο client το περιμένει έως (αρχική αποστολή + καθυστέρηση αναπαραγωγής).
+    private void retransmit(List<Integer> seqs) throws IOException {
+        long now = System.nanoTime();
+        for (int seq : seqs) {
+            Sent sent;
+            synchronized (this) {
+                sent = retransmitIndex.get(seq);
+            }
+            if (sent == null) {
+                retransmitUnavailable++;
+                continue;
+            }
+            double ageMs = (now - sent.sentNanos) / 1e6;
+            if (ageMs + rttMs / 2 >= playoutDelayMs) {
+                retransmitTooLate++;
+                continue;
+            }
+            output.send(new DatagramPacket(sent.packet, sent.packet.length, client, port));
+            retransmitted++;
+        }
+    }
+
+    private void rtcpLoop() {
+        byte[] buffer = new byte[1500];
+        DatagramPacket received = new DatagramPacket(buffer, buffer.length);
+        long nextSenderReport = System.nanoTime();
+        while (running) {
+            try {
+                long now = System.nanoTime();
+                if (now >= nextSenderReport && mediaPackets > 0) {
+                    byte[] sr = Rtcp.senderReport(ssrc, System.currentTimeMillis(), lastRtpTimestamp,
+                                                  mediaPackets, mediaOctets);
+                    output.send(new DatagramPacket(sr, sr.length, client, port + Rtcp.PORT_OFFSET));
+                    nextSenderReport = now + SR_INTERVAL_NANOS;
+                }
+
+                received.setLength(buffer.length);
+                output.receive(received);
+                int type = Rtcp.packetType(buffer, received.getLength());
+                if (type == Rtcp.RR) {
+                    onReceiverReport(Rtcp.parseReceiverReport(buffer, received.getLength()));
+                } else if (type == Rtcp.APP) {
+                    int[] rate = Rtcp.parseRateReport(buffer, received.getLength());
+                    if (rate != null) {
+                        lastRateReport = rate;
+                    }
+                } else if (type == Rtcp.RTPFB && playoutDelayMs > 0) {
+                    retransmit(Rtcp.parseNack(buffer, received.getLength()));
+                }
+            } catch (SocketTimeoutException e) {
+                // Περιοδικός έλεγχος για αποστολή SR
+            } catch (IOException e) {
+                if (running) {
+                    logger.fine("Σφάλμα RTCP: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void onReceiverReport(Rtcp.ReceiverReport report) {
+        if (report == null) {
+            return;
+        }
+        double rtt = report.getRoundTripMs(System.currentTimeMillis());
+        if (rtt > 0) {
+            // Εξομάλυνση όπως στο TCP (SRTT)
+            rttMs = rttMs == DEFAULT_RTT_MS ? rtt : 0.875 * rttMs + 0.125 * rtt;
+        }
+        lastReport = report;
+        logger.info(String.format("RTCP RR: απώλειες %.1f%% (σύνολο %d), jitter %.1f ms, RTT %.1f ms, " +
+                                  "αναμεταδόσεις %d (εκπρόθεσμες %d, μη διαθέσιμες %d)",
+                                  report.getFractionLost() * 100, report.cumulativeLost,
+                                  report.jitter * 1000.0 / RTP_CLOCK_RATE, rttMs,
+                                  retransmitted, retransmitTooLate, retransmitUnavailable));
+
+        // Το APP "RATE" στέλνεται αμέσως πριν από το RR του ίδιου διαστήματος
+        int[] rate = lastRateReport;
+        feedbackListener.accept(new BitrateController.Feedback(report.getFractionLost(),
+                                                               rate != null ? rate[0] : 0,
+                                                               rate != null ? rate[1] / 1000.0 : 0,
+                                                               rttMs));
+    }
+
+    private void writeRtpHeader(byte[] packet) {
+        long timestamp = (System.nanoTime() - startNanos) * RTP_CLOCK_RATE / 1_000_000_000L;
+        lastRtpTimestamp = timestamp;
+        int seq = nextSeq;
+        nextSeq = (nextSeq + 1) & 0xFFFF;
+        packet[0] = (byte) 0x80;
+        packet[1] = (byte) MP2T_PAYLOAD_TYPE;
+        packet[2] = (byte) (seq >> 8);
+        packet[3] = (byte) seq;
+        packet[4] = (byte) (timestamp >> 24);
+        packet[5] = (byte) (timestamp >> 16);
+        packet[6] = (byte) (timestamp >> 8);
+        packet[7] = (byte) timestamp;
+        packet[8] = (byte) (ssrc >> 24);
+        packet[9] = (byte) (ssrc >> 16);
+        packet[10] = (byte) (ssrc >> 8);
+        packet[11] = (byte) ssrc;
+    }
+
+    private void sendFec(byte[] packet, boolean column) {
+        int fecPort = port + (column ? Fec.COLUMN_PORT_OFFSET : Fec.ROW_PORT_OFFSET);
+        try {
+            output.send(new DatagramPacket(packet, packet.length, client, fecPort));
+            fecPackets++;
+        } catch (IOException e) {
+            logger.fine("Αποτυχία αποστολής FEC: " + e.getMessage());
+        }
+    }
+
+    // Τα sockets ανοίγουν στον constructor: κλείνουν και αν ο relay δεν ξεκίνησε ποτέ
+    @Override
+    public void close() {
+        boolean wasRunning = running;
+        running = false;
+        input.close();
+        output.close();
+        if (!wasRunning) {
+            return;
+        }
+        logger.info("Τερματισμός relay: " + mediaPackets + " πακέτα media, " + fecPackets + " πακέτα FEC, " +
+                    retransmitted + " αναμεταδόσεις");
+    }
+}
@@ -0,0 +1,505 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.*;
+
+// Benchmark από άκρο σε άκρο χωρίς GUI: ξεκινά τον StreamingServer πάνω σε μια παραγόμενη
+// βιβλιοθήκη δοκιμής και N scripted clients (GET_VIDEOS + START_STREAM ανά πρωτόκολλο).
+// Ανά stream καταγράφει time-to-first-frame, ρυθμό παράδοσης, παύσεις (stalls) και CPU/RSS
+// του FFMPEG στον server· γράφει αναφορά JSON και CSV ανά εκτέλεση.
+//
+//   java StreamingBenchmark --clients 8 --protocols TCP,UDP,RTP/UDP --duration 30 --out bench
+//
+// Κάθε client λαμβάνει σε δική του θύρα (--stream.port + 10·i), γι' αυτό ο server ξεκινά με
+// max.clients = N. Με τον ImpairmentProxy μπροστά από τις θύρες μετρώνται και συνθήκες WAN.
+public class StreamingBenchmark {
+    private static final Logger logger = Logger.getLogger(StreamingBenchmark.class.getName());
+
+    private static final int TS_PACKET = 188;
+    private static final int PORTS_PER_CLIENT = 10;
+    private static final long LIBRARY_TIMEOUT_MS = 600_000;
+
+    // Ό,τι φτάνει στον "player" ενός client: bytes, πρώτο keyframe, παύσεις
+    static class PlaybackProbe extends OutputStream {
+        private final long stallNanos;
+        private final byte[] pending = new byte[TS_PACKET];
+        private int pendingLength = 0;
+        volatile long startNanos;
+        long firstByteNanos = -1;
+        long firstFrameNanos = -1;
+        long lastWriteNanos = -1;
+        long bytes;
+        long bytesAfterFirstFrame;
+        int stalls;
+        long stalledNanos;
+
+        PlaybackProbe(long stallMs) {
+            this.stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMs);
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] data, int offset, int length) {
+            long now = System.nanoTime();
+            if (firstByteNanos < 0) {
+                firstByteNanos = now;
+            }
+            if (firstFrameNanos >= 0) {
+                long gap = now - lastWriteNanos;
+                if (gap > stallNanos) {
+                    stalls++;
+                    stalledNanos += gap;
+                }
+                bytesAfterFirstFrame += length;
+            }
+            lastWriteNanos = now;
+            bytes += length;
+
+            // Αναζήτηση του πρώτου TS packet με random_access_indicator (keyframe)
+            for (int i = offset; i < offset + length && firstFrameNanos < 0; i++) {
+                if (pendingLength == 0 && data[i] != 0x47) {
+                    continue;
+                }
+                pending[pendingLength++] = data[i];
+                if (pendingLength == TS_PACKET) {
+                    pendingLength = 0;
+                    boolean adaptation = (pending[3] & 0x20) != 0;
+                    if (adaptation && (pending[4] & 0xFF) > 0 && (pending[5] & 0x40) != 0) {
+                        firstFrameNanos = now;
+                    }
+                }
+            }
+        }
+
+        synchronized double getTimeToFirstFrameMs() {
+            return firstFrameNanos < 0 ? -1 : (firstFrameNanos - startNanos) / 1e6;
+        }
+
+        synchronized double getDeliveredKbps(long endNanos) {
+            if (firstFrameNanos < 0 || endNanos <= firstFrameNanos) {
+                return 0;
+            }
+            return bytesAfterFirstFrame * 8 / ((endNanos - firstFrameNanos) / 1e9) / 1000;
+        }
+    }
+
+    // Αποτέλεσμα ενός client
+    static class ClientResult {
+        int id;
+        String protocol;
+        String video = "";
+        int port;
+        double listLatencyMs = -1;
+        double timeToFirstFrameMs = -1;
+        double deliveredKbps;
+        int stalls;
+        double stalledMs;
+        long bytes;
+        double lossPercent;
+        long requestNanos;
+        long requestMillis;
+        double ffmpegCpuSeconds;
+        long ffmpegPeakRssKb = -1;
+        String error = "";
+    }
+
+    // Μια διεργασία FFMPEG streaming του server
+    static class ServerProcess {
+        final String commandLine;
+        final long startMillis;
+        long cpuNanos;
+        long peakRssKb = -1;
+
+        ServerProcess(String commandLine, long startMillis) {
+            this.commandLine = commandLine;
+            this.startMillis = startMillis;
+        }
+    }
+
+    // Μέτρηση CPU/RSS του server (JVM) και των διεργασιών FFMPEG που ξεκινά
+    static class ResourceSampler implements Runnable {
+        final Map<Long, ServerProcess> ffmpeg = new ConcurrentHashMap<>();
+        final long startNanos = System.nanoTime();
+        final long startCpuNanos = jvmCpuNanos();
+        long peakJvmRssKb = -1;
+        long peakTotalRssKb = -1;
+        volatile boolean running = true;
+
+        @Override
+        public void run() {
+            while (running) {
+                sample();
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        synchronized void sample() {
+            long total = Math.max(0, rssKb(ProcessHandle.current().pid()));
+            peakJvmRssKb = Math.max(peakJvmRssKb, total);
+            // Μόνο οι διεργασίες streaming (-re), όχι τα transcodes του καταλόγου
+            ProcessHandle.current().descendants()
+                .filter(process -> process.info().commandLine()
+                    .map(line -> line.contains("ffmpeg") && line.contains(" -re ")).orElse(false))
+                .forEach(process -> {
+                    ServerProcess entry = ffmpeg.computeIfAbsent(process.pid(), pid -> new ServerProcess(
+                        process.info().commandLine().orElse(""),
+                        process.info().startInstant().map(Instant::toEpochMilli).orElse(System.currentTimeMillis())));
+                    process.info().totalCpuDuration().ifPresent(cpu -> entry.cpuNanos = cpu.toNanos());
+                    entry.peakRssKb = Math.max(entry.peakRssKb, rssKb(process.pid()));
+                });
+            for (ServerProcess entry : ffmpeg.values()) {
+                total += Math.max(0, entry.peakRssKb);
+            }
+            peakTotalRssKb = Math.max(peakTotalRssKb, total);
+        }
+
+        double getJvmCpuPercent() {
+            double elapsed = System.nanoTime() - startNanos;
+            return elapsed > 0 ? (jvmCpuNanos() - startCpuNanos) / elapsed * 100 : 0;
+        }
+
+        static long jvmCpuNanos() {
+            java.lang.management.OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+            if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+                return ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime();
+            }
+            return 0;
+        }
+
+        // VmRSS από το /proc (Linux)· -1 αλλού
+        static long rssKb(long pid) {
+            try {
+                for (String line : Files.readAllLines(Paths.get("/proc/" + pid + "/status"))) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // Όχι Linux ή η διεργασία τερμάτισε
+            }
+            return -1;
+        }
+    }
+
+    private final ServerConfig options;
+    private final int clients;
+    private final List<String> protocols;
+    private final int durationSeconds;
+    private final String format;
+    private final long stallMs;
+    private final int streamPortBase;
+
+    StreamingBenchmark(ServerConfig options) {
+        this.options = options;
+        this.clients = options.getInt("clients", 4);
+        this.protocols = Arrays.asList(options.getString("protocols", "TCP,UDP,RTP/UDP").split(","));
+        this.durationSeconds = options.getInt("duration", 20);
+        this.format = options.getString("format", ".mp4");
+        this.stallMs = options.getLong("stall.ms", 500);
+        this.streamPortBase = options.getInt("stream.port", 20000);
+    }
+
+    // Βιβλιοθήκη δοκιμής: ένα πηγαίο αρχείο ανά τίτλο (testsrc2 + ημίτονο)· τις υπόλοιπες
+    // εκδόσεις τις δημιουργεί ο server όπως για κάθε άλλο αρχείο
+    void prepareLibrary(Path folder, int titles, int seconds) throws IOException, InterruptedException {
+        Files.createDirectories(folder);
+        for (int i = 1; i <= titles; i++) {
+            Path source = folder.resolve("Bench_" + i + "-720p" + format);
+            if (Files.exists(source)) {
+                continue;
+            }
+            logger.info("Δημιουργία βίντεο δοκιμής: " + source);
+            Process process = new ProcessBuilder(
+                "ffmpeg", "-y",
+                "-f", "lavfi", "-i", "testsrc2=size=1280x720:rate=30",
+                "-f", "lavfi", "-i", "sine=frequency=" + (220 * i),
+                "-t", String.valueOf(seconds),
+                "-c:v", "libx264", "-preset", "veryfast", "-g", "60",
+                "-c:a", "aac", "-shortest",
+                source.toString()
+            ).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            if (process.waitFor() != 0) {
+                throw new IOException("Το FFMPEG απέτυχε να δημιουργήσει το " + source);
+            }
+        }
+    }
+
+    List<String> waitForLibrary(int port, int titles) throws Exception {
+        long deadline = System.currentTimeMillis() + LIBRARY_TIMEOUT_MS;
+        try (ControlClient control = new ControlClient("localhost", port)) {
+            control.connect(5000, false);
+            while (System.currentTimeMillis() < deadline) {
+                ControlProtocol.Message reply = control.request("GET_VIDEOS", "1000", format).get();
+                List<String> videos = reply.command.equals("VIDEO_LIST") ? reply.args : List.of();
+                long ready = videos.stream().filter(name -> name.contains("-720p")).count();
+                if (ready >= titles) {
+                    return videos;
+                }
+                Thread.sleep(2000);
+            }
+        }
+        throw new IOException("Η βιβλιοθήκη δοκιμής δεν ήταν έτοιμη εγκαίρως");
+    }
+
+    ClientResult runClient(int id, int port, List<String> videos, long endNanos) {
+        ClientResult result = new ClientResult();
+        result.id = id;
+        result.protocol = protocols.get(id % protocols.size()).trim();
+        result.port = streamPortBase + id * PORTS_PER_CLIENT;
+        PlaybackProbe probe = new PlaybackProbe(stallMs);
+        StreamReceiver receiver = null;
+
+        try (ControlClient control = new ControlClient("localhost", port)) {
+            control.connect(5000, false);
+            long listStart = System.nanoTime();
+            ControlProtocol.Message list = control.request("GET_VIDEOS", "1000", format).get();
+            result.listLatencyMs = (System.nanoTime() - listStart) / 1e6;
+            List<String> available = list.command.equals("VIDEO_LIST") && !list.args.isEmpty() ? list.args : videos;
+            result.video = available.get(id % available.size());
+
+            boolean tcp = result.protocol.equalsIgnoreCase("TCP");
+            if (!tcp) {
+                receiver = new StreamReceiver(result.port, result.protocol.equalsIgnoreCase("RTP/UDP"),
+                                              options.getInt("jitter.buffer.ms", 200));
+                receiver.start(probe);
+            }
+
+            List<String> args = new ArrayList<>(Arrays.asList(result.video, result.protocol, "port=" + result.port));
+            String extra = options.getString("stream.options");
+            if (extra != null && !extra.isBlank()) {
+                args.addAll(Arrays.asList(extra.split(",")));
+            }
+            result.requestNanos = System.nanoTime();
+            result.requestMillis = System.currentTimeMillis();
+            probe.startNanos = result.requestNanos;
+            ControlProtocol.Message reply = control.request(30_000, "START_STREAM", args).get();
+            if (!reply.command.equals("STREAM_STARTED")) {
+                result.error = reply.args.isEmpty() ? reply.command : reply.args.get(0);
+                return result;
+            }
+
+            if (tcp) {
+                // Όπως το ffplay: σύνδεση στο FFMPEG που ακούει στη θύρα του client
+                Thread reader = new Thread(() -> readTcp(result.port, probe, endNanos), "bench-tcp-" + id);
+                reader.setDaemon(true);
+                reader.start();
+            }
+
+            long remaining = endNanos - System.nanoTime();
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            }
+            control.request("STOP").get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            Throwable cause = ControlClient.unwrap(e);
+            result.error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        } finally {
+            if (receiver != null) {
+                result.lossPercent = receiver.getTotals().getLossPercent();
+                receiver.close();
+            }
+        }
+
+        long end = Math.min(System.nanoTime(), endNanos);
+        synchronized (probe) {
+            result.bytes = probe.bytes;
+            result.stalls = probe.stalls;
+            result.stalledMs = probe.stalledNanos / 1e6;
+        }
+        result.timeToFirstFrameMs = probe.getTimeToFirstFrameMs();
+        result.deliveredKbps = probe.getDeliveredKbps(end);
+        return result;
+    }
+
+    private void readTcp(int port, PlaybackProbe probe, long endNanos) {
+        while (System.nanoTime() < endNanos) {
+            try (Socket socket = new Socket("localhost", port)) {
+                socket.setSoTimeout(1000);
+                InputStream in = socket.getInputStream();
+                byte[] buffer = new byte[16384];
+                int read;
+                while (System.nanoTime() < endNanos) {
+                    try {
+                        read = in.read(buffer);
+                    } catch (SocketTimeoutException e) {
+                        continue;
+                    }
+                    if (read < 0) {
+                        return;
+                    }
+                    probe.write(buffer, 0, read);
+                }
+                return;
+            } catch (IOException e) {
+                // Το FFMPEG δεν ακούει ακόμα
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Κάθε διεργασία FFMPEG αποδίδεται στον client της θύρας που εμφανίζεται στην εντολή της· μέσω
+    // relay η θύρα δεν φαίνεται, οπότε στον client με το πλησιέστερο START_STREAM (κλιμακωτά, --ramp.ms)
+    static void attributeServerResources(List<ClientResult> results, ResourceSampler sampler) {
+        for (ServerProcess entry : sampler.ffmpeg.values()) {
+            ClientResult owner = null;
+            for (ClientResult result : results) {
+                if (entry.commandLine.contains(":" + result.port + "?") || entry.commandLine.contains(":" + result.port + " ")) {
+                    owner = result;
+                    break;
+                }
+                if (result.requestMillis > 0 && (owner == null ||
+                    Math.abs(entry.startMillis - result.requestMillis) < Math.abs(entry.startMillis - owner.requestMillis))) {
+                    owner = result;
+                }
+            }
+            if (owner != null) {
+                owner.ffmpegCpuSeconds += entry.cpuNanos / 1e9;
+                owner.ffmpegPeakRssKb = Math.max(owner.ffmpegPeakRssKb, entry.peakRssKb);
+            }
+        }
+    }
+
+    void writeReport(Path prefix, List<ClientResult> results, ResourceSampler sampler) throws IOException {
+        StringBuilder csv = new StringBuilder(
+            "client,protocol,video,port,list_ms,ttff_ms,delivered_kbps,stalls,stalled_ms,bytes,loss_percent,ffmpeg_cpu_percent,ffmpeg_rss_kb,error\n");
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"clients\": ").append(clients).append(",\n");
+        json.append("  \"duration_s\": ").append(durationSeconds).append(",\n");
+        json.append("  \"server\": {\"jvm_cpu_percent\": ").append(format1(sampler.getJvmCpuPercent()))
+            .append(", \"jvm_peak_rss_kb\": ").append(sampler.peakJvmRssKb)
+            .append(", \"total_peak_rss_kb\": ").append(sampler.peakTotalRssKb)
+            .append(", \"ffmpeg_processes\": ").append(sampler.ffmpeg.size()).append("},\n");
+        json.append("  \"streams\": [\n");
+
+        for (int i = 0; i < results.size(); i++) {
+            ClientResult r = results.get(i);
+            double cpuPercent = r.ffmpegCpuSeconds / durationSeconds * 100;
+            csv.append(r.id).append(',').append(r.protocol).append(',').append(r.video).append(',').append(r.port).append(',')
+               .append(format1(r.listLatencyMs)).append(',').append(format1(r.timeToFirstFrameMs)).append(',')
+               .append(format1(r.deliveredKbps)).append(',').append(r.stalls).append(',').append(format1(r.stalledMs)).append(',')
+               .append(r.bytes).append(',').append(format1(r.lossPercent)).append(',').append(format1(cpuPercent)).append(',')
+               .append(r.ffmpegPeakRssKb).append(',').append(r.error.replace(',', ';')).append('\n');
+            json.append("    {\"client\": ").append(r.id)
+                .append(", \"protocol\": \"").append(jsonEscape(r.protocol))
+                .append("\", \"video\": \"").append(jsonEscape(String.valueOf(r.video)))
+                .append("\", \"port\": ").append(r.port)
+                .append(", \"list_ms\": ").append(format1(r.listLatencyMs))
+                .append(", \"ttff_ms\": ").append(format1(r.timeToFirstFrameMs))
+                .append(", \"delivered_kbps\": ").append(format1(r.deliveredKbps))
+                .append(", \"stalls\": ").append(r.stalls)
+                .append(", \"stalled_ms\": ").append(format1(r.stalledMs))
+                .append(", \"bytes\": ").append(r.bytes)
+                .append(", \"loss_percent\": ").append(format1(r.lossPercent))
+                .append(", \"ffmpeg_cpu_percent\": ").append(format1(cpuPercent))
+                .append(", \"ffmpeg_rss_kb\": ").append(r.ffmpegPeakRssKb)
+                .append(", \"error\": \"").append(jsonEscape(r.error)).append("\"}")
+                .append(i + 1 < results.size() ? ",\n" : "\n");
+        }
+        json.append("  ]\n}\n");
+
+        Files.write(Paths.get(prefix + ".csv"), csv.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(Paths.get(prefix + ".json"), json.toString().getBytes(StandardCharsets.UTF_8));
+        logger.info("Αναφορά benchmark: " + prefix + ".json, " + prefix + ".csv");
+    }
+
+    private static String format1(double value) {
+        return String.format(java.util.Locale.ROOT, "%.1f", value);
+    }
+
+    private static String jsonEscape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    void run() throws Exception {
+        Path library = Paths.get(options.getString("library", "bench-videos"));
+        int titles = options.getInt("titles", 2);
+        prepareLibrary(library, titles, options.getInt("source.seconds", 60));
+
+        int port = options.getInt("port", 18888);
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.set(ServerConfig.PORT, String.valueOf(port));
+        serverConfig.set(ServerConfig.VIDEOS_FOLDER, library.toString());
+        serverConfig.set(ServerConfig.HEADLESS, "true");
+        serverConfig.set(ServerConfig.MAX_CLIENTS, String.valueOf(clients + 1));
+        serverConfig.set(ServerConfig.PROBE_PORT, "0");
+        serverConfig.set(ServerConfig.LOG_FILE, options.getString("out", "bench") + "-server.log");
+        StreamingServer server = new StreamingServer(serverConfig);
+        server.startServer();
+        if (!server.isRunning()) {
+            throw new IOException("Ο server δεν ξεκίνησε");
+        }
+
+        try {
+            List<String> videos = waitForLibrary(port, titles);
+            logger.info("Βιβλιοθήκη έτοιμη (" + videos.size() + " εκδόσεις), εκκίνηση " + clients + " clients");
+
+            ResourceSampler sampler = new ResourceSampler();
+            Thread samplerThread = new Thread(sampler, "bench-sampler");
+            samplerThread.setDaemon(true);
+            samplerThread.start();
+
+            int rampMs = options.getInt("ramp.ms", 500);
+            long start = System.nanoTime();
+            List<ClientResult> results = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                int id = i;
+                // Κάθε client μετρά την ίδια διάρκεια από τη δική του εκκίνηση
+                long end = start + TimeUnit.MILLISECONDS.toNanos((long) i * rampMs) + TimeUnit.SECONDS.toNanos(durationSeconds);
+                Thread thread = new Thread(() -> {
+                    ClientResult result = runClient(id, port, videos, end);
+                    synchronized (results) {
+                        results.add(result);
+                    }
+                }, "bench-client-" + i);
+                threads.add(thread);
+                thread.start();
+                Thread.sleep(rampMs);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            sampler.running = false;
+            sampler.sample();
+
+            results.sort((a, b) -> Integer.compare(a.id, b.id));
+            attributeServerResources(results, sampler);
+            writeReport(Paths.get(options.getString("out", "bench")), results, sampler);
+        } finally {
+            server.stopServer();
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            new StreamingBenchmark(ServerConfig.fromArgs(args)).run();
+            System.exit(0);
+        } catch (Exception e) {
+            System.err.println("Σφάλμα benchmark: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -2,11 +2,12 @@ import java.io.*;
 import java.net.*;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.*;
 import javax.swing.*;
 import javax.swing.UIManager;
@@ -27,37 +28,68 @@ public class StreamingClient {
     
     // Υποστηριζόμενα formats και πρωτόκολλα
     private static final String[] FORMATS = {".avi", ".mp4", ".mkv"};
-    private static final String[] PROTOCOLS = {"TCP", "UDP", "RTP/UDP"};
+    private static final String[] PROTOCOLS = {"TCP", "UDP", "RTP/UDP", "CMAF"};
+    // Θύρα λήψης του stream (-Dstream.port=..., π.χ. πίσω από τον ImpairmentProxy)
+    private static final int STREAM_PORT = Integer.getInteger("stream.port", 9999);
+    // Καθυστέρηση του jitter buffer για RTP (ρυθμίζεται με -Djitter.buffer.ms=...)
+    private static final int JITTER_BUFFER_MS = Integer.getInteger("jitter.buffer.ms", 200);
+    // FEC (στήλες x γραμμές): τα πακέτα στηλών φτάνουν μετά από όλο τον πίνακα,
+    // οπότε με FEC το jitter buffer πρέπει να καλύπτει τη διάρκειά του
+    private static final String FEC_MATRIX = System.getProperty("fec", "5x5");
+    private static final int FEC_BUFFER_MS = Integer.getInteger("fec.buffer.ms", 600);
     
-    // Αυτόματη επιλογή πρωτοκόλλου βάσει ανάλυσης
-    private static final Map<String, String> AUTO_PROTOCOL_SELECTION = Map.of(
-        "240p", "TCP",
-        "360p", "UDP",
-        "480p", "UDP",
-        "720p", "RTP/UDP",
-        "1080p", "RTP/UDP"
-    );
+    // Αυτόματη επιλογή πρωτοκόλλου βάσει μέτρησης της σύνδεσης (UDP echo του server, -Dprobe.port=...)
+    private static final int PROBE_PORT = Integer.getInteger("probe.port", SERVER_PORT + 1);
+    private static final int PROBE_PACKETS = 100;
+    private static final int PROBE_INTERVAL_MS = 10;
+    private static final int PROBE_TIMEOUT_MS = 1000;
+    // Η μέτρηση επαναλαμβάνεται μόνο αν η προηγούμενη είναι παλιότερη από αυτό
+    private static final long PROBE_MAX_AGE_MS = 30_000;
+    // Άμεση έναρξη χωρίς έλεγχο ταχύτητας: η λίστα περιλαμβάνει όλες τις εκδόσεις, αφού ο server
+    // ξεκινά από τη μικρότερη και ανεβαίνει μόνο όσο επιβεβαιώνει η λήψη
+    private static final double INSTANT_LISTING_MBPS = 100;
     
     private JFrame gui;
     private JTextArea logArea;
     private JLabel statusLabel;
     private JLabel speedLabel;
     private JComboBox<String> formatComboBox;
+    private JTextField searchField;
     private JList<String> videoList;
     private DefaultListModel<String> videoListModel;
     private JComboBox<String> protocolComboBox;
     private JCheckBox autoProtocolCheckBox;
+    private JCheckBox fecCheckBox;
+    private JCheckBox nackCheckBox;
+    private JCheckBox adaptCheckBox;
+    private JCheckBox instantStartCheckBox;
     private JButton connectButton;
     private JButton speedTestButton;
     private JButton getVideosButton;
     private JButton streamButton;
     
-    private Socket serverSocket;
-    private BufferedReader serverInput;
-    private PrintWriter serverOutput;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final long START_STREAM_TIMEOUT_MS = 20_000;
+    
+    // Όλο το I/O με τον server γίνεται από τον ControlClient, εκτός EDT
+    private ControlClient controlClient;
+    private StreamReceiver streamReceiver;
+    private CmafReceiver cmafReceiver;
+    private final CatalogCache catalogCache = new CatalogCache(Paths.get("catalog_cache.properties"));
+    // Ο έλεγχος του ffplay (ffmpeg -decoders) τρέχει στο παρασκήνιο· στο EDT διαβάζεται μόνο το αποτέλεσμα
+    private final CompletableFuture<Set<String>> decoders = CompletableFuture.supplyAsync(Codecs::decoders);
+    private JButton cancelButton;
     private double connectionSpeed = 0.0; // Mbps
+    private volatile LinkProbe.Result lastProbe;
+    private volatile long lastProbeMillis;
     private boolean isConnected = false;
     private List<String> availableVideos;
+    // Σελιδοποίηση μεγάλων καταλόγων: cursor της επόμενης σελίδας (null = τέλος)
+    private static final int PAGE_SIZE = 200;
+    private List<String> pageQuery;
+    private String nextPageCursor;
+    private boolean pageLoading = false;
+    private AsyncLogHandler asyncLogHandler;
     
     public StreamingClient() {
         setupLogger();
@@ -69,11 +101,22 @@ public class StreamingClient {
         try {
             FileHandler fileHandler = new FileHandler("streaming_client.log", true);
             fileHandler.setFormatter(new SimpleFormatter());
-            logger.addHandler(fileHandler);
-            logger.setLevel(Level.INFO);
+            asyncLogHandler = new AsyncLogHandler(fileHandler, new ConsoleHandler());
         } catch (IOException e) {
             System.err.println("Σφάλμα στη δημιουργία log file: " + e.getMessage());
+            asyncLogHandler = new AsyncLogHandler(new ConsoleHandler());
         }
+        
+        // Το FFPLAY γράφει μία γραμμή ανά frame κατά την αναπαραγωγή
+        asyncLogHandler.setRateLimit("FFPLAY", 5.0, 20);
+        
+        // Όλο το I/O των logs γίνεται από το thread του AsyncLogHandler
+        logger.setUseParentHandlers(false);
+        logger.addHandler(asyncLogHandler);
+        logger.setLevel(Level.INFO);
+        
+        // Άδειασμα του buffer πριν τον τερματισμό της JVM (π.χ. EXIT_ON_CLOSE)
+        Runtime.getRuntime().addShutdownHook(new Thread(asyncLogHandler::close, "async-log-shutdown"));
     }
     
     private void createGUI() {
@@ -123,22 +166,8 @@ public class StreamingClient {
         gui.setLocationRelativeTo(null);
         gui.setVisible(true);
         
-        // Custom log handler για GUI
-        logger.addHandler(new Handler() {
-            @Override
-            public void publish(LogRecord record) {
-                SwingUtilities.invokeLater(() -> {
-                    logArea.append(new SimpleFormatter().format(record));
-                    logArea.setCaretPosition(logArea.getDocument().getLength());
-                });
-            }
-            
-            @Override
-            public void flush() {}
-            
-            @Override
-            public void close() throws SecurityException {}
-        });
+        // Log handler για GUI (ενημέρωση σε παρτίδες μέσω του async pipeline)
+        asyncLogHandler.addDelegate(new TextAreaLogHandler(logArea));
         
         updateUIState();
     }
@@ -197,6 +226,11 @@ public class StreamingClient {
         formatComboBox = new JComboBox<>(FORMATS);
         formatPanel.add(formatComboBox);
         
+        formatPanel.add(new JLabel("Αναζήτηση: "));
+        searchField = new JTextField(10);
+        searchField.addActionListener(e -> getAvailableVideos());
+        formatPanel.add(searchField);
+        
         getVideosButton = new JButton("Λήψη Λίστας Βίντεο");
         getVideosButton.addActionListener(e -> getAvailableVideos());
         formatPanel.add(getVideosButton);
@@ -216,6 +250,14 @@ public class StreamingClient {
         JScrollPane videoScrollPane = new JScrollPane(videoList);
         videoScrollPane.setPreferredSize(new Dimension(400, 150));
         
+        // Φόρτωση της επόμενης σελίδας όταν ο χρήστης φτάσει κοντά στο τέλος της λίστας
+        videoScrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            JScrollBar bar = videoScrollPane.getVerticalScrollBar();
+            if (bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - bar.getVisibleAmount()) {
+                requestNextPage();
+            }
+        });
+        
         panel.add(formatPanel, BorderLayout.NORTH);
         panel.add(videoScrollPane, BorderLayout.CENTER);
         
@@ -234,9 +276,27 @@ public class StreamingClient {
         protocolComboBox = new JComboBox<>(PROTOCOLS);
         protocolComboBox.setEnabled(false);
         
+        fecCheckBox = new JCheckBox("FEC (" + FEC_MATRIX + ")", false);
+        fecCheckBox.setToolTipText("Ανάκτηση χαμένων πακέτων UDP/RTP χωρίς αναμετάδοση");
+        
         panel.add(autoProtocolCheckBox);
         panel.add(new JLabel("Πρωτόκολλο: "));
         panel.add(protocolComboBox);
+        panel.add(fecCheckBox);
+        
+        nackCheckBox = new JCheckBox("NACK (RTP)", true);
+        nackCheckBox.setToolTipText("Αναμετάδοση χαμένων πακέτων RTP πριν την προθεσμία αναπαραγωγής");
+        panel.add(nackCheckBox);
+        
+        adaptCheckBox = new JCheckBox("Προσαρμογή ρυθμού", true);
+        adaptCheckBox.setToolTipText("Ο server μειώνει/αυξάνει τον ρυθμό (UDP, RTP/UDP) με βάση τις αναφορές RTCP");
+        panel.add(adaptCheckBox);
+        
+        instantStartCheckBox = new JCheckBox("Άμεση έναρξη", false);
+        instantStartCheckBox.setToolTipText("Χωρίς έλεγχο ταχύτητας: η αναπαραγωγή ξεκινά από τη μικρότερη έκδοση " +
+                                            "και αναβαθμίζεται μόλις επιβεβαιωθεί η λήψη (UDP, RTP/UDP)");
+        instantStartCheckBox.addActionListener(e -> updateUIState());
+        panel.add(instantStartCheckBox);
         
         return panel;
     }
@@ -248,22 +308,29 @@ public class StreamingClient {
         streamButton = new JButton("Έναρξη Streaming");
         streamButton.addActionListener(e -> startStreaming());
         
+        cancelButton = new JButton("Ακύρωση Αιτήματος");
+        cancelButton.addActionListener(e -> cancelPendingRequests());
+        
         JButton clearLogsButton = new JButton("Καθαρισμός Logs");
         clearLogsButton.addActionListener(e -> logArea.setText(""));
         
         panel.add(streamButton);
+        panel.add(cancelButton);
         panel.add(clearLogsButton);
         
         return panel;
     }
     
     private void updateUIState() {
-        boolean hasSpeed = connectionSpeed > 0;
+        boolean hasSpeed = connectionSpeed > 0 || instantStartCheckBox.isSelected();
         boolean hasVideos = !availableVideos.isEmpty();
         boolean hasSelection = videoList.getSelectedValue() != null;
         
-        getVideosButton.setEnabled(isConnected && hasSpeed);
-        streamButton.setEnabled(isConnected && hasVideos && hasSelection);
+        boolean hasPending = controlClient != null && controlClient.getPendingCount() > 0;
+        
+        getVideosButton.setEnabled(isConnected && hasSpeed && !hasPending);
+        streamButton.setEnabled(isConnected && hasVideos && hasSelection && !hasPending);
+        cancelButton.setEnabled(hasPending);
         
         connectButton.setText(isConnected ? "Αποσύνδεση" : "Σύνδεση");
         statusLabel.setText(isConnected ? "Συνδεδεμένος" : "Αποσυνδεδεμένος");
@@ -285,45 +352,102 @@ public class StreamingClient {
     }
     
     private void connect() {
-        try {
-            serverSocket = new Socket(SERVER_HOST, SERVER_PORT);
-            serverInput = new BufferedReader(new InputStreamReader(serverSocket.getInputStream()));
-            serverOutput = new PrintWriter(serverSocket.getOutputStream(), true);
-            
-            isConnected = true;
-            logger.info("Συνδέθηκε επιτυχώς στον server " + SERVER_HOST + ":" + SERVER_PORT);
-            
-        } catch (IOException e) {
-            logger.severe("Σφάλμα σύνδεσης με server: " + e.getMessage());
-            JOptionPane.showMessageDialog(gui, 
-                "Δεν ήταν δυνατή η σύνδεση με τον server.\nΒεβαιωθείτε ότι ο server είναι σε λειτουργία.",
-                "Σφάλμα Σύνδεσης", 
-                JOptionPane.ERROR_MESSAGE);
-        }
+        connectButton.setEnabled(false);
+        statusLabel.setText("Σύνδεση...");
+        statusLabel.setForeground(Color.BLUE);
         
-        updateUIState();
+        ControlClient client = new ControlClient(SERVER_HOST, SERVER_PORT);
+        client.setDisconnectListener(error -> SwingUtilities.invokeLater(() -> {
+            if (controlClient == client && isConnected) {
+                logger.warning("Χάθηκε η σύνδεση με τον server: " + error.getMessage());
+                disconnect();
+            }
+        }));
+        
+        // Η σύνδεση γίνεται στο I/O thread· το αποτέλεσμα επιστρέφει στο EDT
+        // αφού ολοκληρωθεί και ο έλεγχος των decoders
+        client.connectAsync(CONNECT_TIMEOUT_MS, false)
+            .thenCombine(decoders, (ignored, codecs) -> codecs)
+            .whenComplete((ignored, error) ->
+            SwingUtilities.invokeLater(() -> {
+                connectButton.setEnabled(true);
+                if (error == null) {
+                    controlClient = client;
+                    isConnected = true;
+                    logger.info("Συνδέθηκε επιτυχώς στον server " + SERVER_HOST + ":" + SERVER_PORT);
+                    if (instantStartCheckBox.isSelected()) {
+                        // Η cached λίστα εμφανίζεται αμέσως και ανανεώνεται στο παρασκήνιο
+                        showCachedCatalog();
+                        getAvailableVideos();
+                        if (autoProtocolCheckBox.isSelected()) {
+                            // Η μέτρηση γίνεται στο παρασκήνιο, ώστε να είναι έτοιμη για την αυτόματη επιλογή
+                            new Thread(this::probeLink, "link-probe").start();
+                        }
+                    }
+                } else {
+                    client.close();
+                    logger.severe("Σφάλμα σύνδεσης με server: " + ControlClient.unwrap(error).getMessage());
+                    JOptionPane.showMessageDialog(gui, 
+                        "Δεν ήταν δυνατή η σύνδεση με τον server.\nΒεβαιωθείτε ότι ο server είναι σε λειτουργία.",
+                        "Σφάλμα Σύνδεσης", 
+                        JOptionPane.ERROR_MESSAGE);
+                }
+                updateUIState();
+            }));
     }
     
     private void disconnect() {
-        try {
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close();
-            }
-            isConnected = false;
-            
-            // Καθαρισμός δεδομένων
-            availableVideos.clear();
-            videoListModel.clear();
-            
-            logger.info("Αποσυνδέθηκε από τον server");
-            
-        } catch (IOException e) {
-            logger.warning("Σφάλμα κατά την αποσύνδεση: " + e.getMessage());
+        if (controlClient != null) {
+            controlClient.close();
+            controlClient = null;
         }
+        isConnected = false;
+        closeStreamReceiver();
+        
+        // Καθαρισμός δεδομένων
+        availableVideos.clear();
+        videoListModel.clear();
+        nextPageCursor = null;
+        
+        logger.info("Αποσυνδέθηκε από τον server");
         
         updateUIState();
     }
     
+    private void cancelPendingRequests() {
+        if (controlClient != null) {
+            int cancelled = controlClient.cancelAll();
+            logger.info("Ακυρώθηκαν " + cancelled + " εκκρεμή αιτήματα");
+        }
+        updateUIState();
+    }
+    
+    // Εκτέλεση αιτήματος στο I/O thread και επιστροφή του αποτελέσματος στο EDT
+    private void sendRequest(long timeoutMs, String command, List<String> args,
+                             java.util.function.Consumer<ControlProtocol.Message> onResponse) {
+        controlClient.request(timeoutMs, command, args).whenComplete((response, error) ->
+            SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    Throwable cause = ControlClient.unwrap(error);
+                    if (cause instanceof java.util.concurrent.CancellationException) {
+                        logger.info("Το αίτημα " + command + " ακυρώθηκε");
+                    } else {
+                        String reason = cause instanceof java.util.concurrent.TimeoutException
+                            ? "λήξη χρόνου αναμονής" : cause.getMessage();
+                        logger.severe("Σφάλμα επικοινωνίας με server: " + reason);
+                        JOptionPane.showMessageDialog(gui, 
+                            "Σφάλμα επικοινωνίας με server: " + reason,
+                            "Σφάλμα", 
+                            JOptionPane.ERROR_MESSAGE);
+                    }
+                } else {
+                    onResponse.accept(response);
+                }
+                updateUIState();
+            }));
+        updateUIState();
+    }
+    
     private void performSpeedTest() {
         speedTestButton.setEnabled(false);
         speedLabel.setText("Γίνεται έλεγχος...");
@@ -495,8 +619,17 @@ public class StreamingClient {
         }
     }
     
+    private void showCachedCatalog() {
+        String format = withDecodableCodecs((String) formatComboBox.getSelectedItem());
+        List<String> cached = catalogCache.getVideos(getServerKey(), format);
+        if (!cached.isEmpty()) {
+            setVideoList(cached);
+            logger.info("Εμφάνιση " + cached.size() + " βίντεο από την cache, ανανέωση από τον server");
+        }
+    }
+    
     private void getAvailableVideos() {
-        if (!isConnected || connectionSpeed <= 0) {
+        if (!isConnected || (connectionSpeed <= 0 && !instantStartCheckBox.isSelected())) {
             JOptionPane.showMessageDialog(gui, 
                 "Πρέπει να συνδεθείτε και να κάνετε έλεγχο ταχύτητας πρώτα.",
                 "Σφάλμα", 
@@ -504,34 +637,72 @@ public class StreamingClient {
             return;
         }
         
-        String selectedFormat = (String) formatComboBox.getSelectedItem();
+        String selectedFormat = withDecodableCodecs((String) formatComboBox.getSelectedItem());
+        String search = searchField.getText().trim();
+        double listingSpeed = connectionSpeed > 0 ? connectionSpeed : INSTANT_LISTING_MBPS;
+        nextPageCursor = null;
+        pageLoading = false;
         
-        try {
-            // Αποστολή αιτήματος στον server
-            String request = "GET_VIDEOS:" + connectionSpeed + ":" + selectedFormat;
-            serverOutput.println(request);
-            logger.info("Στάλθηκε αίτημα: " + request);
-            
-            // Λήψη απάντησης
-            String response = serverInput.readLine();
-            if (response != null) {
-                parseVideoListResponse(response);
+        // Με φίλτρο αναζήτησης το φιλτράρισμα γίνεται στον server, σελίδα-σελίδα
+        if (!search.isEmpty()) {
+            pageQuery = Arrays.asList(String.valueOf(listingSpeed), selectedFormat, "",
+                                      String.valueOf(PAGE_SIZE), search);
+            availableVideos.clear();
+            videoListModel.clear();
+            sendPageRequest(pageQuery, selectedFormat);
+            return;
+        }
+        pageQuery = Arrays.asList(String.valueOf(listingSpeed), selectedFormat, "", String.valueOf(PAGE_SIZE));
+        
+        // Αίτημα υπό συνθήκη με το ETag της τοπικής cache
+        String etag = catalogCache.getETag(getServerKey(), selectedFormat);
+        
+        // Αποστολή αιτήματος στον server (χωρίς αναμονή στο EDT)
+        List<String> args = Arrays.asList(String.valueOf(listingSpeed), selectedFormat, etag);
+        logger.info("Στάλθηκε αίτημα: GET_VIDEOS:" + listingSpeed + ":" + selectedFormat + " (ETag " + etag + ")");
+        sendRequest(ControlClient.DEFAULT_TIMEOUT_MS, "GET_VIDEOS", args,
+                    response -> parseVideoListResponse(response, selectedFormat));
+    }
+    
+    // Οι codecs που αναπαράγει το τοπικό ffplay δηλώνονται στο format, π.χ. ".mp4+hevc+av1",
+    // ώστε ο server να προσφέρει και τις εκδόσεις HEVC/AV1 (ίδια ποιότητα με λιγότερο ρυθμό)
+    private String withDecodableCodecs(String format) {
+        StringBuilder filter = new StringBuilder(format);
+        for (String codec : decoders.getNow(Set.of(Codecs.H264))) {
+            if (!codec.equals(Codecs.H264) && Codecs.fitsContainer(codec, format)) {
+                filter.append('+').append(codec);
             }
-            
-        } catch (IOException e) {
-            logger.severe("Σφάλμα επικοινωνίας με server: " + e.getMessage());
-            JOptionPane.showMessageDialog(gui, 
-                "Σφάλμα επικοινωνίας με server: " + e.getMessage(),
-                "Σφάλμα", 
-                JOptionPane.ERROR_MESSAGE);
         }
+        return filter.toString();
+    }
+    
+    private void sendPageRequest(List<String> query, String format) {
+        pageLoading = true;
+        logger.info("Στάλθηκε αίτημα: GET_VIDEOS_PAGE (cursor '" + query.get(2) + "')");
+        sendRequest(ControlClient.DEFAULT_TIMEOUT_MS, "GET_VIDEOS_PAGE", query, response -> {
+            pageLoading = false;
+            parseVideoListResponse(response, format);
+        });
+    }
+    
+    private void requestNextPage() {
+        if (nextPageCursor == null || pageLoading || !isConnected) {
+            return;
+        }
+        List<String> query = new ArrayList<>(pageQuery);
+        query.set(2, nextPageCursor);
+        sendPageRequest(query, pageQuery.get(1));
+    }
+    
+    private String getServerKey() {
+        return SERVER_HOST + ":" + SERVER_PORT;
     }
     
-    private void parseVideoListResponse(String response) {
-        logger.info("Λήφθηκε απάντηση: " + response);
+    private void parseVideoListResponse(ControlProtocol.Message response, String format) {
+        logger.info("Λήφθηκε απάντηση: " + response.command + " (" + response.args.size() + " πεδία)");
         
-        if (response.startsWith("ERROR:")) {
-            String errorMessage = response.substring(6);
+        if (response.command.equals("ERROR")) {
+            String errorMessage = response.arg(0);
             logger.warning("Σφάλμα από server: " + errorMessage);
             JOptionPane.showMessageDialog(gui, 
                 "Σφάλμα από server: " + errorMessage,
@@ -540,24 +711,69 @@ public class StreamingClient {
             return;
         }
         
-        if (response.startsWith("VIDEO_LIST:")) {
-            String videoData = response.substring(11);
-            
-            availableVideos.clear();
-            videoListModel.clear();
-            
-            if (!videoData.isEmpty()) {
-                String[] videos = videoData.split(";");
-                for (String video : videos) {
+        boolean handled = true;
+        switch (response.command) {
+            case "NOT_MODIFIED":
+                // Η cached λίστα ισχύει: χωρίς επανασχεδίαση αν εμφανίζεται ήδη
+                setVideoList(catalogCache.getVideos(getServerKey(), format));
+                logger.info("Ο κατάλογος δεν άλλαξε (" + response.arg(0) + "), χρήση cache");
+                break;
+                
+            case "VIDEO_SNAPSHOT":
+                List<String> snapshot = response.args.subList(1, response.args.size());
+                catalogCache.putSnapshot(getServerKey(), format, response.arg(0), snapshot);
+                setVideoList(catalogCache.getVideos(getServerKey(), format));
+                logger.info("Λήφθηκαν " + availableVideos.size() + " διαθέσιμα βίντεο (" + response.arg(0) + ")");
+                break;
+                
+            case "VIDEO_DELTA":
+                List<String> changes = response.args.subList(1, response.args.size());
+                boolean showingCached = availableVideos.equals(catalogCache.getVideos(getServerKey(), format));
+                List<String> updated = catalogCache.applyDelta(getServerKey(), format, response.arg(0), changes);
+                if (showingCached) {
+                    applyVideoListDelta(changes);
+                } else {
+                    setVideoList(updated);
+                }
+                logger.info("Εφαρμόστηκαν " + changes.size() + " αλλαγές καταλόγου (" + response.arg(0) + ")");
+                break;
+                
+            case "VIDEO_PAGE":
+                // Μεγάλος κατάλογος: προσθήκη της σελίδας στο τέλος της λίστας
+                boolean firstPage = nextPageCursor == null;
+                if (firstPage) {
+                    availableVideos.clear();
+                    videoListModel.clear();
+                }
+                List<String> page = response.args.subList(1, response.args.size());
+                availableVideos.addAll(page);
+                videoListModel.addAll(page);
+                nextPageCursor = response.arg(0).isEmpty() ? null : response.arg(0);
+                logger.info("Λήφθηκε σελίδα " + page.size() + " βίντεο (σύνολο " + availableVideos.size() +
+                            (nextPageCursor == null ? ", τέλος καταλόγου)" : ")"));
+                // Αν η λίστα δεν γεμίζει ακόμα το ορατό τμήμα, συνεχίζουμε αμέσως
+                if (nextPageCursor != null && videoListModel.size() < videoList.getVisibleRowCount() * 2) {
+                    requestNextPage();
+                }
+                handled = firstPage;
+                break;
+                
+            case "VIDEO_LIST":
+                List<String> videos = new ArrayList<>();
+                for (String video : response.args) {
                     if (!video.trim().isEmpty()) {
-                        availableVideos.add(video.trim());
-                        videoListModel.addElement(video.trim());
+                        videos.add(video.trim());
                     }
                 }
-            }
-            
-            logger.info("Λήφθηκαν " + availableVideos.size() + " διαθέσιμα βίντεο");
-            
+                setVideoList(videos);
+                logger.info("Λήφθηκαν " + availableVideos.size() + " διαθέσιμα βίντεο");
+                break;
+                
+            default:
+                handled = false;
+        }
+        
+        if (handled) {
             if (availableVideos.isEmpty()) {
                 JOptionPane.showMessageDialog(gui, 
                     "Δεν βρέθηκαν κατάλληλα βίντεο για την ταχύτητα σύνδεσής σας.",
@@ -569,6 +785,32 @@ public class StreamingClient {
         updateUIState();
     }
     
+    // Αντικατάσταση της λίστας μόνο αν άλλαξε πραγματικά
+    private void setVideoList(List<String> videos) {
+        if (videos.equals(availableVideos)) {
+            return;
+        }
+        availableVideos.clear();
+        availableVideos.addAll(videos);
+        videoListModel.clear();
+        videoListModel.addAll(videos);
+    }
+    
+    // Σταδιακή ενημέρωση του JList από delta, διατηρώντας τη ταξινόμηση
+    private void applyVideoListDelta(List<String> changes) {
+        for (String change : changes) {
+            String video = change.substring(1);
+            int index = java.util.Collections.binarySearch(availableVideos, video);
+            if (change.startsWith("+") && index < 0) {
+                availableVideos.add(-index - 1, video);
+                videoListModel.add(-index - 1, video);
+            } else if (change.startsWith("-") && index >= 0) {
+                availableVideos.remove(index);
+                videoListModel.remove(index);
+            }
+        }
+    }
+    
     private void startStreaming() {
         String selectedVideo = videoList.getSelectedValue();
         if (selectedVideo == null) {
@@ -580,55 +822,115 @@ public class StreamingClient {
         }
         
         // Επιλογή πρωτοκόλλου
-        String protocol;
         if (autoProtocolCheckBox.isSelected()) {
-            protocol = getAutoSelectedProtocol(selectedVideo);
-            logger.info("Αυτόματη επιλογή πρωτοκόλλου: " + protocol + " για " + selectedVideo);
-        } else {
-            protocol = (String) protocolComboBox.getSelectedItem();
-            logger.info("Χειροκίνητη επιλογή πρωτοκόλλου: " + protocol);
+            // Η μέτρηση κρατά περίπου ενάμισι δευτερόλεπτο: εκτός του EDT
+            streamButton.setEnabled(false);
+            List<String> candidates = new ArrayList<>(availableVideos);
+            new Thread(() -> {
+                LinkProbe.Result link = probeLink();
+                SwingUtilities.invokeLater(() -> startAutoSelected(selectedVideo, candidates, link));
+            }, "link-probe").start();
+            return;
         }
         
+        String protocol = (String) protocolComboBox.getSelectedItem();
+        logger.info("Χειροκίνητη επιλογή πρωτοκόλλου: " + protocol);
+        requestStream(selectedVideo, protocol);
+    }
+    
+    private LinkProbe.Result probeLink() {
+        if (lastProbe != null && System.currentTimeMillis() - lastProbeMillis < PROBE_MAX_AGE_MS) {
+            return lastProbe;
+        }
         try {
-            // Αποστολή αιτήματος streaming
-            String request = "START_STREAM:" + selectedVideo + ":" + protocol;
-            serverOutput.println(request);
-            logger.info("Στάλθηκε αίτημα streaming: " + request);
-            
-            // Λήψη απάντησης
-            String response = serverInput.readLine();
-            if (response != null) {
-                handleStreamingResponse(response, selectedVideo, protocol);
+            LinkProbe.Result result = LinkProbe.measure(InetAddress.getByName(SERVER_HOST), PROBE_PORT,
+                                                        PROBE_PACKETS, PROBE_INTERVAL_MS, PROBE_TIMEOUT_MS);
+            if (result.received > 0) {
+                lastProbe = result;
+                lastProbeMillis = System.currentTimeMillis();
             }
-            
+            return result;
         } catch (IOException e) {
-            logger.severe("Σφάλμα κατά την έναρξη streaming: " + e.getMessage());
-            JOptionPane.showMessageDialog(gui, 
-                "Σφάλμα κατά την έναρξη streaming: " + e.getMessage(),
-                "Σφάλμα", 
-                JOptionPane.ERROR_MESSAGE);
+            logger.warning("Αποτυχία μέτρησης σύνδεσης: " + e.getMessage());
+            return null;
         }
     }
     
-    private String getAutoSelectedProtocol(String videoFileName) {
-        // Εξαγωγή ανάλυσης από το όνομα αρχείου
-        String resolution = "480p"; // Default
+    private void startAutoSelected(String selectedVideo, List<String> candidates, LinkProbe.Result link) {
+        updateUIState();
+        if (link == null || link.received == 0) {
+            // Χωρίς μετρήσεις (π.χ. παλιός server χωρίς probe): το TCP δεν χάνει δεδομένα
+            logger.warning("Ο server δεν απάντησε στη μέτρηση σύνδεσης, αυτόματη επιλογή: TCP για " + selectedVideo);
+            requestStream(selectedVideo, "TCP");
+            return;
+        }
         
-        if (videoFileName.contains("-240p")) resolution = "240p";
-        else if (videoFileName.contains("-360p")) resolution = "360p";
-        else if (videoFileName.contains("-480p")) resolution = "480p";
-        else if (videoFileName.contains("-720p")) resolution = "720p";
-        else if (videoFileName.contains("-1080p")) resolution = "1080p";
+        boolean fec = fecCheckBox.isSelected();
+        int bufferMs = fec ? Math.max(JITTER_BUFFER_MS, FEC_BUFFER_MS) : JITTER_BUFFER_MS;
+        LinkProbe.Choice choice = LinkProbe.choose(link, selectedVideo, candidates, connectionSpeed, bufferMs,
+                                                   fec, nackCheckBox.isSelected(), FEC_MATRIX);
+        logger.info("Αυτόματη επιλογή: " + choice + " | μέτρηση: " + link + ", ταχύτητα " + connectionSpeed + " Mbps");
+        if (!choice.video.equals(selectedVideo)) {
+            videoList.setSelectedValue(choice.video, true);
+        }
+        requestStream(choice.video, choice.protocol);
+    }
+    
+    private void requestStream(String selectedVideo, String protocol) {
+        // Για UDP και RTP/UDP ο client δεσμεύει τη θύρα πριν ξεκινήσει ο server να στέλνει
+        closeStreamReceiver();
+        // FEC, NACK και προσαρμογή ρυθμού μόνο για τα datagrams (όχι TCP και CMAF)
+        boolean datagram = protocol.equalsIgnoreCase("UDP") || protocol.equalsIgnoreCase("RTP/UDP");
+        boolean useFec = fecCheckBox.isSelected() && datagram;
+        boolean useNack = nackCheckBox.isSelected() && protocol.equalsIgnoreCase("RTP/UDP");
+        boolean useAdapt = adaptCheckBox.isSelected() && datagram && connectionSpeed > 0;
+        // Άμεση έναρξη: ο relay του server στέλνει RTP και με UDP, για τις αναφορές RTCP
+        boolean instant = instantStartCheckBox.isSelected() && datagram;
+        int bufferMs = useFec ? Math.max(JITTER_BUFFER_MS, FEC_BUFFER_MS) : JITTER_BUFFER_MS;
+        if (datagram) {
+            try {
+                // Με προσαρμογή ρυθμού και το UDP έρχεται σε RTP από τον relay του server (για τις αναφορές RTCP)
+                streamReceiver = new StreamReceiver(STREAM_PORT, protocol.equalsIgnoreCase("RTP/UDP") || useAdapt || instant,
+                                                    bufferMs, useFec, useNack);
+            } catch (SocketException e) {
+                logger.severe("Δεν ήταν δυνατή η δέσμευση της θύρας " + STREAM_PORT + ": " + e.getMessage());
+                JOptionPane.showMessageDialog(gui,
+                    "Η θύρα " + STREAM_PORT + " χρησιμοποιείται ήδη: " + e.getMessage(),
+                    "Σφάλμα",
+                    JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+        }
         
-        return AUTO_PROTOCOL_SELECTION.getOrDefault(resolution, "UDP");
+        // Αποστολή αιτήματος streaming
+        logger.info("Στάλθηκε αίτημα streaming: START_STREAM:" + selectedVideo + ":" + protocol + (useFec ? " (FEC " + FEC_MATRIX + ")" : "") + (useNack ? " (NACK)" : "") + (useAdapt ? " (προσαρμογή ρυθμού)" : "") + (instant ? " (άμεση έναρξη)" : ""));
+        List<String> streamArgs = new ArrayList<>(Arrays.asList(selectedVideo, protocol));
+        if (useFec) {
+            streamArgs.add("fec=" + FEC_MATRIX);
+        }
+        if (useNack) {
+            // Ο server χρειάζεται την προθεσμία αναπαραγωγής για να κρίνει αν αξίζει η αναμετάδοση
+            streamArgs.add("nack=" + bufferMs);
+        }
+        if (useAdapt) {
+            // Ανώτατο όριο ο ρυθμός από το speed test
+            streamArgs.add("adapt=" + Math.max(1, (int) (connectionSpeed * 1000)));
+        }
+        if (instant) {
+            streamArgs.add("start=instant");
+        }
+        sendRequest(START_STREAM_TIMEOUT_MS, "START_STREAM", streamArgs,
+                    response -> handleStreamingResponse(response, selectedVideo, protocol, instant));
     }
     
-    private void handleStreamingResponse(String response, String videoFileName, String protocol) {
+    private void handleStreamingResponse(ControlProtocol.Message response, String videoFileName, String protocol,
+                                         boolean instant) {
         logger.info("Απάντηση streaming: " + response);
         
-        if (response.startsWith("ERROR:")) {
-            String errorMessage = response.substring(6);
+        if (response.command.equals("ERROR")) {
+            String errorMessage = response.arg(0);
             logger.warning("Σφάλμα streaming από server: " + errorMessage);
+            closeStreamReceiver();
             JOptionPane.showMessageDialog(gui, 
                 "Σφάλμα streaming: " + errorMessage,
                 "Σφάλμα", 
@@ -636,11 +938,11 @@ public class StreamingClient {
             return;
         }
         
-        if (response.startsWith("STREAM_STARTED:")) {
+        if (response.command.equals("STREAM_STARTED")) {
             logger.info("Το streaming ξεκίνησε επιτυχώς");
             
             // Εκκίνηση client για λήψη stream
-            startVideoClient(protocol);
+            startVideoClient(protocol, instant);
             
             JOptionPane.showMessageDialog(gui, 
                 "Το streaming ξεκίνησε!\nΒίντεο: " + videoFileName + "\nΠρωτόκολλο: " + protocol,
@@ -649,7 +951,159 @@ public class StreamingClient {
         }
     }
     
-    private void startVideoClient(String protocol) {
+    private void closeStreamReceiver() {
+        if (streamReceiver != null) {
+            streamReceiver.close();
+            streamReceiver = null;
+        }
+        if (cmafReceiver != null) {
+            cmafReceiver.close();
+            cmafReceiver = null;
+        }
+    }
+    
+    // UDP και RTP/UDP: ο StreamReceiver λαμβάνει, αναδιατάσσει και προωθεί το MPEG-TS στο ffplay
+    private void startReceiverPlayback(String protocol, boolean instant) {
+        StreamReceiver receiver = streamReceiver;
+        if (receiver == null) {
+            return;
+        }
+        
+        List<String> command = new ArrayList<>(Arrays.asList("ffplay", "-f", "mpegts"));
+        if (instant) {
+            // Χωρίς αναμονή για ανάλυση του stream: PAT/PMT και το πρώτο keyframe αρκούν
+            command.addAll(Arrays.asList("-probesize", "32768", "-analyzeduration", "0"));
+        }
+        command.addAll(Arrays.asList(
+            "-i", "pipe:0",
+            "-window_title", "Streaming Client - " + protocol,
+            "-autoexit", "-loglevel", "warning",
+            "-fflags", "nobuffer", "-flags", "low_delay",
+            "-framedrop"
+        ));
+        
+        OutputStream playerInput;
+        Process player = null;
+        try {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectErrorStream(true);
+            logger.info("Εκκίνηση FFPLAY client με εντολή: " + String.join(" ", command));
+            player = pb.start();
+            playerInput = player.getOutputStream();
+        } catch (IOException e) {
+            // Χωρίς player η λήψη συνεχίζει για μέτρηση της ποιότητας μετάδοσης
+            logger.warning("Το FFPLAY δεν είναι διαθέσιμο, λήψη χωρίς αναπαραγωγή: " + e.getMessage());
+            playerInput = OutputStream.nullOutputStream();
+        }
+        receiver.start(playerInput);
+        
+        Process playerProcess = player;
+        new Thread(() -> {
+            try {
+                if (playerProcess != null) {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(playerProcess.getInputStream()));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        logger.info("FFPLAY: " + line);
+                    }
+                    logger.info("FFPLAY client τερμάτισε με κωδικό: " + playerProcess.waitFor());
+                    receiver.close();
+                }
+            } catch (IOException | InterruptedException e) {
+                logger.warning("Σφάλμα ανάγνωσης εξόδου FFPLAY: " + e.getMessage());
+            }
+        }, "ffplay-output").start();
+        
+        // Η επιτυχία κρίνεται από τα πακέτα που έφτασαν, όχι από την έξοδο του ffplay
+        Timer check = new Timer(5000, e -> {
+            if (receiver.getTotals().getPackets() == 0) {
+                logger.warning("Δεν λήφθηκαν πακέτα στη θύρα " + STREAM_PORT + " μέσα σε 5 δευτερόλεπτα");
+                JOptionPane.showMessageDialog(gui, 
+                    "Το streaming δεν ξεκίνησε επιτυχώς.\n" +
+                    "Δεν λήφθηκαν πακέτα από τον server.",
+                    "Σφάλμα Streaming", 
+                    JOptionPane.WARNING_MESSAGE);
+            }
+        });
+        check.setRepeats(false);
+        check.start();
+    }
+    
+    // CMAF: ο CmafReceiver λαμβάνει τα chunks με HTTP και τα προωθεί στο ffplay, μετρώντας την καθυστέρηση
+    private void startCmafPlayback() {
+        CmafReceiver receiver;
+        try {
+            receiver = new CmafReceiver(SERVER_HOST, STREAM_PORT);
+        } catch (IOException e) {
+            logger.severe("Μη έγκυρη διεύθυνση CMAF: " + e.getMessage());
+            return;
+        }
+        cmafReceiver = receiver;
+        
+        // Χωρίς αναμονή για ανάλυση του stream: το init segment δίνει ήδη τους codecs
+        List<String> command = Arrays.asList(
+            "ffplay", "-f", "mp4", "-probesize", "32768", "-analyzeduration", "0", "-i", "pipe:0",
+            "-window_title", "Streaming Client - CMAF",
+            "-autoexit", "-loglevel", "warning",
+            "-fflags", "nobuffer", "-flags", "low_delay",
+            "-framedrop"
+        );
+        
+        OutputStream playerInput;
+        Process player = null;
+        try {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectErrorStream(true);
+            logger.info("Εκκίνηση FFPLAY client με εντολή: " + String.join(" ", command));
+            player = pb.start();
+            playerInput = player.getOutputStream();
+        } catch (IOException e) {
+            // Χωρίς player η λήψη συνεχίζει για μέτρηση της καθυστέρησης
+            logger.warning("Το FFPLAY δεν είναι διαθέσιμο, λήψη χωρίς αναπαραγωγή: " + e.getMessage());
+            playerInput = OutputStream.nullOutputStream();
+        }
+        receiver.start(playerInput);
+        
+        Process playerProcess = player;
+        new Thread(() -> {
+            try {
+                if (playerProcess != null) {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(playerProcess.getInputStream()));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        logger.info("FFPLAY: " + line);
+                    }
+                    logger.info("FFPLAY client τερμάτισε με κωδικό: " + playerProcess.waitFor());
+                }
+            } catch (IOException | InterruptedException e) {
+                logger.warning("Σφάλμα ανάγνωσης εξόδου FFPLAY: " + e.getMessage());
+            }
+        }, "ffplay-output").start();
+        
+        Timer check = new Timer(5000, e -> {
+            if (receiver.getTotals().getChunks() == 0) {
+                logger.warning("Δεν λήφθηκαν chunks CMAF μέσα σε 5 δευτερόλεπτα");
+                JOptionPane.showMessageDialog(gui, 
+                    "Το streaming δεν ξεκίνησε επιτυχώς.\n" +
+                    "Δεν λήφθηκαν chunks CMAF από τον server.",
+                    "Σφάλμα Streaming", 
+                    JOptionPane.WARNING_MESSAGE);
+            }
+        });
+        check.setRepeats(false);
+        check.start();
+    }
+    
+    private void startVideoClient(String protocol, boolean instant) {
+        if (protocol.equalsIgnoreCase("CMAF")) {
+            startCmafPlayback();
+            return;
+        }
+        if (!protocol.equalsIgnoreCase("TCP")) {
+            startReceiverPlayback(protocol, instant);
+            return;
+        }
+        
         new Thread(() -> {
             try {
                 // Μεγαλύτερη καθυστέρηση για να ξεκινήσει σωστά ο server
@@ -661,37 +1115,13 @@ public class StreamingClient {
                 switch (protocol.toUpperCase()) {
                     case "TCP":
                         command.addAll(Arrays.asList(
-                            "ffplay", "-i", "tcp://localhost:9999",
+                            "ffplay", "-i", "tcp://" + SERVER_HOST + ":" + STREAM_PORT,
                             "-window_title", "Streaming Client - TCP",
                             "-autoexit", "-loglevel", "warning",
                             "-fflags", "nobuffer"
                         ));
                         break;
                         
-                    case "UDP":
-                        command.addAll(Arrays.asList(
-                            "ffplay", "-i", "udp://localhost:9999?fifo_size=100000&overrun_nonfatal=1",
-                            "-window_title", "Streaming Client - UDP",
-                            "-autoexit", "-loglevel", "warning",
-                            "-fflags", "nobuffer+fastseek", 
-                            "-flags", "low_delay",
-                            "-framedrop", // Drop frames αν χρειάζεται
-                            "-sync", "audio" // Sync με audio
-                        ));
-                        break;
-                        
-                    case "RTP/UDP":
-                        // Για RTP χρησιμοποιούμε SDP file αν υπάρχει
-                        String rtpSource = Files.exists(Paths.get("stream.sdp")) ? 
-                                         "stream.sdp" : "rtp://localhost:9999";
-                        command.addAll(Arrays.asList(
-                            "ffplay", "-i", rtpSource,
-                            "-window_title", "Streaming Client - RTP/UDP",
-                            "-autoexit", "-loglevel", "warning",
-                            "-fflags", "nobuffer", "-flags", "low_delay"
-                        ));
-                        break;
-                        
                     default:
                         logger.warning("Μη υποστηριζόμενο πρωτόκολλο για client: " + protocol);
                         return;
@@ -1,219 +1,327 @@
 import java.io.*;
 import java.net.*;
 import java.nio.file.*;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.List;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Set;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.*;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-import javax.swing.*;
-import java.awt.BorderLayout;
-import java.awt.FlowLayout;
-import java.awt.Color;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 
 public class StreamingServer {
+    static {
+        // Πριν από τον logger: τον log buffer τον αδειάζει το shutdown(), μετά το stopServer.
+        // Μόνο το όνομα της κλάσης: η LogManager δεν πρέπει να αρχικοποιηθεί ακόμη.
+        System.getProperties().putIfAbsent("java.util.logging.manager", ShutdownLogManager.class.getName());
+    }
+
     private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
-    private static final int SERVER_PORT = 8888;
-    private static final String VIDEOS_FOLDER = "videos";
-    
-    // Υποστηριζόμενα formats και αναλύσεις
-    private static final String[] FORMATS = {".avi", ".mp4", ".mkv"};
-    private static final String[] RESOLUTIONS = {"240p", "360p", "480p", "720p", "1080p"};
-    
-    // Bitrate requirements σε Kbps
-    private static final Map<String, Integer> MIN_BITRATES = Map.of(
-        "240p", 300,
-        "360p", 400,
-        "480p", 500,
-        "720p", 1500,
-        "1080p", 3000
-    );
-    
-    private Socket currentClientSocket;
-    private BufferedReader currentClientInput;
-    private PrintWriter currentClientOutput;
-    private boolean clientConnected = false;
-    
-    public StreamingServer() {
+
+    // Κατάσταση server για ενημέρωση του GUI (αν υπάρχει)
+    public enum Status { STOPPED, RUNNING, CLIENT_CONNECTED, ERROR }
+
+    public interface StatusListener {
+        void statusChanged(Status status, String detail);
+    }
+
+    private final ServerConfig config;
+    private final int pageSize;
+    private final VideoCatalog catalog;
+    private final VideoStreamer streamer;
+    private ServerSocket serverSocket;
+    private ProbeResponder probeResponder;
+    private OriginFileServer fileServer;
+    private final List<LiveIngest> ingests = new ArrayList<>();
+
+    // Ρόλος edge (origin=host:port): κατάλογος από τον origin, εκδόσεις σε τοπική cache
+    private static final long ORIGIN_TIMEOUT_MS = 10_000;
+    private volatile EdgeCache edgeCache;
+    private ControlClient origin;
+
+    // Ρόλος front σε cluster (cluster.nodes χωρίς cluster.node): οι ταινίες είναι στους κόμβους
+    private volatile ClusterFront clusterFront;
+
+    // Δημοτικότητα τίτλων/εκδόσεων και περιοδική προετοιμασία των δημοφιλών
+    private final PopularityTracker popularity;
+    private ScheduledExecutorService prewarmScheduler;
+    private volatile boolean isRunning = false;
+    private AsyncLogHandler asyncLogHandler;
+    private volatile StatusListener statusListener = (status, detail) -> {};
+
+    // Ενεργές συνδέσεις, από την παλαιότερη στη νεότερη (έως max.clients)
+    private final Deque<ClientSession> sessions = new ConcurrentLinkedDeque<>();
+
+    // Threads για τα pipelined αιτήματα (v2) όλων των συνδέσεων
+    private final ExecutorService requestWorkers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "request-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StreamingServer(ServerConfig config) {
+        this.config = config;
+        this.pageSize = config.getInt(ServerConfig.CATALOG_PAGE_SIZE, 200);
         setupLogger();
-        availableVideos = new HashMap<>();
-        createGUI();
+        catalog = new VideoCatalog(config.getVideosFolder(), config.getInt(ServerConfig.TRANSCODE_WORKERS, 1));
+        streamer = new VideoStreamer(config.getVideosFolder());
+        popularity = new PopularityTracker(config.getDouble(ServerConfig.POPULARITY_HALF_LIFE_HOURS, 1));
     }
-    
+
     private void setupLogger() {
         try {
-            FileHandler fileHandler = new FileHandler("streaming_server.log", true);
+            FileHandler fileHandler = new FileHandler(config.getString(ServerConfig.LOG_FILE), true);
             fileHandler.setFormatter(new SimpleFormatter());
-            logger.addHandler(fileHandler);
-            logger.setLevel(Level.INFO);
+            asyncLogHandler = new AsyncLogHandler(fileHandler, new ConsoleHandler());
         } catch (IOException e) {
             System.err.println("Σφάλμα στη δημιουργία log file: " + e.getMessage());
+            asyncLogHandler = new AsyncLogHandler(new ConsoleHandler());
         }
+
+        // Οι γραμμές στατιστικών του FFMPEG έρχονται πολλές φορές το δευτερόλεπτο
+        asyncLogHandler.setRateLimit("FFMPEG Streaming", 2.0, 5);
+
+        // Όλο το I/O των logs γίνεται από το thread του AsyncLogHandler
+        logger.setUseParentHandlers(false);
+        logger.addHandler(asyncLogHandler);
+        logger.setLevel(Level.INFO);
     }
-    
-    private void createGUI() {
-        gui = new JFrame("Streaming Server");
-        gui.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        gui.setLayout(new BorderLayout());
-        
-        // Status panel
-        JPanel statusPanel = new JPanel(new FlowLayout());
-        statusLabel = new JLabel("Σταματημένος");
-        statusLabel.setForeground(Color.RED);
-        statusPanel.add(new JLabel("Κατάσταση: "));
-        statusPanel.add(statusLabel);
-        
-        // Control panel
-        JPanel controlPanel = new JPanel(new FlowLayout());
-        JButton startButton = new JButton("Εκκίνηση Server");
-        JButton stopButton = new JButton("Διακοπή Server");
-        JButton refreshButton = new JButton("Ανανέωση Βίντεο");
-        
-        startButton.addActionListener(e -> startServer());
-        stopButton.addActionListener(e -> stopServer());
-        refreshButton.addActionListener(e -> processVideos());
-        
-        JButton disconnectClientButton = new JButton("Αποσύνδεση Client");
-        disconnectClientButton.addActionListener(e -> {
-            if (clientConnected) {
-                disconnectCurrentClient();
-                logger.info("Χειροκίνητη αποσύνδεση client");
-            } else {
-                JOptionPane.showMessageDialog(gui, 
-                    "Δεν υπάρχει συνδεδεμένος client.", 
-                    "Πληροφορία", 
-                    JOptionPane.INFORMATION_MESSAGE);
-            }
-        });
-        
-        controlPanel.add(startButton);
-        controlPanel.add(stopButton);
-        controlPanel.add(refreshButton);
-        controlPanel.add(disconnectClientButton);
-        
-        // Log area
-        logArea = new JTextArea(20, 60);
-        logArea.setEditable(false);
-        JScrollPane scrollPane = new JScrollPane(logArea);
-        scrollPane.setBorder(BorderFactory.createTitledBorder("Logs"));
-        
-        gui.add(statusPanel, BorderLayout.NORTH);
-        gui.add(controlPanel, BorderLayout.CENTER);
-        gui.add(scrollPane, BorderLayout.SOUTH);
-        
-        gui.pack();
-        gui.setLocationRelativeTo(null);
-        gui.setVisible(true);
-        
-        // Custom log handler για GUI
-        logger.addHandler(new Handler() {
-            @Override
-            public void publish(LogRecord record) {
-                SwingUtilities.invokeLater(() -> {
-                    logArea.append(new SimpleFormatter().format(record));
-                    logArea.setCaretPosition(logArea.getDocument().getLength());
-                });
-            }
-            
-            @Override
-            public void flush() {}
-            
-            @Override
-            public void close() throws SecurityException {}
-        });
+
+    public AsyncLogHandler getAsyncLogHandler() {
+        return asyncLogHandler;
     }
-    
-    public void startServer() {
+
+    // Τερματισμός της JVM: πρώτα σταματά ο server και μετά αδειάζει ο log buffer,
+    // ώστε να γραφτούν και τα μηνύματα του stopServer
+    private void shutdown() {
+        stopServer();
+        asyncLogHandler.close();
+    }
+
+    public void setStatusListener(StatusListener listener) {
+        this.statusListener = listener;
+    }
+
+    public VideoCatalog getCatalog() {
+        return catalog;
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    public synchronized void startServer() {
         if (isRunning) {
             logger.warning("Ο server είναι ήδη σε λειτουργία");
             return;
         }
-        
+
         try {
             // Δημιουργία φακέλου videos αν δεν υπάρχει
-            Files.createDirectories(Paths.get(VIDEOS_FOLDER));
-            
-            // Επεξεργασία υπαρχόντων βίντεο
-            processVideos();
-            
-            // Εκκίνηση server
-            serverSocket = new ServerSocket(SERVER_PORT);
+            Files.createDirectories(Paths.get(config.getVideosFolder()));
+            if (config.isEdge()) {
+                edgeCache = new EdgeCache(config.getVideosFolder(), config.getLong(ServerConfig.EDGE_CACHE_MB, 10_240) * 1024 * 1024,
+                                          config.getOriginHost(), config.getOriginFilePort());
+            }
+            if (config.isClusterFront()) {
+                clusterFront = new ClusterFront(config, pageSize);
+            } else if (config.isCluster()) {
+                configureShard();
+            }
+
+            // Εκκίνηση server πριν την επεξεργασία των βίντεο, ώστε οι clients
+            // να εξυπηρετούνται αμέσως με ό,τι εκδόσεις είναι ήδη έτοιμες
+            serverSocket = new ServerSocket(config.getPort());
             isRunning = true;
-            
-            statusLabel.setText("Σε λειτουργία - Αναμονή client");
-            statusLabel.setForeground(Color.GREEN);
-            
-            logger.info("Streaming Server ξεκίνησε στο port " + SERVER_PORT);
-            logger.info("Διαθέσιμα βίντεο: " + getTotalVideoCount());
-            
+
+            statusListener.statusChanged(Status.RUNNING, null);
+
+            logger.info("Streaming Server ξεκίνησε στο port " + config.getPort());
+
             // Thread για χειρισμό clients
-            new Thread(this::handleClients).start();
-            
+            new Thread(this::handleClients, "client-acceptor").start();
+
+            if (config.getProbePort() > 0) {
+                try {
+                    probeResponder = new ProbeResponder(config.getProbePort());
+                    probeResponder.start();
+                } catch (SocketException e) {
+                    // Χωρίς probe ο client επιλέγει πρωτόκολλο χωρίς μετρήσεις
+                    logger.warning("Δεν ξεκίνησε ο probe responder: " + e.getMessage());
+                }
+            }
+
+            if (edgeCache != null) {
+                // Ο edge δεν κάνει transcoding: οι εκδόσεις έρχονται έτοιμες από τον origin
+                logger.info("Λειτουργία edge με origin " + config.getOriginHost() + ":" + config.getOriginPort());
+                startPrewarming();
+                return;
+            }
+            if (clusterFront != null) {
+                logger.info("Λειτουργία front για τους κόμβους " + clusterFront.getNodes());
+                return;
+            }
+
+            catalog.setCodecs(config.getCodecs());
+            streamer.setTargetKbps(catalog::targetKbps);
+            if (config.isJustInTime()) {
+                catalog.setJustInTime(new HashSet<>(config.getBaseLadder()),
+                                      config.getLong(ServerConfig.RENDITIONS_QUOTA_MB, 10_240) * 1024 * 1024,
+                                      config.getDouble(ServerConfig.RENDITIONS_HALF_LIFE_HOURS, 6));
+                streamer.setInputSource(catalog);
+            }
+
+            if (config.getFilePort() > 0) {
+                fileServer = new OriginFileServer(config.getFilePort(), catalog);
+                fileServer.start();
+            }
+
+            // Ζωντανά κανάλια: αναμονή ροής σε κάθε θύρα ingest
+            for (String spec : config.getIngests()) {
+                LiveIngest ingest = LiveIngest.fromSpec(spec, config.getIngestLadder(), catalog);
+                ingest.start();
+                ingests.add(ingest);
+            }
+
+            // Επεξεργασία υπαρχόντων βίντεο στο background
+            catalog.processVideosAsync().thenRun(() ->
+                logger.info("Διαθέσιμα βίντεο: " + catalog.getTotalVideoCount()));
+            startPrewarming();
+
         } catch (IOException e) {
             logger.severe("Σφάλμα εκκίνησης server: " + e.getMessage());
             isRunning = false;
-            statusLabel.setText("Σφάλμα εκκίνησης");
-            statusLabel.setForeground(Color.RED);
+            statusListener.statusChanged(Status.ERROR, e.getMessage());
+        }
+    }
+
+    // Ο front δεν έχει αρχεία: η προετοιμασία γίνεται στους κόμβους, που βλέπουν τα ίδια αιτήματα
+    private void startPrewarming() {
+        int intervalSeconds = config.getInt(ServerConfig.PREWARM_INTERVAL_S, 60);
+        Path folder = Paths.get(config.getVideosFolder());
+        popularity.load(folder.resolve(PopularityTracker.STATE_FILE));
+        if (intervalSeconds <= 0) {
+            return;
         }
+        Prewarmer prewarmer = new Prewarmer(popularity, folder, edgeCache == null ? catalog : null, edgeCache,
+                                            config.getInt(ServerConfig.PREWARM_TITLES, 5),
+                                            config.getDouble(ServerConfig.PREWARM_MIN_SCORE, 3),
+                                            config.getLong(ServerConfig.PREWARM_HEAD_MB, 4) * 1024 * 1024);
+        prewarmScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "prewarmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prewarmScheduler.scheduleWithFixedDelay(prewarmer, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
     }
-    
-    public void stopServer() {
+
+    public synchronized void stopServer() {
         if (!isRunning) {
             return;
         }
-        
+
         try {
             isRunning = false;
-            
-            // Αποσύνδεση τρέχοντος client
-            if (clientConnected) {
+
+            // Αποσύνδεση των clients
+            if (isClientConnected()) {
                 disconnectCurrentClient();
             }
-            
+
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
             }
-            
-            statusLabel.setText("Σταματημένος");
-            statusLabel.setForeground(Color.RED);
+            if (probeResponder != null) {
+                probeResponder.close();
+                probeResponder = null;
+            }
+            if (fileServer != null) {
+                fileServer.close();
+                fileServer = null;
+            }
+            for (LiveIngest ingest : ingests) {
+                ingest.close();
+            }
+            ingests.clear();
+            if (origin != null) {
+                origin.close();
+                origin = null;
+            }
+            if (edgeCache != null) {
+                logger.info(edgeCache.toString());
+            }
+            if (clusterFront != null) {
+                clusterFront.close();
+            }
+            if (prewarmScheduler != null) {
+                prewarmScheduler.shutdownNow();
+                prewarmScheduler = null;
+                popularity.save(Paths.get(config.getVideosFolder(), PopularityTracker.STATE_FILE));
+                logger.info(popularity.toString());
+            }
+            if (catalog.getRenditionCache() != null) {
+                catalog.getRenditionCache().save();
+                logger.info(catalog.getRenditionCache().toString());
+            }
+
+            statusListener.statusChanged(Status.STOPPED, null);
             logger.info("Streaming Server σταμάτησε");
-            
+
         } catch (IOException e) {
             logger.severe("Σφάλμα κατά τη διακοπή του server: " + e.getMessage());
         }
     }
-    
+
+    // Κόμβος cluster: μόνο οι ταινίες που του αναθέτει ο δακτύλιος (και τα αντίγραφα των δημοφιλών)
+    private void configureShard() {
+        ConsistentHashRing ring = new ConsistentHashRing(config.getClusterNodes());
+        String self = config.getClusterNode();
+        if (!ring.getNodes().contains(self)) {
+            logger.warning("Ο κόμβος " + self + " δεν υπάρχει στο " + ServerConfig.CLUSTER_NODES + " και δεν θα έχει ταινίες");
+        }
+        catalog.setOwnership(movieName -> ring.nodesFor(movieName, config.getReplicas(movieName)).contains(self));
+        logger.info("Κόμβος cluster " + self + " (" + ring.getNodes().size() + " κόμβοι)");
+    }
+
+    public void refreshVideos() {
+        if (edgeCache == null && clusterFront == null) {
+            catalog.processVideosAsync();
+        }
+    }
+
+    public boolean isClientConnected() {
+        return !sessions.isEmpty();
+    }
+
     private void handleClients() {
         while (isRunning) {
             try {
                 Socket newClientSocket = serverSocket.accept();
                 String clientAddress = newClientSocket.getInetAddress().toString();
-                
-                // Αποσύνδεση προηγούμενου client αν υπάρχει
-                if (clientConnected && currentClientSocket != null) {
+
+                // Στο όριο συνδέσεων αποσυνδέεται ο παλαιότερος client
+                if (sessions.size() >= config.getMaxClients()) {
                     logger.warning("Νέος client προσπαθεί να συνδεθεί. Αποσύνδεση προηγούμενου client...");
-                    disconnectCurrentClient();
+                    disconnect(sessions.peekFirst());
                 }
-                
+
                 // Σύνδεση νέου client
-                currentClientSocket = newClientSocket;
-                currentClientInput = new BufferedReader(new InputStreamReader(currentClientSocket.getInputStream()));
-                currentClientOutput = new PrintWriter(currentClientSocket.getOutputStream(), true);
-                clientConnected = true;
-                
+                ClientSession session = new ClientSession(newClientSocket, this::handleRequest, requestWorkers);
+                sessions.addLast(session);
+
                 logger.info("Νέα σύνδεση από: " + clientAddress);
                 updateClientStatus();
-                
+
                 // Χειρισμός του client σε ξεχωριστό thread
-                new Thread(() -> handleSingleClient()).start();
-                
+                new Thread(() -> handleSingleClient(session)).start();
+
             } catch (IOException e) {
                 if (isRunning) {
                     logger.severe("Σφάλμα αποδοχής client: " + e.getMessage());
@@ -221,544 +329,369 @@ public class StreamingServer {
             }
         }
     }
-    
-    private void handleSingleClient() {
+
+    private void handleSingleClient(ClientSession session) {
         try {
-            String request;
-            while (clientConnected && (request = currentClientInput.readLine()) != null) {
-                logger.info("Λήφθηκε αίτημα: " + request);
-                
-                String[] parts = request.split(":");
-                String command = parts[0];
-                
-                switch (command) {
-                    case "GET_VIDEOS":
-                        handleGetVideos(parts, currentClientOutput);
-                        break;
-                    case "START_STREAM":
-                        handleStartStream(parts, currentClientOutput);
-                        break;
-                    default:
-                        currentClientOutput.println("ERROR:Άγνωστη εντολή");
-                }
-            }
-            
+            session.run();
         } catch (IOException e) {
-            if (clientConnected) {
+            if (session.isOpen()) {
                 logger.warning("Σφάλμα επικοινωνίας με client: " + e.getMessage());
             }
         } finally {
-            disconnectCurrentClient();
+            disconnect(session);
         }
     }
-    
-    private void disconnectCurrentClient() {
-        if (currentClientSocket != null) {
-            try {
-                currentClientSocket.close();
-                logger.info("Αποσυνδέθηκε client");
-            } catch (IOException e) {
-                logger.warning("Σφάλμα κλεισίματος client socket: " + e.getMessage());
-            }
+
+    private ControlProtocol.Message handleRequest(ClientSession session, ControlProtocol.Message request) {
+        recordPopularity(request);
+        switch (request.command) {
+            case "GET_VIDEOS":
+                if (clusterFront != null) {
+                    return clusterFront.getVideos(request);
+                }
+                return edgeCache != null ? forwardToOrigin(request) : handleGetVideos(request);
+            case "GET_VIDEOS_PAGE":
+                if (clusterFront != null) {
+                    return clusterFront.getVideosPage(request);
+                }
+                return edgeCache != null ? forwardToOrigin(request) : handleGetVideosPage(request);
+            case "START_STREAM":
+                return clusterFront != null ? clusterFront.startStream(session, request) : handleStartStream(session, request);
+            case "STOP":
+                return handleStop(session, request);
+            default:
+                return request.reply("ERROR", "Άγνωστη εντολή");
         }
-        
-        currentClientSocket = null;
-        currentClientInput = null;
-        currentClientOutput = null;
-        clientConnected = false;
-        updateClientStatus();
     }
-    
-    private void updateClientStatus() {
-        SwingUtilities.invokeLater(() -> {
-            if (clientConnected && currentClientSocket != null) {
-                statusLabel.setText("Συνδεδεμένος client: " + currentClientSocket.getInetAddress());
-                statusLabel.setForeground(Color.BLUE);
-            } else if (isRunning) {
-                statusLabel.setText("Σε λειτουργία - Αναμονή client");
-                statusLabel.setForeground(Color.GREEN);
-            } else {
-                statusLabel.setText("Σταματημένος");
-                statusLabel.setForeground(Color.RED);
-            }
-        });
-    }
-    
-    private void handleGetVideos(String[] parts, PrintWriter out) {
-        if (parts.length < 3) {
-            out.println("ERROR:Λανθασμένη μορφή αιτήματος");
-            return;
-        }
-        
+
+    private void recordPopularity(ControlProtocol.Message request) {
         try {
-            double connectionSpeed = Double.parseDouble(parts[1]); // Mbps
-            String format = parts[2]; // π.χ. ".mkv"
-            
-            List<VideoFile> suitableVideos = getSuitableVideos(connectionSpeed, format);
-            
-            StringBuilder response = new StringBuilder("VIDEO_LIST:");
-            for (VideoFile video : suitableVideos) {
-                response.append(video.toString()).append(";");
+            if (request.command.equals("START_STREAM") && !request.args.isEmpty()) {
+                popularity.recordStream(request.arg(0));
+            } else if (request.command.startsWith("GET_VIDEOS") && request.args.size() >= 2 && cursorIsEmpty(request)) {
+                popularity.recordListing(Double.parseDouble(request.arg(0)), request.arg(1));
             }
-            
-            out.println(response.toString());
-            logger.info("Στάλθηκαν " + suitableVideos.size() + " κατάλληλα βίντεο για speed " + 
-                       connectionSpeed + "Mbps και format " + format);
-            
         } catch (NumberFormatException e) {
-            out.println("ERROR:Λανθασμένη ταχύτητα σύνδεσης");
+            // Το λάθος αίτημα απαντάται παρακάτω με ERROR
         }
     }
-    
-    private void handleStartStream(String[] parts, PrintWriter out) {
-        if (parts.length < 3) {
-            out.println("ERROR:Λανθασμένη μορφή αιτήματος");
-            return;
-        }
-        
-        String fileName = parts[1];
-        String protocol = parts[2];
-        
+
+    // Μόνο η πρώτη σελίδα μετρά, ώστε ένας μεγάλος κατάλογος να μη μετρά πολλές φορές
+    private static boolean cursorIsEmpty(ControlProtocol.Message request) {
+        return !request.command.equals("GET_VIDEOS_PAGE") || (request.args.size() > 2 && request.arg(2).isEmpty());
+    }
+
+    // Στον edge ο κατάλογος είναι του origin: το αίτημα προωθείται αυτούσιο (και με ETag/cursor)
+    private ControlProtocol.Message forwardToOrigin(ControlProtocol.Message request) {
         try {
-            // Ξεκίνησε το streaming σε background
-            startVideoStreamingAsync(fileName, protocol);
-            
-            // Περίμενε λίγο για να ξεκινήσει ο server
-            Thread.sleep(2000);
-            
-            out.println("STREAM_STARTED:" + fileName + ":" + protocol);
-            logger.info("Ξεκίνησε streaming για: " + fileName + " με πρωτόκολλο " + protocol);
-            
+            ControlProtocol.Message reply = originClient().request(ORIGIN_TIMEOUT_MS, request.command, request.args).get();
+            return request.reply(reply.command, reply.args);
         } catch (Exception e) {
-            out.println("ERROR:Σφάλμα εκκίνησης streaming: " + e.getMessage());
-            logger.severe("Σφάλμα streaming: " + e.getMessage());
+            Throwable cause = ControlClient.unwrap(e);
+            logger.warning("Αποτυχία προώθησης στον origin: " + cause.getMessage());
+            return request.reply("ERROR", "Ο origin δεν είναι διαθέσιμος");
         }
     }
-    
-    private void startVideoStreamingAsync(String fileName, String protocol) {
-        // Εκτέλεση σε ξεχωριστό thread για να μην μπλοκάρει τη σύνδεση
-        new Thread(() -> {
-            try {
-                startVideoStreaming(fileName, protocol);
-            } catch (Exception e) {
-                logger.severe("Σφάλμα async streaming: " + e.getMessage());
+
+    // Μία σύνδεση ελέγχου προς τον origin για όλους τους clients του edge, με επανασύνδεση
+    private synchronized ControlClient originClient() throws IOException {
+        if (origin == null || !origin.isConnected()) {
+            if (origin != null) {
+                origin.close();
             }
-        }).start();
+            origin = new ControlClient(config.getOriginHost(), config.getOriginPort());
+            origin.connect(5000, true);
+        }
+        return origin;
     }
-    
-    private void processVideos() {
-        logger.info("Ξεκίνησε επεξεργασία βίντεο...");
-        
+
+    // Αποσύνδεση όλων των clients
+    public synchronized void disconnectCurrentClient() {
+        for (ClientSession session : sessions) {
+            disconnect(session);
+        }
+    }
+
+    private synchronized void disconnect(ClientSession session) {
+        if (session == null) {
+            return;
+        }
+        session.close();
+        if (sessions.remove(session)) {
+            logger.info("Αποσυνδέθηκε client");
+            updateClientStatus();
+        }
+    }
+
+    private void updateClientStatus() {
+        ClientSession session = sessions.peekLast();
+        if (session != null) {
+            int others = sessions.size() - 1;
+            statusListener.statusChanged(Status.CLIENT_CONNECTED, session.getClientAddress().toString() +
+                                         (others > 0 ? " (+" + others + ")" : ""));
+        } else if (isRunning) {
+            statusListener.statusChanged(Status.RUNNING, null);
+        } else {
+            statusListener.statusChanged(Status.STOPPED, null);
+        }
+    }
+
+    private ControlProtocol.Message handleGetVideos(ControlProtocol.Message request) {
+        if (request.args.size() < 2) {
+            return request.reply("ERROR", "Λανθασμένη μορφή αιτήματος");
+        }
+
         try {
-            Path videosPath = Paths.get(VIDEOS_FOLDER);
-            if (!Files.exists(videosPath)) {
-                Files.createDirectories(videosPath);
-                logger.info("Δημιουργήθηκε φάκελος videos");
-                return;
+            double connectionSpeed = Double.parseDouble(request.arg(0)); // Mbps
+            String format = request.arg(1); // π.χ. ".mkv"
+
+            // Τρίτο όρισμα: ETag της cached λίστας του client (ή "*" αν δεν έχει)
+            if (request.args.size() >= 3) {
+                return handleConditionalGetVideos(request, connectionSpeed, format, request.arg(2));
             }
-            
-            // Καθαρισμός υπάρχουσας λίστας
-            availableVideos.clear();
-            
-            // Εύρεση όλων των υπαρχόντων αρχείων
-            Map<String, List<VideoFile>> existingFiles = new HashMap<>();
-            
-            Files.list(videosPath)
-                .filter(Files::isRegularFile)
-                .forEach(file -> {
-                    VideoFile videoFile = parseVideoFile(file.getFileName().toString());
-                    if (videoFile != null) {
-                        existingFiles.computeIfAbsent(videoFile.movieName, k -> new ArrayList<>())
-                                   .add(videoFile);
-                    }
-                });
-            
-            // Για κάθε ταινία, δημιουργία όλων των απαιτούμενων εκδόσεων
-            for (Map.Entry<String, List<VideoFile>> entry : existingFiles.entrySet()) {
-                String movieName = entry.getKey();
-                List<VideoFile> existingVersions = entry.getValue();
-                
-                // Εύρεση της μέγιστης ανάλυσης που υπάρχει
-                String maxResolution = findMaxResolution(existingVersions);
-                
-                // Δημιουργία όλων των απαιτούμενων εκδόσεων
-                generateMissingVersions(movieName, existingVersions, maxResolution);
-                
-                // Ενημέρωση λίστας διαθέσιμων βίντεο
-                availableVideos.put(movieName, getAllVersionsForMovie(movieName));
-            }
-            
-            logger.info("Ολοκληρώθηκε επεξεργασία βίντεο. Συνολικά: " + getTotalVideoCount() + " αρχεία");
-            
-        } catch (IOException e) {
-            logger.severe("Σφάλμα επεξεργασίας βίντεο: " + e.getMessage());
-        }
-    }
-    
-    private VideoFile parseVideoFile(String filename) {
-        // Pattern για parsing: MovieName-ResolutionFormat (π.χ. Forrest_Gump-720p.mkv)
-        Pattern pattern = Pattern.compile("(.+)-(\\d+p)\\.(avi|mp4|mkv)$");
-        Matcher matcher = pattern.matcher(filename);
-        
-        if (matcher.matches()) {
-            String movieName = matcher.group(1);
-            String resolution = matcher.group(2);
-            String format = "." + matcher.group(3);
-            
-            return new VideoFile(movieName, format, resolution, filename);
-        }
-        
-        return null;
+
+            List<VideoFile> suitableVideos = catalog.getSuitableVideos(connectionSpeed, format);
+
+            List<String> names = new ArrayList<>(suitableVideos.size());
+            for (VideoFile video : suitableVideos) {
+                names.add(video.toString());
+            }
+
+            logger.info("Στάλθηκαν " + suitableVideos.size() + " κατάλληλα βίντεο για speed " +
+                       connectionSpeed + "Mbps και format " + format);
+            return request.reply("VIDEO_LIST", names);
+
+        } catch (NumberFormatException e) {
+            return request.reply("ERROR", "Λανθασμένη ταχύτητα σύνδεσης");
+        }
     }
-    
-    private String findMaxResolution(List<VideoFile> videos) {
-        int maxResolutionValue = 0;
-        String maxResolution = "240p";
-        
-        for (VideoFile video : videos) {
-            int resolutionValue = Integer.parseInt(video.resolution.replace("p", ""));
-            if (resolutionValue > maxResolutionValue) {
-                maxResolutionValue = resolutionValue;
-                maxResolution = video.resolution;
-            }
-        }
-        
-        return maxResolution;
-    }
-    
-    private void generateMissingVersions(String movieName, List<VideoFile> existingVersions, String maxResolution) {
-        Set<String> existingCombinations = new HashSet<>();
-        VideoFile sourceFile = null;
-        
-        // Δημιουργία set με υπάρχουσες εκδόσεις
-        for (VideoFile video : existingVersions) {
-            existingCombinations.add(video.format + "-" + video.resolution);
-            if (sourceFile == null || 
-                Integer.parseInt(video.resolution.replace("p", "")) > 
-                Integer.parseInt(sourceFile.resolution.replace("p", ""))) {
-                sourceFile = video;
-            }
-        }
-        
-        if (sourceFile == null) return;
-        
-        int maxResolutionValue = Integer.parseInt(maxResolution.replace("p", ""));
-        
-        // Δημιουργία όλων των απαιτούμενων εκδόσεων
-        for (String format : FORMATS) {
-            for (String resolution : RESOLUTIONS) {
-                int resolutionValue = Integer.parseInt(resolution.replace("p", ""));
-                
-                // Δεν δημιουργούμε ανάλυση μεγαλύτερη από τη μέγιστη υπάρχουσα
-                if (resolutionValue > maxResolutionValue) {
-                    continue;
-                }
-                
-                String combination = format + "-" + resolution;
-                if (!existingCombinations.contains(combination)) {
-                    // Δημιουργία νέου αρχείου
-                    generateVideoFile(sourceFile, movieName, format, resolution);
+
+    // ETag = <id καταλόγου>-<έκδοση καταλόγου>.<κλειδί φίλτρου>, π.χ. "3k9x2f0q7a1b-42.mp4.1500.7".
+    // ETag άλλης εκτέλεσης του server (άλλο id) παίρνει πάντα ολόκληρη τη λίστα.
+    private ControlProtocol.Message handleConditionalGetVideos(ControlProtocol.Message request,
+            double connectionSpeed, String format, String clientETag) {
+        String filterKey = catalog.getFilterKey(connectionSpeed, format);
+        String instancePrefix = catalog.getInstanceId() + "-";
+        long currentVersion = catalog.getVersion();
+        String currentETag = instancePrefix + currentVersion + "." + filterKey;
+
+        int dot = clientETag.indexOf('.');
+        if (clientETag.startsWith(instancePrefix) && dot > instancePrefix.length() &&
+                clientETag.substring(dot + 1).equals(filterKey)) {
+            try {
+                long clientVersion = Long.parseLong(clientETag.substring(instancePrefix.length(), dot));
+                List<VideoCatalog.CatalogChange> changes = catalog.getChangesSince(clientVersion);
+                if (changes != null) {
+                    int connectionSpeedKbps = catalog.effectiveKbps(connectionSpeed);
+                    List<String> delta = new ArrayList<>();
+                    delta.add(currentETag);
+                    for (VideoCatalog.CatalogChange change : changes) {
+                        if (catalog.isSuitable(change.video, connectionSpeedKbps, format)) {
+                            delta.add((change.added ? "+" : "-") + change.video);
+                        }
+                    }
+                    if (delta.size() == 1) {
+                        logger.info("GET_VIDEOS: NOT_MODIFIED (" + currentETag + ")");
+                        return request.reply("NOT_MODIFIED", currentETag);
+                    }
+                    logger.info("GET_VIDEOS: delta " + (delta.size() - 1) + " αλλαγών (" + clientETag + " -> " + currentETag + ")");
+                    return request.reply("VIDEO_DELTA", delta);
                 }
+            } catch (NumberFormatException e) {
+                // Άκυρο ETag: στέλνουμε ολόκληρη τη λίστα
             }
         }
+
+        // Μεγάλες βιβλιοθήκες: αντί για μία τεράστια γραμμή στέλνουμε την πρώτη σελίδα
+        // και ο client συνεχίζει με GET_VIDEOS_PAGE
+        if (catalog.countSuitableVideos(connectionSpeed, format, pageSize) > pageSize) {
+            VideoCatalog.Page page = catalog.getPage(connectionSpeed, format, "", pageSize, "", null);
+            logger.info("GET_VIDEOS: μεγάλος κατάλογος, αποστολή σε σελίδες των " + pageSize);
+            return pageReply(request, page);
+        }
+
+        List<VideoFile> suitableVideos = catalog.getSuitableVideos(connectionSpeed, format);
+        List<String> snapshot = new ArrayList<>(suitableVideos.size() + 1);
+        snapshot.add(currentETag);
+        for (VideoFile video : suitableVideos) {
+            snapshot.add(video.toString());
+        }
+        logger.info("Στάλθηκαν " + suitableVideos.size() + " κατάλληλα βίντεο για speed " +
+                   connectionSpeed + "Mbps και format " + format + " (" + currentETag + ")");
+        return request.reply("VIDEO_SNAPSHOT", snapshot);
     }
-    
-    private void generateVideoFile(VideoFile sourceFile, String movieName, String targetFormat, String targetResolution) {
-        String outputFilename = movieName + "-" + targetResolution + targetFormat;
-        String outputPath = VIDEOS_FOLDER + "/" + outputFilename;
-        String sourcePath = VIDEOS_FOLDER + "/" + sourceFile.filename;
-        
+
+    // GET_VIDEOS_PAGE:<Mbps>:<format|*>:<cursor>:<limit>[:<prefix>[:<maxResolution|*>]]
+    private ControlProtocol.Message handleGetVideosPage(ControlProtocol.Message request) {
+        if (request.args.size() < 4) {
+            return request.reply("ERROR", "Λανθασμένη μορφή αιτήματος");
+        }
+
         try {
-            // Έλεγχος αν το αρχείο υπάρχει ήδη
-            if (Files.exists(Paths.get(outputPath))) {
-                logger.info("Το αρχείο υπάρχει ήδη: " + outputFilename);
-                return;
+            double connectionSpeed = Double.parseDouble(request.arg(0));
+            String format = request.arg(1);
+            String cursor = request.arg(2);
+            int limit = Integer.parseInt(request.arg(3));
+            String prefix = request.args.size() > 4 ? request.arg(4) : "";
+            String maxResolution = request.args.size() > 5 && !request.arg(5).equals("*") ? request.arg(5) : null;
+
+            return pageReply(request, catalog.getPage(connectionSpeed, format, cursor, limit, prefix, maxResolution));
+
+        } catch (NumberFormatException e) {
+            return request.reply("ERROR", "Λανθασμένες παράμετροι σελίδας");
+        }
+    }
+
+    // VIDEO_PAGE:<nextCursor>:videos...
+    private ControlProtocol.Message pageReply(ControlProtocol.Message request, VideoCatalog.Page page) {
+        List<String> reply = new ArrayList<>(page.items.size() + 1);
+        reply.add(page.nextCursor);
+        for (VideoFile video : page.items) {
+            reply.add(video.toString());
+        }
+        return request.reply("VIDEO_PAGE", reply);
+    }
+
+    private ControlProtocol.Message handleStartStream(ClientSession session, ControlProtocol.Message request) {
+        if (request.args.size() < 2) {
+            return request.reply("ERROR", "Λανθασμένη μορφή αιτήματος");
+        }
+
+        String fileName = request.arg(0);
+        String protocol = request.arg(1);
+
+        // Προαιρετικές επιλογές μετά το πρωτόκολλο, π.χ. START_STREAM:file:UDP:fec=10x10
+        Map<String, String> options = new HashMap<>();
+        for (String option : request.args.subList(2, request.args.size())) {
+            int eq = option.indexOf('=');
+            if (eq > 0) {
+                options.put(option.substring(0, eq), option.substring(eq + 1));
+            }
+        }
+
+        // Από τον front του cluster: το stream πηγαίνει στον θεατή, όχι σε αυτόν που ρωτά
+        InetAddress target = session.getClientAddress();
+        String viewer = options.remove("client");
+        if (viewer != null) {
+            if (!isTrustedFront(target)) {
+                logger.warning("Απόρριψη client=" + viewer + " από μη εξουσιοδοτημένο " + target);
+                return request.reply("ERROR", "Η επιλογή client επιτρέπεται μόνο στον front");
             }
-            
-            logger.info("Δημιουργία: " + outputFilename + " από " + sourceFile.filename);
-            
-            // Πραγματική μετατροπή με FFMPEG
-            if (isFFMPEGAvailable()) {
-                convertVideoWithFFMPEG(sourcePath, outputPath, targetFormat, targetResolution);
-            } else {
-                // Fallback σε dummy file αν δεν υπάρχει FFMPEG
-                logger.warning("FFMPEG δεν είναι διαθέσιμο, δημιουργία dummy file");
-                createDummyVideoFile(outputPath, targetFormat);
-            }
-            
-            logger.info("Δημιουργήθηκε επιτυχώς: " + outputFilename);
-            
-        } catch (Exception e) {
-            logger.warning("Σφάλμα δημιουργίας " + outputFilename + ": " + e.getMessage());
-            // Fallback σε dummy file σε περίπτωση σφάλματος
             try {
-                createDummyVideoFile(outputPath, targetFormat);
-            } catch (IOException ex) {
-                logger.severe("Αποτυχία δημιουργίας ακόμα και dummy file: " + ex.getMessage());
+                target = InetAddress.getByName(viewer);
+            } catch (UnknownHostException e) {
+                return request.reply("ERROR", "Άγνωστη διεύθυνση client: " + viewer);
             }
         }
-    }
-    
-    private boolean isFFMPEGAvailable() {
-        try {
-            ProcessBuilder pb = new ProcessBuilder("ffmpeg", "-version");
-            Process process = pb.start();
-            int exitCode = process.waitFor();
-            return exitCode == 0;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-    
-    private void convertVideoWithFFMPEG(String inputPath, String outputPath, String targetFormat, String targetResolution) 
-            throws IOException, InterruptedException {
-        
-        String scale = getScaleForResolution(targetResolution);
-        
-        List<String> command = Arrays.asList(
-            "ffmpeg", "-i", inputPath,
-            "-vf", "scale=" + scale,
-            "-c:v", "libx264",
-            "-c:a", "aac",
-            "-preset", "fast",
-            "-crf", "23",
-            "-y", // Overwrite output file
-            outputPath
-        );
-        
-        logger.info("Εκτέλεση FFMPEG: " + String.join(" ", command));
-        
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.redirectErrorStream(true);
-        
-        Process process = pb.start();
-        
-        // Διάβασμα output για monitoring
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Εμφάνιση progress (προαιρετικά)
-                if (line.contains("time=") || line.contains("frame=")) {
-                    logger.fine("FFMPEG Progress: " + line);
-                }
+
+        // Ζωντανό κανάλι: ο θεατής συνδέεται στην ανάλυση που ήδη κωδικοποιείται, χωρίς αναμονή
+        LiveIngest channel = liveChannel(fileName);
+        if (channel != null) {
+            try {
+                session.setActiveStream(channel.watch(fileName, protocol, options, target));
+                logger.info("Ξεκίνησε ζωντανή μετάδοση " + fileName + " με πρωτόκολλο " + protocol);
+                return request.reply("STREAM_STARTED", fileName, protocol);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warning("Σφάλμα ζωντανής μετάδοσης " + fileName + ": " + e.getMessage());
+                return request.reply("ERROR", "Σφάλμα εκκίνησης streaming: " + e.getMessage());
             }
         }
-        
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new RuntimeException("FFMPEG απέτυχε με κωδικό: " + exitCode);
-        }
-    }
-    
-    private void createDummyVideoFile(String outputPath, String format) throws IOException {
-        // Δημιουργία ενός minimal valid video file για δοκιμή
-        // Αυτό είναι για την άσκηση - στην πραγματικότητα θα χρησιμοποιείτε FFMPEG
-        
-        byte[] dummyContent;
-        
-        switch (format) {
-            case ".mp4":
-                // Minimal MP4 header
-                dummyContent = new byte[]{
-                    0x00, 0x00, 0x00, 0x20, 0x66, 0x74, 0x79, 0x70, // ftyp box
-                    0x69, 0x73, 0x6F, 0x6D, 0x00, 0x00, 0x02, 0x00,
-                    0x69, 0x73, 0x6F, 0x6D, 0x69, 0x73, 0x6F, 0x32,
-                    0x61, 0x76, 0x63, 0x31, 0x6D, 0x70, 0x34, 0x31
-                };
-                break;
-            case ".mkv":
-                // Minimal MKV header (EBML)
-                dummyContent = new byte[]{
-                    0x1A, 0x45, (byte)0xDF, (byte)0xA3, // EBML signature
-                    0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x1F,
-                    0x42, (byte)0x86, (byte)0x81, 0x01, 0x42, (byte)0xF7, (byte)0x81, 0x01,
-                    0x42, (byte)0xF2, (byte)0x81, 0x04, 0x42, (byte)0xF3, (byte)0x81, 0x08
-                };
-                break;
-            case ".avi":
-            default:
-                // Minimal AVI header
-                dummyContent = new byte[]{
-                    0x52, 0x49, 0x46, 0x46, // RIFF
-                    0x00, 0x00, 0x00, 0x00, // File size (placeholder)
-                    0x41, 0x56, 0x49, 0x20, // AVI 
-                    0x4C, 0x49, 0x53, 0x54  // LIST
-                };
-                break;
-        }
-        
-        Files.write(Paths.get(outputPath), dummyContent);
-    }
-    
-    private String getScaleForResolution(String resolution) {
-        switch (resolution) {
-            case "240p": return "426:240";
-            case "360p": return "640:360";
-            case "480p": return "854:480";
-            case "720p": return "1280:720";
-            case "1080p": return "1920:1080";
-            default: return "854:480";
-        }
-    }
-    
-    private List<VideoFile> getAllVersionsForMovie(String movieName) {
-        List<VideoFile> versions = new ArrayList<>();
-        
+
+        EdgeCache cache = edgeCache;
+        boolean pinned = false;
         try {
-            Files.list(Paths.get(VIDEOS_FOLDER))
-                .filter(Files::isRegularFile)
-                .forEach(file -> {
-                    VideoFile video = parseVideoFile(file.getFileName().toString());
-                    if (video != null && video.movieName.equals(movieName)) {
-                        versions.add(video);
-                    }
-                });
-        } catch (IOException e) {
-            logger.warning("Σφάλμα ανάγνωσης αρχείων για " + movieName + ": " + e.getMessage());
-        }
-        
-        return versions;
-    }
-    
-    private List<VideoFile> getSuitableVideos(double connectionSpeedMbps, String format) {
-        List<VideoFile> suitableVideos = new ArrayList<>();
-        int connectionSpeedKbps = (int) (connectionSpeedMbps * 1000);
-        
-        for (List<VideoFile> movieVersions : availableVideos.values()) {
-            for (VideoFile video : movieVersions) {
-                if (video.format.equals(format) && 
-                    MIN_BITRATES.get(video.resolution) <= connectionSpeedKbps) {
-                    suitableVideos.add(video);
-                }
+            if (cache != null) {
+                // Στον edge: η έκδοση από την τοπική cache, ή από τον origin (μία λήψη για ταυτόχρονα αιτήματα)
+                cache.acquire(fileName).get();
+                pinned = true;
+            }
+
+            // Ξεκίνησε το streaming σε background
+            VideoStreamer.Stream stream = streamer.startVideoStreaming(fileName, protocol, options, target);
+            if (cache != null) {
+                stream.onFinished().thenRun(() -> cache.release(fileName));
+                pinned = false;
+            }
+            session.setActiveStream(stream);
+
+            // Περίμενε λίγο για να ξεκινήσει ο server. Με άμεση έναρξη ο client έχει ήδη δεσμεύσει
+            // τη θύρα UDP και τα πρώτα πακέτα φτάνουν μόλις τα στείλει το FFMPEG.
+            if (!stream.isInstantStart()) {
+                Thread.sleep(2000);
+            }
+
+            logger.info("Ξεκίνησε streaming για: " + fileName + " με πρωτόκολλο " + protocol);
+            return request.reply("STREAM_STARTED", fileName, protocol);
+
+        } catch (Exception e) {
+            if (pinned) {
+                cache.release(fileName);
             }
+            Throwable cause = ControlClient.unwrap(e);
+            logger.severe("Σφάλμα streaming: " + cause.getMessage());
+            return request.reply("ERROR", "Σφάλμα εκκίνησης streaming: " + cause.getMessage());
         }
-        
-        suitableVideos.sort((a, b) -> a.toString().compareTo(b.toString()));
-        return suitableVideos;
-    }
-    
-    private void startVideoStreaming(String fileName, String protocol) throws IOException {
-        String inputPath = VIDEOS_FOLDER + "/" + fileName;
-        
-        // Έλεγχος αν το αρχείο υπάρχει
-        if (!Files.exists(Paths.get(inputPath))) {
-            throw new IOException("Το αρχείο δεν υπάρχει: " + inputPath);
-        }
-        
-        List<String> command = new ArrayList<>();
-        
-        switch (protocol.toUpperCase()) {
-            case "TCP":
-                command.addAll(Arrays.asList(
-                    "ffmpeg", "-re", "-i", inputPath,
-                    "-c:v", "libx264", "-c:a", "aac", 
-                    "-preset", "ultrafast", "-tune", "zerolatency",
-                    "-g", "30", "-keyint_min", "30", // Keyframes κάθε δευτερόλεπτο
-                    "-f", "mpegts", "tcp://localhost:9999?listen=1"
-                ));
-                break;
-                
-            case "UDP":
-                command.addAll(Arrays.asList(
-                    "ffmpeg", "-re", "-i", inputPath,
-                    "-c:v", "libx264", "-c:a", "aac", 
-                    "-preset", "ultrafast", "-tune", "zerolatency",
-                    "-g", "15", "-keyint_min", "15", // Περισσότερα keyframes για UDP
-                    "-x264opts", "nal-hrd=cbr", // Constant bitrate για καλύτερο UDP
-                    "-b:v", "1000k", "-maxrate", "1000k", "-bufsize", "2000k",
-                    "-f", "mpegts", "udp://localhost:9999?pkt_size=1316"
-                ));
-                break;
-                
-            case "RTP/UDP":
-                // Για RTP χρειάζεται SDP file
-                createSDPFile();
-                command.addAll(Arrays.asList(
-                    "ffmpeg", "-re", "-i", inputPath,
-                    "-c:v", "libx264", "-c:a", "aac", 
-                    "-preset", "ultrafast", "-tune", "zerolatency",
-                    "-g", "30", "-keyint_min", "30",
-                    "-f", "rtp", "rtp://localhost:9999"
-                ));
-                break;
-                
-            default:
-                throw new IllegalArgumentException("Μη υποστηριζόμενο πρωτόκολλο: " + protocol);
-        }
-        
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.redirectErrorStream(true);
-        
-        logger.info("Εκκίνηση FFMPEG streaming με εντολή: " + String.join(" ", command));
-        
-        // Εκκίνηση της διαδικασίας streaming σε ξεχωριστό thread
-        new Thread(() -> {
-            try {
-                Process process = pb.start();
-                BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.contains("time=") || line.contains("fps=") || line.contains("bitrate=")) {
-                        logger.info("FFMPEG Streaming: " + line);
-                    } else if (line.contains("error") || line.contains("Error")) {
-                        logger.warning("FFMPEG Error: " + line);
-                    }
-                }
-                int exitCode = process.waitFor();
-                logger.info("FFMPEG streaming process τερμάτισε με κωδικό: " + exitCode);
-            } catch (Exception e) {
-                logger.severe("Σφάλμα FFMPEG streaming: " + e.getMessage());
+    }
+
+    private synchronized LiveIngest liveChannel(String fileName) {
+        for (LiveIngest ingest : ingests) {
+            if (ingest.serves(fileName)) {
+                return ingest;
             }
-        }).start();
+        }
+        return null;
     }
-    
-    private void createSDPFile() {
-        try {
-            String sdpContent = 
-                "v=0\n" +
-                "o=- 0 0 IN IP4 127.0.0.1\n" +
-                "s=Test Stream\n" +
-                "c=IN IP4 127.0.0.1\n" +
-                "t=0 0\n" +
-                "m=video 9999 RTP/AVP 96\n" +
-                "a=rtpmap:96 H264/90000\n";
-            
-            Files.write(Paths.get("stream.sdp"), sdpContent.getBytes());
-            logger.info("Δημιουργήθηκε SDP file για RTP streaming");
-        } catch (IOException e) {
-            logger.warning("Σφάλμα δημιουργίας SDP file: " + e.getMessage());
-        }
-    }
-    
-    private int getTotalVideoCount() {
-        return availableVideos.values().stream()
-                             .mapToInt(List::size)
-                             .sum();
-    }
-    
-    // Inner class για αναπαράσταση αρχείου βίντεο
-    private static class VideoFile {
-        String movieName;
-        String format;
-        String resolution;
-        String filename;
-        
-        public VideoFile(String movieName, String format, String resolution, String filename) {
-            this.movieName = movieName;
-            this.format = format;
-            this.resolution = resolution;
-            this.filename = filename;
-        }
-        
-        @Override
-        public String toString() {
-            return movieName + "-" + resolution + format;
-        }
-    }
-    
+
+    private boolean isTrustedFront(InetAddress address) {
+        return address.isLoopbackAddress() || config.getTrustedFronts().contains(address.getHostAddress());
+    }
+
+    private ControlProtocol.Message handleStop(ClientSession session, ControlProtocol.Message request) {
+        boolean stopped = session.stopActiveStream();
+        logger.info(stopped ? "Διακόπηκε streaming κατόπιν αιτήματος" : "STOP χωρίς ενεργό streaming");
+        return request.reply("STOPPED", String.valueOf(stopped));
+    }
+
+    private void logStartupTime(long mainStartNanos) {
+        long sinceMainMs = (System.nanoTime() - mainStartNanos) / 1_000_000;
+        String sinceJvm = ProcessHandle.current().info().startInstant()
+            .map(start -> Duration.between(start, Instant.now()).toMillis() + " ms")
+            .orElse("άγνωστο");
+        logger.info("Χρόνος εκκίνησης έως αποδοχή συνδέσεων: " + sinceMainMs +
+                   " ms από τη main, " + sinceJvm + " από την εκκίνηση της JVM");
+    }
+
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> {
-            new StreamingServer();
-        });
+        // Χρονομέτρηση από την είσοδο στη main μέχρι να δέχεται συνδέσεις
+        long mainStartNanos = System.nanoTime();
+
+        ServerConfig config;
+        try {
+            config = ServerConfig.fromArgs(args);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Σφάλμα ρυθμίσεων: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        if (config.isHeadless()) {
+            // Χωρίς Swing/AWT: καμία κλάση GUI δεν φορτώνεται σε αυτή τη διαδρομή
+            System.setProperty("java.awt.headless", "true");
+
+            StreamingServer server = new StreamingServer(config);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::shutdown, "server-shutdown"));
+            server.startServer();
+
+            if (!server.isRunning()) {
+                System.exit(1);
+            }
+            server.logStartupTime(mainStartNanos);
+        } else {
+            javax.swing.SwingUtilities.invokeLater(() -> {
+                StreamingServer server = new StreamingServer(config);
+                Runtime.getRuntime().addShutdownHook(new Thread(server::shutdown, "server-shutdown"));
+                new ServerGUI(server);
+            });
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+import javax.swing.JTextArea;
+import javax.swing.Timer;
+
+// Handler για το JTextArea των logs: συγκεντρώνει τα μηνύματα και τα γράφει
+// στο EDT σε παρτίδες, αντί για ένα invokeLater ανά μήνυμα.
+public class TextAreaLogHandler extends Handler {
+    private static final int FLUSH_INTERVAL_MS = 250;
+    private static final int MAX_CHARS = 200_000;
+
+    private final JTextArea logArea;
+    private final StringBuilder pending = new StringBuilder();
+    private final Timer flushTimer;
+
+    public TextAreaLogHandler(JTextArea logArea) {
+        this.logArea = logArea;
+        setFormatter(new SimpleFormatter());
+
+        // Ο Swing Timer εκτελείται στο EDT
+        flushTimer = new Timer(FLUSH_INTERVAL_MS, e -> appendPending());
+        flushTimer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        String text = getFormatter().format(record);
+        synchronized (pending) {
+            pending.append(text);
+            // Αν το EDT καθυστερεί, κρατάμε μόνο τα πιο πρόσφατα
+            if (pending.length() > MAX_CHARS) {
+                pending.delete(0, pending.length() - MAX_CHARS);
+            }
+        }
+    }
+
+    private void appendPending() {
+        String batch;
+        synchronized (pending) {
+            if (pending.length() == 0) {
+                return;
+            }
+            batch = pending.toString();
+            pending.setLength(0);
+        }
+
+        logArea.append(batch);
+
+        // Περιορισμός μεγέθους για να μη μεγαλώνει απεριόριστα το document
+        int overflow = logArea.getDocument().getLength() - MAX_CHARS;
+        if (overflow > 0) {
+            logArea.replaceRange("", 0, overflow);
+        }
+        logArea.setCaretPosition(logArea.getDocument().getLength());
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() throws SecurityException {
+        flushTimer.stop();
+    }
+}
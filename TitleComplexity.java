@@ -0,0 +1,206 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.*;
+
+// Πολυπλοκότητα ανά ταινία: δοκιμαστικές κωδικοποιήσεις λίγων δευτερολέπτων σε χαμηλή ανάλυση
+// με σταθερή ποιότητα (CRF). Ο ρυθμός που χρειάστηκαν, σε σχέση με μια τυπική ταινία, δίνει έναν
+// συντελεστή για όλη τη σκάλα της: ένα κινούμενο σχέδιο παίρνει π.χ. 0.6 του πίνακα, μια ταινία
+// δράσης 1.5. Οι συντελεστές αποθηκεύονται στο .complexity του φακέλου μαζί με την πηγή που
+// αναλύθηκε, ώστε η ανάλυση να ξαναγίνεται μόνο αν αλλάξει η πηγή.
+public class TitleComplexity {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    static final String STATE_FILE = ".complexity";
+
+    // Οι δοκιμές: 3 τμήματα των 6 δευτερολέπτων (στο 10%, 50% και 90% της διάρκειας) σε 360p
+    private static final double[] SAMPLE_POSITIONS = {0.1, 0.5, 0.9};
+    private static final int SAMPLE_SECONDS = 6;
+    private static final String TRIAL_SCALE = "640:360";
+    // Ο ρυθμός μιας τυπικής ταινίας με τις ρυθμίσεις της δοκιμής (αντιστοιχεί στον πίνακα MIN_BITRATES)
+    private static final double REFERENCE_TRIAL_KBPS = 800;
+    private static final double MIN_FACTOR = 0.5;
+    private static final double MAX_FACTOR = 2.0;
+
+    private static class Entry {
+        final String source;
+        final long size;
+        final long modifiedMillis;
+        final double factor;
+
+        Entry(String source, long size, long modifiedMillis, double factor) {
+            this.source = source;
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.factor = factor;
+        }
+
+        boolean matches(Path file) throws IOException {
+            return Files.isRegularFile(file) && Files.size(file) == size &&
+                   Files.getLastModifiedTime(file).toMillis() == modifiedMillis;
+        }
+    }
+
+    private final Path folder;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Double>> inflight = new ConcurrentHashMap<>();
+    // Αυξάνεται σε κάθε νέο συντελεστή: αλλάζει τους ρυθμούς, άρα και τα ETag των λιστών
+    private final AtomicLong epoch = new AtomicLong();
+
+    public TitleComplexity(Path folder) {
+        this.folder = folder;
+        load();
+    }
+
+    private void load() {
+        Path state = folder.resolve(STATE_FILE);
+        if (!Files.exists(state)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(state)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warning("Σφάλμα ανάγνωσης " + STATE_FILE + ": " + e.getMessage());
+            return;
+        }
+        for (String movieName : properties.stringPropertyNames()) {
+            // Η πηγή τελευταία, αφού το όνομά της μπορεί να έχει κόμμα
+            String[] fields = properties.getProperty(movieName).split(",", 4);
+            if (fields.length < 4) {
+                continue;
+            }
+            try {
+                entries.put(movieName, new Entry(fields[3], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                                                 Double.parseDouble(fields[0])));
+            } catch (NumberFormatException e) {
+                logger.warning("Αγνοείται η εγγραφή " + movieName + " του " + STATE_FILE);
+            }
+        }
+    }
+
+    // Ο συντελεστής της ταινίας (1 = τυπική, ή αν δεν έχει αναλυθεί)
+    public double get(String movieName) {
+        Entry entry = entries.get(movieName);
+        return entry != null ? entry.factor : 1.0;
+    }
+
+    public long getEpoch() {
+        return epoch.get();
+    }
+
+    // Ανάλυση της πηγής αν δεν υπάρχει ήδη έγκυρη. Μπλοκάρει (καλείται από τα threads των transcodes)·
+    // ταυτόχρονες κλήσεις για την ίδια ταινία περιμένουν την ίδια ανάλυση.
+    public double analyze(VideoFile source, MediaInfo info) {
+        Path file = folder.resolve(source.filename);
+        Entry known = entries.get(source.movieName);
+        try {
+            // Η ανάλυση ισχύει όσο η πηγή της δεν έχει αλλάξει, ακόμα κι αν τώρα επιλέχθηκε άλλη ισοδύναμη
+            if (known != null && known.matches(folder.resolve(known.source))) {
+                return known.factor;
+            }
+        } catch (IOException e) {
+            return get(source.movieName);
+        }
+
+        CompletableFuture<Double> mine = new CompletableFuture<>();
+        CompletableFuture<Double> running = inflight.putIfAbsent(source.movieName, mine);
+        if (running != null) {
+            return running.join();
+        }
+        double factor = 1.0;
+        try {
+            try {
+                double trialKbps = trialEncode(file, info != null ? info.durationSeconds : 0);
+                factor = Math.max(MIN_FACTOR, Math.min(MAX_FACTOR, trialKbps / REFERENCE_TRIAL_KBPS));
+                logger.info(String.format("Πολυπλοκότητα %s: δοκιμή %.0f kbps, συντελεστής %.2f",
+                                          source.movieName, trialKbps, factor));
+            } catch (IOException e) {
+                // Καταγράφεται ως τυπική ώστε να μην ξαναδοκιμάζεται σε κάθε transcode της ταινίας
+                logger.warning("Αποτυχία ανάλυσης πολυπλοκότητας " + source.movieName + ": " + e.getMessage());
+            }
+            entries.put(source.movieName, new Entry(source.filename, Files.size(file),
+                                                    Files.getLastModifiedTime(file).toMillis(), factor));
+            epoch.incrementAndGet();
+            save();
+        } catch (IOException e) {
+            logger.warning("Αποτυχία ανάλυσης πολυπλοκότητας " + source.movieName + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            mine.complete(factor);
+            inflight.remove(source.movieName, mine);
+        }
+        return factor;
+    }
+
+    // Μέσος ρυθμός των δοκιμαστικών κωδικοποιήσεων· χωρίς γνωστή διάρκεια ένα τμήμα από την αρχή
+    private double trialEncode(Path file, double durationSeconds) throws IOException, InterruptedException {
+        List<Double> starts = new ArrayList<>();
+        if (durationSeconds > 3 * SAMPLE_SECONDS) {
+            for (double position : SAMPLE_POSITIONS) {
+                starts.add(Math.max(0, durationSeconds * position - SAMPLE_SECONDS / 2.0));
+            }
+        } else {
+            starts.add(0.0);
+        }
+        long totalBytes = 0;
+        for (double start : starts) {
+            List<String> command = Arrays.asList(
+                "ffmpeg", "-v", "error", "-ss", String.format(Locale.ROOT, "%.3f", start), "-t", String.valueOf(SAMPLE_SECONDS),
+                "-i", file.toString(), "-an", "-vf", "scale=" + TRIAL_SCALE,
+                "-c:v", "libx264", "-preset", "ultrafast", "-crf", "23",
+                "-f", "mpegts", "-"
+            );
+            Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            byte[] buffer = new byte[1 << 16];
+            try (InputStream in = process.getInputStream()) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    totalBytes += n;
+                }
+            }
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("Το FFMPEG απέτυχε με κωδικό " + exitCode);
+            }
+        }
+        if (totalBytes == 0) {
+            throw new IOException("Η δοκιμαστική κωδικοποίηση δεν έβγαλε δεδομένα");
+        }
+        double seconds = durationSeconds > 0 ? Math.min(durationSeconds, starts.size() * SAMPLE_SECONDS)
+                                             : SAMPLE_SECONDS;
+        return totalBytes * 8 / seconds / 1000;
+    }
+
+    // Κρατά μόνο τις ταινίες του καταλόγου
+    public void retain(Collection<String> movieNames) {
+        if (entries.keySet().retainAll(new HashSet<>(movieNames))) {
+            epoch.incrementAndGet();
+            save();
+        }
+    }
+
+    public synchronized void save() {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            Entry value = entry.getValue();
+            properties.setProperty(entry.getKey(), value.factor + "," + value.size + "," + value.modifiedMillis + "," + value.source);
+        }
+        try (OutputStream out = Files.newOutputStream(folder.resolve(STATE_FILE))) {
+            properties.store(out, "Per-title complexity: factor,size,mtime,source");
+        } catch (IOException e) {
+            logger.warning("Σφάλμα αποθήκευσης " + STATE_FILE + ": " + e.getMessage());
+        }
+    }
+}
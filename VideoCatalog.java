@@ -0,0 +1,871 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.Arrays;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.logging.*;
+import java.util.regex.Pattern;
+import java.util.regex.Matcher;
+import java.util.stream.Collectors;
+
+// Κατάλογος βίντεο: εύρεση αρχείων, δημιουργία εκδόσεων με FFMPEG και φιλτράρισμα.
+// Η δημιουργία γίνεται στο background και κάθε έκδοση δημοσιεύεται μόλις είναι έτοιμη.
+public class VideoCatalog implements VideoStreamer.InputSource {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    // Υποστηριζόμενα formats και αναλύσεις
+    public static final String[] FORMATS = {".avi", ".mp4", ".mkv"};
+    public static final String[] RESOLUTIONS = {"240p", "360p", "480p", "720p", "1080p"};
+
+    // Bitrate requirements σε Kbps
+    public static final Map<String, Integer> MIN_BITRATES = Map.of(
+        "240p", 300,
+        "360p", 400,
+        "480p", 500,
+        "720p", 1500,
+        "1080p", 3000
+    );
+
+    // Pattern για parsing: MovieName-Resolution[.codec]Format (π.χ. Forrest_Gump-720p.mkv, Forrest_Gump-720p.hevc.mkv)
+    private static final Pattern FILE_PATTERN = Pattern.compile("(.+)-(\\d+p)(?:\\.(hevc|av1))?\\.(avi|mp4|mkv)$");
+
+    private final String videosFolder;
+    private volatile Map<String, List<VideoFile>> availableVideos = new ConcurrentHashMap<>();
+    // Ταξινομημένο ευρετήριο όλων των εκδόσεων (κλειδί: όνομα προβολής) για σελιδοποίηση
+    private volatile ConcurrentSkipListMap<String, VideoFile> index = new ConcurrentSkipListMap<>();
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // Μία σελίδα αποτελεσμάτων· nextCursor κενό όταν δεν υπάρχουν άλλα
+    public static class Page {
+        final List<VideoFile> items;
+        final String nextCursor;
+
+        Page(List<VideoFile> items, String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    // Ένα thread για σάρωση/συντονισμό και ξεχωριστή δεξαμενή για τα transcodes
+    private final ExecutorService builder;
+    private final ExecutorService transcoders;
+    private CompletableFuture<Void> currentBuild = CompletableFuture.completedFuture(null);
+    private boolean rebuildQueued = false;
+
+    // Σε cluster ο κόμβος κρατά μόνο τις ταινίες του (consistent hashing στο όνομα ταινίας)
+    private volatile Predicate<String> ownership = movieName -> true;
+
+    // Λειτουργία JIT: στον δίσκο μόνο η πηγή και η βασική σκάλα (π.χ. "480p.mp4"). Οι υπόλοιπες
+    // εκδόσεις εμφανίζονται στον κατάλογο και δημιουργούνται με το πρώτο αίτημα.
+    private volatile RenditionCache renditions;
+    private volatile Set<String> baseLadder = new HashSet<>();
+    private final Map<String, VideoFile> sources = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> inflight = new ConcurrentHashMap<>();
+
+    // Ζωντανά κανάλια που εκπέμπουν τώρα (βλ. LiveIngest): οι εκδόσεις τους δεν είναι αρχεία,
+    // οπότε διατηρούνται και μετά από νέα σάρωση του φακέλου
+    private final Map<String, List<VideoFile>> live = new ConcurrentHashMap<>();
+
+    // Codecs των εκδόσεων (H.264 πάντα), όσα από τα ρυθμισμένα υποστηρίζει το FFMPEG
+    private volatile List<String> codecs = List.of(Codecs.H264);
+
+    // Πραγματικοί ρυθμοί (ffprobe) για το φιλτράρισμα αντί για τον πίνακα MIN_BITRATES
+    private final MetadataCache metadata;
+    // Συντελεστής ρυθμού ανά ταινία από δοκιμαστικές κωδικοποιήσεις
+    private final TitleComplexity complexity;
+
+    // Έκδοση καταλόγου: αυξάνεται σε κάθε αλλαγή και κρατάμε τις πρόσφατες αλλαγές
+    // ώστε να απαντάμε σε GET_VIDEOS υπό συνθήκη με NOT_MODIFIED ή delta
+    private static final int MAX_CHANGE_LOG = 10_000;
+    private final AtomicLong version = new AtomicLong();
+    private final Deque<CatalogChange> changeLog = new ArrayDeque<>();
+    // Η έκδοση και οι γενιές ξεκινούν από το 0 σε κάθε εκκίνηση, ενώ ο client κρατά το ETag στον
+    // δίσκο: το τυχαίο id της διεργασίας ξεχωρίζει τα ETag μιας προηγούμενης εκτέλεσης
+    private final String instanceId = Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36);
+
+    public static class CatalogChange {
+        final long version;
+        final boolean added;
+        final VideoFile video;
+
+        CatalogChange(long version, boolean added, VideoFile video) {
+            this.version = version;
+            this.added = added;
+            this.video = video;
+        }
+    }
+
+    public VideoCatalog(String videosFolder) {
+        this(videosFolder, 1);
+    }
+
+    public VideoCatalog(String videosFolder, int transcodeWorkers) {
+        this.videosFolder = videosFolder;
+        this.metadata = new MetadataCache(Paths.get(videosFolder));
+        this.complexity = new TitleComplexity(Paths.get(videosFolder));
+        this.builder = Executors.newSingleThreadExecutor(daemonThreads("catalog-builder"));
+        this.transcoders = Executors.newFixedThreadPool(Math.max(1, transcodeWorkers), daemonThreads("transcoder"));
+    }
+
+    private static java.util.concurrent.ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Ενεργοποίηση JIT πριν την πρώτη ανανέωση. quotaBytes 0 = χωρίς όριο για τις εκδόσεις κατά παραγγελία.
+    public void setJustInTime(Set<String> baseLadder, long quotaBytes, double halfLifeHours) throws IOException {
+        Path folder = Paths.get(videosFolder);
+        Files.createDirectories(folder);
+        this.baseLadder = new HashSet<>(baseLadder);
+        this.renditions = new RenditionCache(folder, quotaBytes, halfLifeHours);
+        logger.info("Εκδόσεις κατά παραγγελία, βασική σκάλα " + baseLadder + ", όριο " + quotaBytes / (1024 * 1024) + " MB");
+    }
+
+    // Επιπλέον codecs για τις εκδόσεις (π.χ. hevc, av1)· αγνοούνται όσα δεν έχει το τοπικό FFMPEG
+    public void setCodecs(List<String> wanted) {
+        List<String> enabled = new ArrayList<>(List.of(Codecs.H264));
+        for (String codec : Codecs.ALL) {
+            if (!enabled.contains(codec) && wanted.contains(codec)) {
+                if (Codecs.encoders().contains(codec)) {
+                    enabled.add(codec);
+                } else {
+                    logger.warning("Δεν υπάρχει encoder για " + codec + ", παραλείπονται οι εκδόσεις του");
+                }
+            }
+        }
+        this.codecs = List.copyOf(enabled);
+        logger.info("Codecs εκδόσεων: " + codecs);
+    }
+
+    public RenditionCache getRenditionCache() {
+        return renditions;
+    }
+
+    // Ισχύει από την επόμενη ανανέωση του καταλόγου
+    public void setOwnership(Predicate<String> ownership) {
+        this.ownership = ownership;
+    }
+
+    public String getVideosFolder() {
+        return videosFolder;
+    }
+
+    // Ξεκινά (ή προγραμματίζει) ανανέωση του καταλόγου χωρίς να μπλοκάρει τον καλούντα.
+    // Αν τρέχει ήδη ανανέωση, γίνεται μία ακόμα μετά το τέλος της.
+    public synchronized CompletableFuture<Void> processVideosAsync() {
+        if (!currentBuild.isDone()) {
+            if (!rebuildQueued) {
+                rebuildQueued = true;
+                currentBuild = currentBuild.thenRunAsync(() -> {
+                    synchronized (this) {
+                        rebuildQueued = false;
+                    }
+                    processVideos();
+                }, builder);
+            }
+            return currentBuild;
+        }
+        currentBuild = CompletableFuture.runAsync(this::processVideos, builder);
+        return currentBuild;
+    }
+
+    public void processVideos() {
+        logger.info("Ξεκίνησε επεξεργασία βίντεο...");
+
+        try {
+            Path videosPath = Paths.get(videosFolder);
+            if (!Files.exists(videosPath)) {
+                Files.createDirectories(videosPath);
+                logger.info("Δημιουργήθηκε φάκελος videos");
+                return;
+            }
+
+            // Εύρεση όλων των υπαρχόντων αρχείων
+            Map<String, List<VideoFile>> existingFiles = new HashMap<>();
+
+            try (java.util.stream.Stream<Path> files = Files.list(videosPath)) {
+                files.filter(Files::isRegularFile)
+                    .forEach(file -> {
+                        VideoFile videoFile = parseVideoFile(file.getFileName().toString());
+                        if (videoFile != null) {
+                            existingFiles.computeIfAbsent(videoFile.movieName, k -> new ArrayList<>())
+                                       .add(videoFile);
+                        }
+                    });
+            }
+
+            // Ταινίες άλλων κόμβων δεν δημοσιεύονται ούτε γίνονται transcode εδώ
+            Predicate<String> owns = ownership;
+            List<String> foreign = new ArrayList<>();
+            existingFiles.keySet().removeIf(movieName -> !owns.test(movieName) && foreign.add(movieName));
+            if (!foreign.isEmpty()) {
+                logger.info("Αγνοούνται " + foreign.size() + " ταινίες που ανήκουν σε άλλους κόμβους: " + foreign);
+            }
+
+            // Οι υπάρχουσες εκδόσεις δημοσιεύονται αμέσως ώστε να εξυπηρετούνται
+            // (στο JIT μαζί με όσες θα δημιουργηθούν με το πρώτο αίτημα)
+            Map<String, List<VideoFile>> snapshot = new ConcurrentHashMap<>();
+            for (Map.Entry<String, List<VideoFile>> entry : existingFiles.entrySet()) {
+                List<VideoFile> versions = new CopyOnWriteArrayList<>(entry.getValue());
+                if (renditions != null) {
+                    VideoFile source = findSource(entry.getValue());
+                    sources.put(entry.getKey(), source);
+                    versions.addAll(onDemandVersions(entry.getKey(), entry.getValue(), source.resolution));
+                }
+                snapshot.put(entry.getKey(), versions);
+            }
+            for (Map.Entry<String, List<VideoFile>> entry : live.entrySet()) {
+                snapshot.computeIfAbsent(entry.getKey(), k -> new CopyOnWriteArrayList<>()).addAll(entry.getValue());
+            }
+            ConcurrentSkipListMap<String, VideoFile> newIndex = new ConcurrentSkipListMap<>();
+            for (List<VideoFile> versions : snapshot.values()) {
+                for (VideoFile video : versions) {
+                    newIndex.put(video.toString(), video);
+                }
+            }
+            recordSnapshotChanges(availableVideos, snapshot);
+            availableVideos = snapshot;
+            index = newIndex;
+            logger.info("Δημοσιεύθηκαν " + getTotalVideoCount() + " υπάρχοντα αρχεία, δημιουργία εκδόσεων στο background");
+
+            metadata.retain(newIndex.values().stream().map(video -> video.filename).collect(Collectors.toList()));
+            for (List<VideoFile> versions : existingFiles.values()) {
+                for (VideoFile video : versions) {
+                    metadata.probe(video.filename);
+                }
+            }
+
+            // Για κάθε ταινία, ανάλυση πολυπλοκότητας και δημιουργία όλων των απαιτούμενων εκδόσεων
+            complexity.retain(existingFiles.keySet());
+            boolean analyze = Codecs.isFFMPEGAvailable();
+            List<CompletableFuture<Void>> pending = new ArrayList<>();
+            for (Map.Entry<String, List<VideoFile>> entry : existingFiles.entrySet()) {
+                String movieName = entry.getKey();
+                List<VideoFile> existingVersions = entry.getValue();
+
+                VideoFile source = findSource(existingVersions);
+                if (analyze && source != null) {
+                    pending.add(CompletableFuture.runAsync(
+                        () -> complexity.analyze(source, metadata.get(source.filename)), transcoders));
+                }
+
+                // Εύρεση της μέγιστης ανάλυσης που υπάρχει
+                String maxResolution = findMaxResolution(existingVersions);
+
+                // Δημιουργία όλων των απαιτούμενων εκδόσεων
+                pending.addAll(generateMissingVersions(movieName, existingVersions, maxResolution));
+            }
+
+            CompletableFuture.allOf(pending.toArray(CompletableFuture<?>[]::new)).join();
+            logger.info("Ολοκληρώθηκε επεξεργασία βίντεο. Συνολικά: " + getTotalVideoCount() + " αρχεία");
+
+        } catch (IOException e) {
+            logger.severe("Σφάλμα επεξεργασίας βίντεο: " + e.getMessage());
+        }
+    }
+
+    // Προσθήκη έτοιμης έκδοσης στον κατάλογο (ορατή αμέσως στο GET_VIDEOS)
+    private void publish(VideoFile video) {
+        List<VideoFile> versions = availableVideos.computeIfAbsent(video.movieName, k -> new CopyOnWriteArrayList<>());
+        for (VideoFile existing : versions) {
+            if (existing.filename.equals(video.filename)) {
+                return;
+            }
+        }
+        versions.add(video);
+        index.put(video.toString(), video);
+        recordChange(true, video);
+    }
+
+    // Ζωντανό κανάλι σε εκπομπή: οι αναλύσεις του σε κάθε format (ο client επιλέγει format στο
+    // GET_VIDEOS, η μετάδοση είναι πάντα MPEG-TS H.264)
+    public void publishLive(String channel, List<String> resolutions) {
+        List<VideoFile> versions = new ArrayList<>();
+        for (String format : FORMATS) {
+            for (String resolution : resolutions) {
+                versions.add(new VideoFile(channel, format, resolution, Codecs.H264, channel + "-" + resolution + format));
+            }
+        }
+        live.put(channel, versions);
+        for (VideoFile video : versions) {
+            publish(video);
+        }
+    }
+
+    // Τέλος εκπομπής: οι εκδόσεις του καναλιού αφαιρούνται από τον κατάλογο
+    public void withdrawLive(String channel) {
+        List<VideoFile> versions = live.remove(channel);
+        List<VideoFile> listed = availableVideos.get(channel);
+        if (versions == null || listed == null) {
+            return;
+        }
+        for (VideoFile video : versions) {
+            if (listed.remove(video)) {
+                index.remove(video.toString(), video);
+                recordChange(false, video);
+            }
+        }
+        if (listed.isEmpty()) {
+            availableVideos.remove(channel, listed);
+        }
+    }
+
+    public MetadataCache getMetadata() {
+        return metadata;
+    }
+
+    // Ο ρυθμός που χρειάζεται η έκδοση: η μετρημένη αιχμή, ή ο πίνακας αν δεν έχει μετρηθεί ακόμα
+    public int requiredKbps(VideoFile video) {
+        MediaInfo info = metadata.get(video.filename);
+        return info != null ? info.peakKbps : targetKbps(video);
+    }
+
+    // Ο ρυθμός-στόχος της έκδοσης: ο πίνακας (ανά codec) επί τον συντελεστή πολυπλοκότητας της ταινίας
+    public int targetKbps(VideoFile video) {
+        return (int) (nominalKbps(video) * complexity.get(video.movieName));
+    }
+
+    public TitleComplexity getComplexity() {
+        return complexity;
+    }
+
+    // Ο ρυθμός του πίνακα για την ανάλυση, μειωμένος για τα αποδοτικότερα codecs
+    public static int nominalKbps(VideoFile video) {
+        return (int) (MIN_BITRATES.get(video.resolution) * Codecs.bitrateFactor(video.codec));
+    }
+
+    // Το format του GET_VIDEOS μπορεί να δηλώνει και codecs που αναπαράγει ο client: ".mp4+hevc+av1".
+    // Χωρίς δήλωση μόνο H.264, ώστε οι παλιοί clients να μη λαμβάνουν εκδόσεις που δεν παίζουν.
+    public static String baseFormat(String formatFilter) {
+        int plus = formatFilter.indexOf('+');
+        return plus < 0 ? formatFilter : formatFilter.substring(0, plus);
+    }
+
+    public static Set<String> acceptedCodecs(String formatFilter) {
+        Set<String> accepted = new HashSet<>();
+        accepted.add(Codecs.H264);
+        String[] parts = formatFilter.split("\\+");
+        accepted.addAll(Arrays.asList(parts).subList(1, parts.length));
+        return accepted;
+    }
+
+    // Η ταχύτητα στρογγυλεύεται προς τα κάτω σε 2 σημαντικά ψηφία (π.χ. 2834 -> 2800 kbps), ώστε
+    // κοντινές μετρήσεις της ίδιας σύνδεσης να δίνουν ίδιο φίλτρο (και ETag). Τα όρια του πίνακα
+    // MIN_BITRATES έχουν ήδη 2 σημαντικά ψηφία, οπότε το φίλτρο με τον πίνακα δεν αλλάζει.
+    public int effectiveKbps(double connectionSpeedMbps) {
+        int kbps = (int) (connectionSpeedMbps * 1000);
+        int step = 1;
+        while (kbps / step >= 100) {
+            step *= 10;
+        }
+        return kbps / step * step;
+    }
+
+    private void recordChange(boolean added, VideoFile video) {
+        synchronized (changeLog) {
+            changeLog.addLast(new CatalogChange(version.incrementAndGet(), added, video));
+            if (changeLog.size() > MAX_CHANGE_LOG) {
+                changeLog.removeFirst();
+            }
+        }
+    }
+
+    // Διαφορές μεταξύ παλιού και νέου snapshot μετά από νέα σάρωση του φακέλου
+    private void recordSnapshotChanges(Map<String, List<VideoFile>> oldSnapshot, Map<String, List<VideoFile>> newSnapshot) {
+        Map<String, VideoFile> oldFiles = new HashMap<>();
+        for (List<VideoFile> versions : oldSnapshot.values()) {
+            for (VideoFile video : versions) {
+                oldFiles.put(video.filename, video);
+            }
+        }
+        for (List<VideoFile> versions : newSnapshot.values()) {
+            for (VideoFile video : versions) {
+                if (oldFiles.remove(video.filename) == null) {
+                    recordChange(true, video);
+                }
+            }
+        }
+        for (VideoFile removed : oldFiles.values()) {
+            recordChange(false, removed);
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    // Αλλαγές μετά την έκδοση since, ή null αν δεν υπάρχουν πλέον στο ιστορικό
+    public List<CatalogChange> getChangesSince(long since) {
+        synchronized (changeLog) {
+            long current = version.get();
+            if (since > current) {
+                return null;
+            }
+            if (since == current) {
+                return new ArrayList<>();
+            }
+            CatalogChange oldest = changeLog.peekFirst();
+            if (oldest == null || oldest.version > since + 1) {
+                return null;
+            }
+            List<CatalogChange> changes = new ArrayList<>();
+            for (CatalogChange change : changeLog) {
+                if (change.version > since) {
+                    changes.add(change);
+                }
+            }
+            return changes;
+        }
+    }
+
+    public static VideoFile parseVideoFile(String filename) {
+        Matcher matcher = FILE_PATTERN.matcher(filename);
+
+        if (matcher.matches()) {
+            String movieName = matcher.group(1);
+            String resolution = matcher.group(2);
+            String codec = matcher.group(3) != null ? matcher.group(3) : Codecs.H264;
+            String format = "." + matcher.group(4);
+
+            return new VideoFile(movieName, format, resolution, codec, filename);
+        }
+
+        return null;
+    }
+
+    private String findMaxResolution(List<VideoFile> videos) {
+        int maxResolutionValue = 0;
+        String maxResolution = "240p";
+
+        for (VideoFile video : videos) {
+            int resolutionValue = video.getResolutionValue();
+            if (resolutionValue > maxResolutionValue) {
+                maxResolutionValue = resolutionValue;
+                maxResolution = video.resolution;
+            }
+        }
+
+        return maxResolution;
+    }
+
+    private List<CompletableFuture<Void>> generateMissingVersions(String movieName, List<VideoFile> existingVersions, String maxResolution) {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        Set<String> existingCombinations = new HashSet<>();
+        VideoFile sourceFile = null;
+
+        // Δημιουργία set με υπάρχουσες εκδόσεις
+        for (VideoFile video : existingVersions) {
+            existingCombinations.add(video.getRendition());
+        }
+        sourceFile = findSource(existingVersions);
+
+        if (sourceFile == null) return pending;
+
+        int maxResolutionValue = Integer.parseInt(maxResolution.replace("p", ""));
+
+        // Δημιουργία όλων των απαιτούμενων εκδόσεων
+        for (VideoFile target : ladder(movieName, maxResolutionValue)) {
+            // Στο JIT εκ των προτέρων μόνο η βασική σκάλα
+            if (renditions != null && !baseLadder.contains(target.getRendition())) {
+                continue;
+            }
+
+            if (!existingCombinations.contains(target.getRendition())) {
+                // Δημιουργία νέου αρχείου
+                VideoFile source = sourceFile;
+                pending.add(CompletableFuture.runAsync(() -> generateVideoFile(source, target, false), transcoders));
+            }
+        }
+        return pending;
+    }
+
+    // Όλες οι εκδόσεις μιας ταινίας έως τη μέγιστη ανάλυση: κάθε format και ανάλυση, σε κάθε codec που χωρά στο format
+    private List<VideoFile> ladder(String movieName, int maxResolutionValue) {
+        List<VideoFile> ladder = new ArrayList<>();
+        for (String codec : codecs) {
+            for (String format : FORMATS) {
+                if (!Codecs.fitsContainer(codec, format)) {
+                    continue;
+                }
+                for (String resolution : RESOLUTIONS) {
+                    // Δεν δημιουργούμε ανάλυση μεγαλύτερη από τη μέγιστη υπάρχουσα
+                    if (Integer.parseInt(resolution.replace("p", "")) <= maxResolutionValue) {
+                        String filename = movieName + "-" + resolution + Codecs.suffix(codec) + format;
+                        ladder.add(new VideoFile(movieName, format, resolution, codec, filename));
+                    }
+                }
+            }
+        }
+        return ladder;
+    }
+
+    // Η πηγή μιας ταινίας: η μεγαλύτερη ανάλυση που δεν δημιουργήθηκε κατά παραγγελία
+    private VideoFile findSource(List<VideoFile> versions) {
+        VideoFile source = null;
+        for (VideoFile video : versions) {
+            boolean generated = renditions != null && renditions.contains(video.filename);
+            if (!generated && (source == null || video.getResolutionValue() > source.getResolutionValue())) {
+                source = video;
+            }
+        }
+        if (source == null) {
+            // Έμειναν μόνο παραγόμενες εκδόσεις: η μεγαλύτερη από αυτές
+            for (VideoFile video : versions) {
+                if (source == null || video.getResolutionValue() > source.getResolutionValue()) {
+                    source = video;
+                }
+            }
+        }
+        return source;
+    }
+
+    // Οι εκδόσεις που λείπουν από τον δίσκο και δεν ανήκουν στη βασική σκάλα
+    private List<VideoFile> onDemandVersions(String movieName, List<VideoFile> existingVersions, String maxResolution) {
+        Set<String> existing = new HashSet<>();
+        for (VideoFile video : existingVersions) {
+            existing.add(video.filename);
+        }
+        int maxResolutionValue = Integer.parseInt(maxResolution.replace("p", ""));
+        List<VideoFile> onDemand = new ArrayList<>();
+        for (VideoFile video : ladder(movieName, maxResolutionValue)) {
+            if (!baseLadder.contains(video.getRendition()) && !existing.contains(video.filename)) {
+                onDemand.add(video);
+            }
+        }
+        return onDemand;
+    }
+
+    @Override
+    public boolean has(String filename) {
+        if (Files.exists(Paths.get(videosFolder, filename))) {
+            return true;
+        }
+        VideoFile video = parseVideoFile(filename);
+        return renditions != null && video != null && index.containsKey(filename) && sources.containsKey(video.movieName);
+    }
+
+    // Το αρχείο που θα διαβάσει τώρα το stream. Αν η έκδοση δεν υπάρχει ακόμα, η πηγή
+    // (με κλιμάκωση κατά τη μετάδοση) ενώ η έκδοση δημιουργείται στο background.
+    @Override
+    public String open(String filename) {
+        RenditionCache cache = renditions;
+        if (cache == null) {
+            return filename;
+        }
+        if (Files.exists(Paths.get(videosFolder, filename))) {
+            cache.touch(filename);
+            return filename;
+        }
+        VideoFile video = parseVideoFile(filename);
+        VideoFile source = video != null && index.containsKey(filename) ? sources.get(video.movieName) : null;
+        if (source == null) {
+            return filename;
+        }
+        materialize(filename);
+        return source.filename;
+    }
+
+    // Δημιουργία έκδοσης κατά παραγγελία· ταυτόχρονα αιτήματα για την ίδια έκδοση κάνουν ένα transcode
+    public CompletableFuture<Void> materialize(String filename) {
+        RenditionCache cache = renditions;
+        VideoFile video = parseVideoFile(filename);
+        if (Files.exists(Paths.get(videosFolder, filename))) {
+            if (cache != null) {
+                cache.touch(filename);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        VideoFile source = video != null && cache != null && index.containsKey(filename) ? sources.get(video.movieName) : null;
+        if (source == null) {
+            return CompletableFuture.failedFuture(new FileNotFoundException("Η έκδοση δεν υπάρχει: " + filename));
+        }
+        CompletableFuture<Void> future = inflight.computeIfAbsent(filename, key -> {
+            logger.info("Δημιουργία κατά παραγγελία: " + key);
+            return CompletableFuture.runAsync(() -> {
+                if (!generateVideoFile(source, video, true)) {
+                    // Χωρίς αρχείο στον δίσκο το επόμενο αίτημα ξαναδοκιμάζει
+                    throw new CompletionException(new IOException("Αποτυχία δημιουργίας " + key));
+                }
+                try {
+                    cache.add(key, Files.size(Paths.get(videosFolder, key)));
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, transcoders);
+        });
+        future.whenComplete((result, error) -> inflight.remove(filename, future));
+        return future;
+    }
+
+    // onDemand (JIT): σε αποτυχία δεν μένει τίποτα στον δίσκο και επιστρέφει false, ώστε η έκδοση
+    // να δημιουργηθεί ξανά στο επόμενο αίτημα. Στην αρχική δημιουργία μένει dummy file όπως πριν.
+    private boolean generateVideoFile(VideoFile sourceFile, VideoFile target, boolean onDemand) {
+        String movieName = target.movieName;
+        String targetFormat = target.format;
+        String targetResolution = target.resolution;
+        String outputFilename = target.filename;
+        String outputPath = videosFolder + "/" + outputFilename;
+        String sourcePath = videosFolder + "/" + sourceFile.filename;
+        // Γράφουμε σε προσωρινό όνομα που δεν ταιριάζει στο pattern, ώστε μια
+        // παράλληλη σάρωση να μη δημοσιεύσει μισό αρχείο
+        String tempPath = videosFolder + "/" + movieName + "-" + targetResolution + Codecs.suffix(target.codec) + ".part" + targetFormat;
+
+        try {
+            // Έλεγχος αν το αρχείο υπάρχει ήδη
+            if (Files.exists(Paths.get(outputPath))) {
+                logger.info("Το αρχείο υπάρχει ήδη: " + outputFilename);
+                publish(target);
+                return true;
+            }
+
+            logger.info("Δημιουργία: " + outputFilename + " από " + sourceFile.filename);
+
+            // Πραγματική μετατροπή με FFMPEG
+            if (Codecs.isFFMPEGAvailable()) {
+                complexity.analyze(sourceFile, metadata.get(sourceFile.filename));
+                convertVideoWithFFMPEG(sourcePath, tempPath, target.codec, targetResolution, targetKbps(target));
+            } else if (onDemand) {
+                throw new IOException("FFMPEG δεν είναι διαθέσιμο");
+            } else {
+                // Fallback σε dummy file αν δεν υπάρχει FFMPEG
+                logger.warning("FFMPEG δεν είναι διαθέσιμο, δημιουργία dummy file");
+                createDummyVideoFile(tempPath, targetFormat);
+            }
+            Files.move(Paths.get(tempPath), Paths.get(outputPath), StandardCopyOption.ATOMIC_MOVE);
+
+            logger.info("Δημιουργήθηκε επιτυχώς: " + outputFilename);
+
+        } catch (Exception e) {
+            logger.warning("Σφάλμα δημιουργίας " + outputFilename + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(Paths.get(tempPath));
+                if (onDemand) {
+                    return false;
+                }
+                // Fallback σε dummy file σε περίπτωση σφάλματος
+                createDummyVideoFile(outputPath, targetFormat);
+            } catch (IOException ex) {
+                logger.severe("Αποτυχία δημιουργίας ακόμα και dummy file: " + ex.getMessage());
+                return false;
+            }
+        }
+
+        publish(target);
+        metadata.probe(outputFilename);
+        return true;
+    }
+
+    // Σταθερή ποιότητα (CRF) με ανώτατο ρυθμό τον ρυθμό-στόχο της ταινίας: μια απλή ταινία μένει
+    // κάτω από αυτόν, μια σύνθετη τον φτάνει χωρίς να τον ξεπερνά
+    private void convertVideoWithFFMPEG(String inputPath, String outputPath, String codec, String targetResolution,
+                                        int maxKbps) throws IOException, InterruptedException {
+
+        String scale = getScaleForResolution(targetResolution);
+
+        List<String> command = new ArrayList<>(Arrays.asList(
+            "ffmpeg", "-i", inputPath,
+            "-vf", "scale=" + scale
+        ));
+        command.addAll(Codecs.fileArgs(codec));
+        command.addAll(Arrays.asList("-maxrate", maxKbps + "k", "-bufsize", (2 * maxKbps) + "k"));
+        command.addAll(Arrays.asList(
+            "-c:a", "aac",
+            "-y", // Overwrite output file
+            outputPath
+        ));
+
+        logger.info("Εκτέλεση FFMPEG: " + String.join(" ", command));
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(true);
+
+        Process process = pb.start();
+
+        // Διάβασμα output για monitoring
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Εμφάνιση progress (προαιρετικά)
+                if (line.contains("time=") || line.contains("frame=")) {
+                    logger.fine("FFMPEG Progress: " + line);
+                }
+            }
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new RuntimeException("FFMPEG απέτυχε με κωδικό: " + exitCode);
+        }
+    }
+
+    private void createDummyVideoFile(String outputPath, String format) throws IOException {
+        // Δημιουργία ενός minimal valid video file για δοκιμή
+        // Αυτό είναι για την άσκηση - στην πραγματικότητα θα χρησιμοποιείτε FFMPEG
+
+        byte[] dummyContent;
+
+        switch (format) {
+            case ".mp4":
+                // Minimal MP4 header
+                dummyContent = new byte[]{
+                    0x00, 0x00, 0x00, 0x20, 0x66, 0x74, 0x79, 0x70, // ftyp box
+                    0x69, 0x73, 0x6F, 0x6D, 0x00, 0x00, 0x02, 0x00,
+                    0x69, 0x73, 0x6F, 0x6D, 0x69, 0x73, 0x6F, 0x32,
+                    0x61, 0x76, 0x63, 0x31, 0x6D, 0x70, 0x34, 0x31
+                };
+                break;
+            case ".mkv":
+                // Minimal MKV header (EBML)
+                dummyContent = new byte[]{
+                    0x1A, 0x45, (byte)0xDF, (byte)0xA3, // EBML signature
+                    0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x1F,
+                    0x42, (byte)0x86, (byte)0x81, 0x01, 0x42, (byte)0xF7, (byte)0x81, 0x01,
+                    0x42, (byte)0xF2, (byte)0x81, 0x04, 0x42, (byte)0xF3, (byte)0x81, 0x08
+                };
+                break;
+            case ".avi":
+            default:
+                // Minimal AVI header
+                dummyContent = new byte[]{
+                    0x52, 0x49, 0x46, 0x46, // RIFF
+                    0x00, 0x00, 0x00, 0x00, // File size (placeholder)
+                    0x41, 0x56, 0x49, 0x20, // AVI
+                    0x4C, 0x49, 0x53, 0x54  // LIST
+                };
+                break;
+        }
+
+        Files.write(Paths.get(outputPath), dummyContent);
+    }
+
+    public static String getScaleForResolution(String resolution) {
+        switch (resolution) {
+            case "240p": return "426:240";
+            case "360p": return "640:360";
+            case "480p": return "854:480";
+            case "720p": return "1280:720";
+            case "1080p": return "1920:1080";
+            default: return "854:480";
+        }
+    }
+
+    public List<VideoFile> getSuitableVideos(double connectionSpeedMbps, String format) {
+        List<VideoFile> suitableVideos = new ArrayList<>();
+        int connectionSpeedKbps = effectiveKbps(connectionSpeedMbps);
+
+        String baseFormat = baseFormat(format);
+        Set<String> accepted = acceptedCodecs(format);
+
+        // Το ευρετήριο είναι ήδη ταξινομημένο κατά όνομα
+        for (VideoFile video : index.values()) {
+            if (isSuitable(video, connectionSpeedKbps, baseFormat, accepted)) {
+                suitableVideos.add(video);
+            }
+        }
+
+        return suitableVideos;
+    }
+
+    // Πλήθος κατάλληλων βίντεο, με διακοπή μόλις ξεπεραστεί το limit
+    public int countSuitableVideos(double connectionSpeedMbps, String format, int limit) {
+        int connectionSpeedKbps = effectiveKbps(connectionSpeedMbps);
+        String baseFormat = baseFormat(format);
+        Set<String> accepted = acceptedCodecs(format);
+        int count = 0;
+        for (VideoFile video : index.values()) {
+            if (isSuitable(video, connectionSpeedKbps, baseFormat, accepted) && ++count > limit) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    // Σελιδοποίηση με cursor (το όνομα του τελευταίου στοιχείου της προηγούμενης σελίδας).
+    // Διατρέχει μόνο το απαραίτητο τμήμα του ευρετηρίου, χωρίς να φτιάχνει ολόκληρη λίστα.
+    // format "*" = όλα τα formats, maxResolution null = χωρίς όριο, prefix "" = χωρίς φίλτρο.
+    public Page getPage(double connectionSpeedMbps, String format, String cursor, int limit,
+                        String prefix, String maxResolution) {
+        int connectionSpeedKbps = effectiveKbps(connectionSpeedMbps);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String baseFormat = baseFormat(format);
+        Set<String> accepted = acceptedCodecs(format);
+        int maxResolutionValue = maxResolution == null ? Integer.MAX_VALUE
+                                                       : Integer.parseInt(maxResolution.replace("p", ""));
+
+        Map<String, VideoFile> range;
+        if (!cursor.isEmpty() && cursor.compareTo(prefix) >= 0) {
+            range = index.tailMap(cursor, false);
+        } else {
+            range = index.tailMap(prefix, true);
+        }
+
+        List<VideoFile> items = new ArrayList<>(pageSize);
+        for (Map.Entry<String, VideoFile> entry : range.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                // Τα κλειδιά είναι ταξινομημένα: μετά το prefix δεν υπάρχουν άλλα
+                break;
+            }
+            VideoFile video = entry.getValue();
+            boolean formatMatches = (baseFormat.equals("*") || video.format.equals(baseFormat)) && accepted.contains(video.codec);
+            if (formatMatches &&
+                requiredKbps(video) <= connectionSpeedKbps &&
+                video.getResolutionValue() <= maxResolutionValue) {
+                if (items.size() == pageSize) {
+                    // Υπάρχει τουλάχιστον ένα ακόμα αποτέλεσμα
+                    return new Page(items, items.get(items.size() - 1).toString());
+                }
+                items.add(video);
+            }
+        }
+        return new Page(items, "");
+    }
+
+    public boolean isSuitable(VideoFile video, int connectionSpeedKbps, String format) {
+        return isSuitable(video, connectionSpeedKbps, baseFormat(format), acceptedCodecs(format));
+    }
+
+    private boolean isSuitable(VideoFile video, int connectionSpeedKbps, String baseFormat, Set<String> accepted) {
+        return video.format.equals(baseFormat) && accepted.contains(video.codec) &&
+               requiredKbps(video) <= connectionSpeedKbps;
+    }
+
+    // Κλειδί φίλτρου για το ETag: η στρογγυλεμένη ταχύτητα και η γενιά των μετρήσεων (ffprobe και
+    // πολυπλοκότητας), αφού μια νέα μέτρηση μπορεί να αλλάξει ποιες εκδόσεις χωρούν. Και οι δύο
+    // γενιές μόνο αυξάνονται, άρα και το άθροισμά τους αλλάζει σε κάθε νέα μέτρηση.
+    public String getFilterKey(double connectionSpeedMbps, String format) {
+        return format.replace(".", "") + "." + effectiveKbps(connectionSpeedMbps) + "." +
+               (metadata.getEpoch() + complexity.getEpoch());
+    }
+
+    public int getTotalVideoCount() {
+        return availableVideos.values().stream()
+                             .mapToInt(List::size)
+                             .sum();
+    }
+}
@@ -0,0 +1,35 @@
+// Αναπαράσταση αρχείου βίντεο του καταλόγου
+public class VideoFile {
+    String movieName;
+    String format;
+    String resolution;
+    String filename;
+    // Codec εικόνας: "h264" (χωρίς ένδειξη στο όνομα), "hevc" ή "av1"
+    String codec;
+
+    public VideoFile(String movieName, String format, String resolution, String filename) {
+        this(movieName, format, resolution, Codecs.H264, filename);
+    }
+
+    public VideoFile(String movieName, String format, String resolution, String codec, String filename) {
+        this.movieName = movieName;
+        this.format = format;
+        this.resolution = resolution;
+        this.codec = codec;
+        this.filename = filename;
+    }
+
+    public int getResolutionValue() {
+        return Integer.parseInt(resolution.replace("p", ""));
+    }
+
+    // Η έκδοση χωρίς το όνομα της ταινίας, π.χ. "720p.mp4" ή "720p.hevc.mp4"
+    public String getRendition() {
+        return resolution + Codecs.suffix(codec) + format;
+    }
+
+    @Override
+    public String toString() {
+        return movieName + "-" + getRendition();
+    }
+}
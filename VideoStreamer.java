@@ -0,0 +1,466 @@
+import java.io.*;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.logging.*;
+
+// Εκκίνηση streaming ενός αρχείου του καταλόγου με FFMPEG (TCP, UDP, RTP/UDP ή CMAF χαμηλής καθυστέρησης)
+public class VideoStreamer {
+    private static final Logger logger = Logger.getLogger(StreamingServer.class.getName());
+
+    public static final int STREAM_PORT = 9999;
+
+    // Ρυθμός όταν δεν προκύπτει από την ανάλυση του αρχείου
+    private static final int DEFAULT_KBPS = 1000;
+    private static final int MIN_ADAPTIVE_KBPS = 200;
+    // Το FFMPEG δεν αλλάζει ρυθμό εν κινήσει: κάθε αλλαγή είναι επανεκκίνηση,
+    // οπότε γίνεται μόνο για ουσιαστική διαφορά και όχι πιο συχνά από κάθε 5 δευτερόλεπτα
+    private static final long MIN_SWITCH_INTERVAL_NANOS = 5_000_000_000L;
+    private static final double RATE_CHANGE_THRESHOLD = 0.3;
+    // Άμεση έναρξη: τόσα segments (GOP) στη μικρότερη έκδοση πριν την πρώτη αναβάθμιση
+    private static final int INSTANT_START_SEGMENTS = 3;
+    // Οι αλλαγές έκδοσης γίνονται στο επόμενο όριο GOP (βλ. Codecs.GOP_SECONDS)
+    private static final ScheduledExecutorService SWITCHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rendition-switch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Από πού διαβάζονται οι εκδόσεις. Στο JIT μια έκδοση μπορεί να μην υπάρχει ακόμα
+    // στον δίσκο: τότε διαβάζεται η πηγή της και η κλιμάκωση γίνεται κατά τη μετάδοση.
+    public interface InputSource {
+        // Αν η έκδοση μπορεί να μεταδοθεί (χωρίς παρενέργειες)
+        boolean has(String fileName);
+        // Το αρχείο που θα διαβάσει το FFMPEG για την έκδοση
+        String open(String fileName);
+    }
+
+    private final String videosFolder;
+    private volatile InputSource inputSource;
+    // Ρυθμός-στόχος ανά έκδοση (στον server ανά ταινία, από την ανάλυση πολυπλοκότητας)
+    private volatile ToIntFunction<VideoFile> targetKbps = VideoCatalog::nominalKbps;
+
+    public VideoStreamer(String videosFolder) {
+        this.videosFolder = videosFolder;
+        this.inputSource = new InputSource() {
+            @Override
+            public boolean has(String fileName) {
+                return Files.exists(Paths.get(videosFolder, fileName));
+            }
+
+            @Override
+            public String open(String fileName) {
+                return fileName;
+            }
+        };
+    }
+
+    public void setInputSource(InputSource inputSource) {
+        this.inputSource = inputSource;
+    }
+
+    public void setTargetKbps(ToIntFunction<VideoFile> targetKbps) {
+        this.targetKbps = targetKbps;
+    }
+
+    // Ένα ενεργό stream. Με προσαρμογή ρυθμού η διεργασία του FFMPEG μπορεί να αντικατασταθεί
+    // (άλλη έκδοση / άλλος ρυθμός) ενώ ο relay, άρα και η ροή προς τον client, παραμένει.
+    public class Stream implements ClientSession.ActiveStream {
+        private final String protocol;
+        private final int port;
+        // Ο θεατής: στον cluster ο κόμβος στέλνει κατευθείαν σε αυτόν (client=)
+        private final InetAddress client;
+        private final StreamRelay relay;
+        private final CmafPublisher publisher;
+        private final BitrateController controller;
+        private final VideoFile video;
+        // Άμεση έναρξη: η ροή ξεκινά από τη μικρότερη έκδοση μέχρι να επιβεβαιωθεί ο ρυθμός
+        private final boolean instantStart;
+        private boolean confirming;
+        private volatile Process process;
+        private volatile boolean stopped = false;
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+        private String currentFile;
+        private int encodeKbps;
+        private long processStartNanos;
+        private double processOffsetSeconds;
+        private long lastSwitchNanos;
+        private boolean switchPending;
+
+        private Stream(String protocol, int port, InetAddress client, StreamRelay relay, CmafPublisher publisher,
+                       BitrateController controller, VideoFile video, boolean instantStart) {
+            this.protocol = protocol;
+            this.port = port;
+            this.client = client;
+            this.relay = relay;
+            this.publisher = publisher;
+            this.controller = controller;
+            this.video = video;
+            this.instantStart = instantStart;
+            this.confirming = instantStart;
+        }
+
+        public boolean isInstantStart() {
+            return instantStart;
+        }
+
+        public Process getProcess() {
+            return process;
+        }
+
+        // Ολοκληρώνεται με το STOP ή όταν τελειώσει το αρχείο
+        public CompletableFuture<Void> onFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isAlive() {
+            return !stopped && process != null && process.isAlive();
+        }
+
+        @Override
+        public synchronized void stop() {
+            stopped = true;
+            if (process != null) {
+                process.destroy();
+            }
+            if (relay != null) {
+                relay.close();
+            }
+            if (publisher != null) {
+                publisher.close();
+            }
+            finished.complete(null);
+        }
+
+        private synchronized void start(String fileName, int kbps, double offsetSeconds) throws IOException {
+            String input = inputSource.open(fileName);
+            if (!Files.exists(Paths.get(videosFolder, input))) {
+                throw new IOException("Το αρχείο δεν υπάρχει: " + videosFolder + "/" + fileName);
+            }
+            List<String> command = buildCommand(input, input.equals(fileName) ? null : VideoCatalog.parseVideoFile(fileName),
+                                                protocol, port, client, relay, kbps, offsetSeconds);
+            ProcessBuilder pb = new ProcessBuilder(command);
+            // Στο CMAF το stdout είναι η ροή προς τον publisher και τα μηνύματα έρχονται στο stderr
+            pb.redirectErrorStream(publisher == null);
+
+            logger.info("Εκκίνηση FFMPEG streaming με εντολή: " + String.join(" ", command));
+
+            Process started = pb.start();
+            process = started;
+            currentFile = fileName;
+            encodeKbps = kbps;
+            processStartNanos = System.nanoTime();
+            processOffsetSeconds = offsetSeconds;
+            lastSwitchNanos = processStartNanos;
+
+            // Τέλος του stream μόνο όταν τερματίσει η τρέχουσα διεργασία (όχι μια που αντικαταστάθηκε)
+            started.onExit().thenRun(() -> {
+                if (process == started) {
+                    if (relay != null) {
+                        relay.close();
+                    }
+                    finished.complete(null);
+                }
+            });
+            if (publisher != null) {
+                publisher.publish(started.getInputStream());
+                monitor(started, started.getErrorStream());
+            } else {
+                monitor(started, started.getInputStream());
+            }
+        }
+
+        // Απόφαση του BitrateController για κάθε αναφορά του client
+        private synchronized void onFeedback(BitrateController.Feedback feedback) {
+            if (stopped) {
+                return;
+            }
+            long now = System.nanoTime();
+            int target;
+            if (confirming) {
+                // Αναβάθμιση μόνο αφού τα πρώτα segments φτάσουν καθαρά· με απώλειες ή αύξηση
+                // καθυστέρησης από την αρχή ισχύει κατευθείαν η συνηθισμένη προσαρμογή
+                if (!controller.confirms(feedback)) {
+                    confirming = false;
+                    logger.info("Άμεση έναρξη: ο ρυθμός " + encodeKbps + "k δεν επιβεβαιώθηκε (" + feedback + ")");
+                    target = controller.update(feedback);
+                } else if (now - processStartNanos < INSTANT_START_SEGMENTS * Codecs.GOP_SECONDS * 1_000_000_000L) {
+                    return;
+                } else {
+                    confirming = false;
+                    target = controller.raiseToMax();
+                    logger.info("Άμεση έναρξη: επιβεβαιώθηκε η λήψη " + currentFile + " (" + feedback +
+                                "), αναβάθμιση έως " + target + "k");
+                }
+            } else {
+                target = controller.update(feedback);
+            }
+            String rendition = renditionFor(video, target);
+
+            boolean renditionChange = !rendition.equals(currentFile);
+            boolean rateChange = Math.abs(target - encodeKbps) > RATE_CHANGE_THRESHOLD * encodeKbps;
+            if (!(renditionChange || rateChange) || switchPending || now - lastSwitchNanos < MIN_SWITCH_INTERVAL_NANOS) {
+                return;
+            }
+
+            // Η νέα διεργασία ξεκινά ακριβώς στο επόμενο όριο GOP: εκεί όλες οι εκδόσεις έχουν keyframe
+            // με κλειστό GOP, και τα keyframes της μετάδοσης συνεχίζουν στο ίδιο πλέγμα χρόνου
+            double position = processOffsetSeconds + (now - processStartNanos) / 1e9;
+            double boundary = Math.ceil(position / Codecs.GOP_SECONDS) * Codecs.GOP_SECONDS;
+            logger.info(String.format("Προσαρμογή ρυθμού: %s @%dk -> %s @%dk στο όριο GOP %.1fs (τώρα %.1fs, %s)",
+                                      currentFile, encodeKbps, rendition, target, boundary, position, feedback));
+            switchPending = true;
+            SWITCHER.schedule(() -> switchAt(rendition, target, boundary),
+                              (long) ((boundary - position) * 1000), TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void switchAt(String rendition, int target, double boundary) {
+            switchPending = false;
+            if (stopped) {
+                return;
+            }
+            Process previous = process;
+            try {
+                start(rendition, target, boundary);
+                previous.destroy();
+            } catch (IOException e) {
+                logger.warning("Αποτυχία αλλαγής έκδοσης: " + e.getMessage());
+            }
+        }
+    }
+
+    // Εκκινεί το FFMPEG και επιστρέφει το stream ώστε να μπορεί να σταματήσει (STOP)
+    public Stream startVideoStreaming(String fileName, String protocol) throws IOException {
+        return startVideoStreaming(fileName, protocol, Collections.emptyMap(), InetAddress.getLoopbackAddress());
+    }
+
+    // Με επιλογές το UDP/RTP περνά από StreamRelay προς τον client:
+    //   fec=LxD     πακέτα FEC
+    //   nack=<ms>   αναμεταδόσεις (μόνο RTP/UDP), με την καθυστέρηση αναπαραγωγής του client
+    //   adapt=<kbps> προσαρμογή ρυθμού με βάση τις αναφορές RTCP, έως τον δοσμένο ρυθμό
+    //   rate=<kbps> σταθερός ρυθμός κωδικοποίησης
+    //   start=instant άμεση έναρξη: τα πρώτα segments από τη μικρότερη έκδοση και, μόλις οι αναφορές
+    //               RTCP επιβεβαιώσουν τη λήψη τους, αναβάθμιση στην έκδοση που χωρά στο adapt
+    //               (αλλιώς στην έκδοση που ζητήθηκε), με προσαρμογή ρυθμού στη συνέχεια
+    //   port=<n>    θύρα του client (αλλιώς 9999), ώστε πολλοί clients να λαμβάνουν από τον ίδιο host
+    // Το CMAF δεν έχει relay ούτε προσαρμογή: ο client συνδέεται με HTTP στη θύρα (βλ. CmafPublisher)
+    public Stream startVideoStreaming(String fileName, String protocol, Map<String, String> options,
+                                      InetAddress client) throws IOException {
+        // Έλεγχος αν το αρχείο υπάρχει
+        if (!inputSource.has(fileName)) {
+            throw new IOException("Το αρχείο δεν υπάρχει: " + videosFolder + "/" + fileName);
+        }
+        if (!Arrays.asList("TCP", "UDP", "RTP/UDP", "CMAF").contains(protocol.toUpperCase())) {
+            throw new IllegalArgumentException("Μη υποστηριζόμενο πρωτόκολλο: " + protocol);
+        }
+
+        VideoFile video = VideoCatalog.parseVideoFile(fileName);
+        int nominalKbps = video != null ? targetKbps.applyAsInt(video) : DEFAULT_KBPS;
+
+        int port = Integer.parseInt(options.getOrDefault("port", String.valueOf(STREAM_PORT)));
+        if (port < 1 || port > 65535 - Fec.ROW_PORT_OFFSET) {
+            throw new IllegalArgumentException("Μη έγκυρη θύρα: " + port);
+        }
+        String fec = options.get("fec");
+        // Το NACK χρειάζεται sequence numbers: μόνο για RTP/UDP
+        int nackPlayoutMs = protocol.equalsIgnoreCase("RTP/UDP") ? Integer.parseInt(options.getOrDefault("nack", "0")) : 0;
+        // Relay (FEC, NACK, προσαρμογή με τις αναφορές RTCP) μόνο για UDP και RTP/UDP
+        boolean datagram = protocol.equalsIgnoreCase("UDP") || protocol.equalsIgnoreCase("RTP/UDP");
+        int adaptMaxKbps = datagram ? Integer.parseInt(options.getOrDefault("adapt", "0")) : 0;
+        boolean instantStart = datagram && video != null && "instant".equals(options.get("start"));
+        if (options.containsKey("start") && !instantStart) {
+            logger.info("Η άμεση έναρξη ισχύει μόνο για UDP και RTP/UDP, κανονική έναρξη για " + fileName);
+        }
+
+        int kbps = Integer.parseInt(options.getOrDefault("rate", String.valueOf(nominalKbps)));
+
+        // Από εδώ και πέρα κάθε αποτυχία κλείνει τον relay (και τα sockets του)
+        StreamRelay relay = null;
+        if ((fec != null || nackPlayoutMs > 0 || adaptMaxKbps > 0 || instantStart) && datagram) {
+            relay = new StreamRelay(client, port, protocol.equalsIgnoreCase("RTP/UDP"),
+                                    fec != null ? Fec.Config.parse(fec) : null, nackPlayoutMs);
+        }
+
+        BitrateController controller = null;
+        if (instantStart) {
+            // Ξεκινά με τον ρυθμό της μικρότερης έκδοσης· το ανώτατο όριο είναι το ίδιο με το adapt
+            int maxKbps = adaptMaxKbps > 0 ? Math.min(adaptMaxKbps, nominalKbps) : nominalKbps;
+            VideoFile lowest = VideoCatalog.parseVideoFile(renditionFor(video, 0));
+            int lowestKbps = lowest != null ? targetKbps.applyAsInt(lowest) : MIN_ADAPTIVE_KBPS;
+            controller = new BitrateController(Math.min(lowestKbps, maxKbps), MIN_ADAPTIVE_KBPS, maxKbps);
+            kbps = controller.getTargetKbps();
+        } else if (adaptMaxKbps > 0 && video != null) {
+            int maxKbps = Math.min(adaptMaxKbps, nominalKbps);
+            kbps = (int) Math.min(maxKbps, adaptMaxKbps * 0.8);
+            controller = new BitrateController(kbps, MIN_ADAPTIVE_KBPS, maxKbps);
+            kbps = controller.getTargetKbps();
+        }
+
+        CmafPublisher publisher = null;
+        if (protocol.equalsIgnoreCase("CMAF")) {
+            try {
+                publisher = new CmafPublisher(port);
+            } catch (IOException e) {
+                if (relay != null) {
+                    relay.close();
+                }
+                throw e;
+            }
+        }
+
+        Stream stream = new Stream(protocol, port, client, relay, publisher, controller, video, instantStart);
+        try {
+            stream.start(controller != null ? renditionFor(video, kbps) : fileName, kbps, 0);
+        } catch (IOException e) {
+            if (relay != null) {
+                relay.close();
+            }
+            if (publisher != null) {
+                publisher.close();
+            }
+            throw e;
+        }
+
+        if (relay != null) {
+            if (controller != null) {
+                relay.setFeedbackListener(stream::onFeedback);
+            }
+            relay.start();
+        }
+        return stream;
+    }
+
+    // Η μεγαλύτερη διαθέσιμη έκδοση (ίδιο βίντεο, codec και format, έως την ανάλυση που ζητήθηκε)
+    // που χωρά στον ρυθμό-στόχο· αν καμία δεν χωρά, η μικρότερη διαθέσιμη
+    private String renditionFor(VideoFile requested, int targetKbps) {
+        String best = null;
+        String smallest = null;
+        for (String resolution : VideoCatalog.RESOLUTIONS) {
+            VideoFile candidate = VideoCatalog.parseVideoFile(requested.movieName + "-" + resolution +
+                                                              Codecs.suffix(requested.codec) + requested.format);
+            if (candidate == null || candidate.getResolutionValue() > requested.getResolutionValue() ||
+                !inputSource.has(candidate.toString())) {
+                continue;
+            }
+            if (smallest == null) {
+                smallest = candidate.toString();
+            }
+            if (this.targetKbps.applyAsInt(candidate) <= targetKbps) {
+                best = candidate.toString();
+            }
+        }
+        return best != null ? best : smallest != null ? smallest : requested.toString();
+    }
+
+    // scaleTo: η έκδοση που ζητήθηκε, όταν το αρχείο είναι η πηγή της (JIT)
+    private List<String> buildCommand(String fileName, VideoFile scaleTo, String protocol, int port, InetAddress client,
+                                      StreamRelay relay, int kbps, double offsetSeconds) {
+        String inputPath = videosFolder + "/" + fileName;
+        // Χωρίς relay το FFMPEG στέλνει κατευθείαν στον θεατή (στον cluster άλλος host από τον κόμβο)
+        String viewer = client.isLoopbackAddress() ? "localhost"
+            : client instanceof Inet6Address ? "[" + client.getHostAddress() + "]" : client.getHostAddress();
+        String target = relay != null ? "127.0.0.1:" + relay.getInputPort() : viewer + ":" + port;
+
+        List<String> command = new ArrayList<>(Arrays.asList("ffmpeg", "-re"));
+        if (offsetSeconds > 0) {
+            // Συνέχεια από το ίδιο σημείο, με συνεχή timestamps για τον player
+            command.addAll(Arrays.asList("-ss", String.format(Locale.ROOT, "%.3f", offsetSeconds)));
+        }
+        command.addAll(Arrays.asList("-i", inputPath));
+        if (scaleTo != null) {
+            command.addAll(Arrays.asList("-vf", "scale=" + VideoCatalog.getScaleForResolution(scaleTo.resolution)));
+        }
+        // Ίδιο codec με την έκδοση, ώστε η μετάδοση να κρατά την εξοικονόμηση ρυθμού του HEVC/AV1
+        VideoFile rendition = scaleTo != null ? scaleTo : VideoCatalog.parseVideoFile(fileName);
+        String codec = Codecs.liveCodec(rendition != null ? rendition.codec : Codecs.H264);
+        command.addAll(Codecs.liveArgs(codec, kbps));
+        command.addAll(Arrays.asList("-c:a", "aac"));
+        if (offsetSeconds > 0) {
+            command.addAll(Arrays.asList("-output_ts_offset", String.format(Locale.ROOT, "%.3f", offsetSeconds)));
+        }
+
+        switch (protocol.toUpperCase()) {
+            case "TCP":
+                command.addAll(Codecs.gopArgs(codec, 1)); // Keyframes κάθε δευτερόλεπτο
+                // Ένας απομακρυσμένος θεατής συνδέεται στη θύρα από άλλο host
+                String listen = client.isLoopbackAddress() ? "localhost" : "0.0.0.0";
+                command.addAll(Arrays.asList("-f", "mpegts", "tcp://" + listen + ":" + port + "?listen=1"));
+                break;
+
+            case "UDP":
+                command.addAll(Codecs.gopArgs(codec, 0.5)); // Περισσότερα keyframes για UDP
+                if (codec.equals(Codecs.H264)) {
+                    command.addAll(Arrays.asList("-x264opts", "nal-hrd=cbr")); // Constant bitrate για καλύτερο UDP
+                }
+                command.addAll(Arrays.asList("-f", "mpegts", "udp://" + target + "?pkt_size=1316"));
+                break;
+
+            case "CMAF":
+                // Fragmented MP4 στο stdout: chunk (moof + mdat) κάθε 200 ms, segment σε κάθε keyframe
+                command.addAll(Codecs.gopArgs(codec, 1));
+                command.addAll(Arrays.asList("-f", "mp4", "-movflags", "empty_moov+default_base_moof+frag_keyframe+cmaf",
+                                             "-frag_duration", "200000", "-flush_packets", "1", "pipe:1"));
+                break;
+
+            default:
+                // RTP/UDP: χρειάζεται SDP file. Το MPEG-TS μέσα σε RTP (PT 33) μεταφέρει
+                // εικόνα και ήχο σε ένα stream και το προωθεί αυτούσιο ο client στον player.
+                createSDPFile(port);
+                command.addAll(Codecs.gopArgs(codec, 1));
+                command.addAll(Arrays.asList("-f", "rtp_mpegts", "rtp://" + target + "?pkt_size=1328"));
+                break;
+        }
+        return command;
+    }
+
+    // Παρακολούθηση της διαδικασίας streaming σε ξεχωριστό thread (output: τα μηνύματα του FFMPEG)
+    private void monitor(Process process, InputStream output) {
+        new Thread(() -> {
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(output));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.contains("time=") || line.contains("fps=") || line.contains("bitrate=")) {
+                        logger.info("FFMPEG Streaming: " + line);
+                    } else if (line.contains("error") || line.contains("Error")) {
+                        logger.warning("FFMPEG Error: " + line);
+                    }
+                }
+                int exitCode = process.waitFor();
+                logger.info("FFMPEG streaming process τερμάτισε με κωδικό: " + exitCode);
+            } catch (Exception e) {
+                logger.severe("Σφάλμα FFMPEG streaming: " + e.getMessage());
+            }
+        }).start();
+    }
+
+    private void createSDPFile(int port) {
+        try {
+            String sdpContent =
+                "v=0\n" +
+                "o=- 0 0 IN IP4 127.0.0.1\n" +
+                "s=Test Stream\n" +
+                "c=IN IP4 127.0.0.1\n" +
+                "t=0 0\n" +
+                "m=video " + port + " RTP/AVP 33\n" +
+                "a=rtpmap:33 MP2T/90000\n";
+
+            Files.write(Paths.get("stream.sdp"), sdpContent.getBytes());
+            logger.info("Δημιουργήθηκε SDP file για RTP streaming");
+        } catch (IOException e) {
+            logger.warning("Σφάλμα δημιουργίας SDP file: " + e.getMessage());
+        }
+    }
+}